@@ -1,8 +1,12 @@
 package com.appgame.analytics.aggregator.accumulator;
 
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
+import org.apache.hadoop.hbase.filter.Filter;
 import org.codehaus.jettison.json.JSONArray;
 import org.codehaus.jettison.json.JSONObject;
 
@@ -22,6 +26,26 @@ public abstract class Accumulator
 	 */
 	public abstract void put(Map<String, Object> input) throws Exception;
 	
+	/**
+	 * 将一批数据压入累积器（默认逐条处理， 子类可以按批次处理以减少逐条调用的开销；出错时抛出'AccumulatorBatchException'并记录出错数据在批次内的位置）
+	 * @param inputs
+	 * @throws Exception
+	 */
+	public void putBatch(List<Map<String, Object>> inputs) throws Exception
+	{
+		for (int index = 0; index < inputs.size(); index++)
+		{
+			try
+			{
+				put(inputs.get(index));
+			}
+			catch (Exception e)
+			{
+				throw new AccumulatorBatchException(index, e);
+			}
+		}
+	}
+	
 	/**
 	 * 从累积器读取数据
 	 * @return
@@ -29,6 +53,35 @@ public abstract class Accumulator
 	 */
 	public abstract AccumulatorCollection get() throws Exception;
 	
+	/**
+	 * 获取累积器读取的输入字段路径（返回 null 表示累积器需要完整的输入数据）
+	 * @return
+	 * @throws Exception
+	 */
+	public abstract Set<String> fields() throws Exception;
+	
+	/**
+	 * 返回累积器（包括后续累积器）持有数据的估算大小（字节）
+	 * @return
+	 */
+	public abstract long bytes();
+	
+	/**
+	 * 关闭累积器（包括后续累积器，删除溢出文件并关闭持有的容器，关闭后不能再读取已经返回的结果）
+	 * @throws Exception
+	 */
+	public abstract void close() throws Exception;
+	
+	/**
+	 * 将累积器的匹配逻辑转换为 HBASE 过滤器（返回 null 表示无法转换， 过滤器通过的数据必须包含累积器接受的全部数据）
+	 * @return
+	 * @throws Exception
+	 */
+	public Filter filter() throws Exception
+	{
+		return null;
+	}
+	
 	/////////////////////////////////////////////////////////////////
 	// 异常捕捉累积器
 	/////////////////////////////////////////////////////////////////
@@ -85,6 +138,33 @@ public abstract class Accumulator
 			}
 		}
 
+		/**
+		 * 处理输入累积器的一批数据
+		 */
+		@Override
+		public void putBatch(List<Map<String, Object>> inputs) throws Exception
+		{
+			try
+			{
+				accumulator.putBatch(inputs);
+			}
+			catch (Exception e)
+			{
+				StringBuilder builder = new StringBuilder("\r\n");
+				builder.append("sentence : \r\n");
+				builder.append(sentence + "\r\n");
+				builder.append("error : \r\n");
+				builder.append(e.getMessage());
+				builder.append("\r\n");
+				// 保留出错数据在批次内的位置
+				if (e instanceof AccumulatorBatchException)
+				{
+					throw new AccumulatorBatchException(((AccumulatorBatchException)e).index(), builder.toString(), e);
+				}
+				throw new Exception(builder.toString(), e);
+			}
+		}
+
 		/**
 		 * 从累积器读取数据
 		 */
@@ -93,9 +173,54 @@ public abstract class Accumulator
 		{
 			return accumulator.get();
 		}
+
+		/**
+		 * 获取累积器读取的输入字段路径
+		 */
+		@Override
+		public Set<String> fields() throws Exception
+		{
+			return accumulator.fields();
+		}
+
+		/**
+		 * 返回累积器持有数据的估算大小
+		 */
+		@Override
+		public long bytes()
+		{
+			return accumulator.bytes();
+		}
+		
+		/**
+		 * 关闭累积器
+		 */
+		@Override
+		public void close() throws Exception
+		{
+			accumulator.close();
+		}
+
+		/**
+		 * 将累积器的匹配逻辑转换为 HBASE 过滤器
+		 */
+		@Override
+		public Filter filter() throws Exception
+		{
+			return accumulator.filter();
+		}
 	}
 	
 	
+	/////////////////////////////////////////////////////////////////
+	// 累积器配置
+	/////////////////////////////////////////////////////////////////
+	
+	/**
+	 * 溢出文件归并的最大路数（溢出文件超过此数量时分多趟归并，限制同时打开的文件数量以及读取缓冲区）
+	 */
+	protected static final int MERGE_FACTOR = 64;
+	
 	/////////////////////////////////////////////////////////////////
 	// 累积器构造方法
 	/////////////////////////////////////////////////////////////////
@@ -105,7 +230,7 @@ public abstract class Accumulator
 	 */
 	private interface AccumulatorBuilder
 	{
-		public Accumulator build(Accumulator accumulator, Object value) throws Exception;
+		public Accumulator build(Accumulator accumulator, Object value, AccumulatorConfig config) throws Exception;
 	}
 	
 	/**
@@ -117,7 +242,7 @@ public abstract class Accumulator
 		builders.put("$project", new AccumulatorBuilder()
 		{
 			@Override
-			public Accumulator build(Accumulator accumulator, Object value)	throws Exception
+			public Accumulator build(Accumulator accumulator, Object value, AccumulatorConfig config) throws Exception
 			{
 				if (value instanceof JSONObject)
 				{
@@ -132,11 +257,11 @@ public abstract class Accumulator
 		builders.put("$group", new AccumulatorBuilder()
 		{
 			@Override
-			public Accumulator build(Accumulator accumulator, Object value)	throws Exception
+			public Accumulator build(Accumulator accumulator, Object value, AccumulatorConfig config) throws Exception
 			{
 				if (value instanceof JSONObject)
 				{
-					return new GroupAccumulator(accumulator, (JSONObject)value);
+					return new GroupAccumulator(accumulator, (JSONObject)value, config);
 				}
 				else
 				{
@@ -147,11 +272,11 @@ public abstract class Accumulator
 		builders.put("$sort", new AccumulatorBuilder()
 		{
 			@Override
-			public Accumulator build(Accumulator accumulator, Object value)	throws Exception
+			public Accumulator build(Accumulator accumulator, Object value, AccumulatorConfig config) throws Exception
 			{
 				if (value instanceof JSONObject)
 				{
-					return new SortAccumulator(accumulator, (JSONObject)value);
+					return new SortAccumulator(accumulator, (JSONObject)value, config);
 				}
 				else
 				{
@@ -162,7 +287,7 @@ public abstract class Accumulator
 		builders.put("$skip", new AccumulatorBuilder()
 		{
 			@Override
-			public Accumulator build(Accumulator accumulator, Object value)	throws Exception
+			public Accumulator build(Accumulator accumulator, Object value, AccumulatorConfig config) throws Exception
 			{
 				if (value instanceof Number)
 				{
@@ -177,7 +302,7 @@ public abstract class Accumulator
 		builders.put("$limit", new AccumulatorBuilder()
 		{
 			@Override
-			public Accumulator build(Accumulator accumulator, Object value)	throws Exception
+			public Accumulator build(Accumulator accumulator, Object value, AccumulatorConfig config) throws Exception
 			{
 				if (value instanceof Number)
 				{
@@ -192,7 +317,7 @@ public abstract class Accumulator
 		builders.put("$match", new AccumulatorBuilder()
 		{
 			@Override
-			public Accumulator build(Accumulator accumulator, Object value)	throws Exception
+			public Accumulator build(Accumulator accumulator, Object value, AccumulatorConfig config) throws Exception
 			{
 				if (value instanceof JSONObject)
 				{
@@ -213,6 +338,31 @@ public abstract class Accumulator
 	 * @throws Exception
 	 */
 	public static Accumulator build(String sentence) throws Exception
+	{
+		return build(sentence, AccumulatorConfig.DEFAULT, 1.0);
+	}
+	
+	/**
+	 * 构造累积器（使用默认配置）
+	 * @param sentence
+	 * @param sample 抽样率（0, 1]
+	 * @return
+	 * @throws Exception
+	 */
+	public static Accumulator build(String sentence, double sample) throws Exception
+	{
+		return build(sentence, AccumulatorConfig.DEFAULT, sample);
+	}
+	
+	/**
+	 * 构造累积器（扫描结果经过抽样时，最靠近扫描的'$group'按抽样率放大'$sum'、'$count'）
+	 * @param sentence
+	 * @param config 累积器配置
+	 * @param sample 抽样率（0, 1]
+	 * @return
+	 * @throws Exception
+	 */
+	public static Accumulator build(String sentence, AccumulatorConfig config, double sample) throws Exception
 	{
 		JSONArray jarray = new JSONArray(sentence);
 		// 累积器配置解析
@@ -230,14 +380,37 @@ public abstract class Accumulator
 				throw new Exception(String.format("accumulator must contain exactly one field - %s", json.toString()));
 			}
 		}
-		// 构造累积器
+		// 构造累积器（配置按逆序排列， '$sort'、'$skip'（可选）、'$limit'序列融合为前 K 项累积器）
 		Accumulator accumulator = null;
-		for (Map.Entry<String, Object> entry : map.entries())
+		List<Map.Entry<String, Object>> entries = map.entries();
+		int sampled = -1;
+		for (int index = 0; sample < 1.0 && index < entries.size(); index++)
 		{
+			if (entries.get(index).getKey().equals("$group") && entries.get(index).getValue() instanceof JSONObject)
+			{
+				sampled = index;
+			}
+		}
+		for (int index = 0; index < entries.size(); index++)
+		{
+			Map.Entry<String, Object> entry = entries.get(index);
+			if (index == sampled)
+			{
+				accumulator = new GroupAccumulator(accumulator, (JSONObject)entry.getValue(), config, sample);
+				continue;
+			}
+			int fused = fuse(entries, index);
+			if (fused > 0)
+			{
+				Object skip = fused == 3 ? entries.get(index + 1).getValue() : 0;
+				accumulator = new TopAccumulator(accumulator, (JSONObject)entries.get(index + fused - 1).getValue(), ((Number)skip).longValue(), ((Number)entry.getValue()).longValue());
+				index = index + fused - 1;
+				continue;
+			}
 			AccumulatorBuilder builder = builders.get(entry.getKey());
 			if (builder != null)
 			{
-				accumulator = builder.build(accumulator, entry.getValue());
+				accumulator = builder.build(accumulator, entry.getValue(), config);
 			}
 			else
 			{
@@ -246,5 +419,139 @@ public abstract class Accumulator
 		}
 		return new WrapperAccumulator(sentence, accumulator);
 	}
+	
+	/**
+	 * 拆分管道（区域内并行扫描时使用）：扫描线程执行开头的'$match'、'$project'以及第一个非流式阶段，
+	 * 区域汇总管道按扫描线程顺序合并全部部分结果后执行其余阶段
+	 * 1. 第一个非流式阶段为'$group'时，汇总管道以按'_id'重新分组的同名算子合并部分分组状态（算子输入为同类状态时合并）
+	 * 2. 第一个非流式阶段为'$sort'、'$limit'时，扫描线程预先排序或者截取，汇总管道重新执行该阶段
+	 * 3. 第一个非流式阶段为'$skip'或者分组条件无法还原时不能拆分
+	 * @param sentence
+	 * @return [扫描线程管道, 汇总管道]，全部为流式阶段时汇总管道为 null（直接拼接部分结果）；不能拆分时返回 null
+	 * @throws Exception
+	 */
+	public static String[] partition(String sentence) throws Exception
+	{
+		JSONArray jarray  = new JSONArray(sentence);
+		JSONArray partial = new JSONArray();
+		int index = 0;
+		while (index < jarray.length() && (jarray.getJSONObject(index).has("$match") || jarray.getJSONObject(index).has("$project")))
+		{
+			partial.put(jarray.getJSONObject(index++));
+		}
+		if (index == jarray.length())
+		{
+			return new String[] {sentence, null};
+		}
+		JSONObject stage  = jarray.getJSONObject(index);
+		JSONArray  merged = new JSONArray();
+		if (stage.has("$group") && stage.get("$group") instanceof JSONObject)
+		{
+			JSONObject reducer = reducer(stage.getJSONObject("$group"));
+			if (reducer == null)
+			{
+				return null;
+			}
+			partial.put(stage);
+			merged.put(new JSONObject().put("$group", reducer));
+			index = index + 1;
+		}
+		else if (stage.has("$sort") || stage.has("$limit"))
+		{
+			partial.put(stage);
+			// '$sort'、'$limit'在扫描线程内同样融合为前 K 项累积器
+			if (stage.has("$sort") && index + 1 < jarray.length() && jarray.getJSONObject(index + 1).has("$limit"))
+			{
+				partial.put(jarray.getJSONObject(index + 1));
+			}
+		}
+		else
+		{
+			return null;
+		}
+		for (; index < jarray.length(); index++)
+		{
+			merged.put(jarray.getJSONObject(index));
+		}
+		return new String[] {partial.toString(), merged.toString()};
+	}
+	
+	/**
+	 * 构造合并部分分组结果的'$group'配置（'_id'取部分结果的分组条件，其余字段使用同名算子合并同名字段）
+	 * @param group
+	 * @return 分组条件的字段名称含有'.'（无法按路径取回）时返回 null
+	 * @throws Exception
+	 */
+	@SuppressWarnings("rawtypes")
+	private static JSONObject reducer(JSONObject group) throws Exception
+	{
+		JSONObject reducer = new JSONObject();
+		for (Iterator it = group.keys(); it.hasNext(); )
+		{
+			String key = (String)it.next();
+			Object value = group.get(key);
+			if (!key.equals("_id"))
+			{
+				// 算子参数为数组时第一项为表达式，其余参数保持不变
+				JSONObject json   = (JSONObject)value;
+				String     opname = (String)json.keys().next();
+				Object     args   = json.get(opname);
+				if (args instanceof JSONArray)
+				{
+					JSONArray array = new JSONArray(args.toString());
+					array.put(0, "$" + key);
+					reducer.put(key, new JSONObject().put(opname, array));
+				}
+				else
+				{
+					reducer.put(key, new JSONObject().put(opname, "$" + key));
+				}
+			}
+			else if (value instanceof JSONObject && !(((JSONObject)value).length() == 1 && ((JSONObject)value).has("_id")))
+			{
+				// 多字段分组条件输出为字典，按字段重新分组
+				JSONObject keys = new JSONObject();
+				for (Iterator kt = ((JSONObject)value).keys(); kt.hasNext(); )
+				{
+					String field = (String)kt.next();
+					if (field.contains("."))
+					{
+						return null;
+					}
+					keys.put(field, "$_id." + field);
+				}
+				reducer.put(key, keys);
+			}
+			else
+			{
+				reducer.put(key, JSONObject.NULL.equals(value) ? value : "$_id");
+			}
+		}
+		return reducer;
+	}
+	
+	/**
+	 * 判断逆序配置的指定位置是否为可融合的'$limit'、'$skip'（可选）、'$sort'序列
+	 * @param entries
+	 * @param index
+	 * @return 可融合时返回序列长度， 否则返回 0
+	 */
+	private static int fuse(List<Map.Entry<String, Object>> entries, int index)
+	{
+		if (!entries.get(index).getKey().equals("$limit") || !(entries.get(index).getValue() instanceof Number))
+		{
+			return 0;
+		}
+		int next = index + 1;
+		if (next < entries.size() && entries.get(next).getKey().equals("$skip") && entries.get(next).getValue() instanceof Number)
+		{
+			next = next + 1;
+		}
+		if (next < entries.size() && entries.get(next).getKey().equals("$sort") && entries.get(next).getValue() instanceof JSONObject)
+		{
+			return next - index + 1;
+		}
+		return 0;
+	}
 
 }
@@ -0,0 +1,45 @@
+package com.appgame.analytics.aggregator.accumulator;
+
+/**
+ * 批次处理异常（记录出错数据在批次内的位置，经过过滤以及截取的累积器向上层传递时转换为输入批次内的位置）
+ */
+public class AccumulatorBatchException extends Exception
+{
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * 出错数据在批次内的位置
+	 */
+	private final int index;
+
+	/**
+	 * 构造方法（沿用原始异常的描述）
+	 * @param index
+	 * @param cause
+	 */
+	public AccumulatorBatchException(int index, Throwable cause)
+	{
+		this(index, cause.getMessage(), cause);
+	}
+
+	/**
+	 * 构造方法
+	 * @param index
+	 * @param message
+	 * @param cause
+	 */
+	public AccumulatorBatchException(int index, String message, Throwable cause)
+	{
+		super(message, cause);
+		this.index = index;
+	}
+
+	/**
+	 * 返回出错数据在批次内的位置
+	 * @return
+	 */
+	public int index()
+	{
+		return index;
+	}
+}
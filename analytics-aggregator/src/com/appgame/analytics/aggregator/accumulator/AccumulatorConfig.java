@@ -0,0 +1,108 @@
+package com.appgame.analytics.aggregator.accumulator;
+
+import org.apache.hadoop.conf.Configuration;
+
+/**
+ * 累积器配置（溢出到本地磁盘的阈值、分组容器的实现以及估算精度，构造累积器时传入，同一个聚合查询内的累积器共享）
+ */
+public class AccumulatorConfig
+{
+	/**
+	 * 溢出阈值（字节，单个累积器的内存数据超过此值时溢出到磁盘，小于等于 0 表示不溢出）
+	 */
+	private static String SPILL_THRESHOLD_KEY   = "hbase.aggregate.spill.threshold.bytes";
+	private static long   SPILL_THRESHOLD_VALUE = 64 * 1024 * 1024;
+
+	/**
+	 * 溢出文件目录
+	 */
+	private static String SPILL_DIRECTORY_KEY   = "hbase.aggregate.spill.directory";
+	private static String SPILL_DIRECTORY_VALUE = System.getProperty("java.io.tmpdir");
+
+	/**
+	 * 分组容器是否使用堆外内存（'AccumulatorTable'），否则使用堆内哈希表（'AccumulatorMap'）
+	 */
+	private static String  GROUP_OFFHEAP_KEY   = "hbase.aggregate.group.offheap";
+	private static boolean GROUP_OFFHEAP_VALUE = false;
+
+	/**
+	 * 基数估算精度（'$approxDistinct'的寄存器数量为 2^precision）
+	 */
+	private static String APPROX_PRECISION_KEY   = "hbase.aggregate.approx.precision";
+	private static int    APPROX_PRECISION_VALUE = 12;
+
+	/**
+	 * 高频项计数器余量系数（'$topK'每个分组状态的计数器数量为输出候选项数量 k 乘以该系数）
+	 */
+	private static String TOPK_SLACK_KEY   = "hbase.aggregate.topk.slack";
+	private static int    TOPK_SLACK_VALUE = 10;
+
+	/**
+	 * 默认配置
+	 */
+	public static final AccumulatorConfig DEFAULT = new AccumulatorConfig(new Configuration(false));
+
+	private final long    threshold;
+	private final String  directory;
+	private final boolean offheap;
+	private final int     precision;
+	private final int     slack;
+
+	/**
+	 * 构造方法（从配置读取，未配置的项使用默认值）
+	 * @param config
+	 */
+	public AccumulatorConfig(Configuration config)
+	{
+		this.threshold = config.getLong(SPILL_THRESHOLD_KEY, SPILL_THRESHOLD_VALUE);
+		this.directory = config.get(SPILL_DIRECTORY_KEY, SPILL_DIRECTORY_VALUE);
+		this.offheap   = config.getBoolean(GROUP_OFFHEAP_KEY, GROUP_OFFHEAP_VALUE);
+		this.precision = config.getInt(APPROX_PRECISION_KEY, APPROX_PRECISION_VALUE);
+		this.slack     = Math.max(1, config.getInt(TOPK_SLACK_KEY, TOPK_SLACK_VALUE));
+	}
+
+	/**
+	 * 返回溢出阈值
+	 * @return
+	 */
+	public long threshold()
+	{
+		return threshold;
+	}
+
+	/**
+	 * 返回溢出文件目录
+	 * @return
+	 */
+	public String directory()
+	{
+		return directory;
+	}
+
+	/**
+	 * 返回分组容器是否使用堆外内存
+	 * @return
+	 */
+	public boolean offheap()
+	{
+		return offheap;
+	}
+
+	/**
+	 * 返回基数估算精度
+	 * @return
+	 */
+	public int precision()
+	{
+		return precision;
+	}
+
+	/**
+	 * 返回高频项计数器余量系数
+	 * @return
+	 */
+	public int slack()
+	{
+		return slack;
+	}
+}
@@ -1,19 +1,38 @@
 package com.appgame.analytics.aggregator.accumulator;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
 
+import org.apache.hadoop.hbase.util.Bytes;
 import org.apache.hadoop.hbase.util.Pair;
+import org.codehaus.jettison.json.JSONArray;
 import org.codehaus.jettison.json.JSONObject;
 
 import com.appgame.analytics.aggregator.accumulator.collection.AccumulatorCollection;
+import com.appgame.analytics.aggregator.accumulator.collection.AccumulatorFile;
+import com.appgame.analytics.aggregator.accumulator.collection.AccumulatorGroup;
 import com.appgame.analytics.aggregator.accumulator.collection.AccumulatorMap;
+import com.appgame.analytics.aggregator.accumulator.collection.AccumulatorSlot;
+import com.appgame.analytics.aggregator.accumulator.collection.AccumulatorTable;
 import com.appgame.analytics.aggregator.accumulator.expression.Expression;
 import com.appgame.analytics.aggregator.accumulator.utils.AccumulatorUtils;
+import com.appgame.analytics.aggregator.accumulator.utils.Estimate;
+import com.appgame.analytics.aggregator.accumulator.utils.HeavyHitters;
+import com.appgame.analytics.aggregator.accumulator.utils.HyperLogLog;
+import com.appgame.analytics.aggregator.accumulator.utils.LongSet;
+import com.appgame.analytics.aggregator.accumulator.utils.Moments;
+import com.appgame.analytics.aggregator.accumulator.utils.Quantiles;
+import com.appgame.analytics.aggregator.accumulator.utils.StringDictionary;
+import com.appgame.analytics.aggregator.utils.SpillFile;
 
 public class GroupAccumulator extends Accumulator
 {
@@ -26,12 +45,371 @@ public class GroupAccumulator extends Accumulator
 	}
 	
 	/**
-	 * 分组映射的二元算子列表
+	 * 分组算子（二元算子用于合并分组结果，原地更新用于逐条处理输入数据）
 	 */
-	private static Map<String, BinaryOperator<Object>> operators = new HashMap<String, BinaryOperator<Object>>();
+	private static abstract class Operator implements BinaryOperator<Object>
+	{
+		/**
+		 * 用输入值原地更新分组内容数组的指定位置（默认调用二元算子）
+		 * @param slots
+		 * @param index
+		 * @param value
+		 * @return 分组内容估算大小的变化
+		 * @throws Exception
+		 */
+		public long update(List<Object> slots, int index, Object value) throws Exception
+		{
+			Object previous = slots.get(index);
+			Object current  = apply(previous, value);
+			if (current != previous)
+			{
+				slots.set(index, current);
+				return AccumulatorUtils.sizeof(current) - AccumulatorUtils.sizeof(previous);
+			}
+			return 0;
+		}
+	}
+	
+	/**
+	 * 求和状态（原地累加，避免逐条装箱）
+	 */
+	private static class Sum implements AccumulatorSlot
+	{
+		private double value = 0.0;
+		
+		@Override
+		public Object value()
+		{
+			return value;
+		}
+	}
+	
+	/**
+	 * 抽样估算算子（抽样聚合时替换'$sum'、'$count'，分组状态为估算状态，输入为估算状态时合并，否则作为样本按抽样率放大）
+	 */
+	private static class EstimateOperator extends Operator
+	{
+		/**
+		 * 估算类型以及抽样率
+		 */
+		private final int    kind;
+		private final double rate;
+		
+		public EstimateOperator(int kind, double rate)
+		{
+			this.kind = kind;
+			this.rate = rate;
+		}
+		
+		/**
+		 * 空估算状态（输入为估算状态时沿用其类型以及抽样率，分组状态已有的精确值作为方差为零的部分合并）
+		 */
+		private Estimate create(Object previous, Object value)
+		{
+			Estimate estimate = value instanceof Estimate ? new Estimate(((Estimate)value).kind(), ((Estimate)value).rate()) : new Estimate(kind, rate);
+			Object   exact    = previous instanceof AccumulatorSlot ? ((AccumulatorSlot)previous).value() : previous;
+			if (exact instanceof Number)
+			{
+				estimate.merge(new Estimate(estimate.kind(), 1.0, 0, ((Number)exact).doubleValue(), 0.0));
+			}
+			return estimate;
+		}
+		
+		@Override
+		public Object apply(Object v1, Object v2)
+		{
+			Estimate estimate = v1 instanceof Estimate ? ((Estimate)v1).copy() : create(v1, v2);
+			estimate.update(v2);
+			return estimate;
+		}
+		
+		@Override
+		public long update(List<Object> slots, int index, Object value) throws Exception
+		{
+			long delta = 0;
+			if (!(slots.get(index) instanceof Estimate))
+			{
+				Object previous = slots.get(index);
+				slots.set(index, create(previous, value));
+				delta = AccumulatorUtils.sizeof(slots.get(index)) - AccumulatorUtils.sizeof(previous);
+			}
+			((Estimate)slots.get(index)).update(value);
+			return delta;
+		}
+	}
+	
+	/**
+	 * 合并服务端估算状态（客户端的'$sum'、'$count'输入为估算状态时使用）
+	 */
+	private static final EstimateOperator estimates = new EstimateOperator(Estimate.SUM, 1.0);
+	
+	/**
+	 * 统计算子（分组状态为可合并的统计状态，输入为统计状态时合并，否则作为样本）
+	 */
+	private static class MomentsOperator extends Operator
+	{
+		/**
+		 * 统计类型
+		 */
+		private final int kind;
+		
+		public MomentsOperator(int kind)
+		{
+			this.kind = kind;
+		}
+		
+		@Override
+		public Object apply(Object v1, Object v2)
+		{
+			if (v1 instanceof Estimate || v2 instanceof Estimate)
+			{
+				return estimates.apply(v1, v2);
+			}
+			Moments moments = v1 instanceof Moments ? ((Moments)v1).copy() : new Moments(kind);
+			moments.update(v2);
+			return moments;
+		}
+		
+		@Override
+		public long update(List<Object> slots, int index, Object value) throws Exception
+		{
+			if (value instanceof Estimate || slots.get(index) instanceof Estimate)
+			{
+				return estimates.update(slots, index, value);
+			}
+			long delta = 0;
+			if (!(slots.get(index) instanceof Moments))
+			{
+				slots.set(index, new Moments(kind));
+				delta = AccumulatorUtils.sizeof(slots.get(index));
+			}
+			((Moments)slots.get(index)).update(value);
+			return delta;
+		}
+	}
+	
+	/**
+	 * 基数估算算子（分组状态为 HyperLogLog，输入为基数状态时合并，否则作为样本）
+	 */
+	private static class DistinctOperator extends Operator
+	{
+		/**
+		 * 基数估算精度
+		 */
+		private final int precision;
+		
+		public DistinctOperator(int precision)
+		{
+			this.precision = precision;
+		}
+		
+		@Override
+		public Object apply(Object v1, Object v2)
+		{
+			try
+			{
+				HyperLogLog hll = v1 instanceof HyperLogLog ? ((HyperLogLog)v1).copy() : new HyperLogLog(precision);
+				hll.update(v2);
+				return hll;
+			}
+			catch (Exception e)
+			{
+				throw new RuntimeException(e);
+			}
+		}
+		
+		@Override
+		public long update(List<Object> slots, int index, Object value) throws Exception
+		{
+			long delta = 0;
+			if (!(slots.get(index) instanceof HyperLogLog))
+			{
+				slots.set(index, new HyperLogLog(precision));
+				delta = AccumulatorUtils.sizeof(slots.get(index));
+			}
+			((HyperLogLog)slots.get(index)).update(value);
+			return delta;
+		}
+	}
+	
+	/**
+	 * 高频项算子（分组状态为 SpaceSaving 高频项状态，计数器数量固定，输入为高频项状态时合并，否则作为样本）
+	 */
+	private static class TopOperator extends Operator
+	{
+		/**
+		 * 未指定 k 时输出的候选项数量
+		 */
+		private static final int DEFAULT_K = 100;
+		
+		/**
+		 * 输出的候选项数量以及高频项计数器数量
+		 */
+		private final int k;
+		private final int capacity;
+		
+		public TopOperator(int k, int capacity)
+		{
+			this.k        = k;
+			this.capacity = capacity;
+		}
+		
+		@Override
+		public Object apply(Object v1, Object v2)
+		{
+			HeavyHitters hitters = v1 instanceof HeavyHitters ? ((HeavyHitters)v1).copy() : new HeavyHitters(k, capacity);
+			hitters.update(v2);
+			return hitters;
+		}
+		
+		@Override
+		public long update(List<Object> slots, int index, Object value) throws Exception
+		{
+			HeavyHitters hitters  = slots.get(index) instanceof HeavyHitters ? (HeavyHitters)slots.get(index) : null;
+			long         previous = hitters != null ? hitters.bytes() : 0;
+			if (hitters == null)
+			{
+				hitters = new HeavyHitters(k, capacity);
+				slots.set(index, hitters);
+			}
+			hitters.update(value);
+			return hitters.bytes() - previous;
+		}
+	}
+	
+	/**
+	 * 分位数算子（分组状态为 KLL 分位数状态，输入为分位数状态时合并，否则作为样本）
+	 */
+	private static class PercentileOperator extends Operator
+	{
+		@Override
+		public Object apply(Object v1, Object v2)
+		{
+			Quantiles quantiles = v1 instanceof Quantiles ? ((Quantiles)v1).copy() : new Quantiles(Quantiles.DEFAULT_K);
+			quantiles.update(v2);
+			return quantiles;
+		}
+		
+		@Override
+		public long update(List<Object> slots, int index, Object value) throws Exception
+		{
+			Quantiles quantiles = slots.get(index) instanceof Quantiles ? (Quantiles)slots.get(index) : null;
+			long      previous  = quantiles != null ? AccumulatorUtils.sizeof(quantiles) : 0;
+			if (quantiles == null)
+			{
+				quantiles = new Quantiles(Quantiles.DEFAULT_K);
+				slots.set(index, quantiles);
+			}
+			quantiles.update(value);
+			return AccumulatorUtils.sizeof(quantiles) - previous;
+		}
+	}
+	
+	/**
+	 * 集合算子（分组状态为集合，元素全部为长整数时使用压缩位图'LongSet'，出现其它类型时转换为'HashSet'）
+	 * 与'$put'不同，不保留输入顺序，去重开销为常数时间
+	 */
+	private static class SetOperator extends Operator
+	{
+		/**
+		 * 向集合添加一个元素（返回添加后的集合，长整数集合遇到其它类型时转换为普通哈希集合）
+		 */
+		private static Set<Object> add(Set<Object> set, Object o)
+		{
+			if (set instanceof LongSet && !(o instanceof Long))
+			{
+				set = new HashSet<Object>(set);
+			}
+			set.add(o);
+			return set;
+		}
+		
+		/**
+		 * 向集合添加输入值（集合逐个添加元素，忽略空值）
+		 */
+		@SuppressWarnings("unchecked")
+		private static Set<Object> addAll(Set<Object> set, Object value)
+		{
+			if (value instanceof Collection)
+			{
+				for (Object o : (Collection<Object>)value)
+				{
+					set = add(set, o);
+				}
+			}
+			else if (value != null)
+			{
+				set = add(set, value);
+			}
+			return set;
+		}
+		
+		@SuppressWarnings("unchecked")
+		@Override
+		public Object apply(Object v1, Object v2)
+		{
+			if (v1 instanceof LongSet && v2 instanceof LongSet)
+			{
+				return ((LongSet)v1).or((LongSet)v2);
+			}
+			return addAll(v1 instanceof Set ? (Set<Object>)v1 : new LongSet(), v2);
+		}
+		
+		@SuppressWarnings("unchecked")
+		@Override
+		public long update(List<Object> slots, int index, Object value) throws Exception
+		{
+			Set<Object> previous = slots.get(index) instanceof Set ? (Set<Object>)slots.get(index) : null;
+			Set<Object> set      = previous != null ? previous : new LongSet();
+			if (set instanceof LongSet)
+			{
+				long bytes = previous != null ? ((LongSet)set).bytes() : 0;
+				set = addAll(set, value);
+				slots.set(index, set);
+				return AccumulatorUtils.sizeof(set) - bytes;
+			}
+			else
+			{
+				int size = set.size();
+				set = addAll(set, value);
+				return (set.size() - size) * 64L;
+			}
+		}
+	}
+	
+	/**
+	 * 分组状态随输入增长的算子（集合以及估算状态的编码长度不断变化，堆外容器每次更新都要追加新记录，因此改用堆内容器）
+	 */
+	private static final Set<String> growing = new HashSet<String>(Arrays.asList("$put", "$addToSet", "$topK", "$percentile", "$approxDistinct"));
+	
+	/**
+	 * 定长算子以及对应的堆外容器字段类型
+	 */
+	private static final Map<String, Integer> layouts = new HashMap<String, Integer>();
+	static
+	{
+		layouts.put("$sum"   , AccumulatorTable.SUM);
+		layouts.put("$min"   , AccumulatorTable.MIN);
+		layouts.put("$max"   , AccumulatorTable.MAX);
+		layouts.put("$avg"   , AccumulatorTable.MOMENTS + Moments.AVG);
+		layouts.put("$count" , AccumulatorTable.MOMENTS + Moments.COUNT);
+		layouts.put("$var"   , AccumulatorTable.MOMENTS + Moments.VAR);
+		layouts.put("$stddev", AccumulatorTable.MOMENTS + Moments.STDDEV);
+	}
+	
+	/**
+	 * 分组映射的算子列表
+	 */
+	private static Map<String, Operator> operators = new HashMap<String, Operator>();
 	static
 	{
-		operators.put("$first", new BinaryOperator<Object>()
+		operators.put("$avg"   , new MomentsOperator(Moments.AVG   ));
+		operators.put("$count" , new MomentsOperator(Moments.COUNT ));
+		operators.put("$var"   , new MomentsOperator(Moments.VAR   ));
+		operators.put("$stddev", new MomentsOperator(Moments.STDDEV));
+		operators.put("$percentile", new PercentileOperator());
+		operators.put("$addToSet", new SetOperator());
+		operators.put("$first", new Operator()
 		{
 			@Override
 			public Object apply(Object v1, Object v2)
@@ -39,7 +417,7 @@ public class GroupAccumulator extends Accumulator
 				return v1 == null ? v2 : v1;
 			}
 		});
-		operators.put("$last", new BinaryOperator<Object>()
+		operators.put("$last", new Operator()
 		{
 			@Override
 			public Object apply(Object v1, Object v2)
@@ -47,7 +425,7 @@ public class GroupAccumulator extends Accumulator
 				return v2 == null ? v1 : v2;
 			}
 		});
-		operators.put("$max", new BinaryOperator<Object>()
+		operators.put("$max", new Operator()
 		{
 			@Override
 			public Object apply(Object v1, Object v2)
@@ -55,7 +433,7 @@ public class GroupAccumulator extends Accumulator
 				return AccumulatorUtils.max(v1, v2);
 			}
 		});
-		operators.put("$min", new BinaryOperator<Object>()
+		operators.put("$min", new Operator()
 		{
 			@Override
 			public Object apply(Object v1, Object v2)
@@ -63,11 +441,15 @@ public class GroupAccumulator extends Accumulator
 				return v1 == null ? v2 : AccumulatorUtils.min(v1, v2);
 			}
 		});
-		operators.put("$sum", new BinaryOperator<Object>()
+		operators.put("$sum", new Operator()
 		{
 			@Override
 			public Object apply(Object v1, Object v2)
 			{
+				if (v1 instanceof Estimate || v2 instanceof Estimate)
+				{
+					return estimates.apply(v1, v2);
+				}
 				double v = 0.0;
 				if (v1 instanceof Number)
 				{
@@ -79,8 +461,28 @@ public class GroupAccumulator extends Accumulator
 				}
 				return v;
 			}
+			
+			@Override
+			public long update(List<Object> slots, int index, Object value) throws Exception
+			{
+				if (value instanceof Estimate || slots.get(index) instanceof Estimate)
+				{
+					return estimates.update(slots, index, value);
+				}
+				long delta = 0;
+				if (!(slots.get(index) instanceof Sum))
+				{
+					slots.set(index, new Sum());
+					delta = AccumulatorUtils.sizeof(slots.get(index));
+				}
+				if (value instanceof Number)
+				{
+					((Sum)slots.get(index)).value += ((Number)value).doubleValue();
+				}
+				return delta;
+			}
 		});
-		operators.put("$put", new BinaryOperator<Object>()
+		operators.put("$put", new Operator()
 		{
 			@SuppressWarnings("unchecked")
 			@Override
@@ -114,6 +516,37 @@ public class GroupAccumulator extends Accumulator
 				}
 				return v;
 			}
+			
+			@SuppressWarnings("unchecked")
+			@Override
+			public long update(List<Object> slots, int index, Object value) throws Exception
+			{
+				long delta = 0;
+				List<Object> v = (List<Object>)slots.get(index);
+				if (v == null)
+				{
+					v = new ArrayList<Object>();
+					slots.set(index, v);
+					delta = AccumulatorUtils.sizeof(v);
+				}
+				if (value instanceof Collection)
+				{
+					for (Object o : (Collection<Object>)value)
+					{
+						if (!v.contains(o))
+						{
+							v.add(o);
+							delta = delta + 8 + AccumulatorUtils.sizeof(o);
+						}
+					}
+				}
+				else if (value != null && !v.contains(value))
+				{
+					v.add(value);
+					delta = delta + 8 + AccumulatorUtils.sizeof(value);
+				}
+				return delta;
+			}
 		});
 	}
 	
@@ -184,30 +617,92 @@ public class GroupAccumulator extends Accumulator
 		/**
 		 * 数据投影表达式集合
 		 */
-		private Map<String, Pair<BinaryOperator<Object>, Expression>> expressions;
+		private Map<String, Pair<Operator, Expression>> expressions;
+		
+		/**
+		 * 分组内容的编码长度是否基本固定（不包含分组状态随输入增长的算子）
+		 */
+		private boolean fixed = true;
+		
+		/**
+		 * 定长算子对应的堆外容器字段类型（全部字段均为定长算子时堆外容器原地更新）
+		 */
+		private Map<String, Integer> layout = new HashMap<String, Integer>();
+
+		/**
+		 * 累积器配置
+		 */
+		private AccumulatorConfig config;
 
 		/**
 		 * 构造方法
 		 */
-		public Projector()
+		public Projector(AccumulatorConfig config)
 		{
-			this.expressions = new HashMap<String, Pair<BinaryOperator<Object>, Expression>>();
+			this.expressions = new HashMap<String, Pair<Operator, Expression>>();
+			this.config      = config;
+		}
+		
+		/**
+		 * 返回指定名称的算子（估算精度相关的算子按累积器配置创建）
+		 * @param opname
+		 * @return
+		 */
+		private Operator operator(String opname)
+		{
+			if (opname.equals("$approxDistinct"))
+			{
+				return new DistinctOperator(config.precision());
+			}
+			else
+			{
+				return operators.get(opname);
+			}
 		}
 
 		/**
-		 * 添加映射逻辑
+		 * 添加映射逻辑（抽样率小于 1 时'$sum'、'$count'按抽样率放大为估算状态）
 		 * @param key
 		 * @param json
+		 * @param sample
 		 * @throws Exception
 		 */
-		public void put(String key, JSONObject json) throws Exception
+		public void put(String key, JSONObject json, double sample) throws Exception
 		{
 			if (json.length() == 1)
 			{
 				String opname = (String)json.keys().next();
-				if (operators.get(opname) != null)
+				if (sample < 1.0 && (opname.equals("$sum") || opname.equals("$count")))
+				{
+					Operator operator = new EstimateOperator(opname.equals("$sum") ? Estimate.SUM : Estimate.COUNT, sample);
+					expressions.put(key, new Pair<Operator, Expression>(operator, Expression.build(json.get(opname))));
+				}
+				else if (opname.equals("$topK"))
+				{
+					// {$topK:[<expression>, <k>]}，计数器数量为 k 乘以余量系数
+					Object input = json.get(opname);
+					int    k     = TopOperator.DEFAULT_K;
+					if (input instanceof JSONArray)
+					{
+						JSONArray args = (JSONArray)input;
+						if (args.length() != 2 || !(args.get(1) instanceof Number) || ((Number)args.get(1)).intValue() <= 0)
+						{
+							throw new Exception("{$group:{<field>:{$topK:[<expression>, <k>]}, ...}} - k must be a positive integer");
+						}
+						input = args.get(0);
+						k     = ((Number)args.get(1)).intValue();
+					}
+					expressions.put(key, new Pair<Operator, Expression>(new TopOperator(k, k * config.slack()), Expression.build(input)));
+					fixed = false;
+				}
+				else if (operator(opname) != null)
 				{
-					expressions.put(key, new Pair<BinaryOperator<Object>, Expression>(operators.get(opname), Expression.build(json.get(opname))));
+					expressions.put(key, new Pair<Operator, Expression>(operator(opname), Expression.build(json.get(opname))));
+					fixed = fixed && !growing.contains(opname);
+					if (layouts.containsKey(opname))
+					{
+						layout.put(key, layouts.get(opname));
+					}
 				}
 				else
 				{
@@ -230,7 +725,7 @@ public class GroupAccumulator extends Accumulator
 		public Map<String, Object> apply(Map<String, Object> m1, Map<String, Object> m2) throws Exception
 		{
 			Map<String, Object> values = new HashMap<String, Object>();
-			for (Map.Entry<String, Pair<BinaryOperator<Object>, Expression>> entry : expressions.entrySet())
+			for (Map.Entry<String, Pair<Operator, Expression>> entry : expressions.entrySet())
 			{
 				Object v1  = m1 == null ? null : m1.get(entry.getKey());
 				Object v2  = entry.getValue().getSecond().execute(m2);
@@ -245,6 +740,11 @@ public class GroupAccumulator extends Accumulator
 	 */
 	private Accumulator accumulator;
 	
+	/**
+	 * 累积器配置
+	 */
+	private AccumulatorConfig config;
+	
 	/**
 	 * 分组策略
 	 */
@@ -258,7 +758,52 @@ public class GroupAccumulator extends Accumulator
 	/**
 	 * 分组数据集合<关键字， 分组字段>
 	 */
-	private AccumulatorMap collection = null;
+	private AccumulatorGroup collection = null;
+	
+	/**
+	 * 空值分组条件的字节数组（'$b2s'将空值转换为字符串"null"）
+	 */
+	private static final byte[] NULL = Bytes.toBytes("null");
+	
+	/**
+	 * 分组条件表达式（按分组容器的分组条件字段顺序排列）
+	 */
+	private List<Expression> kexpressions = new ArrayList<Expression>();
+	
+	/**
+	 * 分组内容的算子以及表达式（按分组容器的分组内容字段顺序排列）
+	 */
+	private List<Pair<Operator, Expression>> vexpressions = new ArrayList<Pair<Operator, Expression>>();
+	
+	/**
+	 * 分组条件缓冲区（逐条处理输入数据时重复使用）
+	 */
+	private Object[] kbuffer = null;
+	
+	/**
+	 * 分组内容输入值缓冲区（堆外容器原地更新时重复使用）
+	 */
+	private Object[] vbuffer = null;
+	
+	/**
+	 * 分组条件字典（'$b2s'分组条件按字节数组编码为整数，为 null 的位置不编码）
+	 */
+	private StringDictionary[] dictionaries = null;
+	
+	/**
+	 * 溢出文件列表（按溢出先后排列，每个文件内的分组按分组条件编码排序）
+	 */
+	private List<SpillFile> runs = new ArrayList<SpillFile>();
+	
+	/**
+	 * 溢出文件合并结果
+	 */
+	private AccumulatorCollection merged = null;
+	
+	/**
+	 * 累积器是否已经关闭（扫描任务被终止时可能与关闭操作并发，读写操作与关闭操作互斥，关闭后不再读写分组容器以及创建溢出文件）
+	 */
+	private boolean closed = false;
 	
 	/**
 	 * 构造分组累积器
@@ -266,14 +811,28 @@ public class GroupAccumulator extends Accumulator
 	 * @param json
 	 * @throws Exception
 	 */
+	public GroupAccumulator(Accumulator accumulator, JSONObject json, AccumulatorConfig config) throws Exception
+	{
+		this(accumulator, json, config, 1.0);
+	}
+	
+	/**
+	 * 构造分组累积器（直接处理抽样扫描结果时指定抽样率）
+	 * @param accumulator
+	 * @param json
+	 * @param config
+	 * @param sample
+	 * @throws Exception
+	 */
 	@SuppressWarnings("rawtypes")
-	public GroupAccumulator(Accumulator accumulator, JSONObject json) throws Exception
+	public GroupAccumulator(Accumulator accumulator, JSONObject json, AccumulatorConfig config, double sample) throws Exception
 	{
 		// 底层累积器对象
 		this.accumulator = accumulator;
+		this.config      = config;
 		
 		// 映射配置器(默认为不映射任何数据)
-		projector = new Projector();
+		projector = new Projector(config);
 		
 		// 遍历累积器配置项，构造分组脚本以及映射脚本
 		for (Iterator it = json.keys(); it.hasNext(); )
@@ -285,7 +844,7 @@ public class GroupAccumulator extends Accumulator
 			}
 			else
 			{
-				projector.put(key, json.getJSONObject(key));
+				projector.put(key, json.getJSONObject(key), sample);
 			}
 		}
 		if (separator == null)
@@ -293,26 +852,280 @@ public class GroupAccumulator extends Accumulator
 			throw new Exception("{$group:{<_id>:{<field>:<expression>, ...}, <field>:{<opname>:<expression>}, ...}} - must specify the '_id' section");
 		}
 
-		// 构造分组数据集
-		this.collection = new AccumulatorMap(separator.expressions.keySet(), projector.expressions.keySet());
+		// 构造分组数据集（按配置选择堆外或者堆内容器，分组状态随输入增长时始终使用堆内容器）
+		if (config.offheap() && projector.fixed)
+		{
+			this.collection = new AccumulatorTable(separator.expressions.keySet(), projector.expressions.keySet(), projector.layout);
+		}
+		else
+		{
+			this.collection = new AccumulatorMap(separator.expressions.keySet(), projector.expressions.keySet());
+		}
+		
+		// 按分组容器的字段顺序排列表达式
+		for (String kfield : collection.kfields())
+		{
+			kexpressions.add(separator.expressions.get(kfield));
+		}
+		for (String vfield : collection.vfields())
+		{
+			vexpressions.add(projector.expressions.get(vfield));
+		}
+		this.kbuffer      = new Object[kexpressions.size()];
+		this.vbuffer      = new Object[vexpressions.size()];
+		this.dictionaries = new StringDictionary[kexpressions.size()];
+		
+		// 堆内容器的'$b2s'分组条件直接按字节数组编码
+		if (collection instanceof AccumulatorMap)
+		{
+			for (int index = 0; index < kexpressions.size(); index++)
+			{
+				Expression expression = kexpressions.get(index).b2s();
+				if (expression != null)
+				{
+					kexpressions.set(index, expression);
+					dictionaries[index] = ((AccumulatorMap)collection).dictionary(index);
+				}
+			}
+		}
 	}
 	
 	/**
 	 * 处理输入累积器的数据
 	 */
 	@Override
-	public void put(Map<String, Object> input) throws Exception
+	public synchronized void put(Map<String, Object> input) throws Exception
+	{
+		update(input);
+		spill(false);
+	}
+
+	/**
+	 * 处理输入累积器的一批数据
+	 */
+	@Override
+	public synchronized void putBatch(List<Map<String, Object>> inputs) throws Exception
 	{
-		// 计算输入数据的分组索引
-		Map<String, Object> key = separator.apply(input);
-		// 按分组索引处理输入数据
-		if (projector != null)
+		for (int index = 0; index < inputs.size(); index++)
 		{
-			collection.put(key, projector.apply(collection.get(key), input));
+			try
+			{
+				update(inputs.get(index));
+			}
+			catch (Exception e)
+			{
+				throw new AccumulatorBatchException(index, e);
+			}
+		}
+		spill(false);
+	}
+	
+	/**
+	 * 按分组条件处理一条输入数据（堆内容器原地更新分组内容；堆外容器的定长字段按固定偏移量原地更新，否则读取、计算后写回）
+	 * @param input
+	 * @throws Exception
+	 */
+	private void update(Map<String, Object> input) throws Exception
+	{
+		if (closed)
+		{
+			throw new Exception("group accumulator already closed!!");
+		}
+		if (collection instanceof AccumulatorMap)
+		{
+			AccumulatorMap map = (AccumulatorMap)collection;
+			for (int index = 0; index < kbuffer.length; index++)
+			{
+				Object v = kexpressions.get(index).execute(input);
+				if (dictionaries[index] != null)
+				{
+					// 与'$b2s'一致，空值转换为字符串"null"
+					v = dictionaries[index].encode(v != null ? (byte[])v : NULL);
+				}
+				kbuffer[index] = v;
+			}
+			List<Object> slots = map.slots(kbuffer);
+			long         delta = 0;
+			for (int index = 0; index < vexpressions.size(); index++)
+			{
+				Pair<Operator, Expression> pair = vexpressions.get(index);
+				delta = delta + pair.getFirst().update(slots, index, pair.getSecond().execute(input));
+			}
+			map.account(delta);
 		}
 		else
 		{
-			collection.put(key, null);
+			Map<String, Object> key = separator.apply(input);
+			if (((AccumulatorTable)collection).fixed())
+			{
+				for (int index = 0; index < vexpressions.size(); index++)
+				{
+					vbuffer[index] = vexpressions.get(index).getSecond().execute(input);
+				}
+				if (((AccumulatorTable)collection).update(key, vbuffer))
+				{
+					return;
+				}
+			}
+			collection.put(key, projector.apply(collection.get(key), input));
+		}
+	}
+	
+	/**
+	 * 分组数据超过溢出阈值时（或者强制溢出时）写入新的溢出文件
+	 * @param force
+	 * @throws Exception
+	 */
+	private synchronized void spill(boolean force) throws Exception
+	{
+		if ((force || (config.threshold() > 0 && collection.bytes() > config.threshold())) && collection.size() > 0)
+		{
+			if (closed)
+			{
+				throw new Exception("group accumulator already closed!!");
+			}
+			SpillFile file = new SpillFile(config.directory());
+			runs.add(file);
+			collection.spill(file);
+		}
+	}
+	
+	/**
+	 * 归并一组溢出文件（多路归并，分组条件相同的记录按溢出先后重新执行映射算子，归并后删除输入文件）
+	 * @param inputs 按溢出先后排列的溢出文件
+	 * @param reducers 分组内容字段对应的映射算子
+	 * @param last 是否为最后一趟归并（最后一趟输出分组记录，否则输出溢出记录格式供下一趟归并）
+	 * @return
+	 * @throws Exception
+	 */
+	@SuppressWarnings("unchecked")
+	private SpillFile merge(List<SpillFile> inputs, List<Operator> reducers, boolean last) throws Exception
+	{
+		// 按<分组条件编码, 溢出顺序>排列的归并队列
+		PriorityQueue<Pair<Integer, List<Object>>> queue = new PriorityQueue<Pair<Integer, List<Object>>>(inputs.size(), new Comparator<Pair<Integer, List<Object>>>()
+		{
+			@Override
+			public int compare(Pair<Integer, List<Object>> p1, Pair<Integer, List<Object>> p2)
+			{
+				int result = Bytes.compareTo((byte[])p1.getSecond().get(0), (byte[])p2.getSecond().get(0));
+				return result != 0 ? result : p1.getFirst().compareTo(p2.getFirst());
+			}
+		});
+		List<SpillFile.Reader> readers = new ArrayList<SpillFile.Reader>(inputs.size());
+		SpillFile output = new SpillFile(config.directory());
+		try
+		{
+			for (int index = 0; index < inputs.size(); index++)
+			{
+				SpillFile.Reader reader = inputs.get(index).open();
+				readers.add(reader);
+				if (reader.hasNext())
+				{
+					queue.add(new Pair<Integer, List<Object>>(index, (List<Object>)reader.next()));
+				}
+			}
+			List<Object> current = null;
+			while (!queue.isEmpty())
+			{
+				Pair<Integer, List<Object>> pair = queue.poll();
+				List<Object> record = pair.getSecond();
+				if (current != null && Bytes.equals((byte[])current.get(0), (byte[])record.get(0)))
+				{
+					// 合并相同分组的内容（先溢出的内容作为累积值）
+					List<Object> v1 = (List<Object>)current.get(2);
+					List<Object> v2 = (List<Object>)record.get(2);
+					List<Object> values = new ArrayList<Object>(v1.size());
+					for (int index = 0; index < reducers.size(); index++)
+					{
+						values.add(reducers.get(index).apply(v1.get(index), v2.get(index)));
+					}
+					current.set(2, values);
+				}
+				else
+				{
+					if (current != null)
+					{
+						output.write(last ? collection.record((List<Object>)current.get(1), (List<Object>)current.get(2)) : current);
+					}
+					current = new ArrayList<Object>(record);
+				}
+				SpillFile.Reader reader = readers.get(pair.getFirst());
+				if (reader.hasNext())
+				{
+					queue.add(new Pair<Integer, List<Object>>(pair.getFirst(), (List<Object>)reader.next()));
+				}
+			}
+			if (current != null)
+			{
+				output.write(last ? collection.record((List<Object>)current.get(1), (List<Object>)current.get(2)) : current);
+			}
+			output.close();
+		}
+		catch (Exception e)
+		{
+			output.delete();
+			throw e;
+		}
+		finally
+		{
+			for (SpillFile.Reader reader : readers)
+			{
+				reader.close();
+			}
+			for (SpillFile input : inputs)
+			{
+				input.delete();
+			}
+		}
+		return output;
+	}
+	
+	/**
+	 * 合并溢出文件以及内存中的剩余分组（溢出文件超过归并路数时先逐趟归并相邻的溢出文件，合并结果保存为新的溢出文件）
+	 * @throws Exception
+	 */
+	private synchronized void merge() throws Exception
+	{
+		spill(true);
+		// 分组内容字段对应的映射算子
+		List<Operator> reducers = new ArrayList<Operator>();
+		for (String vfield : collection.vfields())
+		{
+			reducers.add(projector.expressions.get(vfield).getFirst());
+		}
+		try
+		{
+			while (runs.size() > MERGE_FACTOR)
+			{
+				List<SpillFile> passes = new ArrayList<SpillFile>();
+				try
+				{
+					for (int from = 0; from < runs.size(); from = from + MERGE_FACTOR)
+					{
+						List<SpillFile> group = runs.subList(from, Math.min(runs.size(), from + MERGE_FACTOR));
+						passes.add(group.size() > 1 ? merge(group, reducers, false) : group.get(0));
+					}
+				}
+				catch (Exception e)
+				{
+					for (SpillFile file : passes)
+					{
+						file.delete();
+					}
+					throw e;
+				}
+				// 已经归并的输入文件已被删除，未归并以及新产生的溢出文件由下一趟接管
+				runs = passes;
+			}
+			merged = new AccumulatorFile(merge(runs, reducers, true));
+		}
+		finally
+		{
+			for (SpillFile run : runs)
+			{
+				run.delete();
+			}
+			runs.clear();
 		}
 	}
 
@@ -320,11 +1133,21 @@ public class GroupAccumulator extends Accumulator
 	 * 从累积器读取数据
 	 */
 	@Override
-	public AccumulatorCollection get() throws Exception
+	public synchronized AccumulatorCollection get() throws Exception
 	{
+		if (closed)
+		{
+			throw new Exception("group accumulator already closed!!");
+		}
+		// 存在溢出文件时与内存中的分组合并
+		if (!runs.isEmpty())
+		{
+			merge();
+		}
+		AccumulatorCollection values = merged != null ? merged : collection;
 		if (accumulator != null)
 		{
-			for (Iterator<Map<String, Object>> iterator = collection.iterator(); iterator.hasNext(); )
+			for (Iterator<Map<String, Object>> iterator = values.iterator(); iterator.hasNext(); )
 			{
 				accumulator.put(iterator.next());
 			}
@@ -332,7 +1155,64 @@ public class GroupAccumulator extends Accumulator
 		}
 		else
 		{
-			return collection;
+			return values;
+		}
+	}
+
+	/**
+	 * 获取累积器读取的输入字段路径（分组结果仅由分组表达式以及映射表达式决定）
+	 */
+	@Override
+	public Set<String> fields() throws Exception
+	{
+		List<Expression> expressions = new ArrayList<Expression>(separator.expressions.values());
+		for (Pair<Operator, Expression> pair : projector.expressions.values())
+		{
+			expressions.add(pair.getSecond());
+		}
+		Set<String> fields = new HashSet<String>();
+		for (Expression expression : expressions)
+		{
+			Set<String> paths = expression.fields();
+			if (paths == null)
+			{
+				return null;
+			}
+			fields.addAll(paths);
+		}
+		return fields;
+	}
+
+	/**
+	 * 返回累积器持有数据的估算大小（内存中的分组数据、分组条件字典以及后续累积器的数据，溢出到磁盘的数据不计入）
+	 */
+	@Override
+	public long bytes()
+	{
+		return collection.bytes() + (accumulator != null ? accumulator.bytes() : 0);
+	}
+	
+	/**
+	 * 关闭累积器（删除溢出文件以及合并结果，关闭分组容器以及后续累积器）
+	 */
+	@Override
+	public synchronized void close() throws Exception
+	{
+		closed = true;
+		for (SpillFile run : runs)
+		{
+			run.delete();
+		}
+		runs.clear();
+		if (merged != null)
+		{
+			merged.close();
+			merged = null;
+		}
+		collection.close();
+		if (accumulator != null)
+		{
+			accumulator.close();
 		}
 	}
 }
@@ -2,10 +2,15 @@ package com.appgame.analytics.aggregator.accumulator;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
+import org.apache.hadoop.hbase.filter.Filter;
+import org.apache.hadoop.hbase.filter.FilterList;
+import org.apache.hadoop.hbase.util.Bytes;
 import org.codehaus.jettison.json.JSONObject;
 
 import com.appgame.analytics.aggregator.accumulator.collection.AccumulatorArray;
@@ -19,6 +24,11 @@ public class MatchAccumulator extends Accumulator
 	 */
 	private static abstract class Operator
 	{
+		/**
+		 * 条件算子类型（$and, $or, $nor, $not）
+		 */
+		private String type = "$and";
+		
 		/**
 		 * 同一分组下的判断条件
 		 */
@@ -41,6 +51,65 @@ public class MatchAccumulator extends Accumulator
 		{
 			conditions.put(key, condition);
 		}
+		
+		/**
+		 * 转换为 HBASE 过滤器（仅转换作用于 <family>.<qualifier> 字段的条件， 返回 null 表示无法转换）
+		 * @return
+		 * @throws Exception
+		 */
+		public Filter filter() throws Exception
+		{
+			// 否定逻辑不转换为过滤器
+			if (type.equals("$nor") || type.equals("$not"))
+			{
+				return null;
+			}
+			// "$and" 条件算子仅转换支持的条件， "$or" 条件算子需要全部条件都可转换
+			boolean    and  = !type.equals("$or");
+			FilterList list = new FilterList(and ? FilterList.Operator.MUST_PASS_ALL : FilterList.Operator.MUST_PASS_ONE);
+			for (Map.Entry<String, Condition> entry : conditions.entrySet())
+			{
+				String[] keys   = entry.getKey().split("\\.");
+				Filter   filter = (keys.length == 2) ? entry.getValue().filter(Bytes.toBytes(keys[0]), Bytes.toBytes(keys[1])) : null;
+				if (filter != null)
+				{
+					list.addFilter(filter);
+				}
+				else if (!and)
+				{
+					return null;
+				}
+			}
+			return list.getFilters().isEmpty() ? null : list;
+		}
+	}
+	
+	/**
+	 * 获取条件字段内容（字段名称不存在时按 <family>.<qualifier>... 路径查找）
+	 * @param input
+	 * @param key
+	 * @return
+	 */
+	@SuppressWarnings("rawtypes")
+	private static Object search(Map<String, Object> input, String key)
+	{
+		Object object = input.get(key);
+		if (object == null && key.indexOf('.') > 0)
+		{
+			object = input;
+			for (String k : key.split("\\."))
+			{
+				if (object instanceof Map)
+				{
+					object = ((Map)object).get(k);
+				}
+				else
+				{
+					return null;
+				}
+			}
+		}
+		return object;
 	}
 	
 	/**
@@ -67,7 +136,7 @@ public class MatchAccumulator extends Accumulator
 					for (Map.Entry<String, Condition> entry : super.conditions.entrySet())
 					{
 						Condition condition = entry.getValue();
-						if (condition.execute(input.get(entry.getKey())))
+						if (condition.execute(search(input, entry.getKey())))
 						{
 							return true;
 						}
@@ -86,7 +155,7 @@ public class MatchAccumulator extends Accumulator
 					for (Map.Entry<String, Condition> entry : super.conditions.entrySet())
 					{
 						Condition condition = entry.getValue();
-						if (condition.execute(input.get(entry.getKey())))
+						if (condition.execute(search(input, entry.getKey())))
 						{
 							return false;
 						}
@@ -105,7 +174,7 @@ public class MatchAccumulator extends Accumulator
 					for (Map.Entry<String, Condition> entry : super.conditions.entrySet())
 					{
 						Condition condition = entry.getValue();
-						if (!condition.execute(input.get(entry.getKey())))
+						if (!condition.execute(search(input, entry.getKey())))
 						{
 							return true;
 						}
@@ -125,7 +194,7 @@ public class MatchAccumulator extends Accumulator
 					for (Map.Entry<String, Condition> entry : super.conditions.entrySet())
 					{
 						Condition condition = entry.getValue();
-						if (!condition.execute(input.get(entry.getKey())))
+						if (!condition.execute(search(input, entry.getKey())))
 						{
 							return false;
 						}
@@ -148,6 +217,14 @@ public class MatchAccumulator extends Accumulator
 			json = new JSONObject().put(type, value);
 		}
 		
+		/**
+		 * 记录条件算子类型
+		 */
+		if (type.equals("$or") || type.equals("$nor") || type.equals("$not"))
+		{
+			operator.type = type;
+		}
+		
 		/**
 		 * 添加判断条件到条件算子内
 		 */
@@ -200,16 +277,7 @@ public class MatchAccumulator extends Accumulator
 	@Override
 	public void put(Map<String, Object> input) throws Exception
 	{
-		boolean match = true;
-		for (Operator operator : operators)
-		{
-			match = match & operator.apply(input);
-			if (!match)
-			{
-				break;
-			}
-		}
-		if (match)
+		if (match(input))
 		{
 			if (accumulator != null)
 			{
@@ -226,6 +294,70 @@ public class MatchAccumulator extends Accumulator
 		}
 	}
 
+	/**
+	 * 处理输入累积器的一批数据（整批过滤后推送到后续累积器）
+	 */
+	@Override
+	public void putBatch(List<Map<String, Object>> inputs) throws Exception
+	{
+		if (accumulator != null)
+		{
+			List<Map<String, Object>> outputs   = new ArrayList<Map<String, Object>>(inputs.size());
+			int[]                     positions = new int[inputs.size()];
+			for (int index = 0; index < inputs.size(); index++)
+			{
+				boolean matched;
+				try
+				{
+					matched = match(inputs.get(index));
+				}
+				catch (Exception e)
+				{
+					throw new AccumulatorBatchException(index, e);
+				}
+				if (matched)
+				{
+					positions[outputs.size()] = index;
+					outputs.add(inputs.get(index));
+				}
+			}
+			if (!outputs.isEmpty())
+			{
+				try
+				{
+					accumulator.putBatch(outputs);
+				}
+				catch (AccumulatorBatchException e)
+				{
+					// 过滤后批次内的位置转换为输入批次内的位置
+					throw new AccumulatorBatchException(positions[e.index()], e);
+				}
+			}
+		}
+		else
+		{
+			super.putBatch(inputs);
+		}
+	}
+
+	/**
+	 * 判断输入数据是否满足全部条件算子
+	 * @param input
+	 * @return
+	 * @throws Exception
+	 */
+	private boolean match(Map<String, Object> input) throws Exception
+	{
+		for (Operator operator : operators)
+		{
+			if (!operator.apply(input))
+			{
+				return false;
+			}
+		}
+		return true;
+	}
+
 	/**
 	 * 从累积器读取数据
 	 */
@@ -241,4 +373,66 @@ public class MatchAccumulator extends Accumulator
 			return values != null ? values : new AccumulatorArray(new ArrayList<String>());
 		}
 	}
+
+	/**
+	 * 转换为 HBASE 过滤器（全部条件算子以及后续匹配累积器的过滤器同时成立）
+	 */
+	@Override
+	public Filter filter() throws Exception
+	{
+		FilterList list = new FilterList(FilterList.Operator.MUST_PASS_ALL);
+		for (Operator operator : operators)
+		{
+			Filter filter = operator.filter();
+			if (filter != null)
+			{
+				list.addFilter(filter);
+			}
+		}
+		Filter filter = accumulator != null ? accumulator.filter() : null;
+		if (filter != null)
+		{
+			list.addFilter(filter);
+		}
+		return list.getFilters().isEmpty() ? null : list;
+	}
+
+	/**
+	 * 获取累积器读取的输入字段路径（匹配条件字段以及后续累积器读取的字段， 作为最终累积器时需要完整的输入数据）
+	 */
+	@Override
+	public Set<String> fields() throws Exception
+	{
+		Set<String> fields = accumulator != null ? accumulator.fields() : null;
+		if (fields != null)
+		{
+			fields = new HashSet<String>(fields);
+			for (Operator operator : operators)
+			{
+				fields.addAll(operator.conditions.keySet());
+			}
+		}
+		return fields;
+	}
+
+	/**
+	 * 返回累积器持有数据的估算大小
+	 */
+	@Override
+	public long bytes()
+	{
+		return accumulator != null ? accumulator.bytes() : (values != null ? values.bytes() : 0);
+	}
+	
+	/**
+	 * 关闭累积器（关闭后续累积器）
+	 */
+	@Override
+	public void close() throws Exception
+	{
+		if (accumulator != null)
+		{
+			accumulator.close();
+		}
+	}
 }
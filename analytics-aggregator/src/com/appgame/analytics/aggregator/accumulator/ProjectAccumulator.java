@@ -1,8 +1,12 @@
 package com.appgame.analytics.aggregator.accumulator;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import org.codehaus.jettison.json.JSONObject;
 
@@ -56,11 +60,7 @@ public class ProjectAccumulator extends Accumulator
 	@Override
 	public void put(Map<String, Object> input) throws Exception
 	{
-		Map<String, Object> map = new HashMap<String, Object>();
-		for (Map.Entry<String, Expression> entry : expressions.entrySet())
-		{ 
-			map.put(entry.getKey(), entry.getValue().execute(input));
-		}
+		Map<String, Object> map = project(input);
 		// 处理字段映射结果
 		if (accumulator != null)
 		{
@@ -72,6 +72,51 @@ public class ProjectAccumulator extends Accumulator
 		}
 	}
 
+	/**
+	 * 处理输入累积器的一批数据（整批映射后推送到后续累积器）
+	 */
+	@Override
+	public void putBatch(List<Map<String, Object>> inputs) throws Exception
+	{
+		if (accumulator != null)
+		{
+			List<Map<String, Object>> outputs = new ArrayList<Map<String, Object>>(inputs.size());
+			for (int index = 0; index < inputs.size(); index++)
+			{
+				try
+				{
+					outputs.add(project(inputs.get(index)));
+				}
+				catch (Exception e)
+				{
+					throw new AccumulatorBatchException(index, e);
+				}
+			}
+			// 映射结果与输入一一对应，后续累积器记录的位置即为输入批次内的位置
+			accumulator.putBatch(outputs);
+		}
+		else
+		{
+			super.putBatch(inputs);
+		}
+	}
+
+	/**
+	 * 计算字段映射结果
+	 * @param input
+	 * @return
+	 * @throws Exception
+	 */
+	private Map<String, Object> project(Map<String, Object> input) throws Exception
+	{
+		Map<String, Object> map = new HashMap<String, Object>();
+		for (Map.Entry<String, Expression> entry : expressions.entrySet())
+		{ 
+			map.put(entry.getKey(), entry.getValue().execute(input));
+		}
+		return map;
+	}
+
 	/**
 	 * 从累积器读取数据
 	 */
@@ -87,4 +132,44 @@ public class ProjectAccumulator extends Accumulator
 			return values;
 		}
 	}
+
+	/**
+	 * 获取累积器读取的输入字段路径（映射结果仅由映射表达式决定）
+	 */
+	@Override
+	public Set<String> fields() throws Exception
+	{
+		Set<String> fields = new HashSet<String>();
+		for (Expression expression : expressions.values())
+		{
+			Set<String> paths = expression.fields();
+			if (paths == null)
+			{
+				return null;
+			}
+			fields.addAll(paths);
+		}
+		return fields;
+	}
+
+	/**
+	 * 返回累积器持有数据的估算大小
+	 */
+	@Override
+	public long bytes()
+	{
+		return accumulator != null ? accumulator.bytes() : (values != null ? values.bytes() : 0);
+	}
+	
+	/**
+	 * 关闭累积器（关闭后续累积器）
+	 */
+	@Override
+	public void close() throws Exception
+	{
+		if (accumulator != null)
+		{
+			accumulator.close();
+		}
+	}
 }
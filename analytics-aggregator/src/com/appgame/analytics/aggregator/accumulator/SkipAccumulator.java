@@ -1,7 +1,9 @@
 package com.appgame.analytics.aggregator.accumulator;
 
 import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import com.appgame.analytics.aggregator.accumulator.collection.AccumulatorArray;
 import com.appgame.analytics.aggregator.accumulator.collection.AccumulatorCollection;
@@ -62,6 +64,35 @@ public class SkipAccumulator extends Accumulator
 		}
 	}
 
+	/**
+	 * 处理输入累积器的一批数据（跳过批次头部的数据， 其余数据整批推送到后续累积器）
+	 */
+	@Override
+	public void putBatch(List<Map<String, Object>> inputs) throws Exception
+	{
+		if (accumulator != null)
+		{
+			int from = (int)Math.min(Math.max(skip, 0), inputs.size());
+			skip = skip - from;
+			if (from < inputs.size())
+			{
+				try
+				{
+					accumulator.putBatch(inputs.subList(from, inputs.size()));
+				}
+				catch (AccumulatorBatchException e)
+				{
+					// 截取后批次内的位置转换为输入批次内的位置
+					throw new AccumulatorBatchException(from + e.index(), e);
+				}
+			}
+		}
+		else
+		{
+			super.putBatch(inputs);
+		}
+	}
+
 	/**
 	 * 从累积器读取数据
 	 */
@@ -77,4 +108,34 @@ public class SkipAccumulator extends Accumulator
 			return values != null ? values : new AccumulatorArray(new ArrayList<String>());
 		}
 	}
+
+	/**
+	 * 获取累积器读取的输入字段路径（与后续累积器一致， 作为最终累积器时需要完整的输入数据）
+	 */
+	@Override
+	public Set<String> fields() throws Exception
+	{
+		return accumulator != null ? accumulator.fields() : null;
+	}
+
+	/**
+	 * 返回累积器持有数据的估算大小
+	 */
+	@Override
+	public long bytes()
+	{
+		return accumulator != null ? accumulator.bytes() : (values != null ? values.bytes() : 0);
+	}
+	
+	/**
+	 * 关闭累积器（关闭后续累积器）
+	 */
+	@Override
+	public void close() throws Exception
+	{
+		if (accumulator != null)
+		{
+			accumulator.close();
+		}
+	}
 }
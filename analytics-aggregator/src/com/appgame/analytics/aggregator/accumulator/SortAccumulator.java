@@ -3,25 +3,30 @@ package com.appgame.analytics.aggregator.accumulator;
 import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import org.codehaus.jettison.json.JSONObject;
 
 import com.appgame.analytics.aggregator.accumulator.collection.AccumulatorCollection;
+import com.appgame.analytics.aggregator.accumulator.collection.AccumulatorMerge;
 import com.appgame.analytics.aggregator.accumulator.collection.AccumulatorSort;
 import com.appgame.analytics.aggregator.accumulator.utils.AccumulatorUtils;
+import com.appgame.analytics.aggregator.utils.SpillFile;
 
 public class SortAccumulator extends Accumulator
 {
 	/**
-	 * 数据比较器
+	 * 数据比较器（排序累积器以及前 K 项累积器共用）
 	 */
-	private class AccumulatorComparetor implements Comparator<Map<String, Object>>
+	static class AccumulatorComparetor implements Comparator<Map<String, Object>>
 	{
 		/**
 		 * 比较字段集
 		 */
-		private Map<String, Integer> map = new HashMap<String, Integer>();
+		Map<String, Integer> map = new HashMap<String, Integer>();
 		
 		/**
 		 * 构造比较器
@@ -45,10 +50,12 @@ public class SortAccumulator extends Accumulator
 		}
 		
 		/**
-		 * 比较逻辑（如果对象无法比较，则按输入顺序排列）
+		 * 按排序字段比较（排序字段全部相等时返回 0）
+		 * @param m1
+		 * @param m2
+		 * @return
 		 */
-		@Override
-		public int compare(Map<String, Object> m1, Map<String, Object> m2)
+		public int order(Map<String, Object> m1, Map<String, Object> m2)
 		{
 			for (Map.Entry<String, Integer> entry : map.entrySet())
 			{
@@ -62,7 +69,17 @@ public class SortAccumulator extends Accumulator
 					return -entry.getValue();
 				}
 			}
-			return -1;
+			return 0;
+		}
+		
+		/**
+		 * 比较逻辑（如果对象无法比较，则按输入顺序排列）
+		 */
+		@Override
+		public int compare(Map<String, Object> m1, Map<String, Object> m2)
+		{
+			int ret = order(m1, m2);
+			return ret != 0 ? ret : -1;
 		}
 	}
 	
@@ -76,21 +93,48 @@ public class SortAccumulator extends Accumulator
 	 */
 	private AccumulatorSort values;
 	
+	/**
+	 * 记录字段（由第一条输入数据决定）
+	 */
+	private List<String> kfields = null;
+	
+	/**
+	 * 溢出文件列表（按溢出先后排列，每个文件内的记录已经排序）
+	 */
+	private List<SpillFile> runs = new ArrayList<SpillFile>();
+	
+	/**
+	 * 溢出文件的归并结果
+	 */
+	private AccumulatorMerge merged = null;
+	
+	/**
+	 * 累积器是否已经关闭（扫描任务被终止时可能与关闭操作并发，关闭后不再创建溢出文件）
+	 */
+	private boolean closed = false;
+	
 	/**
 	 * 内部数据比较器
 	 */
-	private Comparator<Map<String, Object>> comparator;
+	private AccumulatorComparetor comparator;
+	
+	/**
+	 * 累积器配置
+	 */
+	private AccumulatorConfig config;
 	
 	/**
 	 * 构造排序累积器
 	 * @param accumulator
 	 * @param json
+	 * @param config
 	 * @throws Exception
 	 */
-	public SortAccumulator(Accumulator accumulator, JSONObject json) throws Exception
+	public SortAccumulator(Accumulator accumulator, JSONObject json, AccumulatorConfig config) throws Exception
 	{
 		this.accumulator = accumulator;
 		this.comparator  = new AccumulatorComparetor(json);
+		this.config      = config;
 	}
 	
 	/**
@@ -98,14 +142,130 @@ public class SortAccumulator extends Accumulator
 	 */
 	@Override
 	public void put(Map<String, Object> input) throws Exception
+	{
+		add(input);
+		// 超过溢出阈值时才进入同步的溢出操作
+		if (exceeded())
+		{
+			spill(false);
+		}
+	}
+	
+	/**
+	 * 处理输入累积器的一批数据（整批加入后检查一次溢出阈值）
+	 */
+	@Override
+	public void putBatch(List<Map<String, Object>> inputs) throws Exception
+	{
+		for (Map<String, Object> input : inputs)
+		{
+			add(input);
+		}
+		if (exceeded())
+		{
+			spill(false);
+		}
+	}
+	
+	/**
+	 * 加入一条数据
+	 * @param input
+	 */
+	private void add(Map<String, Object> input)
 	{
 		if (values == null)
 		{
-			values = new AccumulatorSort(input.keySet(), comparator);
+			kfields = new ArrayList<String>(input.keySet());
+			values  = new AccumulatorSort(kfields, comparator);
 		}
 		values.add(input);
 	}
 	
+	/**
+	 * 判断排序数据是否超过溢出阈值
+	 * @return
+	 */
+	private boolean exceeded()
+	{
+		return config.threshold() > 0 && values != null && values.bytes() > config.threshold();
+	}
+	
+	/**
+	 * 排序数据超过溢出阈值时（或者强制溢出时）将已排序的数据写入新的溢出文件
+	 * @param force
+	 * @throws Exception
+	 */
+	private synchronized void spill(boolean force) throws Exception
+	{
+		if ((force || exceeded()) && values.size() > 0)
+		{
+			if (closed)
+			{
+				throw new Exception("sort accumulator already closed!!");
+			}
+			SpillFile file = new SpillFile(config.directory());
+			runs.add(file);
+			for (Iterator<Map<String, Object>> iterator = values.iterator(); iterator.hasNext(); )
+			{
+				file.write(iterator.next());
+			}
+			file.close();
+			values = new AccumulatorSort(kfields, comparator);
+		}
+	}
+	
+	/**
+	 * 将剩余数据溢出，然后由归并结果接管全部溢出文件（溢出文件超过归并路数时先逐趟归并相邻的溢出文件）
+	 * @throws Exception
+	 */
+	private synchronized void merge() throws Exception
+	{
+		spill(true);
+		while (runs.size() > MERGE_FACTOR)
+		{
+			List<SpillFile> passes = new ArrayList<SpillFile>();
+			try
+			{
+				for (int from = 0; from < runs.size(); from = from + MERGE_FACTOR)
+				{
+					List<SpillFile> group = runs.subList(from, Math.min(runs.size(), from + MERGE_FACTOR));
+					if (group.size() == 1)
+					{
+						passes.add(group.get(0));
+						continue;
+					}
+					// 相邻的溢出文件归并为一个新的溢出文件（保持溢出先后顺序，相等记录的排列不变）
+					SpillFile        file  = new SpillFile(config.directory());
+					AccumulatorMerge merge = new AccumulatorMerge(group, comparator);
+					passes.add(file);
+					try
+					{
+						for (Iterator<Map<String, Object>> iterator = merge.iterator(); iterator.hasNext(); )
+						{
+							file.write(iterator.next());
+						}
+						file.close();
+					}
+					finally
+					{
+						merge.close();
+					}
+				}
+			}
+			catch (Exception e)
+			{
+				for (SpillFile file : passes)
+				{
+					file.delete();
+				}
+				throw e;
+			}
+			runs = passes;
+		}
+		merged = new AccumulatorMerge(runs, comparator);
+		runs.clear();
+	}
+	
 	/**
 	 * 从累积器读取数据
 	 */
@@ -114,9 +274,15 @@ public class SortAccumulator extends Accumulator
 	{
 		if (values != null)
 		{
+			// 存在溢出文件时将剩余数据溢出，然后按多路归并读取
+			if (!runs.isEmpty())
+			{
+				merge();
+			}
+			AccumulatorCollection collection = merged != null ? merged : values;
 			if (accumulator != null)
 			{
-				for (Iterator<Map<String, Object>> iterator = values.iterator(); iterator.hasNext(); )
+				for (Iterator<Map<String, Object>> iterator = collection.iterator(); iterator.hasNext(); )
 				{
 					accumulator.put(iterator.next());
 				}
@@ -124,7 +290,7 @@ public class SortAccumulator extends Accumulator
 			}
 			else
 			{
-				return values;
+				return collection;
 			}
 		}
 		else
@@ -132,4 +298,51 @@ public class SortAccumulator extends Accumulator
 			return new AccumulatorSort(new ArrayList<String>(), comparator);
 		}
 	}
+
+	/**
+	 * 获取累积器读取的输入字段路径（排序字段以及后续累积器读取的字段， 作为最终累积器时需要完整的输入数据）
+	 */
+	@Override
+	public Set<String> fields() throws Exception
+	{
+		Set<String> fields = accumulator != null ? accumulator.fields() : null;
+		if (fields != null)
+		{
+			fields = new HashSet<String>(fields);
+			fields.addAll(comparator.map.keySet());
+		}
+		return fields;
+	}
+
+	/**
+	 * 返回累积器持有数据的估算大小（内存中的排序数据以及后续累积器的数据，溢出到磁盘的数据不计入）
+	 */
+	@Override
+	public long bytes()
+	{
+		return (values != null ? values.bytes() : 0) + (accumulator != null ? accumulator.bytes() : 0);
+	}
+	
+	/**
+	 * 关闭累积器（删除溢出文件以及归并结果，关闭后续累积器）
+	 */
+	@Override
+	public synchronized void close() throws Exception
+	{
+		closed = true;
+		for (SpillFile run : runs)
+		{
+			run.delete();
+		}
+		runs.clear();
+		if (merged != null)
+		{
+			merged.close();
+			merged = null;
+		}
+		if (accumulator != null)
+		{
+			accumulator.close();
+		}
+	}
 }
@@ -0,0 +1,195 @@
+package com.appgame.analytics.aggregator.accumulator;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+import org.apache.hadoop.hbase.util.Pair;
+import org.codehaus.jettison.json.JSONObject;
+
+import com.appgame.analytics.aggregator.accumulator.collection.AccumulatorArray;
+import com.appgame.analytics.aggregator.accumulator.collection.AccumulatorCollection;
+import com.appgame.analytics.aggregator.accumulator.utils.AccumulatorUtils;
+
+/**
+ * 前 K 项累积器（由'$sort'、'$skip'（可选）以及'$limit'融合而成，仅保留排序结果的前 skip + limit 条数据）
+ */
+public class TopAccumulator extends Accumulator
+{
+	/**
+	 * 修饰的累积器
+	 */
+	private Accumulator accumulator;
+	
+	/**
+	 * 排序比较器
+	 */
+	private SortAccumulator.AccumulatorComparetor comparator;
+	
+	/**
+	 * 需要跳过的数据数量
+	 */
+	private long skip = 0;
+	
+	/**
+	 * 可通过数据阀值
+	 */
+	private long limit = 0;
+	
+	/**
+	 * 输入数据序号（排序字段相等时后输入的数据在前，与排序累积器一致）
+	 */
+	private long sequence = 0;
+	
+	/**
+	 * 有界堆<输入序号, 数据>（堆顶为当前保留数据中排序最靠后的一条）
+	 */
+	private PriorityQueue<Pair<Long, Map<String, Object>>> heap;
+	
+	/**
+	 * 堆内数据的估算大小（字节）
+	 */
+	private long bytes = 0;
+	
+	/**
+	 * 构造前 K 项累积器
+	 * @param accumulator
+	 * @param json
+	 * @param skip
+	 * @param limit
+	 * @throws Exception
+	 */
+	public TopAccumulator(Accumulator accumulator, JSONObject json, long skip, long limit) throws Exception
+	{
+		this.accumulator = accumulator;
+		this.comparator  = new SortAccumulator.AccumulatorComparetor(json);
+		this.skip        = Math.max(skip, 0);
+		this.limit       = Math.max(limit, 0);
+		this.heap        = new PriorityQueue<Pair<Long, Map<String, Object>>>(11, Collections.reverseOrder(new Comparator<Pair<Long, Map<String, Object>>>()
+		{
+			@Override
+			public int compare(Pair<Long, Map<String, Object>> p1, Pair<Long, Map<String, Object>> p2)
+			{
+				return TopAccumulator.this.compare(p1, p2);
+			}
+		}));
+	}
+	
+	/**
+	 * 排序逻辑（排序字段相等时按输入序号倒序排列）
+	 * @param p1
+	 * @param p2
+	 * @return
+	 */
+	private int compare(Pair<Long, Map<String, Object>> p1, Pair<Long, Map<String, Object>> p2)
+	{
+		int ret = comparator.order(p1.getSecond(), p2.getSecond());
+		return ret != 0 ? ret : p2.getFirst().compareTo(p1.getFirst());
+	}
+	
+	/**
+	 * 处理输入累积器的数据
+	 */
+	@Override
+	public void put(Map<String, Object> input) throws Exception
+	{
+		if (limit > 0)
+		{
+			Pair<Long, Map<String, Object>> pair = new Pair<Long, Map<String, Object>>(sequence++, input);
+			if (heap.size() < skip + limit)
+			{
+				heap.add(pair);
+				bytes = bytes + 40 + AccumulatorUtils.sizeof(input);
+			}
+			else if (compare(pair, heap.peek()) < 0)
+			{
+				bytes = bytes - AccumulatorUtils.sizeof(heap.poll().getSecond()) + AccumulatorUtils.sizeof(input);
+				heap.add(pair);
+			}
+		}
+	}
+	
+	/**
+	 * 从累积器读取数据
+	 */
+	@Override
+	public AccumulatorCollection get() throws Exception
+	{
+		// 按排序顺序取出保留的数据
+		List<Pair<Long, Map<String, Object>>> pairs = new ArrayList<Pair<Long, Map<String, Object>>>(heap);
+		Collections.sort(pairs, new Comparator<Pair<Long, Map<String, Object>>>()
+		{
+			@Override
+			public int compare(Pair<Long, Map<String, Object>> p1, Pair<Long, Map<String, Object>> p2)
+			{
+				return TopAccumulator.this.compare(p1, p2);
+			}
+		});
+		AccumulatorArray values = null;
+		for (int index = (int)Math.min(skip, pairs.size()); index < pairs.size(); index++)
+		{
+			Map<String, Object> input = pairs.get(index).getSecond();
+			if (accumulator != null)
+			{
+				accumulator.put(input);
+			}
+			else
+			{
+				if (values == null)
+				{
+					values = new AccumulatorArray(input.keySet());
+				}
+				values.add(input);
+			}
+		}
+		if (accumulator != null)
+		{
+			return accumulator.get();
+		}
+		else
+		{
+			return values != null ? values : new AccumulatorArray(new ArrayList<String>());
+		}
+	}
+
+	/**
+	 * 获取累积器读取的输入字段路径（排序字段以及后续累积器读取的字段， 作为最终累积器时需要完整的输入数据）
+	 */
+	@Override
+	public Set<String> fields() throws Exception
+	{
+		Set<String> fields = accumulator != null ? accumulator.fields() : null;
+		if (fields != null)
+		{
+			fields = new HashSet<String>(fields);
+			fields.addAll(comparator.map.keySet());
+		}
+		return fields;
+	}
+
+	/**
+	 * 返回累积器持有数据的估算大小（堆内数据以及后续累积器的数据）
+	 */
+	@Override
+	public long bytes()
+	{
+		return bytes + (accumulator != null ? accumulator.bytes() : 0);
+	}
+	
+	/**
+	 * 关闭累积器（关闭后续累积器）
+	 */
+	@Override
+	public void close() throws Exception
+	{
+		if (accumulator != null)
+		{
+			accumulator.close();
+		}
+	}
+}
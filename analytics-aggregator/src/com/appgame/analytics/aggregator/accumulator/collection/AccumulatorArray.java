@@ -7,6 +7,8 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 
+import com.appgame.analytics.aggregator.accumulator.utils.AccumulatorUtils;
+
 public class AccumulatorArray implements AccumulatorCollection
 {
 	/**
@@ -19,6 +21,11 @@ public class AccumulatorArray implements AccumulatorCollection
 	 */
 	private List<Object[]> container = new ArrayList<Object[]>();
 	
+	/**
+	 * 容器内数据的估算大小（字节）
+	 */
+	private long bytes = 0;
+	
 	/**
 	 * 构造方法（指定容器映射字段）
 	 */
@@ -41,6 +48,7 @@ public class AccumulatorArray implements AccumulatorCollection
 			values[index] = map.get(kfields.get(index));
 		}
 		container.add(values);
+		bytes = bytes + 8 + AccumulatorUtils.sizeof(values);
 	}
 	
 	/**
@@ -52,6 +60,23 @@ public class AccumulatorArray implements AccumulatorCollection
 		return container.size();
 	}
 	
+	/**
+	 * 返回容器内数据的估算大小
+	 */
+	@Override
+	public long bytes()
+	{
+		return bytes;
+	}
+	
+	/**
+	 * 关闭容器（数据保存在堆内，不持有其它资源）
+	 */
+	@Override
+	public void close()
+	{
+	}
+	
 	/**
 	 * 定义容器内元素的迭代器(因为仅仅在聚合器内使用，所以不检查字段是否匹配)
 	 */
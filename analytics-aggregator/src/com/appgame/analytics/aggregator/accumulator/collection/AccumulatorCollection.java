@@ -1,12 +1,27 @@
 package com.appgame.analytics.aggregator.accumulator.collection;
 
+import java.io.Closeable;
+import java.io.IOException;
 import java.util.Map;
 
-public interface AccumulatorCollection extends Iterable<Map<String, Object>>
+public interface AccumulatorCollection extends Iterable<Map<String, Object>>, Closeable
 {
 	/**
 	 * 返回容器内元素数量
 	 * @return
 	 */
 	public int size();
+	
+	/**
+	 * 返回容器内数据的估算大小（字节）
+	 * @return
+	 */
+	public long bytes();
+	
+	/**
+	 * 关闭容器（释放容器持有的溢出文件等资源，关闭后不能再读取）
+	 * @throws IOException
+	 */
+	@Override
+	public void close() throws IOException;
 }
@@ -0,0 +1,150 @@
+package com.appgame.analytics.aggregator.accumulator.collection;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import com.appgame.analytics.aggregator.utils.SpillFile;
+
+public class AccumulatorFile implements AccumulatorCollection
+{
+	/**
+	 * 底层溢出文件（每个对象为一条记录）
+	 */
+	private final SpillFile file;
+	
+	/**
+	 * 迭代器打开的溢出文件读取器（关闭容器时一并关闭，避免放弃迭代时遗留打开的文件）
+	 */
+	private final List<SpillFile.Reader> opened = new ArrayList<SpillFile.Reader>();
+	
+	/**
+	 * 构造方法（指定已经结束写入的溢出文件）
+	 */
+	public AccumulatorFile(SpillFile file)
+	{
+		this.file = file;
+	}
+	
+	/**
+	 * 返回容器内保存的记录数量
+	 */
+	@Override
+	public int size()
+	{
+		return (int)file.size();
+	}
+	
+	/**
+	 * 返回容器内数据的估算大小（数据保存在磁盘上，不占用内存）
+	 */
+	@Override
+	public long bytes()
+	{
+		return 0;
+	}
+	
+	/**
+	 * 关闭容器（关闭迭代器打开的读取器并删除溢出文件）
+	 */
+	@Override
+	public void close()
+	{
+		synchronized(opened)
+		{
+			for (SpillFile.Reader reader : opened)
+			{
+				try
+				{
+					reader.close();
+				}
+				catch (IOException e)
+				{
+				}
+			}
+			opened.clear();
+		}
+		file.delete();
+	}
+	
+	/**
+	 * 定义容器内元素的迭代器（每个迭代器从头读取溢出文件）
+	 */
+	private class AccumulatorIterator implements Iterator<Map<String, Object>>
+	{
+		/**
+		 * 溢出文件读取器
+		 */
+		private SpillFile.Reader reader;
+		
+		/**
+		 * 构造方法
+		 */
+		public AccumulatorIterator()
+		{
+			try
+			{
+				this.reader = file.open();
+				synchronized(opened)
+				{
+					opened.add(reader);
+				}
+			}
+			catch (Exception e)
+			{
+				throw new RuntimeException(e);
+			}
+		}
+		
+		/**
+		 * 判断容器内是否还有数据
+		 */
+		@Override
+		public boolean hasNext()
+		{
+			return reader.hasNext();
+		}
+
+		/**
+		 * 获取容器内的下一个数据
+		 */
+		@SuppressWarnings("unchecked")
+		@Override
+		public Map<String, Object> next()
+		{
+			if (!reader.hasNext())
+			{
+				throw new NoSuchElementException();
+			}
+			try
+			{
+				return (Map<String, Object>)reader.next();
+			}
+			catch (Exception e)
+			{
+				throw new RuntimeException(e);
+			}
+		}
+		
+		/**
+		 * 不支持删除操作
+		 */
+		@Override
+		public void remove()
+		{
+			throw new UnsupportedOperationException();
+		}
+	}
+	
+	/**
+	 * 返回迭代器
+	 */
+	@Override
+	public Iterator<Map<String, Object>> iterator()
+	{
+		return new AccumulatorIterator();
+	}
+}
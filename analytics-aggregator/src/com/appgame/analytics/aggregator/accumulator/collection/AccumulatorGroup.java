@@ -0,0 +1,144 @@
+package com.appgame.analytics.aggregator.accumulator.collection;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.appgame.analytics.aggregator.utils.SpillFile;
+
+/**
+ * 分组数据容器（按分组条件保存分组内容， 分组累积器通过配置选择堆内或者堆外实现）
+ */
+public abstract class AccumulatorGroup implements AccumulatorCollection
+{
+	/**
+	 * 分组字段（分组条件）
+	 */
+	protected List<String> kfields = new ArrayList<String>();
+	
+	/**
+	 * 分组字段（分组内容）
+	 */
+	protected List<String> vfields = new ArrayList<String>();
+	
+	/**
+	 * 构造方法（指定分组字段）
+	 */
+	public AccumulatorGroup(Collection<String> kfields, Collection<String> vfields)
+	{
+		this.kfields.addAll(kfields);
+		this.vfields.addAll(vfields);
+	}
+	
+	/**
+	 * 添加记录到容器
+	 * @param key
+	 * @param value
+	 * @throws Exception
+	 */
+	public abstract void put(Map<String, Object> key, Map<String, Object> value) throws Exception;
+	
+	/**
+	 * 从容器取出指定记录（记录不存在时返回空字典）
+	 * @param key
+	 * @return
+	 * @throws Exception
+	 */
+	public abstract Map<String, Object> get(Map<String, Object> key) throws Exception;
+	
+	/**
+	 * 将容器内数据按分组条件的编码排序后写入溢出文件并清空容器
+	 * 溢出记录格式 : [分组条件编码, 分组条件, 分组内容]
+	 * @param file
+	 * @throws Exception
+	 */
+	public abstract void spill(SpillFile file) throws Exception;
+	
+	/**
+	 * 返回分组条件字段（分组条件数组按此顺序排列）
+	 */
+	public List<String> kfields()
+	{
+		return kfields;
+	}
+	
+	/**
+	 * 返回分组内容字段（分组内容数组按此顺序排列）
+	 */
+	public List<String> vfields()
+	{
+		return vfields;
+	}
+	
+	/**
+	 * 取出可变分组状态的最终结果
+	 */
+	protected static Object value(Object v)
+	{
+		return v instanceof AccumulatorSlot ? ((AccumulatorSlot)v).value() : v;
+	}
+	
+	/**
+	 * 分组内容数组转换为最终结果数组（可变分组状态转换为最终结果）
+	 */
+	protected static List<Object> values(List<Object> values)
+	{
+		List<Object> result = new ArrayList<Object>(values.size());
+		for (Object v : values)
+		{
+			result.add(value(v));
+		}
+		return result;
+	}
+	
+	/**
+	 * 数组转字典（因为仅仅在聚合器内使用，所以不检查字段是否匹配， 可变分组状态转换为最终结果）
+	 */
+	protected Map<String, Object> convert(List<String> keys, List<Object> values)
+	{
+		Map<String, Object> result = new HashMap<String, Object>();
+		for (int index = 0; index < keys.size(); index++)
+		{
+			result.put(keys.get(index), value(values.get(index)));
+		}
+		return result;
+	}
+	
+	/**
+	 * 字典转数组（因为仅仅在聚合器内使用，所以不检查字段是否匹配）
+	 */
+	protected List<Object> convert(List<String> keys, Map<String, Object> values)
+	{
+		List<Object> result = new ArrayList<Object>(keys.size());
+		for (String key : keys)
+		{
+			result.add(values.get(key));
+		}
+		return result;
+	}
+	
+	/**
+	 * 分组条件以及分组内容转换为输出记录(因为仅仅在聚合器内使用，所以不检查字段是否匹配)
+	 */
+	public Map<String, Object> record(List<Object> keys, List<Object> values)
+	{
+		Map<String, Object> result = new HashMap<String, Object>();
+		// 转化分组条件
+		if (kfields.size() == 1 && kfields.contains("_id"))
+		{
+			result.put("_id", keys.get(0));
+		}
+		else
+		{
+			result.put("_id", convert(kfields, keys));
+		}
+		// 转换分组内容
+		if (values != null)
+		{
+			result.putAll(convert(vfields, values));
+		}
+		return result;
+	}
+}
@@ -0,0 +1,137 @@
+package com.appgame.analytics.aggregator.accumulator.collection;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+
+import org.apache.hadoop.hbase.util.Bytes;
+
+/**
+ * 分组条件（构造时计算哈希值，按字段类型分别哈希以及比较，字节数组按内容比较）
+ */
+public class AccumulatorKey extends AbstractList<Object>
+{
+	/**
+	 * 分组条件字段值
+	 */
+	private final Object[] values;
+	
+	/**
+	 * 哈希值
+	 */
+	private final int hcode;
+	
+	/**
+	 * 构造方法（直接引用传入的数组，调用者不得再修改）
+	 * @param values
+	 */
+	public AccumulatorKey(Object[] values)
+	{
+		this.values = values;
+		int code = 1;
+		for (Object v : values)
+		{
+			code = code * 37 + hash(v);
+		}
+		this.hcode = code;
+	}
+	
+	/**
+	 * 字段值哈希
+	 */
+	private static int hash(Object v)
+	{
+		if (v == null)
+		{
+			return 0;
+		}
+		else if (v instanceof Integer)
+		{
+			return (Integer)v;
+		}
+		else if (v instanceof Long)
+		{
+			long l = (Long)v;
+			return (int)(l ^ (l >>> 32));
+		}
+		else if (v instanceof Double)
+		{
+			long l = Double.doubleToLongBits((Double)v);
+			return (int)(l ^ (l >>> 32));
+		}
+		else if (v instanceof byte[])
+		{
+			return Bytes.hashCode((byte[])v);
+		}
+		else
+		{
+			return v.hashCode();
+		}
+	}
+	
+	/**
+	 * 字段值比较（字节数组按内容比较）
+	 */
+	private static boolean equals(Object v1, Object v2)
+	{
+		if (v1 == v2)
+		{
+			return true;
+		}
+		else if (v1 == null || v2 == null)
+		{
+			return false;
+		}
+		else if (v1 instanceof byte[] && v2 instanceof byte[])
+		{
+			return Arrays.equals((byte[])v1, (byte[])v2);
+		}
+		else
+		{
+			return v1.equals(v2);
+		}
+	}
+	
+	@Override
+	public Object get(int index)
+	{
+		return values[index];
+	}
+	
+	@Override
+	public int size()
+	{
+		return values.length;
+	}
+	
+	@Override
+	public int hashCode()
+	{
+		return hcode;
+	}
+	
+	@Override
+	public boolean equals(Object o)
+	{
+		if (this == o)
+		{
+			return true;
+		}
+		if (!(o instanceof AccumulatorKey))
+		{
+			return false;
+		}
+		AccumulatorKey key = (AccumulatorKey)o;
+		if (hcode != key.hcode || values.length != key.values.length)
+		{
+			return false;
+		}
+		for (int index = 0; index < values.length; index++)
+		{
+			if (!equals(values[index], key.values[index]))
+			{
+				return false;
+			}
+		}
+		return true;
+	}
+}
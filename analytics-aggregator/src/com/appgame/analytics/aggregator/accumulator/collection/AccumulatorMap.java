@@ -1,110 +1,142 @@
 package com.appgame.analytics.aggregator.accumulator.collection;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 
-public class AccumulatorMap implements AccumulatorCollection
+import org.apache.hadoop.hbase.util.Bytes;
+
+import com.appgame.analytics.aggregator.accumulator.utils.AccumulatorUtils;
+import com.appgame.analytics.aggregator.accumulator.utils.StringDictionary;
+import com.appgame.analytics.aggregator.utils.SpillFile;
+
+public class AccumulatorMap extends AccumulatorGroup
 {
 	/**
-	 * 分组字段（分组条件）
+	 * 底层数据容器（按分组字段排序）
 	 */
-	private List<String> kfields = new ArrayList<String>();
+	private Map<List<Object>, List<Object>> container = new HashMap<List<Object>, List<Object>>();
 	
 	/**
-	 * 分组字段（分组内容）
+	 * 容器内数据的估算大小（字节）
 	 */
-	private List<String> vfields = new ArrayList<String>();
+	private long bytes = 0;
 	
 	/**
-	 * 底层数据容器（按分组字段排序）
+	 * 分组条件字典（按分组条件字段位置排列，为 null 的位置不编码）
 	 */
-	private Map<List<Object>, List<Object>> container = new HashMap<List<Object>, List<Object>>();
+	private StringDictionary[] dictionaries = null;
 	
 	/**
 	 * 构造方法（指定分组字段）
 	 */
 	public AccumulatorMap(Collection<String> kfields, Collection<String> vfields)
 	{
-		this.kfields.addAll(kfields);
-		this.vfields.addAll(vfields);
+		super(kfields, vfields);
+		this.dictionaries = new StringDictionary[this.kfields.size()];
 	}
 	
 	/**
-	 * 数组转字典（因为仅仅在聚合器内使用，所以不检查字段是否匹配）
+	 * 返回指定位置的分组条件字典（首次调用时创建，之后'slots'传入的该位置分组条件为字典编码，输出时解码为字符串）
+	 * @param index
+	 * @return
 	 */
-	private Map<String, Object> convert(List<String> keys, List<Object> values)
+	public StringDictionary dictionary(int index)
 	{
-		Map<String, Object> result = new HashMap<String, Object>();
-		for (int index = 0; index < keys.size(); index++)
+		if (dictionaries[index] == null)
 		{
-			result.put(keys.get(index), values.get(index));
+			dictionaries[index] = new StringDictionary();
 		}
-		return result;
+		return dictionaries[index];
 	}
 	
 	/**
-	 * 字典转数组（因为仅仅在聚合器内使用，所以不检查字段是否匹配）
+	 * 分组条件解码（字典编码的位置转换为字符串）
 	 */
-	private List<Object> convert(List<String> keys, Map<String, Object> values)
+	private List<Object> decode(List<Object> keys)
 	{
-		List<Object> result = new ArrayList<Object>(keys.size());
-		for (String key : keys)
+		List<Object> result = new ArrayList<Object>(keys);
+		for (int index = 0; index < dictionaries.length; index++)
 		{
-			result.add(values.get(key));
+			if (dictionaries[index] != null)
+			{
+				result.set(index, dictionaries[index].decode((Integer)keys.get(index)));
+			}
 		}
 		return result;
 	}
-
+	
 	/**
 	 * 构造分组条件(因为仅仅在聚合器内使用，所以不检查字段是否匹配)
 	 */
 	private List<Object> condition(Map<String, Object> values)
 	{
-		@SuppressWarnings("serial")
-		List<Object> result = new ArrayList<Object>()
-		{
-			/**
-			 * 哈希值
-			 */
-			private int hcode = 0;
-			
-			/**
-			 * 指定哈希逻辑（确保快速匹配）
-			 */
-			public int hashCode()
-			{
-				if (hcode == 0)
-				{
-					for (Object v : this)
-					{
-						hcode = hcode * 37 + v.toString().hashCode();
-					}
-				}
-				return hcode;
-			}
-		};
+		Object[] result = new Object[kfields.size()];
 		for (int index = 0; index < kfields.size(); index++)
 		{
-			result.add(values.get(kfields.get(index)));
+			result[index] = values.get(kfields.get(index));
 		}
-		return result;
+		return new AccumulatorKey(result);
+	}
+	
+	/**
+	 * 取出指定分组条件（按分组条件字段顺序排列）的分组内容数组，分组不存在时创建（分组内容数组可以原地修改）
+	 * @param keys
+	 * @return
+	 */
+	public List<Object> slots(Object[] keys)
+	{
+		List<Object> condition = new AccumulatorKey(keys.clone());
+		List<Object> content   = container.get(condition);
+		if (content == null)
+		{
+			content = new ArrayList<Object>(Collections.nCopies(vfields.size(), null));
+			container.put(condition, content);
+			// 哈希表节点 + 分组条件 + 分组内容
+			bytes = bytes + 48 + AccumulatorUtils.sizeof(condition) + AccumulatorUtils.sizeof(content);
+		}
+		return content;
+	}
+	
+	/**
+	 * 记录分组内容原地修改引起的估算大小变化
+	 * @param delta
+	 */
+	public void account(long delta)
+	{
+		bytes = bytes + delta;
 	}
 	
 	/**
 	 * 添加记录到容器
 	 */
+	@Override
 	public void put(Map<String, Object> key, Map<String, Object> value)
 	{
-		container.put(condition(key), convert(vfields, value));
+		List<Object> condition = condition(key);
+		List<Object> content   = convert(vfields, value);
+		List<Object> previous  = container.put(condition, content);
+		if (previous == null)
+		{
+			// 哈希表节点 + 分组条件 + 分组内容
+			bytes = bytes + 48 + AccumulatorUtils.sizeof(condition) + AccumulatorUtils.sizeof(content);
+		}
+		else
+		{
+			bytes = bytes + AccumulatorUtils.sizeof(content) - AccumulatorUtils.sizeof(previous);
+		}
 	}
 	
 	/**
 	 * 从容器取出指定记录
 	 */
+	@Override
 	public Map<String, Object> get(Map<String, Object> key)
 	{
 		List<Object> value = container.get(condition(key));
@@ -118,6 +150,42 @@ public class AccumulatorMap implements AccumulatorCollection
 		}
 	}
 	
+	/**
+	 * 将容器内数据按分组条件的编码排序后写入溢出文件并清空容器
+	 */
+	@Override
+	public void spill(SpillFile file) throws Exception
+	{
+		List<List<Object>> records = new ArrayList<List<Object>>(container.size());
+		for (Map.Entry<List<Object>, List<Object>> entry : container.entrySet())
+		{
+			List<Object> keys = decode(entry.getKey());
+			records.add(Arrays.<Object>asList(AccumulatorUtils.encode(keys), keys, values(entry.getValue())));
+		}
+		container.clear();
+		bytes = 0;
+		for (StringDictionary dictionary : dictionaries)
+		{
+			if (dictionary != null)
+			{
+				dictionary.clear();
+			}
+		}
+		Collections.sort(records, new Comparator<List<Object>>()
+		{
+			@Override
+			public int compare(List<Object> r1, List<Object> r2)
+			{
+				return Bytes.compareTo((byte[])r1.get(0), (byte[])r2.get(0));
+			}
+		});
+		for (List<Object> record : records)
+		{
+			file.write(record);
+		}
+		file.close();
+	}
+	
 	/**
 	 * 返回容器内元素数量
 	 */
@@ -127,6 +195,28 @@ public class AccumulatorMap implements AccumulatorCollection
 		return container.size();
 	}
 	
+	/**
+	 * 返回容器内数据的估算大小（包括分组条件字典，字典同样计入溢出阈值）
+	 */
+	@Override
+	public long bytes()
+	{
+		long total = bytes;
+		for (StringDictionary dictionary : dictionaries)
+		{
+			total = total + (dictionary != null ? dictionary.bytes() : 0);
+		}
+		return total;
+	}
+	
+	/**
+	 * 关闭容器（数据保存在堆内，不持有其它资源）
+	 */
+	@Override
+	public void close()
+	{
+	}
+	
 	/**
 	 * 定义容器内元素的迭代器(因为仅仅在聚合器内使用，所以不检查字段是否匹配)
 	 */
@@ -152,24 +242,8 @@ public class AccumulatorMap implements AccumulatorCollection
 		@Override
 		public Map<String, Object> next()
 		{
-			Map<String, Object> result = new HashMap<String, Object>();
-			List<Object>        keys   = iterator.next();
-			List<Object>        values = container.get(keys);
-			// 转化分组条件
-			if (kfields.size() == 1 && kfields.contains("_id"))
-			{
-				result.put("_id", keys.get(0));
-			}
-			else
-			{
-				result.put("_id", convert(kfields, keys));
-			}
-			// 转换分组内容
-			if (values != null)
-			{
-				result.putAll(convert(vfields, values));
-			}
-			return result;
+			List<Object> keys = iterator.next();
+			return record(decode(keys), container.get(keys));
 		}
 	}
 
@@ -0,0 +1,204 @@
+package com.appgame.analytics.aggregator.accumulator.collection;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+
+import org.apache.hadoop.hbase.util.Pair;
+
+import com.appgame.analytics.aggregator.utils.SpillFile;
+
+public class AccumulatorMerge implements AccumulatorCollection
+{
+	/**
+	 * 有序的溢出文件列表（按溢出先后排列）
+	 */
+	private final List<SpillFile> runs;
+	
+	/**
+	 * 数据比较器（与溢出文件内的排列顺序一致）
+	 */
+	private final Comparator<Map<String, Object>> comparator;
+	
+	/**
+	 * 迭代器打开的溢出文件读取器（关闭容器时一并关闭，避免放弃迭代时遗留打开的文件）
+	 */
+	private final List<SpillFile.Reader> opened = new ArrayList<SpillFile.Reader>();
+	
+	/**
+	 * 构造方法（指定溢出文件以及比较逻辑）
+	 */
+	public AccumulatorMerge(List<SpillFile> runs, Comparator<Map<String, Object>> comparator)
+	{
+		this.runs       = new ArrayList<SpillFile>(runs);
+		this.comparator = comparator;
+	}
+	
+	/**
+	 * 返回容器内保存的记录数量
+	 */
+	@Override
+	public int size()
+	{
+		long size = 0;
+		for (SpillFile run : runs)
+		{
+			size = size + run.size();
+		}
+		return (int)size;
+	}
+	
+	/**
+	 * 返回容器内数据的估算大小（数据保存在磁盘上，不占用内存）
+	 */
+	@Override
+	public long bytes()
+	{
+		return 0;
+	}
+	
+	/**
+	 * 关闭容器（关闭迭代器打开的读取器并删除全部溢出文件）
+	 */
+	@Override
+	public void close()
+	{
+		synchronized(opened)
+		{
+			for (SpillFile.Reader reader : opened)
+			{
+				try
+				{
+					reader.close();
+				}
+				catch (IOException e)
+				{
+				}
+			}
+			opened.clear();
+		}
+		for (SpillFile run : runs)
+		{
+			run.delete();
+		}
+	}
+	
+	/**
+	 * 定义容器内元素的迭代器（多路归并，每个迭代器从头读取全部溢出文件）
+	 */
+	private class AccumulatorIterator implements Iterator<Map<String, Object>>
+	{
+		/**
+		 * 溢出文件读取器
+		 */
+		private List<SpillFile.Reader> readers = new ArrayList<SpillFile.Reader>(runs.size());
+		
+		/**
+		 * 归并队列<溢出顺序, 记录>（比较结果相同时后溢出的记录在前，与内存排序时后输入的记录在前一致）
+		 */
+		private PriorityQueue<Pair<Integer, Map<String, Object>>> queue = new PriorityQueue<Pair<Integer, Map<String, Object>>>(Math.max(1, runs.size()), new Comparator<Pair<Integer, Map<String, Object>>>()
+		{
+			@Override
+			public int compare(Pair<Integer, Map<String, Object>> p1, Pair<Integer, Map<String, Object>> p2)
+			{
+				// 排序比较器对相等的记录不返回 0（双向比较均小于 0 时视为相等）
+				int r1 = comparator.compare(p1.getSecond(), p2.getSecond());
+				int r2 = comparator.compare(p2.getSecond(), p1.getSecond());
+				return (r1 < 0 && r2 < 0) || (r1 == 0) ? p2.getFirst().compareTo(p1.getFirst()) : r1;
+			}
+		});
+		
+		/**
+		 * 构造方法（打开全部溢出文件并读取首条记录）
+		 */
+		public AccumulatorIterator()
+		{
+			try
+			{
+				for (int index = 0; index < runs.size(); index++)
+				{
+					SpillFile.Reader reader = runs.get(index).open();
+					synchronized(opened)
+					{
+						opened.add(reader);
+					}
+					readers.add(reader);
+					advance(index);
+				}
+			}
+			catch (Exception e)
+			{
+				throw new RuntimeException(e);
+			}
+		}
+		
+		/**
+		 * 从指定溢出文件读取下一条记录到归并队列
+		 * @param index
+		 * @throws Exception
+		 */
+		@SuppressWarnings("unchecked")
+		private void advance(int index) throws Exception
+		{
+			SpillFile.Reader reader = readers.get(index);
+			if (reader.hasNext())
+			{
+				queue.add(new Pair<Integer, Map<String, Object>>(index, (Map<String, Object>)reader.next()));
+			}
+		}
+		
+		/**
+		 * 判断容器内是否还有数据
+		 */
+		@Override
+		public boolean hasNext()
+		{
+			return !queue.isEmpty();
+		}
+
+		/**
+		 * 获取容器内的下一个数据
+		 */
+		@Override
+		public Map<String, Object> next()
+		{
+			if (queue.isEmpty())
+			{
+				throw new NoSuchElementException();
+			}
+			Pair<Integer, Map<String, Object>> pair = queue.poll();
+			try
+			{
+				advance(pair.getFirst());
+			}
+			catch (Exception e)
+			{
+				throw new RuntimeException(e);
+			}
+			return pair.getSecond();
+		}
+		
+		/**
+		 * 不支持删除操作
+		 */
+		@Override
+		public void remove()
+		{
+			throw new UnsupportedOperationException();
+		}
+	}
+	
+	/**
+	 * 返回迭代器
+	 */
+	@Override
+	public Iterator<Map<String, Object>> iterator()
+	{
+		return new AccumulatorIterator();
+	}
+}
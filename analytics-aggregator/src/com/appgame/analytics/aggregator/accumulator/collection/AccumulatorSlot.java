@@ -0,0 +1,13 @@
+package com.appgame.analytics.aggregator.accumulator.collection;
+
+/**
+ * 可变分组状态（分组累积器原地更新， 容器输出或者溢出时转换为最终结果）
+ */
+public interface AccumulatorSlot
+{
+	/**
+	 * 返回分组状态的最终结果
+	 * @return
+	 */
+	public Object value();
+}
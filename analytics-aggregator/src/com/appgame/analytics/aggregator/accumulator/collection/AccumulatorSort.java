@@ -10,6 +10,8 @@ import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
 
+import com.appgame.analytics.aggregator.accumulator.utils.AccumulatorUtils;
+
 public class AccumulatorSort implements AccumulatorCollection
 {
 	/**
@@ -22,6 +24,11 @@ public class AccumulatorSort implements AccumulatorCollection
 	 */
 	private Set<List<Object>> container = null;
 	
+	/**
+	 * 容器内数据的估算大小（字节）
+	 */
+	private long bytes = 0;
+	
 	/**
 	 * 数组转字典（因为仅仅在聚合器内使用，所以不检查字段是否匹配）
 	 */
@@ -92,7 +99,12 @@ public class AccumulatorSort implements AccumulatorCollection
 	 */
 	public void add(Map<String, Object> values)
 	{
-		container.add(convert(values));
+		List<Object> value = convert(values);
+		if (container.add(value))
+		{
+			// 红黑树节点 + 记录内容
+			bytes = bytes + 40 + AccumulatorUtils.sizeof(value);
+		}
 	}
 
 	/**
@@ -104,6 +116,23 @@ public class AccumulatorSort implements AccumulatorCollection
 		return container.size();
 	}
 	
+	/**
+	 * 返回容器内数据的估算大小
+	 */
+	@Override
+	public long bytes()
+	{
+		return bytes;
+	}
+	
+	/**
+	 * 关闭容器（数据保存在堆内，不持有其它资源）
+	 */
+	@Override
+	public void close()
+	{
+	}
+	
 	/**
 	 * 定义容器内元素的迭代器(因为仅仅在聚合器内使用，所以不检查字段是否匹配)
 	 */
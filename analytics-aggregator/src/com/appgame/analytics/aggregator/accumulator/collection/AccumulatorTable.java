@@ -0,0 +1,816 @@
+package com.appgame.analytics.aggregator.accumulator.collection;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.hadoop.hbase.util.MurmurHash;
+
+import com.appgame.analytics.aggregator.accumulator.utils.AccumulatorUtils;
+import com.appgame.analytics.aggregator.accumulator.utils.Estimate;
+import com.appgame.analytics.aggregator.accumulator.utils.Moments;
+import com.appgame.analytics.aggregator.utils.SpillFile;
+
+/**
+ * 堆外分组容器（开放寻址哈希表，分组条件以及分组内容编码后保存在堆外内存页内）
+ * 1. 索引 : 堆外槽位数组，每个槽位为<记录地址 + 1 (8字节), 哈希值 (4字节)>，地址为 0 表示空槽位，按线性探测解决冲突
+ * 2. 记录 : <条件长度 (4字节), 内容长度 (4字节), 条件编码, 内容编码>，按顺序追加写入内存页
+ * 3. 内容编码 : <格式 (1字节), 通用编码或者定长字段>，全部分组内容字段均为定长算子时按字段的固定偏移量原地更新（不解码、不重新编码）
+ *    定长字段 : '$sum'为浮点数 (8字节)；'$min'、'$max'为<类型 (1字节), 长整数或者浮点数 (8字节)>；'$count'、'$avg'、'$var'、'$stddev'为<数量, 均值, 二阶矩> (24字节)
+ *    输入值无法按定长格式表示时（估算状态、非数值的最值等）该记录转为通用编码
+ * 通用编码的长度不变时原地覆盖，否则追加新记录并更新索引
+ * 被替换的旧记录超过有效记录时整理内存页；关闭容器时立即释放全部堆外内存，不等待回收器
+ */
+public class AccumulatorTable extends AccumulatorGroup
+{
+	/**
+	 * 内存页大小（字节）
+	 */
+	private static final int PAGE_SIZE = 1024 * 1024;
+	
+	/**
+	 * 槽位大小（字节）
+	 */
+	private static final int SLOT_SIZE = 12;
+	
+	/**
+	 * 初始槽位数量（必须为 2 的幂）
+	 */
+	private static final int INITIAL_CAPACITY = 1024;
+	
+	/**
+	 * 定长字段类型（统计状态为 MOMENTS + 统计类型）
+	 */
+	public static final int SUM     = 0;
+	public static final int MIN     = 1;
+	public static final int MAX     = 2;
+	public static final int MOMENTS = 3;
+	
+	/**
+	 * 内容编码格式
+	 */
+	private static final byte GENERIC = 0;
+	private static final byte FIXED   = 1;
+	
+	/**
+	 * 最值字段的数值类型
+	 */
+	private static final byte NULL   = 0;
+	private static final byte LONG   = 1;
+	private static final byte DOUBLE = 2;
+	
+	/**
+	 * 哈希函数
+	 */
+	private static final MurmurHash hash = (MurmurHash)MurmurHash.getInstance();
+	
+	/**
+	 * 堆外缓冲区的释放方法（Java 9 以上为 Unsafe.invokeCleaner，Java 7/8 为 DirectByteBuffer.cleaner().clean()，均不可用时为 null）
+	 */
+	private static Object unsafe  = null;
+	private static Method invoker = null;
+	private static Method cleaner = null;
+	private static Method cleaned = null;
+	static
+	{
+		try
+		{
+			Class<?> clazz  = Class.forName("sun.misc.Unsafe");
+			Field    field  = clazz.getDeclaredField("theUnsafe");
+			Method   method = clazz.getMethod("invokeCleaner", ByteBuffer.class);
+			field.setAccessible(true);
+			unsafe  = field.get(null);
+			invoker = method;
+		}
+		catch (Exception e)
+		{
+			try
+			{
+				ByteBuffer buffer = ByteBuffer.allocateDirect(1);
+				cleaner = buffer.getClass().getMethod("cleaner");
+				cleaner.setAccessible(true);
+				cleaned = cleaner.getReturnType().getMethod("clean");
+				free(buffer);
+			}
+			catch (Exception ex)
+			{
+				cleaner = null;
+			}
+		}
+	}
+	
+	/**
+	 * 立即释放堆外缓冲区（释放方法不可用时由回收器释放）
+	 */
+	private static void free(ByteBuffer buffer)
+	{
+		if (buffer == null || !buffer.isDirect())
+		{
+			return;
+		}
+		try
+		{
+			if (invoker != null)
+			{
+				invoker.invoke(unsafe, buffer);
+			}
+			else if (cleaner != null)
+			{
+				Object target = cleaner.invoke(buffer);
+				if (target != null)
+				{
+					cleaned.invoke(target);
+				}
+			}
+		}
+		catch (Exception e)
+		{
+		}
+	}
+	
+	/**
+	 * 堆外内存页（清空时保留以便重复使用）
+	 */
+	private List<ByteBuffer> pages = new ArrayList<ByteBuffer>();
+	
+	/**
+	 * 当前写入的内存页以及页内位置
+	 */
+	private int page     = 0;
+	private int position = 0;
+	
+	/**
+	 * 已写入内存页的数据大小（包括被覆盖的旧记录）以及有效记录的大小
+	 */
+	private long used = 0;
+	private long live = 0;
+	
+	/**
+	 * 槽位数组
+	 */
+	private ByteBuffer slots = null;
+	
+	/**
+	 * 槽位数量以及记录数量
+	 */
+	private int capacity = INITIAL_CAPACITY;
+	private int size     = 0;
+	
+	/**
+	 * 分组内容字段的定长类型以及偏移量（没有定长布局时为 null）
+	 */
+	private int[] kinds   = null;
+	private int[] offsets = null;
+	
+	/**
+	 * 新建定长记录的初始内容编码（数值全部为 0，最值为空值）
+	 */
+	private byte[] initial = null;
+	
+	/**
+	 * 构造方法（指定分组字段）
+	 */
+	public AccumulatorTable(Collection<String> kfields, Collection<String> vfields)
+	{
+		this(kfields, vfields, null);
+	}
+	
+	/**
+	 * 构造方法（指定分组字段以及分组内容字段的定长类型，缺少任一字段的类型时不使用定长布局）
+	 */
+	public AccumulatorTable(Collection<String> kfields, Collection<String> vfields, Map<String, Integer> layout)
+	{
+		super(kfields, vfields);
+		this.slots = ByteBuffer.allocateDirect(capacity * SLOT_SIZE);
+		if (layout != null && layout.keySet().containsAll(this.vfields))
+		{
+			int width = 0;
+			this.kinds   = new int[this.vfields.size()];
+			this.offsets = new int[this.vfields.size()];
+			for (int index = 0; index < this.vfields.size(); index++)
+			{
+				kinds  [index] = layout.get(this.vfields.get(index));
+				offsets[index] = width;
+				width = width + (kinds[index] == SUM ? 8 : kinds[index] < MOMENTS ? 9 : 24);
+			}
+			this.initial    = new byte[1 + width];
+			this.initial[0] = FIXED;
+		}
+	}
+	
+	/**
+	 * 判断输入值能否按定长格式更新
+	 */
+	private static boolean accepts(int kind, Object v)
+	{
+		if (kind == MIN || kind == MAX)
+		{
+			return v == null || v instanceof Long || v instanceof Double;
+		}
+		return !(v instanceof Estimate);
+	}
+	
+	/**
+	 * 读取最值字段
+	 */
+	private static Object extreme(ByteBuffer buffer, int offset)
+	{
+		switch (buffer.get(offset))
+		{
+		case LONG:
+			return buffer.getLong(offset + 1);
+		case DOUBLE:
+			return buffer.getDouble(offset + 1);
+		default:
+			return null;
+		}
+	}
+	
+	/**
+	 * 写入最值字段（调用方保证数值为空值、长整数或者浮点数）
+	 */
+	private static void extreme(ByteBuffer buffer, int offset, Object v)
+	{
+		if (v instanceof Long)
+		{
+			buffer.put(offset, LONG);
+			buffer.putLong(offset + 1, (Long)v);
+		}
+		else if (v instanceof Double)
+		{
+			buffer.put(offset, DOUBLE);
+			buffer.putDouble(offset + 1, (Double)v);
+		}
+		else
+		{
+			buffer.put(offset, NULL);
+		}
+	}
+	
+	/**
+	 * 原地更新一个定长字段（与对应的分组算子语义一致）
+	 */
+	private static void update(ByteBuffer buffer, int offset, int kind, Object v)
+	{
+		if (kind == SUM)
+		{
+			if (v instanceof Number)
+			{
+				buffer.putDouble(offset, buffer.getDouble(offset) + ((Number)v).doubleValue());
+			}
+		}
+		else if (kind == MIN)
+		{
+			Object current = extreme(buffer, offset);
+			extreme(buffer, offset, current == null ? v : AccumulatorUtils.min(current, v));
+		}
+		else if (kind == MAX)
+		{
+			extreme(buffer, offset, AccumulatorUtils.max(extreme(buffer, offset), v));
+		}
+		else
+		{
+			Moments moments = new Moments(kind - MOMENTS, buffer.getLong(offset), buffer.getDouble(offset + 8), buffer.getDouble(offset + 16));
+			moments.update(v);
+			buffer.putLong  (offset, moments.count());
+			buffer.putDouble(offset + 8, moments.mean());
+			buffer.putDouble(offset + 16, moments.m2());
+		}
+	}
+	
+	/**
+	 * 读取一个定长字段（转换为与通用编码相同的分组内容）
+	 */
+	private static Object fixed(ByteBuffer buffer, int offset, int kind)
+	{
+		if (kind == SUM)
+		{
+			return buffer.getDouble(offset);
+		}
+		else if (kind == MIN || kind == MAX)
+		{
+			return extreme(buffer, offset);
+		}
+		return new Moments(kind - MOMENTS, buffer.getLong(offset), buffer.getDouble(offset + 8), buffer.getDouble(offset + 16));
+	}
+	
+	/**
+	 * 构造分组条件(因为仅仅在聚合器内使用，所以不检查字段是否匹配)
+	 */
+	private List<Object> condition(Map<String, Object> values)
+	{
+		List<Object> result = new ArrayList<Object>(kfields.size());
+		for (int index = 0; index < kfields.size(); index++)
+		{
+			result.add(values.get(kfields.get(index)));
+		}
+		return result;
+	}
+	
+	/**
+	 * 读取槽位内的记录地址（空槽位返回 -1）
+	 */
+	private long address(int slot)
+	{
+		return slots.getLong(slot * SLOT_SIZE) - 1;
+	}
+	
+	/**
+	 * 判断指定地址的记录的分组条件编码是否与给定编码相同
+	 */
+	private boolean equals(long address, byte[] key)
+	{
+		ByteBuffer buffer = pages.get((int)(address >>> 32));
+		int        offset = (int)address;
+		if (buffer.getInt(offset) != key.length)
+		{
+			return false;
+		}
+		for (int index = 0; index < key.length; index++)
+		{
+			if (buffer.get(offset + 8 + index) != key[index])
+			{
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	/**
+	 * 查找分组条件编码所在的槽位（不存在时返回可以插入的空槽位）
+	 */
+	private int find(byte[] key, int code)
+	{
+		int mask = capacity - 1;
+		for (int slot = code & mask; ; slot = (slot + 1) & mask)
+		{
+			long address = address(slot);
+			if (address < 0 || (slots.getInt(slot * SLOT_SIZE + 8) == code && equals(address, key)))
+			{
+				return slot;
+			}
+		}
+	}
+	
+	/**
+	 * 分配一条记录的写入位置（当前内存页空间不足时切换到下一个内存页）
+	 * @return 记录地址
+	 */
+	private long allocate(int length)
+	{
+		if (pages.isEmpty() || position + length > pages.get(page).capacity())
+		{
+			if (!pages.isEmpty())
+			{
+				page = page + 1;
+			}
+			if (page >= pages.size())
+			{
+				pages.add(ByteBuffer.allocateDirect(Math.max(PAGE_SIZE, length)));
+			}
+			else if (pages.get(page).capacity() < length)
+			{
+				free(pages.get(page));
+				pages.set(page, ByteBuffer.allocateDirect(length));
+			}
+			position = 0;
+		}
+		long address = ((long)page << 32) | position;
+		position = position + length;
+		used     = used + length;
+		live     = live + length;
+		return address;
+	}
+	
+	/**
+	 * 追加写入一条记录
+	 * @return 记录地址
+	 */
+	private long append(byte[] key, byte[] value)
+	{
+		long       address = allocate(8 + key.length + value.length);
+		ByteBuffer buffer  = pages.get((int)(address >>> 32)).duplicate();
+		buffer.position((int)address);
+		buffer.putInt(key.length);
+		buffer.putInt(value.length);
+		buffer.put(key);
+		buffer.put(value);
+		return address;
+	}
+	
+	/**
+	 * 整理内存页（有效记录依次复制到新的内存页，更新索引后释放原有内存页）
+	 */
+	private void compact()
+	{
+		List<ByteBuffer> previous = pages;
+		pages    = new ArrayList<ByteBuffer>();
+		page     = 0;
+		position = 0;
+		used     = 0;
+		live     = 0;
+		for (int slot = 0; slot < capacity; slot++)
+		{
+			long address = address(slot);
+			if (address >= 0)
+			{
+				ByteBuffer source = previous.get((int)(address >>> 32)).duplicate();
+				int        offset = (int)address;
+				int        length = 8 + source.getInt(offset) + source.getInt(offset + 4);
+				long       target = allocate(length);
+				ByteBuffer buffer = pages.get((int)(target >>> 32)).duplicate();
+				source.limit(offset + length);
+				source.position(offset);
+				buffer.position((int)target);
+				buffer.put(source);
+				slots.putLong(slot * SLOT_SIZE, target + 1);
+			}
+		}
+		for (ByteBuffer buffer : previous)
+		{
+			free(buffer);
+		}
+	}
+	
+	/**
+	 * 读取指定地址的记录的分组条件编码
+	 */
+	private byte[] key(long address)
+	{
+		ByteBuffer buffer = pages.get((int)(address >>> 32)).duplicate();
+		int        offset = (int)address;
+		byte[]     result = new byte[buffer.getInt(offset)];
+		buffer.position(offset + 8);
+		buffer.get(result);
+		return result;
+	}
+	
+	/**
+	 * 读取指定地址的记录的分组内容编码
+	 */
+	private byte[] value(long address)
+	{
+		ByteBuffer buffer = pages.get((int)(address >>> 32)).duplicate();
+		int        offset = (int)address;
+		byte[]     result = new byte[buffer.getInt(offset + 4)];
+		buffer.position(offset + 8 + buffer.getInt(offset));
+		buffer.get(result);
+		return result;
+	}
+	
+	/**
+	 * 读取指定地址的记录的分组内容（按内容编码格式解码）
+	 */
+	@SuppressWarnings("unchecked")
+	private List<Object> values(long address) throws Exception
+	{
+		ByteBuffer buffer = pages.get((int)(address >>> 32));
+		int        offset = (int)address + 8 + buffer.getInt((int)address);
+		if (buffer.get(offset) == FIXED)
+		{
+			List<Object> result = new ArrayList<Object>(kinds.length);
+			for (int index = 0; index < kinds.length; index++)
+			{
+				result.add(fixed(buffer, offset + 1 + offsets[index], kinds[index]));
+			}
+			return result;
+		}
+		byte[] vbytes = value(address);
+		return (List<Object>)AccumulatorUtils.decode(vbytes, 1, vbytes.length - 1);
+	}
+	
+	/**
+	 * 分组内容按通用格式编码
+	 */
+	private static byte[] encode(List<Object> values) throws Exception
+	{
+		byte[] bytes  = AccumulatorUtils.encode(values);
+		byte[] result = new byte[1 + bytes.length];
+		result[0] = GENERIC;
+		System.arraycopy(bytes, 0, result, 1, bytes.length);
+		return result;
+	}
+	
+	/**
+	 * 在空槽位插入一条新记录
+	 * @return 记录地址
+	 */
+	private long insert(int slot, int code, byte[] kbytes, byte[] vbytes)
+	{
+		long address = append(kbytes, vbytes);
+		slots.putLong(slot * SLOT_SIZE, address + 1);
+		slots.putInt (slot * SLOT_SIZE + 8, code);
+		size = size + 1;
+		if (size * 2 > capacity)
+		{
+			resize();
+		}
+		return address;
+	}
+	
+	/**
+	 * 槽位数组扩容（按槽位内保存的哈希值重新分布）
+	 */
+	private void resize()
+	{
+		ByteBuffer previous = slots;
+		int        length   = capacity;
+		capacity = capacity * 2;
+		slots    = ByteBuffer.allocateDirect(capacity * SLOT_SIZE);
+		for (int index = 0; index < length; index++)
+		{
+			long address = previous.getLong(index * SLOT_SIZE);
+			if (address != 0)
+			{
+				int code = previous.getInt(index * SLOT_SIZE + 8);
+				int slot = code & (capacity - 1);
+				while (slots.getLong(slot * SLOT_SIZE) != 0)
+				{
+					slot = (slot + 1) & (capacity - 1);
+				}
+				slots.putLong(slot * SLOT_SIZE, address);
+				slots.putInt (slot * SLOT_SIZE + 8, code);
+			}
+		}
+		free(previous);
+	}
+	
+	/**
+	 * 添加记录到容器
+	 */
+	@Override
+	public void put(Map<String, Object> key, Map<String, Object> value) throws Exception
+	{
+		byte[] kbytes = AccumulatorUtils.encode(condition(key));
+		byte[] vbytes = encode(convert(vfields, value));
+		int    code   = hash.hash(kbytes);
+		int    slot   = find(kbytes, code);
+		long   address = address(slot);
+		if (address < 0)
+		{
+			insert(slot, code, kbytes, vbytes);
+		}
+		else
+		{
+			ByteBuffer buffer = pages.get((int)(address >>> 32));
+			int        offset = (int)address;
+			if (buffer.getInt(offset + 4) == vbytes.length)
+			{
+				// 编码长度不变时原地覆盖
+				ByteBuffer duplicate = buffer.duplicate();
+				duplicate.position(offset + 8 + kbytes.length);
+				duplicate.put(vbytes);
+			}
+			else
+			{
+				// 编码长度变化时追加新记录，旧记录成为无效数据，无效数据超过有效数据时整理内存页
+				live = live - (8 + kbytes.length + buffer.getInt(offset + 4));
+				slots.putLong(slot * SLOT_SIZE, append(kbytes, vbytes) + 1);
+				if (used - live > live && used > PAGE_SIZE)
+				{
+					compact();
+				}
+			}
+		}
+	}
+	
+	/**
+	 * 按定长布局原地更新分组内容（分组不存在时按初始状态创建定长记录）
+	 * @param key
+	 * @param inputs 按分组内容字段顺序排列的输入值
+	 * @return 没有定长布局、输入值无法按定长格式表示或者记录已经转为通用编码时返回 false，由调用方按通用方式读取、计算后写回
+	 * @throws Exception
+	 */
+	public boolean update(Map<String, Object> key, Object[] inputs) throws Exception
+	{
+		if (kinds == null)
+		{
+			return false;
+		}
+		for (int index = 0; index < kinds.length; index++)
+		{
+			if (!accepts(kinds[index], inputs[index]))
+			{
+				return false;
+			}
+		}
+		byte[] kbytes  = AccumulatorUtils.encode(condition(key));
+		int    code    = hash.hash(kbytes);
+		int    slot    = find(kbytes, code);
+		long   address = address(slot);
+		if (address < 0)
+		{
+			address = insert(slot, code, kbytes, initial);
+		}
+		ByteBuffer buffer = pages.get((int)(address >>> 32));
+		int        offset = (int)address + 8 + kbytes.length;
+		if (buffer.get(offset) != FIXED)
+		{
+			return false;
+		}
+		for (int index = 0; index < kinds.length; index++)
+		{
+			update(buffer, offset + 1 + offsets[index], kinds[index], inputs[index]);
+		}
+		return true;
+	}
+	
+	/**
+	 * 判断容器是否使用定长布局
+	 * @return
+	 */
+	public boolean fixed()
+	{
+		return kinds != null;
+	}
+	
+	/**
+	 * 从容器取出指定记录
+	 */
+	@Override
+	public Map<String, Object> get(Map<String, Object> key) throws Exception
+	{
+		byte[] kbytes  = AccumulatorUtils.encode(condition(key));
+		long   address = address(find(kbytes, hash.hash(kbytes)));
+		if (address >= 0)
+		{
+			return convert(vfields, values(address));
+		}
+		else
+		{
+			return new HashMap<String, Object>();
+		}
+	}
+	
+	/**
+	 * 将容器内数据按分组条件的编码排序后写入溢出文件并清空容器
+	 */
+	@Override
+	public void spill(SpillFile file) throws Exception
+	{
+		List<List<Object>> records = new ArrayList<List<Object>>(size);
+		for (int slot = 0; slot < capacity; slot++)
+		{
+			long address = address(slot);
+			if (address >= 0)
+			{
+				byte[] kbytes = key(address);
+				records.add(Arrays.<Object>asList(kbytes, AccumulatorUtils.decode(kbytes, 0, kbytes.length), values(address)));
+			}
+		}
+		clear();
+		Collections.sort(records, new Comparator<List<Object>>()
+		{
+			@Override
+			public int compare(List<Object> r1, List<Object> r2)
+			{
+				return Bytes.compareTo((byte[])r1.get(0), (byte[])r2.get(0));
+			}
+		});
+		for (List<Object> record : records)
+		{
+			file.write(record);
+		}
+		file.close();
+	}
+	
+	/**
+	 * 清空容器（保留已分配的内存页以及槽位数组）
+	 */
+	private void clear()
+	{
+		for (int index = 0; index < capacity * SLOT_SIZE; index = index + 8)
+		{
+			slots.putLong(index, 0);
+		}
+		page     = 0;
+		position = 0;
+		used     = 0;
+		live     = 0;
+		size     = 0;
+	}
+	
+	/**
+	 * 返回容器内元素数量
+	 */
+	@Override
+	public int size()
+	{
+		return size;
+	}
+	
+	/**
+	 * 返回容器内数据的估算大小（已写入内存页的数据以及槽位数组）
+	 */
+	@Override
+	public long bytes()
+	{
+		return used + (long)capacity * SLOT_SIZE;
+	}
+	
+	/**
+	 * 关闭容器（立即释放内存页以及槽位数组，调用方保证没有并发读写；关闭后槽位数量为 0，迭代器不再访问内存页）
+	 */
+	@Override
+	public void close()
+	{
+		for (ByteBuffer buffer : pages)
+		{
+			free(buffer);
+		}
+		pages.clear();
+		free(slots);
+		slots    = ByteBuffer.allocate(0);
+		capacity = 0;
+		page     = 0;
+		position = 0;
+		used     = 0;
+		live     = 0;
+		size     = 0;
+	}
+	
+	/**
+	 * 定义容器内元素的迭代器(按槽位顺序遍历)
+	 */
+	private class AccumulatorIterator implements Iterator<Map<String, Object>>
+	{
+		/**
+		 * 下一个非空槽位
+		 */
+		private int slot = advance(0);
+		
+		/**
+		 * 查找指定位置开始的第一个非空槽位
+		 */
+		private int advance(int from)
+		{
+			while (from < capacity && address(from) < 0)
+			{
+				from = from + 1;
+			}
+			return from;
+		}
+		
+		/**
+		 * 判断容器内是否还有数据
+		 */
+		@Override
+		public boolean hasNext()
+		{
+			return slot < capacity;
+		}
+
+		/**
+		 * 获取容器内下一个数据
+		 */
+		@SuppressWarnings("unchecked")
+		@Override
+		public Map<String, Object> next()
+		{
+			if (slot >= capacity)
+			{
+				throw new NoSuchElementException();
+			}
+			long address = address(slot);
+			slot = advance(slot + 1);
+			try
+			{
+				byte[] kbytes = key(address);
+				return record((List<Object>)AccumulatorUtils.decode(kbytes, 0, kbytes.length), values(address));
+			}
+			catch (Exception e)
+			{
+				throw new RuntimeException(e);
+			}
+		}
+		
+		/**
+		 * 不支持删除操作
+		 */
+		@Override
+		public void remove()
+		{
+			throw new UnsupportedOperationException();
+		}
+	}
+
+	/**
+	 * 获取迭代器对象
+	 */
+	@Override
+	public Iterator<Map<String, Object>> iterator()
+	{
+		return new AccumulatorIterator();
+	}
+}
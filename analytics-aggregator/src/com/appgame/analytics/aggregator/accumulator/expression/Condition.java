@@ -9,6 +9,12 @@ import java.util.List;
 import java.util.Set;
 import java.util.TreeSet;
 
+import org.apache.hadoop.hbase.filter.BinaryComparator;
+import org.apache.hadoop.hbase.filter.CompareFilter.CompareOp;
+import org.apache.hadoop.hbase.filter.Filter;
+import org.apache.hadoop.hbase.filter.FilterList;
+import org.apache.hadoop.hbase.filter.SingleColumnValueFilter;
+import org.apache.hadoop.hbase.util.Bytes;
 import org.codehaus.jettison.json.JSONArray;
 import org.codehaus.jettison.json.JSONObject;
 
@@ -30,6 +36,11 @@ public class Condition
 	private interface Operator
 	{
 		public boolean execute(Object input) throws Exception;
+		
+		/**
+		 * 转换为作用于指定列的 HBASE 过滤器（返回 null 表示无法转换）
+		 */
+		public Filter filter(byte[] family, byte[] qualifier) throws Exception;
 	}
 	
 	/**
@@ -56,6 +67,47 @@ public class Condition
 	{
 		return operator.execute(input);
 	}
+	
+	/**
+	 * 将条件转换为作用于指定列的 HBASE 过滤器（返回 null 表示无法转换）
+	 * 1. 过滤器通过的数据是条件成立数据的超集（数据仍需执行条件判断）
+	 * 2. 仅支持字串常量（与字节数组字段按内容比较）
+	 * @param family
+	 * @param qualifier
+	 * @return
+	 * @throws Exception
+	 */
+	public Filter filter(byte[] family, byte[] qualifier) throws Exception
+	{
+		return operator.filter(family, qualifier);
+	}
+	
+	/**
+	 * 条件常量转为字节数组（不支持的常量类型返回 null）
+	 * @param value
+	 * @return
+	 */
+	private static byte[] bytes(Object value)
+	{
+		return (value instanceof String) ? Bytes.toBytes((String)value) : null;
+	}
+	
+	/**
+	 * 构造单列比较过滤器
+	 * @param family
+	 * @param qualifier
+	 * @param op
+	 * @param value
+	 * @param missing   (字段不存在时是否过滤整行)
+	 * @return
+	 */
+	private static Filter column(byte[] family, byte[] qualifier, CompareOp op, byte[] value, boolean missing)
+	{
+		SingleColumnValueFilter filter = new SingleColumnValueFilter(family, qualifier, op, new BinaryComparator(value));
+		filter.setFilterIfMissing(missing);
+		filter.setLatestVersionOnly(true);
+		return filter;
+	}
 
 	/**
 	 * 按名称构建条件运算符
@@ -188,6 +240,24 @@ public class Condition
 			}
 			return true;
 		}
+		
+		/**
+		 * 转换为过滤器（仅转换支持的条件， 过滤结果为条件成立数据的超集）
+		 */
+		@Override
+		public Filter filter(byte[] family, byte[] qualifier) throws Exception
+		{
+			FilterList list = new FilterList(FilterList.Operator.MUST_PASS_ALL);
+			for (Operator operator : operators)
+			{
+				Filter filter = operator.filter(family, qualifier);
+				if (filter != null)
+				{
+					list.addFilter(filter);
+				}
+			}
+			return list.getFilters().isEmpty() ? null : list;
+		}
 	}
 	
 	@ConditionAnnotation
@@ -244,6 +314,25 @@ public class Condition
 			}
 			return false;
 		}
+		
+		/**
+		 * 转换为过滤器（全部条件都可转换时才能转换）
+		 */
+		@Override
+		public Filter filter(byte[] family, byte[] qualifier) throws Exception
+		{
+			FilterList list = new FilterList(FilterList.Operator.MUST_PASS_ONE);
+			for (Operator operator : operators)
+			{
+				Filter filter = operator.filter(family, qualifier);
+				if (filter == null)
+				{
+					return null;
+				}
+				list.addFilter(filter);
+			}
+			return list;
+		}
 	}
 	
 	@ConditionAnnotation
@@ -300,6 +389,15 @@ public class Condition
 			}
 			return true;
 		}
+		
+		/**
+		 * 否定逻辑不转换为过滤器
+		 */
+		@Override
+		public Filter filter(byte[] family, byte[] qualifier) throws Exception
+		{
+			return null;
+		}
 	}
 	
 	@ConditionAnnotation
@@ -356,6 +454,15 @@ public class Condition
 			}
 			return false;
 		}
+		
+		/**
+		 * 否定逻辑不转换为过滤器
+		 */
+		@Override
+		public Filter filter(byte[] family, byte[] qualifier) throws Exception
+		{
+			return null;
+		}
 	}
 	
 	
@@ -389,6 +496,16 @@ public class Condition
 		{
 			return (0 == AccumulatorUtils.compare(input, value));
 		}
+		
+		/**
+		 * 转换为过滤器（字段不存在时条件不成立）
+		 */
+		@Override
+		public Filter filter(byte[] family, byte[] qualifier) throws Exception
+		{
+			byte[] bytes = bytes(value);
+			return bytes != null ? column(family, qualifier, CompareOp.EQUAL, bytes, true) : null;
+		}
 	}
 	
 	@ConditionAnnotation
@@ -417,6 +534,16 @@ public class Condition
 		{
 			return (0 != AccumulatorUtils.compare(input, value));
 		}
+		
+		/**
+		 * 转换为过滤器（字段不存在时条件成立）
+		 */
+		@Override
+		public Filter filter(byte[] family, byte[] qualifier) throws Exception
+		{
+			byte[] bytes = bytes(value);
+			return bytes != null ? column(family, qualifier, CompareOp.NOT_EQUAL, bytes, false) : null;
+		}
 	}
 	
 	@ConditionAnnotation
@@ -445,6 +572,16 @@ public class Condition
 		{
 			return (AccumulatorUtils.compare(input, value) > 0);
 		}
+		
+		/**
+		 * 转换为过滤器（字段不存在时条件不成立）
+		 */
+		@Override
+		public Filter filter(byte[] family, byte[] qualifier) throws Exception
+		{
+			byte[] bytes = bytes(value);
+			return bytes != null ? column(family, qualifier, CompareOp.GREATER, bytes, true) : null;
+		}
 	}
 	
 	@ConditionAnnotation
@@ -473,6 +610,16 @@ public class Condition
 		{
 			return (AccumulatorUtils.compare(input, value) >= 0);
 		}
+		
+		/**
+		 * 转换为过滤器（字段不存在时条件不成立）
+		 */
+		@Override
+		public Filter filter(byte[] family, byte[] qualifier) throws Exception
+		{
+			byte[] bytes = bytes(value);
+			return bytes != null ? column(family, qualifier, CompareOp.GREATER_OR_EQUAL, bytes, true) : null;
+		}
 	}
 	
 	@ConditionAnnotation
@@ -501,6 +648,16 @@ public class Condition
 		{
 			return (AccumulatorUtils.compare(input, value) < 0);
 		}
+		
+		/**
+		 * 转换为过滤器（字段不存在时条件成立）
+		 */
+		@Override
+		public Filter filter(byte[] family, byte[] qualifier) throws Exception
+		{
+			byte[] bytes = bytes(value);
+			return bytes != null ? column(family, qualifier, CompareOp.LESS, bytes, false) : null;
+		}
 	}
 	
 	@ConditionAnnotation
@@ -529,6 +686,16 @@ public class Condition
 		{
 			return (AccumulatorUtils.compare(input, value) <= 0);
 		}
+		
+		/**
+		 * 转换为过滤器（字段不存在时条件成立）
+		 */
+		@Override
+		public Filter filter(byte[] family, byte[] qualifier) throws Exception
+		{
+			byte[] bytes = bytes(value);
+			return bytes != null ? column(family, qualifier, CompareOp.LESS_OR_EQUAL, bytes, false) : null;
+		}
 	}
 	
 	@ConditionAnnotation
@@ -575,6 +742,25 @@ public class Condition
 		{
 			return values.contains(input);
 		}
+		
+		/**
+		 * 转换为过滤器（任意值相等， 字段不存在时条件不成立）
+		 */
+		@Override
+		public Filter filter(byte[] family, byte[] qualifier) throws Exception
+		{
+			FilterList list = new FilterList(FilterList.Operator.MUST_PASS_ONE);
+			for (Object value : values)
+			{
+				byte[] bytes = bytes(value);
+				if (bytes == null)
+				{
+					return null;
+				}
+				list.addFilter(column(family, qualifier, CompareOp.EQUAL, bytes, true));
+			}
+			return list;
+		}
 	}
 
 	@ConditionAnnotation
@@ -621,6 +807,25 @@ public class Condition
 		{
 			return !values.contains(input);
 		}
+		
+		/**
+		 * 转换为过滤器（全部值不相等， 字段不存在时条件成立）
+		 */
+		@Override
+		public Filter filter(byte[] family, byte[] qualifier) throws Exception
+		{
+			FilterList list = new FilterList(FilterList.Operator.MUST_PASS_ALL);
+			for (Object value : values)
+			{
+				byte[] bytes = bytes(value);
+				if (bytes == null)
+				{
+					return null;
+				}
+				list.addFilter(column(family, qualifier, CompareOp.NOT_EQUAL, bytes, false));
+			}
+			return list;
+		}
 	}
 	
 	
@@ -663,6 +868,15 @@ public class Condition
 				return input == null;
 			}
 		}
+		
+		/**
+		 * 转换为过滤器（仅转换字段存在的判断: 任意字段内容都不小于空字节数组）
+		 */
+		@Override
+		public Filter filter(byte[] family, byte[] qualifier) throws Exception
+		{
+			return condition ? column(family, qualifier, CompareOp.GREATER_OR_EQUAL, new byte[0], true) : null;
+		}
 	}
 
 }
@@ -28,6 +28,9 @@ import org.codehaus.jettison.json.JSONArray;
 import org.codehaus.jettison.json.JSONObject;
 
 import com.appgame.analytics.aggregator.accumulator.utils.AccumulatorUtils;
+import com.appgame.analytics.aggregator.accumulator.utils.Estimate;
+import com.appgame.analytics.aggregator.accumulator.utils.LongSet;
+import com.appgame.analytics.aggregator.accumulator.utils.Quantiles;
 import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
 
@@ -54,6 +57,14 @@ public class Expression
 		 * @throws Exception
 		 */
 		public abstract Object execute(Map<String, Object> input) throws Exception;
+		
+		/**
+		 * 收集运算符引用的输入字段路径（返回 false 表示运算符需要完整的输入数据）
+		 * @param fields
+		 * @return
+		 * @throws Exception
+		 */
+		public abstract boolean fields(Set<String> fields) throws Exception;
 	}
 	
 	/**
@@ -81,6 +92,64 @@ public class Expression
 		return operator.execute(input);
 	}
 	
+	/**
+	 * 表达式为'$b2s'运算时返回字节数组参数的表达式， 否则返回 null（用于按字节数组编码分组条件）
+	 * @return
+	 */
+	public Expression b2s()
+	{
+		return operator instanceof b2s ? ((b2s)operator).expression : null;
+	}
+	
+	/**
+	 * 获取表达式引用的输入字段路径（返回 null 表示表达式需要完整的输入数据）
+	 * @return
+	 * @throws Exception
+	 */
+	public Set<String> fields() throws Exception
+	{
+		Set<String> fields = new HashSet<String>();
+		return operator.fields(fields) ? fields : null;
+	}
+	
+	/**
+	 * 收集子表达式引用的输入字段路径（任意子表达式需要完整的输入数据时返回 false）
+	 * @param fields
+	 * @param expressions
+	 * @return
+	 * @throws Exception
+	 */
+	private static boolean fields(Set<String> fields, Expression... expressions) throws Exception
+	{
+		for (Expression expression : expressions)
+		{
+			if (expression != null && !expression.operator.fields(fields))
+			{
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	/**
+	 * 收集子表达式引用的输入字段路径（任意子表达式需要完整的输入数据时返回 false）
+	 * @param fields
+	 * @param expressions
+	 * @return
+	 * @throws Exception
+	 */
+	private static boolean fields(Set<String> fields, Collection<Expression> expressions) throws Exception
+	{
+		for (Expression expression : expressions)
+		{
+			if (!expression.operator.fields(fields))
+			{
+				return false;
+			}
+		}
+		return true;
+	}
+	
 	/**
 	 * 定义运算符构造器
 	 */
@@ -236,6 +305,15 @@ public class Expression
 		{
 			return value;
 		}
+		
+		/**
+		 * 收集引用的输入字段路径
+		 */
+		@Override
+		public boolean fields(Set<String> fields) throws Exception
+		{
+			return true;
+		}
 	}
 	
 	
@@ -250,12 +328,18 @@ public class Expression
 		 */
 		private String keys[] = {};
 		
+		/**
+		 * 搜索路径（原始字串）
+		 */
+		private String path = "";
+		
 		/**
 		 * 构造方法
 		 * @param input
 		 */
 		public search(String input)
 		{
+			this.path = input;
 			this.keys = input.split("\\.");
 		}
 		
@@ -280,6 +364,16 @@ public class Expression
 			}
 			return object;
 		}
+		
+		/**
+		 * 收集引用的输入字段路径
+		 */
+		@Override
+		public boolean fields(Set<String> fields) throws Exception
+		{
+			fields.add(path);
+			return true;
+		}
 	}
 	
 	
@@ -329,6 +423,15 @@ public class Expression
 			}
 			return map;
 		}
+		
+		/**
+		 * 收集引用的输入字段路径
+		 */
+		@Override
+		public boolean fields(Set<String> fields) throws Exception
+		{
+			return Expression.fields(fields, keys.values());
+		}
 	}
 	
 	
@@ -384,6 +487,15 @@ public class Expression
 			}
 			return true;
 		}
+		
+		/**
+		 * 收集引用的输入字段路径
+		 */
+		@Override
+		public boolean fields(Set<String> fields) throws Exception
+		{
+			return Expression.fields(fields, expressions);
+		}
 	}
 
 	@ExpressionAnnotation
@@ -435,6 +547,15 @@ public class Expression
 			}
 			return false;
 		}
+		
+		/**
+		 * 收集引用的输入字段路径
+		 */
+		@Override
+		public boolean fields(Set<String> fields) throws Exception
+		{
+			return Expression.fields(fields, expressions);
+		}
 	}
 
 	@ExpressionAnnotation
@@ -464,6 +585,15 @@ public class Expression
 		{
 			return !AccumulatorUtils.bool(expression.execute(input));
 		}
+		
+		/**
+		 * 收集引用的输入字段路径
+		 */
+		@Override
+		public boolean fields(Set<String> fields) throws Exception
+		{
+			return Expression.fields(fields, expression);
+		}
 	}
 	
 	
@@ -511,6 +641,15 @@ public class Expression
 		{
 			return AccumulatorUtils.compare(expr1.execute(input), expr2.execute(input));
 		}
+		
+		/**
+		 * 收集引用的输入字段路径
+		 */
+		@Override
+		public boolean fields(Set<String> fields) throws Exception
+		{
+			return Expression.fields(fields, expr1, expr2);
+		}
 	}
 	
 	@ExpressionAnnotation
@@ -553,6 +692,15 @@ public class Expression
 		{
 			return (0 == AccumulatorUtils.compare(expr1.execute(input), expr2.execute(input)));
 		}
+		
+		/**
+		 * 收集引用的输入字段路径
+		 */
+		@Override
+		public boolean fields(Set<String> fields) throws Exception
+		{
+			return Expression.fields(fields, expr1, expr2);
+		}
 	}
 	
 	@ExpressionAnnotation
@@ -595,6 +743,15 @@ public class Expression
 		{
 			return (AccumulatorUtils.compare(expr1.execute(input), expr2.execute(input)) != 0);
 		}
+		
+		/**
+		 * 收集引用的输入字段路径
+		 */
+		@Override
+		public boolean fields(Set<String> fields) throws Exception
+		{
+			return Expression.fields(fields, expr1, expr2);
+		}
 	}
 	
 	@ExpressionAnnotation
@@ -637,6 +794,15 @@ public class Expression
 		{
 			return (AccumulatorUtils.compare(expr1.execute(input), expr2.execute(input)) > 0);
 		}
+		
+		/**
+		 * 收集引用的输入字段路径
+		 */
+		@Override
+		public boolean fields(Set<String> fields) throws Exception
+		{
+			return Expression.fields(fields, expr1, expr2);
+		}
 	}
 	
 	@ExpressionAnnotation
@@ -679,6 +845,15 @@ public class Expression
 		{
 			return (AccumulatorUtils.compare(expr1.execute(input), expr2.execute(input)) >= 0);
 		}
+		
+		/**
+		 * 收集引用的输入字段路径
+		 */
+		@Override
+		public boolean fields(Set<String> fields) throws Exception
+		{
+			return Expression.fields(fields, expr1, expr2);
+		}
 	}
 	
 	@ExpressionAnnotation
@@ -721,6 +896,15 @@ public class Expression
 		{
 			return (AccumulatorUtils.compare(expr1.execute(input), expr2.execute(input)) < 0);
 		}
+		
+		/**
+		 * 收集引用的输入字段路径
+		 */
+		@Override
+		public boolean fields(Set<String> fields) throws Exception
+		{
+			return Expression.fields(fields, expr1, expr2);
+		}
 	}
 	
 	@ExpressionAnnotation
@@ -763,6 +947,15 @@ public class Expression
 		{
 			return (AccumulatorUtils.compare(expr1.execute(input), expr2.execute(input)) <= 0);
 		}
+		
+		/**
+		 * 收集引用的输入字段路径
+		 */
+		@Override
+		public boolean fields(Set<String> fields) throws Exception
+		{
+			return Expression.fields(fields, expr1, expr2);
+		}
 	}
 	
 	
@@ -817,6 +1010,15 @@ public class Expression
 			}
 			return value;
 		}
+		
+		/**
+		 * 收集引用的输入字段路径
+		 */
+		@Override
+		public boolean fields(Set<String> fields) throws Exception
+		{
+			return Expression.fields(fields, expressions);
+		}
 	}
 	
 	@ExpressionAnnotation
@@ -872,6 +1074,15 @@ public class Expression
 			}
 			return value;
 		}
+		
+		/**
+		 * 收集引用的输入字段路径
+		 */
+		@Override
+		public boolean fields(Set<String> fields) throws Exception
+		{
+			return Expression.fields(fields, expr1, expr2);
+		}
 	}
 	
 	@ExpressionAnnotation
@@ -921,6 +1132,15 @@ public class Expression
 			}
 			return value;
 		}
+		
+		/**
+		 * 收集引用的输入字段路径
+		 */
+		@Override
+		public boolean fields(Set<String> fields) throws Exception
+		{
+			return Expression.fields(fields, expressions);
+		}
 	}
 	
 	@ExpressionAnnotation
@@ -972,6 +1192,15 @@ public class Expression
 				throw new Exception("$device - non numerical object can't perform the division operation");
 			}
 		}
+		
+		/**
+		 * 收集引用的输入字段路径
+		 */
+		@Override
+		public boolean fields(Set<String> fields) throws Exception
+		{
+			return Expression.fields(fields, expr1, expr2);
+		}
 	}
 	
 	@ExpressionAnnotation
@@ -1023,6 +1252,15 @@ public class Expression
 				throw new Exception("$mod - non numerical objects can't performed modulo operation");
 			}
 		}
+		
+		/**
+		 * 收集引用的输入字段路径
+		 */
+		@Override
+		public boolean fields(Set<String> fields) throws Exception
+		{
+			return Expression.fields(fields, expr1, expr2);
+		}
 	}
 	
 	
@@ -1081,6 +1319,15 @@ public class Expression
 			}
 			return builder.toString();
 		}
+		
+		/**
+		 * 收集引用的输入字段路径
+		 */
+		@Override
+		public boolean fields(Set<String> fields) throws Exception
+		{
+			return Expression.fields(fields, expressions);
+		}
 	}
 	
 	@ExpressionAnnotation
@@ -1140,6 +1387,15 @@ public class Expression
 			}
 			return string.substring(start, start + length);
 		}
+		
+		/**
+		 * 收集引用的输入字段路径
+		 */
+		@Override
+		public boolean fields(Set<String> fields) throws Exception
+		{
+			return Expression.fields(fields, expr1, expr2, expr3);
+		}
 	}
 	
 	@ExpressionAnnotation
@@ -1169,6 +1425,15 @@ public class Expression
 		{
 			return expr.execute(input).toString().toLowerCase();
 		}
+		
+		/**
+		 * 收集引用的输入字段路径
+		 */
+		@Override
+		public boolean fields(Set<String> fields) throws Exception
+		{
+			return Expression.fields(fields, expr);
+		}
 	}
 	
 	@ExpressionAnnotation
@@ -1198,6 +1463,15 @@ public class Expression
 		{
 			return expr.execute(input).toString().toUpperCase();
 		}
+		
+		/**
+		 * 收集引用的输入字段路径
+		 */
+		@Override
+		public boolean fields(Set<String> fields) throws Exception
+		{
+			return Expression.fields(fields, expr);
+		}
 	}
 	
 	
@@ -1245,6 +1519,15 @@ public class Expression
 				return 0L;
 			}
 		}
+		
+		/**
+		 * 收集引用的输入字段路径
+		 */
+		@Override
+		public boolean fields(Set<String> fields) throws Exception
+		{
+			return Expression.fields(fields, expr);
+		}
 	}
 	
 	@ExpressionAnnotation
@@ -1301,6 +1584,15 @@ public class Expression
 				return "null";
 			}
 		}
+		
+		/**
+		 * 收集引用的输入字段路径
+		 */
+		@Override
+		public boolean fields(Set<String> fields) throws Exception
+		{
+			return Expression.fields(fields, expression);
+		}
 	}
 	
 	
@@ -1331,6 +1623,15 @@ public class Expression
 		{
 			return  Long.parseLong(expr.execute(input).toString());
 		}
+		
+		/**
+		 * 收集引用的输入字段路径
+		 */
+		@Override
+		public boolean fields(Set<String> fields) throws Exception
+		{
+			return Expression.fields(fields, expr);
+		}
 	}
 	
 	@ExpressionAnnotation
@@ -1360,6 +1661,15 @@ public class Expression
 		{
 			return  Double.parseDouble(expr.execute(input).toString());
 		}
+		
+		/**
+		 * 收集引用的输入字段路径
+		 */
+		@Override
+		public boolean fields(Set<String> fields) throws Exception
+		{
+			return Expression.fields(fields, expr);
+		}
 	}
 	
 	@ExpressionAnnotation
@@ -1400,6 +1710,16 @@ public class Expression
 			}
 			return script.eval();
 		}
+		
+		/**
+		 * 收集引用的输入字段路径
+		 */
+		@Override
+		public boolean fields(Set<String> fields) throws Exception
+		{
+			// 脚本可以读取任意字段
+			return false;
+		}
 	}
 	
 	
@@ -1456,6 +1776,15 @@ public class Expression
 				return v2.execute(input);
 			}
 		}
+		
+		/**
+		 * 收集引用的输入字段路径
+		 */
+		@Override
+		public boolean fields(Set<String> fields) throws Exception
+		{
+			return Expression.fields(fields, condition, v1, v2);
+		}
 	}
 	
 	
@@ -1552,7 +1881,15 @@ public class Expression
 				}
 				else
 				{
-					result = inner_mix(result, v);
+					// 压缩位图之间按字执行与运算
+					if (v instanceof LongSet && (result == null || result instanceof LongSet))
+					{
+						result = result == null ? ((LongSet)v).copy() : ((LongSet)result).and((LongSet)v);
+					}
+					else
+					{
+						result = inner_mix(result, v);
+					}
 					if (result.isEmpty())
 					{
 						break;
@@ -1561,6 +1898,15 @@ public class Expression
 			}
 			return result;
 		}
+		
+		/**
+		 * 收集引用的输入字段路径
+		 */
+		@Override
+		public boolean fields(Set<String> fields) throws Exception
+		{
+			return Expression.fields(fields, expressions);
+		}
 	}
 	
 	@ExpressionAnnotation
@@ -1599,12 +1945,22 @@ public class Expression
 		@Override
 		public Object execute(Map<String, Object> input) throws Exception
 		{
-			Set<Object> result = new HashSet<Object>();
+			Set<Object> result = null;
 			for (Expression express : expressions)
 			{
 				Object v = express.execute(input);
 				if (v != null)
 				{
+					// 压缩位图之间按字执行或运算，否则退化为普通哈希集合
+					if (v instanceof LongSet && (result == null || result instanceof LongSet))
+					{
+						result = result == null ? ((LongSet)v).copy() : ((LongSet)result).or((LongSet)v);
+						continue;
+					}
+					if (result == null || result instanceof LongSet)
+					{
+						result = result == null ? new HashSet<Object>() : new HashSet<Object>(result);
+					}
 					if (v instanceof Collection)
 					{
 						result.addAll((Collection<Object>)v);
@@ -1615,7 +1971,16 @@ public class Expression
 					}
 				}
 			}
-			return result;
+			return result != null ? result : new HashSet<Object>();
+		}
+		
+		/**
+		 * 收集引用的输入字段路径
+		 */
+		@Override
+		public boolean fields(Set<String> fields) throws Exception
+		{
+			return Expression.fields(fields, expressions);
 		}
 	}
 	
@@ -1661,9 +2026,150 @@ public class Expression
 				}
 			}
 		}
+		
+		/**
+		 * 收集引用的输入字段路径
+		 */
+		@Override
+		public boolean fields(Set<String> fields) throws Exception
+		{
+			return Expression.fields(fields, expression);
+		}
 	}
 	
 	
+	@ExpressionAnnotation
+	public static class quantile implements Operator
+	{
+		/**
+		 * 运算参数（分位数状态以及分位点）
+		 */
+		private Expression expr1 = null;
+		private Expression expr2 = null;
+		
+		/**
+		 * 构造方法
+		 * @param input
+		 * @throws Exception
+		 */
+		public quantile(Object input) throws Exception
+		{
+			if (input instanceof JSONArray)
+			{
+				JSONArray json = (JSONArray)input;
+				if (json.length() == 2)
+				{
+					expr1 = Expression.build(json.get(0));
+					expr2 = Expression.build(json.get(1));
+				}
+			}
+			if (expr1 == null || expr2 == null)
+			{
+				throw new Exception("$quantile[sketch, q] : - invalid parameters");
+			}
+		}
+		
+		/**
+		 * 读取分位数（输入为'$percentile'的分位数状态，单个数值直接返回）
+		 */
+		@Override
+		public Object execute(Map<String, Object> input) throws Exception
+		{
+			Object v1 = expr1.execute(input);
+			Object v2 = expr2.execute(input);
+			if (v1 instanceof Quantiles && v2 instanceof Number)
+			{
+				return ((Quantiles)v1).quantile(((Number)v2).doubleValue());
+			}
+			else if (v1 instanceof Number)
+			{
+				return ((Number)v1).doubleValue();
+			}
+			else
+			{
+				return null;
+			}
+		}
+		
+		/**
+		 * 收集引用的输入字段路径
+		 */
+		@Override
+		public boolean fields(Set<String> fields) throws Exception
+		{
+			return Expression.fields(fields, expr1, expr2);
+		}
+	}
+
+	
+	@ExpressionAnnotation
+	public static class interval implements Operator
+	{
+		/**
+		 * 运算参数（估算状态以及置信度）
+		 */
+		private Expression expr1 = null;
+		private Expression expr2 = null;
+		
+		/**
+		 * 构造方法
+		 * @param input
+		 * @throws Exception
+		 */
+		public interval(Object input) throws Exception
+		{
+			if (input instanceof JSONArray)
+			{
+				JSONArray json = (JSONArray)input;
+				if (json.length() == 2)
+				{
+					expr1 = Expression.build(json.get(0));
+					expr2 = Expression.build(json.get(1));
+				}
+			}
+			if (expr1 == null || expr2 == null)
+			{
+				throw new Exception("$interval[estimate, confidence] : - invalid parameters");
+			}
+		}
+		
+		/**
+		 * 读取置信区间 [下限, 上限]（输入为抽样聚合的估算状态，精确数值的区间上下限相同）
+		 */
+		@Override
+		public Object execute(Map<String, Object> input) throws Exception
+		{
+			Object v1 = expr1.execute(input);
+			Object v2 = expr2.execute(input);
+			List<Object> result = new ArrayList<Object>();
+			if (v1 instanceof Estimate && v2 instanceof Number)
+			{
+				double[] bounds = ((Estimate)v1).interval(((Number)v2).doubleValue());
+				result.add(bounds[0]);
+				result.add(bounds[1]);
+			}
+			else if (v1 instanceof Number)
+			{
+				result.add(((Number)v1).doubleValue());
+				result.add(((Number)v1).doubleValue());
+			}
+			else
+			{
+				return null;
+			}
+			return result;
+		}
+		
+		/**
+		 * 收集引用的输入字段路径
+		 */
+		@Override
+		public boolean fields(Set<String> fields) throws Exception
+		{
+			return Expression.fields(fields, expr1, expr2);
+		}
+	}	
+	
 	///////////////////////////////////////////////////////////////////////////
 	// 时间/日期操作
 	///////////////////////////////////////////////////////////////////////////
@@ -1716,6 +2222,15 @@ public class Expression
 			}
 			return formator.format(Long.parseLong(timestamp.execute(input).toString()) * 1000);
 		}
+		
+		/**
+		 * 收集引用的输入字段路径
+		 */
+		@Override
+		public boolean fields(Set<String> fields) throws Exception
+		{
+			return Expression.fields(fields, timestamp, pattern, zone);
+		}
 	}
 	
 	@ExpressionAnnotation
@@ -1768,6 +2283,15 @@ public class Expression
 			long time = Long.parseLong(timestamp.execute(input).toString());
 			return (time - ((time + zone) % 86400));
 		}
+		
+		/**
+		 * 收集引用的输入字段路径
+		 */
+		@Override
+		public boolean fields(Set<String> fields) throws Exception
+		{
+			return Expression.fields(fields, timestamp);
+		}
 	}
 	
 	@ExpressionAnnotation
@@ -1844,6 +2368,15 @@ public class Expression
 				return (day(Long.parseLong(timestamp1.execute(input).toString()), tzone) - day(Long.parseLong(timestamp2.execute(input).toString()), tzone)) / (24 * 3600);
 			}
 		}
+		
+		/**
+		 * 收集引用的输入字段路径
+		 */
+		@Override
+		public boolean fields(Set<String> fields) throws Exception
+		{
+			return Expression.fields(fields, timestamp1, timestamp2, zone);
+		}
 	}
 	
 }
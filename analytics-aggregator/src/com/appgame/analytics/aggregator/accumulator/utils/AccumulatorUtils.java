@@ -1,5 +1,15 @@
 package com.appgame.analytics.aggregator.accumulator.utils;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Collection;
+import java.util.Map;
+
+import org.apache.hadoop.hbase.util.Bytes;
+
+import com.appgame.analytics.aggregator.utils.ObjectInputStream;
+import com.appgame.analytics.aggregator.utils.ObjectOutputStream;
+
 public class AccumulatorUtils
 {
 	/**
@@ -17,7 +27,12 @@ public class AccumulatorUtils
 		}
 		else
 		{
-			if (v1.getClass() == v2.getClass())
+			if ((v1 instanceof byte[] || v2 instanceof byte[]) && (v1 instanceof byte[] || v1 instanceof String) && (v2 instanceof byte[] || v2 instanceof String))
+			{
+				// 字节数组按内容比较（字串按 UTF-8 编码后参与比较）
+				return Bytes.compareTo(bytes(v1), bytes(v2));
+			}
+			else if (v1.getClass() == v2.getClass())
 			{
 				if (v1 instanceof Comparable)
 				{
@@ -36,12 +51,32 @@ public class AccumulatorUtils
 				}
 				else
 				{
-					return v1.getClass().getName().compareTo(v2.getClass().getName());
+					return name(v1).compareTo(name(v2));
 				}
 			}
 		}
 	}
 	
+	/**
+	 * 不同类型对象的排序名称（字节数组与字串按内容互相比较，因此与其它类型比较时也按字串排序，保证整体顺序一致）
+	 * @param v
+	 * @return
+	 */
+	private static String name(Object v)
+	{
+		return (v instanceof byte[]) ? String.class.getName() : v.getClass().getName();
+	}
+	
+	/**
+	 * 字节数组或字串转为字节数组
+	 * @param v
+	 * @return
+	 */
+	private static byte[] bytes(Object v)
+	{
+		return (v instanceof byte[]) ? (byte[])v : Bytes.toBytes((String)v);
+	}
+	
 	/**
 	 * 从指定对象中获取较大对象
 	 * @param v1
@@ -89,4 +124,104 @@ public class AccumulatorUtils
 		}
 	}
 	
+	/**
+	 * 估算对象占用的内存大小（字节，按 64 位虚拟机的对象头以及引用大小粗略计算）
+	 * @param v
+	 * @return
+	 */
+	@SuppressWarnings("rawtypes")
+	public static long sizeof(Object v)
+	{
+		if (v == null)
+		{
+			return 0;
+		}
+		else if (v instanceof String)
+		{
+			return 40 + 2 * ((String)v).length();
+		}
+		else if (v instanceof byte[])
+		{
+			return 16 + ((byte[])v).length;
+		}
+		else if (v instanceof LongSet)
+		{
+			return ((LongSet)v).bytes();
+		}
+		else if (v instanceof HeavyHitters)
+		{
+			return ((HeavyHitters)v).bytes();
+		}
+		else if (v instanceof Map)
+		{
+			long size = 48;
+			for (Object o : ((Map)v).entrySet())
+			{
+				Map.Entry entry = (Map.Entry)o;
+				size = size + 40 + sizeof(entry.getKey()) + sizeof(entry.getValue());
+			}
+			return size;
+		}
+		else if (v instanceof Collection)
+		{
+			long size = 40;
+			for (Object o : (Collection)v)
+			{
+				size = size + 8 + sizeof(o);
+			}
+			return size;
+		}
+		else if (v instanceof Object[])
+		{
+			long size = 16;
+			for (Object o : (Object[])v)
+			{
+				size = size + 8 + sizeof(o);
+			}
+			return size;
+		}
+		else if (v instanceof Quantiles)
+		{
+			return 64 + 8 * ((Quantiles)v).retained();
+		}
+		else if (v instanceof HyperLogLog)
+		{
+			return 40 + ((HyperLogLog)v).registers().length;
+		}
+		else
+		{
+			return 24;
+		}
+	}
+	
+	/**
+	 * 对象编码为字节数组（与'ObjectOutputStream'格式一致，内容相同的对象编码结果相同，用于溢出数据的排序以及合并）
+	 * @param v
+	 * @return
+	 * @throws Exception
+	 */
+	public static byte[] encode(Object v) throws Exception
+	{
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		ObjectOutputStream    oos = new ObjectOutputStream(bos);
+		oos.writeObject(v);
+		oos.close();
+		return bos.toByteArray();
+	}
+	
+	/**
+	 * 字节数组解码为对象（'encode'的逆操作）
+	 * @param v
+	 * @param offset
+	 * @param length
+	 * @return
+	 * @throws Exception
+	 */
+	public static Object decode(byte[] v, int offset, int length) throws Exception
+	{
+		ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(v, offset, length));
+		Object result = ois.readObject();
+		ois.close();
+		return result;
+	}
 }
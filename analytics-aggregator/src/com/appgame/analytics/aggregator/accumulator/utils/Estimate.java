@@ -0,0 +1,222 @@
+package com.appgame.analytics.aggregator.accumulator.utils;
+
+/**
+ * 可合并的抽样估算状态<样本数量, 总量估计, 估计方差>（抽样聚合时'$sum'、'$count'的分组状态）
+ * 1. 每个样本按抽样率的倒数放大（Horvitz-Thompson 估计），方差按伯努利抽样估计 (1 - p) / p^2 * x^2 累加
+ * 2. 作为数值参与后续运算时返回总量估计，置信区间通过'$interval'表达式读取
+ * 3. 服务端输出估算状态，客户端分组时按估算状态合并（总量以及方差直接相加）
+ */
+public class Estimate extends Number implements Comparable<Estimate>
+{
+	private static final long serialVersionUID = 1L;
+	
+	/**
+	 * 估算类型
+	 */
+	public static final int SUM   = 0;
+	public static final int COUNT = 1;
+	
+	/**
+	 * 估算类型
+	 */
+	private final int kind;
+	
+	/**
+	 * 抽样率（0, 1]
+	 */
+	private final double rate;
+	
+	/**
+	 * 样本数量
+	 */
+	private long count = 0;
+	
+	/**
+	 * 总量估计
+	 */
+	private double total = 0.0;
+	
+	/**
+	 * 总量估计的方差
+	 */
+	private double variance = 0.0;
+	
+	/**
+	 * 构造方法（空估算状态）
+	 * @param kind
+	 * @param rate
+	 */
+	public Estimate(int kind, double rate)
+	{
+		this.kind = kind;
+		this.rate = rate;
+	}
+	
+	/**
+	 * 构造方法（指定估算状态，反序列化时使用）
+	 * @param kind
+	 * @param rate
+	 * @param count
+	 * @param total
+	 * @param variance
+	 */
+	public Estimate(int kind, double rate, long count, double total, double variance)
+	{
+		this.kind     = kind;
+		this.rate     = rate;
+		this.count    = count;
+		this.total    = total;
+		this.variance = variance;
+	}
+	
+	/**
+	 * 输入一个样本（估算状态直接合并，计数忽略空值，求和忽略非数值）
+	 * @param v
+	 */
+	public void update(Object v)
+	{
+		if (v instanceof Estimate)
+		{
+			merge((Estimate)v);
+		}
+		else if (kind == COUNT)
+		{
+			if (v != null)
+			{
+				add(1.0);
+			}
+		}
+		else if (v instanceof Number)
+		{
+			add(((Number)v).doubleValue());
+		}
+	}
+	
+	/**
+	 * 输入一个样本值
+	 */
+	private void add(double x)
+	{
+		count    = count + 1;
+		total    = total + x / rate;
+		variance = variance + (1.0 - rate) * x * x / (rate * rate);
+	}
+	
+	/**
+	 * 合并估算状态（各区域独立抽样，总量以及方差直接相加）
+	 * @param other
+	 */
+	public void merge(Estimate other)
+	{
+		count    = count + other.count;
+		total    = total + other.total;
+		variance = variance + other.variance;
+	}
+	
+	/**
+	 * 复制估算状态
+	 * @return
+	 */
+	public Estimate copy()
+	{
+		return new Estimate(kind, rate, count, total, variance);
+	}
+	
+	/**
+	 * 估算类型、抽样率、样本数量、总量估计以及估计方差（序列化时使用）
+	 */
+	public int kind()
+	{
+		return kind;
+	}
+	
+	public double rate()
+	{
+		return rate;
+	}
+	
+	public long count()
+	{
+		return count;
+	}
+	
+	public double total()
+	{
+		return total;
+	}
+	
+	public double variance()
+	{
+		return variance;
+	}
+	
+	/**
+	 * 指定置信度的置信区间 [下限, 上限]（正态近似）
+	 * @param confidence (0, 1)
+	 * @return
+	 */
+	public double[] interval(double confidence)
+	{
+		double error = z(confidence) * Math.sqrt(variance);
+		return new double[]{total - error, total + error};
+	}
+	
+	/**
+	 * 双侧置信度对应的标准正态分位数（Acklam 有理逼近，相对误差约 1e-9）
+	 * @param confidence
+	 * @return
+	 */
+	public static double z(double confidence)
+	{
+		double p = 0.5 + Math.min(Math.max(confidence, 0.0), 0.999999) / 2;
+		if (p > 0.97575)
+		{
+			double q = Math.sqrt(-2 * Math.log(1 - p));
+			return -(((((-7.784894002430293e-03 * q - 3.223964580411365e-01) * q - 2.400758277161838e+00) * q - 2.549732539343734e+00) * q + 4.374664141464968e+00) * q + 2.938163982698783e+00)
+				/ ((((7.784695709041462e-03 * q + 3.224671290700398e-01) * q + 2.445134137142996e+00) * q + 3.754408661907416e+00) * q + 1);
+		}
+		double q = p - 0.5;
+		double r = q * q;
+		return (((((-3.969683028665376e+01 * r + 2.209460984245205e+02) * r - 2.759285104469687e+02) * r + 1.383577518672690e+02) * r - 3.066479806614716e+01) * r + 2.506628277459239e+00) * q
+			/ (((((-5.447609879822406e+01 * r + 1.615858368580409e+02) * r - 1.556989798598866e+02) * r + 6.680131188771972e+01) * r - 1.328068155288572e+01) * r + 1);
+	}
+	
+	/**
+	 * 总量估计
+	 */
+	@Override
+	public double doubleValue()
+	{
+		return total;
+	}
+	
+	@Override
+	public int intValue()
+	{
+		return (int)longValue();
+	}
+	
+	@Override
+	public long longValue()
+	{
+		return Math.round(total);
+	}
+	
+	@Override
+	public float floatValue()
+	{
+		return (float)total;
+	}
+	
+	@Override
+	public int compareTo(Estimate o)
+	{
+		return Double.compare(total, o.total);
+	}
+	
+	@Override
+	public String toString()
+	{
+		return kind == COUNT ? String.valueOf(longValue()) : String.valueOf(total);
+	}
+}
@@ -0,0 +1,339 @@
+package com.appgame.analytics.aggregator.accumulator.utils;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+import com.appgame.analytics.aggregator.accumulator.collection.AccumulatorKey;
+
+/**
+ * 可合并的高频项估算状态（SpaceSaving，'$topK'的分组状态）
+ * 1. 固定数量的计数器，计数器已满时新的输入值替换计数最小的计数器，并继承其计数作为误差
+ * 2. 每个候选项的真实出现次数位于 [count - error, count] 之间
+ * 3. 作为列表读取时按计数倒序返回前 k 项候选项 {value, count, error}（计数器数量为 k 乘以余量系数，以降低前 k 项的误差）
+ * 4. 服务端只输出前 k 项，客户端分组时合并（未出现的候选项按对方的最小计数补足上界）
+ */
+public class HeavyHitters extends AbstractList<Map<String, Object>>
+{
+	/**
+	 * 计数器
+	 */
+	private static class Counter
+	{
+		private final Object value;
+		private long count;
+		private long error;
+		
+		public Counter(Object value, long count, long error)
+		{
+			this.value = value;
+			this.count = count;
+			this.error = error;
+		}
+	}
+	
+	/**
+	 * 最小堆节点（计数快照 + 计数器，计数只增不减，弹出时快照过期则按当前计数重新入堆）
+	 */
+	private static class Snapshot
+	{
+		private final long    count;
+		private final Counter counter;
+		
+		public Snapshot(Counter counter)
+		{
+			this.count   = counter.count;
+			this.counter = counter;
+		}
+	}
+	
+	/**
+	 * 输出的候选项数量
+	 */
+	private final int k;
+	
+	/**
+	 * 计数器数量上限
+	 */
+	private final int capacity;
+	
+	/**
+	 * 计数器（关键字按内容比较，字节数组可以直接作为输入值）
+	 */
+	private Map<AccumulatorKey, Counter> counters = new HashMap<AccumulatorKey, Counter>();
+	
+	/**
+	 * 计数器最小堆
+	 */
+	private PriorityQueue<Snapshot> heap = new PriorityQueue<Snapshot>(11, new Comparator<Snapshot>()
+	{
+		@Override
+		public int compare(Snapshot s1, Snapshot s2)
+		{
+			return Long.compare(s1.count, s2.count);
+		}
+	});
+	
+	/**
+	 * 计数器的估算大小（随计数器增减维护，避免逐行累积时重新计算）
+	 */
+	private long bytes = 64;
+	
+	/**
+	 * 按计数倒序排列的候选项（读取时生成，修改后失效）
+	 */
+	private List<Map<String, Object>> candidates = null;
+	
+	/**
+	 * 构造方法（空状态，计数器数量与输出的候选项数量相同，反序列化时使用）
+	 * @param capacity
+	 */
+	public HeavyHitters(int capacity)
+	{
+		this(capacity, capacity);
+	}
+	
+	/**
+	 * 构造方法（空状态）
+	 * @param k 输出的候选项数量
+	 * @param capacity 计数器数量上限（不小于 k）
+	 */
+	public HeavyHitters(int k, int capacity)
+	{
+		this.k        = Math.max(1, k);
+		this.capacity = Math.max(this.k, capacity);
+	}
+	
+	/**
+	 * 关键字
+	 */
+	private static AccumulatorKey key(Object value)
+	{
+		return new AccumulatorKey(new Object[]{value});
+	}
+	
+	/**
+	 * 添加计数器（反序列化时恢复计数器，调用方保证数量不超过上限且值不重复）
+	 * @param value
+	 * @param count
+	 * @param error
+	 */
+	public void insert(Object value, long count, long error)
+	{
+		candidates = null;
+		Counter counter = new Counter(value, count, error);
+		counters.put(key(value), counter);
+		bytes = bytes + 96 + AccumulatorUtils.sizeof(value);
+		heap.add(new Snapshot(counter));
+	}
+	
+	/**
+	 * 弹出计数最小的计数器
+	 */
+	private Counter poll()
+	{
+		while (true)
+		{
+			Snapshot snapshot = heap.poll();
+			if (snapshot.count == snapshot.counter.count)
+			{
+				return snapshot.counter;
+			}
+			heap.add(new Snapshot(snapshot.counter));
+		}
+	}
+	
+	/**
+	 * 计数器已满时返回最小计数， 否则返回 0（未被计数的值的出现次数上界）
+	 */
+	private long floor()
+	{
+		if (counters.size() < capacity)
+		{
+			return 0;
+		}
+		Counter counter = poll();
+		heap.add(new Snapshot(counter));
+		return counter.count;
+	}
+	
+	/**
+	 * 输入一个值（指定权重）
+	 * @param value
+	 * @param weight
+	 */
+	public void add(Object value, long weight)
+	{
+		candidates = null;
+		Counter counter = counters.get(key(value));
+		if (counter != null)
+		{
+			counter.count = counter.count + weight;
+		}
+		else if (counters.size() < capacity)
+		{
+			insert(value, weight, 0);
+		}
+		else
+		{
+			Counter victim = poll();
+			counters.remove(key(victim.value));
+			bytes = bytes - 96 - AccumulatorUtils.sizeof(victim.value);
+			insert(value, victim.count + weight, victim.count);
+		}
+	}
+	
+	/**
+	 * 输入一个值（高频项状态直接合并，集合逐个输入元素，忽略空值）
+	 * @param v
+	 */
+	@SuppressWarnings("rawtypes")
+	public void update(Object v)
+	{
+		if (v instanceof HeavyHitters)
+		{
+			merge((HeavyHitters)v);
+		}
+		else if (v instanceof Collection)
+		{
+			for (Object o : (Collection)v)
+			{
+				update(o);
+			}
+		}
+		else if (v != null)
+		{
+			add(v, 1);
+		}
+	}
+	
+	/**
+	 * 合并高频项状态（只在一方出现的候选项按另一方的最小计数补足上界，然后保留计数最大的计数器）
+	 * @param other
+	 */
+	public void merge(HeavyHitters other)
+	{
+		candidates = null;
+		long floor1 = floor();
+		long floor2 = other.floor();
+		List<Counter> merged = new ArrayList<Counter>(counters.size() + other.counters.size());
+		for (Map.Entry<AccumulatorKey, Counter> entry : counters.entrySet())
+		{
+			Counter c1 = entry.getValue();
+			Counter c2 = other.counters.get(entry.getKey());
+			merged.add(c2 != null ? new Counter(c1.value, c1.count + c2.count, c1.error + c2.error) : new Counter(c1.value, c1.count + floor2, c1.error + floor2));
+		}
+		for (Map.Entry<AccumulatorKey, Counter> entry : other.counters.entrySet())
+		{
+			if (!counters.containsKey(entry.getKey()))
+			{
+				Counter c2 = entry.getValue();
+				merged.add(new Counter(c2.value, c2.count + floor1, c2.error + floor1));
+			}
+		}
+		Collections.sort(merged, new Comparator<Counter>()
+		{
+			@Override
+			public int compare(Counter c1, Counter c2)
+			{
+				return Long.compare(c2.count, c1.count);
+			}
+		});
+		counters.clear();
+		heap.clear();
+		bytes = 64;
+		for (Counter counter : merged.subList(0, Math.min(capacity, merged.size())))
+		{
+			insert(counter.value, counter.count, counter.error);
+		}
+	}
+	
+	/**
+	 * 复制高频项状态
+	 * @return
+	 */
+	public HeavyHitters copy()
+	{
+		HeavyHitters result = new HeavyHitters(k, capacity);
+		for (Counter counter : counters.values())
+		{
+			result.insert(counter.value, counter.count, counter.error);
+		}
+		return result;
+	}
+	
+	/**
+	 * 输出的候选项数量（序列化时作为计数器数量上限写出：被截掉的候选项计数不超过第 k 项，解码后的最小计数仍是未输出值的上界）
+	 * @return
+	 */
+	public int k()
+	{
+		return k;
+	}
+	
+	/**
+	 * 计数器数量上限
+	 * @return
+	 */
+	public int capacity()
+	{
+		return capacity;
+	}
+	
+	/**
+	 * 返回计数器的估算大小
+	 * @return
+	 */
+	public long bytes()
+	{
+		return bytes;
+	}
+	
+	/**
+	 * 按计数倒序排列的前 k 项候选项 {value, count, error}
+	 * @return
+	 */
+	private List<Map<String, Object>> candidates()
+	{
+		if (candidates == null)
+		{
+			List<Counter> sorted = new ArrayList<Counter>(counters.values());
+			Collections.sort(sorted, new Comparator<Counter>()
+			{
+				@Override
+				public int compare(Counter c1, Counter c2)
+				{
+					return Long.compare(c2.count, c1.count);
+				}
+			});
+			candidates = new ArrayList<Map<String, Object>>(Math.min(k, sorted.size()));
+			for (Counter counter : sorted.subList(0, Math.min(k, sorted.size())))
+			{
+				Map<String, Object> candidate = new HashMap<String, Object>();
+				candidate.put("value", counter.value);
+				candidate.put("count", counter.count);
+				candidate.put("error", counter.error);
+				candidates.add(candidate);
+			}
+		}
+		return candidates;
+	}
+	
+	@Override
+	public Map<String, Object> get(int index)
+	{
+		return candidates().get(index);
+	}
+	
+	@Override
+	public int size()
+	{
+		return Math.min(k, counters.size());
+	}
+}
@@ -0,0 +1,254 @@
+package com.appgame.analytics.aggregator.accumulator.utils;
+
+import java.util.Collection;
+
+import org.apache.hadoop.hbase.util.Bytes;
+
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+
+/**
+ * 可合并的基数估算状态（HyperLogLog，'$approxDistinct'的分组状态）
+ * 1. 精度 p 对应 2^p 个寄存器，标准误差约为 1.04 / sqrt(2^p)
+ * 2. 作为数值参与后续运算时返回基数估算值
+ * 3. 服务端仅输出寄存器，客户端分组时按寄存器合并（精度不同时合并到较低的精度）
+ */
+public class HyperLogLog extends Number implements Comparable<HyperLogLog>
+{
+	private static final long serialVersionUID = 1L;
+	
+	/**
+	 * 精度范围
+	 */
+	public static final int MIN_PRECISION = 4;
+	public static final int MAX_PRECISION = 18;
+	
+	/**
+	 * 哈希函数（ＣＳ两端必须一致）
+	 */
+	private static final HashFunction hash = Hashing.murmur3_128();
+	
+	/**
+	 * 精度
+	 */
+	private int precision;
+	
+	/**
+	 * 寄存器（每个寄存器保存哈希值前导零数量 + 1 的最大值）
+	 */
+	private byte[] registers;
+	
+	/**
+	 * 构造方法（空状态）
+	 * @param precision
+	 */
+	public HyperLogLog(int precision)
+	{
+		this.precision = Math.max(MIN_PRECISION, Math.min(MAX_PRECISION, precision));
+		this.registers = new byte[1 << this.precision];
+	}
+	
+	/**
+	 * 构造方法（指定寄存器，反序列化时使用）
+	 * @param precision
+	 * @param registers
+	 */
+	public HyperLogLog(int precision, byte[] registers)
+	{
+		this.precision = precision;
+		this.registers = registers;
+	}
+	
+	/**
+	 * 计算输入值的 64 位哈希（字符串按 UTF-8 编码与字节数组一致，整数按数值哈希）
+	 * @param v
+	 * @return
+	 * @throws Exception
+	 */
+	private static long hash(Object v) throws Exception
+	{
+		if (v instanceof byte[])
+		{
+			return hash.hashBytes((byte[])v).asLong();
+		}
+		else if (v instanceof String)
+		{
+			return hash.hashBytes(Bytes.toBytes((String)v)).asLong();
+		}
+		else if (v instanceof Integer || v instanceof Long)
+		{
+			return hash.hashLong(((Number)v).longValue()).asLong();
+		}
+		else if (v instanceof Double)
+		{
+			return hash.hashLong(Double.doubleToLongBits((Double)v)).asLong();
+		}
+		else
+		{
+			return hash.hashBytes(AccumulatorUtils.encode(v)).asLong();
+		}
+	}
+	
+	/**
+	 * 输入一个值（基数状态按寄存器合并，集合逐个输入元素，忽略空值）
+	 * @param v
+	 * @throws Exception
+	 */
+	@SuppressWarnings("rawtypes")
+	public void update(Object v) throws Exception
+	{
+		if (v instanceof HyperLogLog)
+		{
+			merge((HyperLogLog)v);
+		}
+		else if (v instanceof Collection)
+		{
+			for (Object o : (Collection)v)
+			{
+				update(o);
+			}
+		}
+		else if (v != null)
+		{
+			long code  = hash(v);
+			int  index = (int)(code >>> (64 - precision));
+			int  rank  = Long.numberOfLeadingZeros((code << precision) | (1L << (precision - 1))) + 1;
+			if (rank > registers[index])
+			{
+				registers[index] = (byte)rank;
+			}
+		}
+	}
+	
+	/**
+	 * 降低精度（相邻寄存器合并，被移出索引的比特计入前导零数量）
+	 * @param target
+	 */
+	private void fold(int target)
+	{
+		int    shift  = precision - target;
+		byte[] result = new byte[1 << target];
+		for (int index = 0; index < registers.length; index++)
+		{
+			if (registers[index] != 0)
+			{
+				int bits = index & ((1 << shift) - 1);
+				int rank = bits != 0 ? Integer.numberOfLeadingZeros(bits) - (32 - shift) + 1 : registers[index] + shift;
+				if (rank > result[index >>> shift])
+				{
+					result[index >>> shift] = (byte)rank;
+				}
+			}
+		}
+		this.precision = target;
+		this.registers = result;
+	}
+	
+	/**
+	 * 合并基数状态
+	 * @param other
+	 */
+	public void merge(HyperLogLog other)
+	{
+		if (other.precision < precision)
+		{
+			fold(other.precision);
+		}
+		else if (other.precision > precision)
+		{
+			other = other.copy();
+			other.fold(precision);
+		}
+		for (int index = 0; index < registers.length; index++)
+		{
+			if (other.registers[index] > registers[index])
+			{
+				registers[index] = other.registers[index];
+			}
+		}
+	}
+	
+	/**
+	 * 复制基数状态
+	 * @return
+	 */
+	public HyperLogLog copy()
+	{
+		return new HyperLogLog(precision, registers.clone());
+	}
+	
+	/**
+	 * 精度以及寄存器（序列化时使用）
+	 */
+	public int precision()
+	{
+		return precision;
+	}
+	
+	public byte[] registers()
+	{
+		return registers;
+	}
+	
+	/**
+	 * 基数估算值（小基数时按线性计数修正）
+	 * @return
+	 */
+	public long estimate()
+	{
+		int    m     = registers.length;
+		double sum   = 0.0;
+		int    zeros = 0;
+		for (byte register : registers)
+		{
+			sum = sum + 1.0 / (1L << register);
+			if (register == 0)
+			{
+				zeros = zeros + 1;
+			}
+		}
+		double alpha    = m == 16 ? 0.673 : (m == 32 ? 0.697 : (m == 64 ? 0.709 : 0.7213 / (1 + 1.079 / m)));
+		double estimate = alpha * m * m / sum;
+		if (estimate <= 2.5 * m && zeros > 0)
+		{
+			estimate = m * Math.log((double)m / zeros);
+		}
+		return Math.round(estimate);
+	}
+	
+	@Override
+	public long longValue()
+	{
+		return estimate();
+	}
+	
+	@Override
+	public int intValue()
+	{
+		return (int)estimate();
+	}
+	
+	@Override
+	public double doubleValue()
+	{
+		return estimate();
+	}
+	
+	@Override
+	public float floatValue()
+	{
+		return estimate();
+	}
+	
+	@Override
+	public int compareTo(HyperLogLog o)
+	{
+		return Long.compare(estimate(), o.estimate());
+	}
+	
+	@Override
+	public String toString()
+	{
+		return String.valueOf(estimate());
+	}
+}
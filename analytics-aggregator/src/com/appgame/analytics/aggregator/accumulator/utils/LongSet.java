@@ -0,0 +1,624 @@
+package com.appgame.analytics.aggregator.accumulator.utils;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * 长整数集合（Roaring 风格压缩位图，元素以原始类型保存，避免逐个装箱以及哈希节点开销）
+ * 1. 元素按高位（v >> 16）分桶，桶内低 16 位元素不超过 4096 个时保存为有序数组，否则保存为 65536 位的位图
+ *    桶通过开放寻址哈希表定位，新桶追加到末尾，遍历、集合运算以及序列化前再按高位排序（稀疏元素插入为常数时间）
+ * 2. 交集、并集按桶合并，位图之间按字（64 位）执行与、或运算，元素数量通过位计数得到
+ * 3. 只接受 Long 类型的元素，其它类型的元素由调用方转换为普通哈希集合
+ * 4. 遍历时元素按数值升序装箱为 Long，与'$union'、'$mix'、'$size'以及序列化兼容
+ */
+public class LongSet extends AbstractSet<Object>
+{
+	/**
+	 * 数组桶的元素数量上限（超过后转换为位图桶，两种形式的大小在此处相等）
+	 */
+	private static final int ARRAY_LIMIT = 4096;
+	
+	/**
+	 * 位图桶的字数量
+	 */
+	private static final int BITMAP_WORDS = 1024;
+	
+	/**
+	 * 桶的高位（'sorted'为真时升序）
+	 */
+	private long[] keys = new long[4];
+	
+	/**
+	 * 桶的内容（char[] 为有序数组，long[] 为位图）
+	 */
+	private Object[] containers = new Object[4];
+	
+	/**
+	 * 桶内的元素数量
+	 */
+	private int[] cardinalities = new int[4];
+	
+	/**
+	 * 桶数量
+	 */
+	private int count = 0;
+	
+	/**
+	 * 元素数量
+	 */
+	private int size = 0;
+	
+	/**
+	 * 桶的哈希索引（开放寻址，保存桶的位置 + 1，0 表示空位，装载因子不超过 1/2）
+	 */
+	private int[] table = new int[8];
+	
+	/**
+	 * 桶是否按高位升序排列
+	 */
+	private boolean sorted = true;
+	
+	/**
+	 * 全部桶内容的估算大小（增量维护）
+	 */
+	private long bytes = 0;
+	
+	/**
+	 * 高位的哈希槽位
+	 */
+	private static int slot(long key, int mask)
+	{
+		return (int)((key * 0x9E3779B97F4A7C15L) >>> 32) & mask;
+	}
+	
+	/**
+	 * 查找桶的位置（不存在时返回 -1）
+	 */
+	private int find(long key)
+	{
+		int mask = table.length - 1;
+		for (int i = slot(key, mask); table[i] != 0; i = (i + 1) & mask)
+		{
+			if (keys[table[i] - 1] == key)
+			{
+				return table[i] - 1;
+			}
+		}
+		return -1;
+	}
+	
+	/**
+	 * 按当前的桶位置重建哈希索引
+	 */
+	private void rehash(int length)
+	{
+		table = new int[length];
+		int mask = length - 1;
+		for (int index = 0; index < count; ++index)
+		{
+			int i = slot(keys[index], mask);
+			while (table[i] != 0)
+			{
+				i = (i + 1) & mask;
+			}
+			table[i] = index + 1;
+		}
+	}
+	
+	/**
+	 * 桶内容的估算大小
+	 */
+	private static long sizeof(Object container)
+	{
+		return 16 + (container instanceof long[] ? 8L * BITMAP_WORDS : 2L * ((char[])container).length);
+	}
+	
+	/**
+	 * 在末尾添加桶（调用方保证高位不存在）
+	 */
+	private void insert(long key, Object container, int cardinality)
+	{
+		if (count == keys.length)
+		{
+			keys          = Arrays.copyOf(keys, count * 2);
+			containers    = Arrays.copyOf(containers, count * 2);
+			cardinalities = Arrays.copyOf(cardinalities, count * 2);
+		}
+		if (count > 0 && keys[count - 1] > key)
+		{
+			sorted = false;
+		}
+		keys[count]          = key;
+		containers[count]    = container;
+		cardinalities[count] = cardinality;
+		count = count + 1;
+		size  = size + cardinality;
+		bytes = bytes + sizeof(container);
+		if (count * 2 > table.length)
+		{
+			rehash(table.length * 2);
+		}
+		else
+		{
+			int mask = table.length - 1;
+			int i    = slot(key, mask);
+			while (table[i] != 0)
+			{
+				i = (i + 1) & mask;
+			}
+			table[i] = count;
+		}
+	}
+	
+	/**
+	 * 按高位排序桶（遍历、集合运算以及序列化前调用）
+	 */
+	private void sort()
+	{
+		if (sorted)
+		{
+			return;
+		}
+		long[]   order  = Arrays.copyOf(keys, count);
+		Object[] buffer = new Object[keys.length];
+		int[]    counts = new int[keys.length];
+		Arrays.sort(order);
+		for (int i = 0; i < count; ++i)
+		{
+			int index = find(order[i]);
+			buffer[i] = containers[index];
+			counts[i] = cardinalities[index];
+		}
+		System.arraycopy(order, 0, keys, 0, count);
+		containers    = buffer;
+		cardinalities = counts;
+		rehash(table.length);
+		sorted = true;
+	}
+	
+	/**
+	 * 追加桶（高位不能与已有的桶重复，用于集合运算以及反序列化，空桶直接忽略）
+	 * @param key
+	 * @param container 有序数组（char[]）或者位图（long[]）
+	 * @param cardinality
+	 */
+	public void append(long key, Object container, int cardinality)
+	{
+		if (cardinality > 0)
+		{
+			insert(key, container, cardinality);
+		}
+	}
+	
+	/**
+	 * 有序数组转换为位图
+	 */
+	private static long[] bitmap(char[] array, int cardinality)
+	{
+		long[] words = new long[BITMAP_WORDS];
+		for (int i = 0; i < cardinality; ++i)
+		{
+			words[array[i] >>> 6] |= 1L << array[i];
+		}
+		return words;
+	}
+	
+	/**
+	 * 位图转换为有序数组
+	 */
+	private static char[] array(long[] words, int cardinality)
+	{
+		char[] array = new char[cardinality];
+		int    n     = 0;
+		for (int i = 0; i < words.length; ++i)
+		{
+			for (long w = words[i]; w != 0; w &= w - 1)
+			{
+				array[n++] = (char)(i * 64 + Long.numberOfTrailingZeros(w));
+			}
+		}
+		return array;
+	}
+	
+	/**
+	 * 添加元素
+	 * @param v
+	 * @return 集合是否发生变化
+	 */
+	public boolean add(long v)
+	{
+		long key   = v >> 16;
+		char low   = (char)v;
+		int  index = find(key);
+		if (index < 0)
+		{
+			insert(key, new char[]{low}, 1);
+			return true;
+		}
+		int cardinality = cardinalities[index];
+		if (containers[index] instanceof long[])
+		{
+			long[] words = (long[])containers[index];
+			long   bit   = 1L << low;
+			if ((words[low >>> 6] & bit) != 0)
+			{
+				return false;
+			}
+			words[low >>> 6] |= bit;
+		}
+		else
+		{
+			char[] array    = (char[])containers[index];
+			int    position = Arrays.binarySearch(array, 0, cardinality, low);
+			if (position >= 0)
+			{
+				return false;
+			}
+			position = -position - 1;
+			if (cardinality == ARRAY_LIMIT)
+			{
+				long[] words = bitmap(array, cardinality);
+				words[low >>> 6] |= 1L << low;
+				containers[index] = words;
+				bytes = bytes + sizeof(words) - sizeof(array);
+			}
+			else
+			{
+				if (cardinality == array.length)
+				{
+					array = Arrays.copyOf(array, Math.min(ARRAY_LIMIT, cardinality * 2));
+					containers[index] = array;
+					bytes = bytes + 2L * (array.length - cardinality);
+				}
+				System.arraycopy(array, position, array, position + 1, cardinality - position);
+				array[position] = low;
+			}
+		}
+		cardinalities[index] = cardinality + 1;
+		size = size + 1;
+		return true;
+	}
+	
+	/**
+	 * 判断是否包含元素
+	 * @param v
+	 * @return
+	 */
+	public boolean contains(long v)
+	{
+		int index = find(v >> 16);
+		if (index < 0)
+		{
+			return false;
+		}
+		char low = (char)v;
+		if (containers[index] instanceof long[])
+		{
+			return (((long[])containers[index])[low >>> 6] & (1L << low)) != 0;
+		}
+		return Arrays.binarySearch((char[])containers[index], 0, cardinalities[index], low) >= 0;
+	}
+	
+	/**
+	 * 交集运算（返回新的集合）
+	 * @param other
+	 * @return
+	 */
+	public LongSet and(LongSet other)
+	{
+		sort();
+		other.sort();
+		LongSet result = new LongSet();
+		int i = 0, j = 0;
+		while (i < count && j < other.count)
+		{
+			if (keys[i] < other.keys[j])
+			{
+				i = i + 1;
+			}
+			else if (keys[i] > other.keys[j])
+			{
+				j = j + 1;
+			}
+			else
+			{
+				Object c1 = containers[i], c2 = other.containers[j];
+				int    n1 = cardinalities[i], n2 = other.cardinalities[j];
+				if (c1 instanceof long[] && c2 instanceof long[])
+				{
+					long[] w1 = (long[])c1, w2 = (long[])c2;
+					long[] words = new long[BITMAP_WORDS];
+					int cardinality = 0;
+					for (int k = 0; k < BITMAP_WORDS; ++k)
+					{
+						words[k] = w1[k] & w2[k];
+						cardinality = cardinality + Long.bitCount(words[k]);
+					}
+					result.append(keys[i], cardinality > ARRAY_LIMIT ? words : array(words, cardinality), cardinality);
+				}
+				else if (c1 instanceof char[] && c2 instanceof char[])
+				{
+					char[] a1 = (char[])c1, a2 = (char[])c2;
+					char[] array = new char[Math.min(n1, n2)];
+					int cardinality = 0, p = 0, q = 0;
+					while (p < n1 && q < n2)
+					{
+						if (a1[p] < a2[q])
+						{
+							p = p + 1;
+						}
+						else if (a1[p] > a2[q])
+						{
+							q = q + 1;
+						}
+						else
+						{
+							array[cardinality++] = a1[p];
+							p = p + 1;
+							q = q + 1;
+						}
+					}
+					result.append(keys[i], array, cardinality);
+				}
+				else
+				{
+					char[] a     = (char[])(c1 instanceof char[] ? c1 : c2);
+					int    n     = c1 instanceof char[] ? n1 : n2;
+					long[] words = (long[])(c1 instanceof long[] ? c1 : c2);
+					char[] array = new char[n];
+					int cardinality = 0;
+					for (int p = 0; p < n; ++p)
+					{
+						if ((words[a[p] >>> 6] & (1L << a[p])) != 0)
+						{
+							array[cardinality++] = a[p];
+						}
+					}
+					result.append(keys[i], array, cardinality);
+				}
+				i = i + 1;
+				j = j + 1;
+			}
+		}
+		return result;
+	}
+	
+	/**
+	 * 并集运算（返回新的集合）
+	 * @param other
+	 * @return
+	 */
+	public LongSet or(LongSet other)
+	{
+		sort();
+		other.sort();
+		LongSet result = new LongSet();
+		int i = 0, j = 0;
+		while (i < count || j < other.count)
+		{
+			if (j >= other.count || (i < count && keys[i] < other.keys[j]))
+			{
+				result.append(keys[i], copy(containers[i]), cardinalities[i]);
+				i = i + 1;
+			}
+			else if (i >= count || keys[i] > other.keys[j])
+			{
+				result.append(other.keys[j], copy(other.containers[j]), other.cardinalities[j]);
+				j = j + 1;
+			}
+			else
+			{
+				Object c1 = containers[i], c2 = other.containers[j];
+				int    n1 = cardinalities[i], n2 = other.cardinalities[j];
+				if (c1 instanceof char[] && c2 instanceof char[] && n1 + n2 <= ARRAY_LIMIT)
+				{
+					char[] a1 = (char[])c1, a2 = (char[])c2;
+					char[] array = new char[n1 + n2];
+					int cardinality = 0, p = 0, q = 0;
+					while (p < n1 || q < n2)
+					{
+						if (q >= n2 || (p < n1 && a1[p] < a2[q]))
+						{
+							array[cardinality++] = a1[p++];
+						}
+						else if (p >= n1 || a1[p] > a2[q])
+						{
+							array[cardinality++] = a2[q++];
+						}
+						else
+						{
+							array[cardinality++] = a1[p++];
+							q = q + 1;
+						}
+					}
+					result.append(keys[i], array, cardinality);
+				}
+				else
+				{
+					long[] w1 = c1 instanceof long[] ? (long[])c1 : bitmap((char[])c1, n1);
+					long[] w2 = c2 instanceof long[] ? (long[])c2 : bitmap((char[])c2, n2);
+					long[] words = new long[BITMAP_WORDS];
+					int cardinality = 0;
+					for (int k = 0; k < BITMAP_WORDS; ++k)
+					{
+						words[k] = w1[k] | w2[k];
+						cardinality = cardinality + Long.bitCount(words[k]);
+					}
+					result.append(keys[i], cardinality > ARRAY_LIMIT ? words : array(words, cardinality), cardinality);
+				}
+				i = i + 1;
+				j = j + 1;
+			}
+		}
+		return result;
+	}
+	
+	/**
+	 * 复制桶的内容
+	 */
+	private static Object copy(Object container)
+	{
+		return container instanceof long[] ? ((long[])container).clone() : ((char[])container).clone();
+	}
+	
+	/**
+	 * 复制集合
+	 * @return
+	 */
+	public LongSet copy()
+	{
+		sort();
+		LongSet result = new LongSet();
+		for (int i = 0; i < count; ++i)
+		{
+			result.append(keys[i], copy(containers[i]), cardinalities[i]);
+		}
+		return result;
+	}
+	
+	/**
+	 * 返回桶数量（序列化时使用，桶按高位升序排列）
+	 * @return
+	 */
+	public int containers()
+	{
+		sort();
+		return count;
+	}
+	
+	/**
+	 * 返回桶的高位（序列化时使用）
+	 * @param index
+	 * @return
+	 */
+	public long key(int index)
+	{
+		sort();
+		return keys[index];
+	}
+	
+	/**
+	 * 返回桶的内容（序列化时使用，char[] 为有序数组，long[] 为位图）
+	 * @param index
+	 * @return
+	 */
+	public Object container(int index)
+	{
+		sort();
+		return containers[index];
+	}
+	
+	/**
+	 * 返回桶内的元素数量（序列化时使用）
+	 * @param index
+	 * @return
+	 */
+	public int cardinality(int index)
+	{
+		sort();
+		return cardinalities[index];
+	}
+	
+	/**
+	 * 返回集合的估算大小（常数时间）
+	 * @return
+	 */
+	public long bytes()
+	{
+		return 64 + 20L * keys.length + 4L * table.length + bytes;
+	}
+	
+	@Override
+	public boolean add(Object o)
+	{
+		if (!(o instanceof Long))
+		{
+			throw new IllegalArgumentException(String.format("long set does not accept element[%s]", o));
+		}
+		return add(((Long)o).longValue());
+	}
+	
+	@Override
+	public boolean contains(Object o)
+	{
+		return o instanceof Long && contains(((Long)o).longValue());
+	}
+	
+	@Override
+	public int size()
+	{
+		return size;
+	}
+	
+	@Override
+	public Iterator<Object> iterator()
+	{
+		sort();
+		return new Iterator<Object>()
+		{
+			/**
+			 * 当前桶以及桶内位置（数组桶为下标，位图桶为下一个位）
+			 */
+			private int index    = 0;
+			private int position = 0;
+			
+			/**
+			 * 定位下一个元素（返回低 16 位，没有更多元素时返回 -1）
+			 */
+			private int peek()
+			{
+				for (; index < count; ++index, position = 0)
+				{
+					if (containers[index] instanceof char[])
+					{
+						if (position < cardinalities[index])
+						{
+							return ((char[])containers[index])[position];
+						}
+					}
+					else
+					{
+						long[] words = (long[])containers[index];
+						for (int word = position >>> 6; word < BITMAP_WORDS; ++word)
+						{
+							long w = word == position >>> 6 ? words[word] & (-1L << position) : words[word];
+							if (w != 0)
+							{
+								position = word * 64 + Long.numberOfTrailingZeros(w);
+								return position;
+							}
+						}
+					}
+				}
+				return -1;
+			}
+			
+			@Override
+			public boolean hasNext()
+			{
+				return peek() >= 0;
+			}
+			
+			@Override
+			public Object next()
+			{
+				int low = peek();
+				if (low < 0)
+				{
+					throw new NoSuchElementException();
+				}
+				long v = (keys[index] << 16) | low;
+				position = position + 1;
+				return v;
+			}
+			
+			@Override
+			public void remove()
+			{
+				throw new UnsupportedOperationException();
+			}
+		};
+	}
+}
@@ -0,0 +1,187 @@
+package com.appgame.analytics.aggregator.accumulator.utils;
+
+/**
+ * 可合并的统计状态<样本数量, 均值, 离差平方和>（'$avg'、'$count'、'$var'、'$stddev'的分组状态）
+ * 1. 作为数值参与后续运算时返回对应的统计结果
+ * 2. 服务端输出统计状态，客户端分组时按统计状态合并（均值以及离差平方和按并行算法合并，避免数值误差）
+ */
+public class Moments extends Number implements Comparable<Moments>
+{
+	private static final long serialVersionUID = 1L;
+	
+	/**
+	 * 统计类型
+	 */
+	public static final int AVG    = 0;
+	public static final int COUNT  = 1;
+	public static final int VAR    = 2;
+	public static final int STDDEV = 3;
+	
+	/**
+	 * 统计类型
+	 */
+	private final int kind;
+	
+	/**
+	 * 样本数量
+	 */
+	private long count = 0;
+	
+	/**
+	 * 样本均值
+	 */
+	private double mean = 0.0;
+	
+	/**
+	 * 离差平方和
+	 */
+	private double m2 = 0.0;
+	
+	/**
+	 * 构造方法（空统计状态）
+	 * @param kind
+	 */
+	public Moments(int kind)
+	{
+		this.kind = kind;
+	}
+	
+	/**
+	 * 构造方法（指定统计状态，反序列化时使用）
+	 * @param kind
+	 * @param count
+	 * @param mean
+	 * @param m2
+	 */
+	public Moments(int kind, long count, double mean, double m2)
+	{
+		this.kind  = kind;
+		this.count = count;
+		this.mean  = mean;
+		this.m2    = m2;
+	}
+	
+	/**
+	 * 输入一个值（统计状态按状态合并，'$count'统计非空值的数量，其他统计忽略非数值）
+	 * @param v
+	 */
+	public void update(Object v)
+	{
+		if (v instanceof Moments)
+		{
+			merge((Moments)v);
+		}
+		else if (kind == COUNT)
+		{
+			if (v != null)
+			{
+				count = count + 1;
+			}
+		}
+		else if (v instanceof Number)
+		{
+			double value = ((Number)v).doubleValue();
+			double delta = value - mean;
+			count = count + 1;
+			mean  = mean + delta / count;
+			m2    = m2 + delta * (value - mean);
+		}
+	}
+	
+	/**
+	 * 合并统计状态
+	 * @param other
+	 */
+	public void merge(Moments other)
+	{
+		if (other.count > 0)
+		{
+			long   total = count + other.count;
+			double delta = other.mean - mean;
+			mean  = mean + delta * other.count / total;
+			m2    = m2 + other.m2 + delta * delta * count * other.count / total;
+			count = total;
+		}
+	}
+	
+	/**
+	 * 复制统计状态
+	 * @return
+	 */
+	public Moments copy()
+	{
+		return new Moments(kind, count, mean, m2);
+	}
+	
+	/**
+	 * 统计类型、样本数量、样本均值以及离差平方和（序列化时使用）
+	 */
+	public int kind()
+	{
+		return kind;
+	}
+	
+	public long count()
+	{
+		return count;
+	}
+	
+	public double mean()
+	{
+		return mean;
+	}
+	
+	public double m2()
+	{
+		return m2;
+	}
+	
+	/**
+	 * 统计结果（没有样本时为 0，方差以及标准差按总体计算）
+	 */
+	@Override
+	public double doubleValue()
+	{
+		switch (kind)
+		{
+		case COUNT:
+			return count;
+		case VAR:
+			return count > 0 ? m2 / count : 0.0;
+		case STDDEV:
+			return count > 0 ? Math.sqrt(m2 / count) : 0.0;
+		default:
+			return count > 0 ? mean : 0.0;
+		}
+	}
+	
+	@Override
+	public int intValue()
+	{
+		return (int)longValue();
+	}
+	
+	@Override
+	public long longValue()
+	{
+		return kind == COUNT ? count : (long)doubleValue();
+	}
+	
+	@Override
+	public float floatValue()
+	{
+		return (float)doubleValue();
+	}
+	
+	@Override
+	public int compareTo(Moments o)
+	{
+		return Double.compare(doubleValue(), o.doubleValue());
+	}
+	
+	@Override
+	public String toString()
+	{
+		return kind == COUNT ? String.valueOf(count) : String.valueOf(doubleValue());
+	}
+}
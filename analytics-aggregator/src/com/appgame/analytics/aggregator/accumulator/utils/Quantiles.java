@@ -0,0 +1,377 @@
+package com.appgame.analytics.aggregator.accumulator.utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * 可合并的分位数估算状态（KLL 压缩器，'$percentile'的分组状态）
+ * 1. 第 h 层的每个样本代表 2^h 个输入值，某层超出容量时排序后隔一取一提升到上一层
+ * 2. 保留的样本数量约为 3k，分位数的秩误差约为 1.7 / k
+ * 3. 作为数值参与后续运算时返回中位数，其他分位数通过'$quantile'表达式读取
+ */
+public class Quantiles extends Number implements Comparable<Quantiles>
+{
+	private static final long serialVersionUID = 1L;
+	
+	/**
+	 * 默认精度参数（最上层压缩器的容量）
+	 */
+	public static final int DEFAULT_K = 200;
+	
+	/**
+	 * 随机数（决定压缩时保留奇数位或者偶数位的样本）
+	 */
+	private static final Random random = new Random();
+	
+	/**
+	 * 精度参数
+	 */
+	private final int k;
+	
+	/**
+	 * 输入值数量、最小值以及最大值
+	 */
+	private long   count = 0;
+	private double min   = Double.NaN;
+	private double max   = Double.NaN;
+	
+	/**
+	 * 各层压缩器的样本以及样本数量
+	 */
+	private List<double[]> levels = new ArrayList<double[]>();
+	private List<Integer>  sizes  = new ArrayList<Integer>();
+	
+	/**
+	 * 保留的样本总数
+	 */
+	private int retained = 0;
+	
+	/**
+	 * 构造方法（空状态）
+	 * @param k
+	 */
+	public Quantiles(int k)
+	{
+		this.k = Math.max(8, k);
+		this.levels.add(new double[this.k]);
+		this.sizes.add(0);
+	}
+	
+	/**
+	 * 构造方法（指定状态，反序列化时使用）
+	 * @param k
+	 * @param count
+	 * @param min
+	 * @param max
+	 * @param levels
+	 */
+	public Quantiles(int k, long count, double min, double max, List<double[]> levels)
+	{
+		this.k     = k;
+		this.count = count;
+		this.min   = min;
+		this.max   = max;
+		for (double[] level : levels)
+		{
+			this.levels.add(level.length > 0 ? level : new double[2]);
+			this.sizes.add(level.length);
+			this.retained = this.retained + level.length;
+		}
+		if (this.levels.isEmpty())
+		{
+			this.levels.add(new double[this.k]);
+			this.sizes.add(0);
+		}
+	}
+	
+	/**
+	 * 第 h 层压缩器的容量（越低的层容量越小）
+	 */
+	private int capacity(int h)
+	{
+		int depth = levels.size() - h - 1;
+		return Math.max(2, (int)Math.ceil(k * Math.pow(2.0 / 3.0, depth)));
+	}
+	
+	/**
+	 * 全部压缩器的容量之和
+	 */
+	private int capacity()
+	{
+		int total = 0;
+		for (int h = 0; h < levels.size(); h++)
+		{
+			total = total + capacity(h);
+		}
+		return total;
+	}
+	
+	/**
+	 * 向第 h 层追加一个样本（缺少的层依次补齐，合并时对方的中间层可能为空）
+	 */
+	private void append(int h, double v)
+	{
+		while (h >= levels.size())
+		{
+			levels.add(new double[capacity(h)]);
+			sizes.add(0);
+		}
+		double[] level = levels.get(h);
+		int      size  = sizes.get(h);
+		if (size >= level.length)
+		{
+			level = Arrays.copyOf(level, Math.max(2, level.length * 2));
+			levels.set(h, level);
+		}
+		level[size] = v;
+		sizes.set(h, size + 1);
+		retained = retained + 1;
+	}
+	
+	/**
+	 * 压缩超出容量的最低层，直到样本总数不超过总容量
+	 */
+	private void compress()
+	{
+		while (retained > capacity())
+		{
+			for (int h = 0; h < levels.size(); h++)
+			{
+				int size = sizes.get(h);
+				if (size >= capacity(h))
+				{
+					double[] level = levels.get(h);
+					Arrays.sort(level, 0, size);
+					// 样本数量为奇数时保留第一个样本
+					int from   = size % 2;
+					int offset = random.nextBoolean() ? 1 : 0;
+					for (int i = from + offset; i < size; i = i + 2)
+					{
+						append(h + 1, level[i]);
+					}
+					retained = retained - (size - from);
+					sizes.set(h, from);
+					break;
+				}
+			}
+		}
+	}
+	
+	/**
+	 * 输入一个数值
+	 * @param v
+	 */
+	public void add(double v)
+	{
+		if (Double.isNaN(v))
+		{
+			return;
+		}
+		count = count + 1;
+		min   = Double.isNaN(min) ? v : Math.min(min, v);
+		max   = Double.isNaN(max) ? v : Math.max(max, v);
+		append(0, v);
+		if (retained > capacity())
+		{
+			compress();
+		}
+	}
+	
+	/**
+	 * 输入一个值（分位数状态直接合并，集合逐个输入元素，忽略非数值）
+	 * @param v
+	 */
+	@SuppressWarnings("rawtypes")
+	public void update(Object v)
+	{
+		if (v instanceof Quantiles)
+		{
+			merge((Quantiles)v);
+		}
+		else if (v instanceof Collection)
+		{
+			for (Object o : (Collection)v)
+			{
+				update(o);
+			}
+		}
+		else if (v instanceof Number)
+		{
+			add(((Number)v).doubleValue());
+		}
+	}
+	
+	/**
+	 * 合并分位数状态（同层样本合并后重新压缩）
+	 * @param other
+	 */
+	public void merge(Quantiles other)
+	{
+		if (other.count == 0)
+		{
+			return;
+		}
+		for (int h = 0; h < other.levels.size(); h++)
+		{
+			double[] level = other.levels.get(h);
+			for (int i = 0; i < other.sizes.get(h); i++)
+			{
+				append(h, level[i]);
+			}
+		}
+		count = count + other.count;
+		min   = Double.isNaN(min) ? other.min : Math.min(min, other.min);
+		max   = Double.isNaN(max) ? other.max : Math.max(max, other.max);
+		compress();
+	}
+	
+	/**
+	 * 复制分位数状态
+	 * @return
+	 */
+	public Quantiles copy()
+	{
+		return new Quantiles(k, count, min, max, levels());
+	}
+	
+	/**
+	 * 估算分位数（q 取值 0 ~ 1，没有输入值时返回 NaN）
+	 * @param q
+	 * @return
+	 */
+	public double quantile(double q)
+	{
+		if (count == 0)
+		{
+			return Double.NaN;
+		}
+		if (q <= 0)
+		{
+			return min;
+		}
+		if (q >= 1)
+		{
+			return max;
+		}
+		// 按样本值排序，按样本权重累计到目标秩
+		double[]  values  = new double[retained];
+		long[]    weights = new long[retained];
+		Integer[] order   = new Integer[retained];
+		int       n       = 0;
+		long      total   = 0;
+		for (int h = 0; h < levels.size(); h++)
+		{
+			double[] level = levels.get(h);
+			for (int i = 0; i < sizes.get(h); i++)
+			{
+				values[n]  = level[i];
+				weights[n] = 1L << h;
+				order[n]   = n;
+				total      = total + weights[n];
+				n = n + 1;
+			}
+		}
+		final double[] keys = values;
+		Arrays.sort(order, 0, n, new Comparator<Integer>()
+		{
+			@Override
+			public int compare(Integer i1, Integer i2)
+			{
+				return Double.compare(keys[i1], keys[i2]);
+			}
+		});
+		double target     = q * total;
+		long   cumulative = 0;
+		for (int i = 0; i < n; i++)
+		{
+			cumulative = cumulative + weights[order[i]];
+			if (cumulative >= target)
+			{
+				return values[order[i]];
+			}
+		}
+		return max;
+	}
+	
+	/**
+	 * 精度参数、输入值数量、最小值、最大值以及各层样本（序列化时使用）
+	 */
+	public int k()
+	{
+		return k;
+	}
+	
+	public long count()
+	{
+		return count;
+	}
+	
+	public double min()
+	{
+		return min;
+	}
+	
+	public double max()
+	{
+		return max;
+	}
+	
+	public List<double[]> levels()
+	{
+		List<double[]> result = new ArrayList<double[]>(levels.size());
+		for (int h = 0; h < levels.size(); h++)
+		{
+			result.add(Arrays.copyOf(levels.get(h), sizes.get(h)));
+		}
+		return result;
+	}
+	
+	/**
+	 * 保留的样本数量
+	 * @return
+	 */
+	public int retained()
+	{
+		return retained;
+	}
+	
+	@Override
+	public double doubleValue()
+	{
+		return quantile(0.5);
+	}
+	
+	@Override
+	public long longValue()
+	{
+		return (long)doubleValue();
+	}
+	
+	@Override
+	public int intValue()
+	{
+		return (int)doubleValue();
+	}
+	
+	@Override
+	public float floatValue()
+	{
+		return (float)doubleValue();
+	}
+	
+	@Override
+	public int compareTo(Quantiles o)
+	{
+		return Double.compare(doubleValue(), o.doubleValue());
+	}
+	
+	@Override
+	public String toString()
+	{
+		return String.valueOf(doubleValue());
+	}
+}
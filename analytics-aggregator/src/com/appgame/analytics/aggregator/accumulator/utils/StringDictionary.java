@@ -0,0 +1,91 @@
+package com.appgame.analytics.aggregator.accumulator.utils;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.hadoop.hbase.util.Bytes;
+
+/**
+ * 字符串字典（单次聚合内将字节数组编码为连续的整数，输出结果时再解码为字符串）
+ * 分组条件按整数编码进行哈希以及比较，避免逐条转换字符串；字典只保存字节数组，解码时才转换为字符串
+ */
+public class StringDictionary
+{
+	/**
+	 * 字节数组 -> 编码
+	 */
+	private Map<ByteBuffer, Integer> codes = new HashMap<ByteBuffer, Integer>();
+	
+	/**
+	 * 编码 -> 字节数组（与哈希表的关键字共享同一个数组）
+	 */
+	private List<byte[]> values = new ArrayList<byte[]>();
+	
+	/**
+	 * 字典的估算大小（字节）
+	 */
+	private long bytes = 0;
+	
+	/**
+	 * 字节数组编码（首次出现时分配新的编码）
+	 * @param v
+	 * @return
+	 */
+	public Integer encode(byte[] v)
+	{
+		Integer code = codes.get(ByteBuffer.wrap(v));
+		if (code == null)
+		{
+			// 复制字节数组，避免引用输入数据的缓冲区
+			byte[] copy = Arrays.copyOf(v, v.length);
+			code = values.size();
+			values.add(copy);
+			codes.put(ByteBuffer.wrap(copy), code);
+			// 哈希表节点 + 字节缓冲区 + 编码 + 字节数组 + 列表引用
+			bytes = bytes + 48 + 48 + 16 + AccumulatorUtils.sizeof(copy) + 8;
+		}
+		return code;
+	}
+	
+	/**
+	 * 编码解码为字符串
+	 * @param code
+	 * @return
+	 */
+	public String decode(int code)
+	{
+		return Bytes.toString(values.get(code));
+	}
+	
+	/**
+	 * 清空字典（分组数据溢出后，溢出记录已经保存解码后的字符串，此后从 0 开始重新编码）
+	 */
+	public void clear()
+	{
+		codes.clear();
+		values.clear();
+		bytes = 0;
+	}
+	
+	/**
+	 * 返回字典内的编码数量
+	 * @return
+	 */
+	public int size()
+	{
+		return values.size();
+	}
+	
+	/**
+	 * 返回字典的估算大小
+	 * @return
+	 */
+	public long bytes()
+	{
+		return bytes;
+	}
+}
@@ -6,6 +6,7 @@ import java.io.IOException;
 import java.lang.reflect.Field;
 import java.security.PrivilegedExceptionAction;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import org.apache.hadoop.conf.Configuration;
@@ -25,12 +26,16 @@ import org.codehaus.jettison.json.JSONObject;
 import org.xerial.snappy.SnappyInputStream;
 
 import com.appgame.analytics.aggregator.accumulator.Accumulator;
+import com.appgame.analytics.aggregator.accumulator.AccumulatorConfig;
 import com.appgame.analytics.aggregator.accumulator.collection.AccumulatorCollection;
 import com.appgame.analytics.aggregator.protobuf.generated.AggregateProtos;
-import com.appgame.analytics.aggregator.protobuf.generated.AggregateProtos.AggregateResponse;
 import com.appgame.analytics.aggregator.protobuf.generated.AggregateProtos.AggregateService;
+import com.appgame.analytics.aggregator.protobuf.generated.AggregateProtos.CursorRequest;
+import com.appgame.analytics.aggregator.protobuf.generated.AggregateProtos.CursorResponse;
+import com.appgame.analytics.aggregator.utils.AggregateTimeoutException;
 import com.appgame.analytics.aggregator.utils.AggregatorUtils;
 import com.appgame.analytics.aggregator.utils.ObjectInputStream;
+import com.google.protobuf.ByteString;
 
 public class AggregatorClient implements Closeable
 {
@@ -44,6 +49,18 @@ public class AggregatorClient implements Closeable
 	 */
 	private static String AGGREGATE_TIMEOUT_KEY   = "hbase.thrift.aggregate.timeout.ms";
 	private static long   AGGREGATE_TIMEOUT_VALUE = 120000;
+
+	/**
+	 * 区域内并行扫描线程数配置项（实际线程数受 RegionServer 配置上限约束）
+	 */
+	private static String AGGREGATE_PARALLELISM_KEY   = "hbase.thrift.aggregate.parallelism";
+	private static int    AGGREGATE_PARALLELISM_VALUE = 1;
+
+	/**
+	 * 聚合操作内存预算配置项（字节，0 表示使用 RegionServer 默认预算）
+	 */
+	private static String AGGREGATE_MEMORY_KEY   = "hbase.thrift.aggregate.memory.bytes";
+	private static long   AGGREGATE_MEMORY_VALUE = 0;
 	
 	/**
 	 * 连接器
@@ -55,6 +72,11 @@ public class AggregatorClient implements Closeable
 	 */
 	private Configuration config = null;
 	
+	/**
+	 * 客户端累积器配置
+	 */
+	private AccumulatorConfig settings = AccumulatorConfig.DEFAULT;
+	
 	/**
 	 * 构造方法
 	 * @param config
@@ -64,6 +86,7 @@ public class AggregatorClient implements Closeable
 		try
 		{
 			this.config     = config;
+			this.settings   = new AccumulatorConfig(config);
 			this.connection = ConnectionFactory.createConnection(config);
 		}
 		catch(Exception e)
@@ -82,6 +105,7 @@ public class AggregatorClient implements Closeable
 		try
 		{
 			this.config     = config;
+			this.settings   = new AccumulatorConfig(config);
 			this.connection = User.create(UserGroupInformation.createRemoteUser(uname)).runAs(new PrivilegedExceptionAction<Connection>()
 			{
 				public Connection run() throws Exception
@@ -110,7 +134,7 @@ public class AggregatorClient implements Closeable
 	/**
 	 * 服务端回调类型
 	 */
-	private class AggregateCallback implements Batch.Callback<AggregateResponse>
+	private class AggregateCallback implements Batch.Callback<CursorResponse>
 	{
 		/**
 		 * 客户端累积器
@@ -118,48 +142,109 @@ public class AggregatorClient implements Closeable
 		private Accumulator accumulator = null;
 		
 		/**
-		 * 构造方法（指定客户端累积器）
+		 * 构造方法（指定客户端累积器以及客户端分组的抽样率）
 		 * @param client
+		 * @param sample
 		 * @throws Exception
 		 */
-		public AggregateCallback(String client) throws Exception
+		public AggregateCallback(String client, double sample) throws Exception
 		{
-			this.accumulator = Accumulator.build(client);
+			this.accumulator = Accumulator.build(client, settings, sample);
 		}
 		
 		/**
-		 * 获得聚合结果
+		 * 获得聚合结果（关闭聚合结果时关闭客户端累积器，删除客户端产生的溢出文件）
 		 * @return
 		 * @throws Exception
 		 */
 		public AccumulatorCollection get() throws Exception
 		{
-			return accumulator.get();
+			final AccumulatorCollection values = accumulator.get();
+			return new AccumulatorCollection()
+			{
+				@Override
+				public Iterator<Map<String, Object>> iterator()
+				{
+					return values.iterator();
+				}
+				
+				@Override
+				public int size()
+				{
+					return values.size();
+				}
+				
+				@Override
+				public long bytes()
+				{
+					return values.bytes();
+				}
+				
+				@Override
+				public void close() throws IOException
+				{
+					AggregateCallback.this.close();
+				}
+			};
+		}
+		
+		/**
+		 * 关闭客户端累积器
+		 * @throws IOException
+		 */
+		public void close() throws IOException
+		{
+			try
+			{
+				accumulator.close();
+			}
+			catch (Exception e)
+			{
+				throw e instanceof IOException ? (IOException)e : new IOException(e);
+			}
 		}
 
 		/**
-		 * RegionService 返回数据处理
-		 * @param region
-		 * @param row
-		 * @param result
+		 * 处理一个数据块（格式必须与服务端数据序列化逻辑相匹配）
+		 * @param data
+		 * @throws Exception
 		 */
 		@SuppressWarnings("unchecked")
-		@Override
-		public synchronized void update(byte[] region, byte[] row, AggregateResponse response)
+		public synchronized void update(ByteString data) throws Exception
 		{
-			//　数据转换（必须与服务端数据序列化逻辑相匹配）
+			ByteArrayInputStream bis = new ByteArrayInputStream(data.toByteArray());
+			SnappyInputStream    sis = new SnappyInputStream(bis);
+			ObjectInputStream    ois = new ObjectInputStream(sis);
 			try
 			{
-				ByteArrayInputStream bis = new ByteArrayInputStream(response.getData().toByteArray());
-				SnappyInputStream    sis = new SnappyInputStream(bis);
-				ObjectInputStream    ois = new ObjectInputStream(sis);
 				int size = ois.readInt();
 				for (int i = 0; i < size; i++)
 				{
 					accumulator.put((Map<String, Object>)ois.readObject());
 				}
+			}
+			finally
+			{
 				ois.close();
 			}
+		}
+
+		/**
+		 * RegionService 返回数据处理（数据块在游标读取过程中已经处理，这里只处理附带数据的应答）
+		 * @param region
+		 * @param row
+		 * @param result
+		 */
+		@Override
+		public void update(byte[] region, byte[] row, CursorResponse response)
+		{
+			try
+			{
+				if (response.hasData())
+				{
+					update(response.getData());
+				}
+			}
 			catch (Exception e)
 			{
 				log.error(e.getMessage(), e);
@@ -249,13 +334,15 @@ public class AggregatorClient implements Closeable
 	 * @param scans
 	 * @param client
 	 * @param server
+	 * @param sample
+	 * @param grouped 服务端是否包含'$group'（不包含时由客户端的'$group'按抽样率放大）
 	 * @return
 	 * @throws Throwable
 	 */
-	private AccumulatorCollection aggregate(Table table, List<Scan> scans, String client, String server) throws Throwable
+	private AccumulatorCollection aggregate(Table table, List<Scan> scans, String client, String server, double sample, boolean grouped) throws Throwable
 	{
 		// 构造客户端聚合回调
-		AggregateCallback callback = new AggregateCallback(client);
+		final AggregateCallback callback = new AggregateCallback(client, grouped ? 1.0 : sample);
 		
 		// 聚合操作同步锁管理对象
 		final AggregateLock lock = new AggregateLock();
@@ -267,60 +354,106 @@ public class AggregatorClient implements Closeable
 			builder.addScans(AggregatorUtils.scan(scan));
 		}
 		builder.setPipes(server);
+		builder.setParallelism(config.getInt(AGGREGATE_PARALLELISM_KEY, AGGREGATE_PARALLELISM_VALUE));
+		builder.setMemory(config.getLong(AGGREGATE_MEMORY_KEY, AGGREGATE_MEMORY_VALUE));
+		builder.setSample(sample);
 		
-		// 聚合操作计时
-		final long timeout = config.getLong(AGGREGATE_TIMEOUT_KEY, AGGREGATE_TIMEOUT_VALUE);
-		final long origin  = System.currentTimeMillis();
-		// 执行聚合操作
-		table.coprocessorService(AggregateService.class, null, null, new Batch.Call<AggregateService, AggregateResponse>()
+		// 聚合操作计时（截止时间随聚合请求传递到服务端，服务端超过截止时间后终止聚合操作）
+		final long timeout  = config.getLong(AGGREGATE_TIMEOUT_KEY, AGGREGATE_TIMEOUT_VALUE);
+		final long deadline = System.currentTimeMillis() + timeout;
+		builder.setDeadline(deadline);
+		// 执行聚合操作（通过游标分块读取聚合结果，每个数据块到达时即推送到客户端累积器，失败时关闭客户端累积器）
+		try
 		{
-			@Override
-			public AggregateResponse call(AggregateService instance) throws IOException
+			table.coprocessorService(AggregateService.class, null, null, new Batch.Call<AggregateService, CursorResponse>()
 			{
-				// RPC控制器
-				ServerRpcController controller = new ServerRpcController();
-				// RPC回调方法
-				BlockingRpcCallback<AggregateResponse> rcb = new BlockingRpcCallback<AggregateResponse>();
-				
-				// 定位同步锁并锁定聚合操作
-				synchronized(lock.location(instance))
+				/**
+				 * 超时检查
+				 */
+				private void timeout() throws AggregateTimeoutException
+				{
+					if (System.currentTimeMillis() >= deadline)
+					{
+						throw new AggregateTimeoutException(String.format("aggregate timeout!![%d ms]", timeout));
+					}
+				}
+
+				/**
+				 * 检查 RPC 调用结果
+				 */
+				private CursorResponse get(ServerRpcController controller, BlockingRpcCallback<CursorResponse> rcb) throws IOException
 				{
-					// 超时检查(伪,仅仅判断线程开始工作时是否超时)
-					if (System.currentTimeMillis() - origin >= timeout)
+					if (controller.failedOnException())
 					{
-						throw new IOException("aggregate timeout!!");
+						throw controller.getFailedOn();
 					}
 					else
 					{
-						long start = System.currentTimeMillis();
-						log.info(String.format("----aggregate[%d] - start", Thread.currentThread().getId()));
-						instance.aggregate(controller, builder.build(), rcb);
-						log.info(String.format("----aggregate[%d] - over = %d", Thread.currentThread().getId(), System.currentTimeMillis() - start));
+						try
+						{
+							return rcb.get();
+						}
+						catch (Exception e)
+						{
+							throw new IOException(e);
+						}
 					}
 				}
-				// 处理返回结果
-				if (controller.failedOnException())
-				{
-					throw controller.getFailedOn();
-				}
-				else
+
+				@Override
+				public CursorResponse call(AggregateService instance) throws IOException
 				{
-					try
-					{
-						return rcb.get();
-					}
-					catch (Exception e)
+					// 定位同步锁并锁定聚合操作
+					synchronized(lock.location(instance))
 					{
-						throw new IOException(e);
+						// 超时检查(等待同步锁期间可能已经超时)
+						timeout();
+						long start = System.currentTimeMillis();
+						log.info(String.format("----aggregate[%d] - start", Thread.currentThread().getId()));
+						// 打开游标并读取第一个数据块
+						ServerRpcController                 controller = new ServerRpcController();
+						BlockingRpcCallback<CursorResponse> rcb        = new BlockingRpcCallback<CursorResponse>();
+						instance.open(controller, builder.build(), rcb);
+						CursorResponse response = get(controller, rcb);
+						try
+						{
+							while (true)
+							{
+								callback.update(response.getData());
+								if (!response.getMore())
+								{
+									break;
+								}
+								// 读取下一个数据块
+								timeout();
+								controller = new ServerRpcController();
+								rcb        = new BlockingRpcCallback<CursorResponse>();
+								instance.next(controller, CursorRequest.newBuilder().setCursor(response.getCursor()).build(), rcb);
+								response = get(controller, rcb);
+							}
+						}
+						catch (Exception e)
+						{
+							// 读取失败时关闭游标（释放服务端持有的聚合结果）
+							instance.close(new ServerRpcController(), CursorRequest.newBuilder().setCursor(response.getCursor()).build(), new BlockingRpcCallback<CursorResponse>());
+							throw e instanceof IOException ? (IOException)e : new IOException(e);
+						}
+						log.info(String.format("----aggregate[%d] - over = %d", Thread.currentThread().getId(), System.currentTimeMillis() - start));
+						return CursorResponse.newBuilder().setCursor(response.getCursor()).setMore(false).build();
 					}
 				}
-			}
-		}, callback);
+			}, callback);
+		}
+		catch (Throwable e)
+		{
+			callback.close();
+			throw e;
+		}
 		return callback.get();
 	}
 	
 	/**
-	 * 聚合操作入口
+	 * 聚合操作入口（{ $server : [...], $client : [...], $sample : <rate> }，抽样率可选；调用方读取完毕后关闭聚合结果）
 	 * @param tablename
 	 * @param scans
 	 * @param commands
@@ -340,7 +473,18 @@ public class AggregatorClient implements Closeable
 		{
 			throw new Exception("{ { $server : [{<stage>}, ...] }, { $client : [{<stage>}, ...] } } - must contain [$server] section!!");
 		}
-		return aggregate(connection.getTable(TableName.valueOf(tablename)), scans, jclient.toString(), jserver.toString());
+		// 抽样率（可选，服务端按行键哈希抽样，'$sum'、'$count'按抽样率放大并附带置信区间）
+		double sample = json.has("$sample") ? json.getDouble("$sample") : 1.0;
+		if (!(sample > 0.0 && sample <= 1.0))
+		{
+			throw new Exception(String.format("{ $sample : <rate> } - rate must be in (0, 1], got [%s]!!", json.get("$sample")));
+		}
+		boolean grouped = false;
+		for (int i = 0; i < jserver.length(); i++)
+		{
+			grouped = grouped || jserver.getJSONObject(i).has("$group");
+		}
+		return aggregate(connection.getTable(TableName.valueOf(tablename)), scans, jclient.toString(), jserver.toString(), sample, grouped);
 	}
 
 }
@@ -2,51 +2,232 @@ package com.appgame.analytics.aggregator.coprocessor;
 
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.HashMap;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 
+import javax.management.ObjectName;
+
+import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.hbase.Cell;
-import org.apache.hadoop.hbase.Coprocessor;
 import org.apache.hadoop.hbase.CoprocessorEnvironment;
 import org.apache.hadoop.hbase.DoNotRetryIOException;
+import org.apache.hadoop.hbase.client.Append;
+import org.apache.hadoop.hbase.client.Increment;
+import org.apache.hadoop.hbase.client.Mutation;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.coprocessor.BaseRegionObserver;
 import org.apache.hadoop.hbase.coprocessor.CoprocessorException;
 import org.apache.hadoop.hbase.coprocessor.CoprocessorService;
+import org.apache.hadoop.hbase.coprocessor.ObserverContext;
 import org.apache.hadoop.hbase.coprocessor.RegionCoprocessorEnvironment;
 import org.apache.hadoop.hbase.protobuf.ResponseConverter;
+import org.apache.hadoop.hbase.regionserver.HRegion;
 import org.apache.hadoop.hbase.regionserver.InternalScanner;
+import org.apache.hadoop.hbase.regionserver.MiniBatchOperationInProgress;
+import org.apache.hadoop.hbase.regionserver.Store;
+import org.apache.hadoop.hbase.regionserver.StoreFile;
 import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.hadoop.hbase.util.Pair;
+import org.apache.hadoop.metrics2.util.MBeans;
 import org.apache.log4j.Logger;
 import org.xerial.snappy.SnappyOutputStream;
 
 import com.appgame.analytics.aggregator.accumulator.Accumulator;
+import com.appgame.analytics.aggregator.accumulator.AccumulatorBatchException;
+import com.appgame.analytics.aggregator.accumulator.AccumulatorConfig;
 import com.appgame.analytics.aggregator.accumulator.collection.AccumulatorCollection;
 import com.appgame.analytics.aggregator.protobuf.generated.AggregateProtos;
 import com.appgame.analytics.aggregator.protobuf.generated.AggregateProtos.AggregateRequest;
 import com.appgame.analytics.aggregator.protobuf.generated.AggregateProtos.AggregateResponse;
 import com.appgame.analytics.aggregator.protobuf.generated.AggregateProtos.AggregateService;
+import com.appgame.analytics.aggregator.protobuf.generated.AggregateProtos.CursorRequest;
+import com.appgame.analytics.aggregator.protobuf.generated.AggregateProtos.CursorResponse;
+import com.appgame.analytics.aggregator.utils.AggregateTimeoutException;
 import com.appgame.analytics.aggregator.utils.AggregatorUtils;
+import com.appgame.analytics.aggregator.utils.CellMap;
 import com.appgame.analytics.aggregator.utils.MemoryChecker;
+import com.appgame.analytics.aggregator.utils.MemoryPool;
+import com.appgame.analytics.aggregator.utils.NameCache;
 import com.appgame.analytics.aggregator.utils.ObjectOutputStream;
+import com.appgame.analytics.aggregator.utils.ResultCache;
+import com.google.common.collect.Iterables;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.protobuf.ByteString;
 import com.google.protobuf.RpcCallback;
 import com.google.protobuf.RpcController;
 import com.google.protobuf.Service;
 import com.google.protobuf.ByteString.Output;
 
-public class Aggregator extends AggregateService implements CoprocessorService, Coprocessor
+/**
+ * 聚合协处理器（同时作为区域观察者，区域数据变化时清理聚合结果缓存）
+ */
+public class Aggregator extends BaseRegionObserver implements CoprocessorService
 {
 	/**
 	 * 日志记录器
 	 */
 	private static Logger log = Logger.getLogger(Aggregator.class);
+
+	/**
+	 * 区域内并行扫描线程数上限配置项（同一个 RegionServer 上的全部区域共享扫描线程池）
+	 */
+	private static String AGGREGATE_PARALLELISM_KEY   = "hbase.coprocessor.aggregate.parallelism.max";
+	private static int    AGGREGATE_PARALLELISM_VALUE = Runtime.getRuntime().availableProcessors();
+
+	/**
+	 * 扫描线程池配置项（RegionServer 级别，全部区域共享；线程数以及等待队列长度，队列已满时由请求线程直接执行扫描任务）
+	 */
+	private static String AGGREGATE_THREADS_KEY   = "hbase.coprocessor.aggregate.scanner.threads";
+	private static int    AGGREGATE_THREADS_VALUE = Runtime.getRuntime().availableProcessors();
+	private static String AGGREGATE_QUEUE_KEY     = "hbase.coprocessor.aggregate.scanner.queue";
+	private static int    AGGREGATE_QUEUE_VALUE   = 256;
+	
+	/**
+	 * 扫描结果推送到累积器的批次大小
+	 */
+	private static final int BATCH_SIZE = 1024;
+
+	/**
+	 * 扫描线程池
+	 */
+	private static ExecutorService executor = null;
+
+	/**
+	 * 游标清理线程（定期清理全部区域超过租约的游标，避免游标在没有后续请求时一直持有内存以及溢出文件）
+	 */
+	private static ScheduledExecutorService sweeper = null;
+
+	/**
+	 * 游标数据块大小配置项（未压缩字节数）
+	 */
+	private static String AGGREGATE_CHUNK_KEY   = "hbase.coprocessor.aggregate.chunk.bytes";
+	private static int    AGGREGATE_CHUNK_VALUE = 4 * 1024 * 1024;
+
+	/**
+	 * 游标租约配置项（超过租约时间未访问的游标被清理）
+	 */
+	private static String AGGREGATE_LEASE_KEY   = "hbase.coprocessor.aggregate.cursor.lease.ms";
+	private static long   AGGREGATE_LEASE_VALUE = 60000;
+
+	/**
+	 * 聚合结果缓存配置项（缓存项数量上限，0 表示不缓存；单个缓存项的压缩数据大小上限）
+	 */
+	private static String AGGREGATE_CACHE_SIZE_KEY    = "hbase.coprocessor.aggregate.cache.size";
+	private static int    AGGREGATE_CACHE_SIZE_VALUE  = 32;
+	private static String AGGREGATE_CACHE_BYTES_KEY   = "hbase.coprocessor.aggregate.cache.entry.bytes";
+	private static long   AGGREGATE_CACHE_BYTES_VALUE = 1024 * 1024;
+
+	/**
+	 * 聚合内存配置项（RegionServer 聚合内存池容量；单个聚合操作的默认内存预算，同时也是聚合请求可以指定的预算上限；
+	 * 聚合请求未指定预算时开始扫描前预留的最小内存；开始扫描前内存池剩余内存不足时的等待时间）
+	 */
+	private static String AGGREGATE_MEMORY_POOL_KEY    = "hbase.coprocessor.aggregate.memory.pool.bytes";
+	private static double AGGREGATE_MEMORY_POOL_RATIO  = 0.3;
+	private static String AGGREGATE_MEMORY_QUERY_KEY   = "hbase.coprocessor.aggregate.memory.query.bytes";
+	private static long   AGGREGATE_MEMORY_QUERY_VALUE = 256 * 1024 * 1024;
+	private static String AGGREGATE_MEMORY_RESERVE_KEY   = "hbase.coprocessor.aggregate.memory.reserve.bytes";
+	private static long   AGGREGATE_MEMORY_RESERVE_VALUE = 32 * 1024 * 1024;
+	private static String AGGREGATE_MEMORY_WAIT_KEY    = "hbase.coprocessor.aggregate.memory.wait.ms";
+	private static long   AGGREGATE_MEMORY_WAIT_VALUE  = 10000;
+
+	/**
+	 * 内存分段预留的大小（实际使用量超过开始时预留的内存后逐段向内存池追加预留，直到内存预算）
+	 */
+	private static final long RESERVE_CHUNK = 8 * 1024 * 1024;
+
+	/**
+	 * 聚合内存池
+	 */
+	private static MemoryPool pool = null;
+
+	/**
+	 * 游标编号序列
+	 */
+	private static AtomicLong sequence = new AtomicLong(System.currentTimeMillis());
 	
 	/**
 	 * RegionServer 环境
 	 */
 	private RegionCoprocessorEnvironment env;
+
+	/**
+	 * 区域内并行扫描线程数上限
+	 */
+	private int parallelism = 1;
+
+	/**
+	 * 名称缓存（列族以及字段名称的规范实例，当前区域的全部扫描过程共享）
+	 */
+	private final NameCache names = new NameCache();
+
+	/**
+	 * 游标数据块大小
+	 */
+	private int chunk = AGGREGATE_CHUNK_VALUE;
+
+	/**
+	 * 游标租约时间
+	 */
+	private long lease = AGGREGATE_LEASE_VALUE;
+
+	/**
+	 * 当前区域打开的游标集合
+	 */
+	private final Map<Long, Cursor> cursors = new ConcurrentHashMap<Long, Cursor>();
+
+	/**
+	 * 当前区域的游标清理任务
+	 */
+	private ScheduledFuture<?> sweep = null;
+
+	/**
+	 * 聚合结果缓存（当前区域）
+	 */
+	private ResultCache cache = null;
+
+	/**
+	 * 聚合结果缓存的 JMX 注册名称（RegionServer 停止或者区域关闭时注销）
+	 */
+	private ObjectName mbean = null;
+
+	/**
+	 * 单个聚合操作的内存预算
+	 */
+	private long budget = AGGREGATE_MEMORY_QUERY_VALUE;
+
+	/**
+	 * 聚合请求未指定内存预算时开始扫描前预留的内存
+	 */
+	private long minimum = AGGREGATE_MEMORY_RESERVE_VALUE;
+
+	/**
+	 * 开始扫描前内存池剩余内存不足时的等待时间（扫描过程中追加预留不等待）
+	 */
+	private long wait = AGGREGATE_MEMORY_WAIT_VALUE;
+
+	/**
+	 * 累积器配置（当前区域的聚合查询共享，构造累积器时传入）
+	 */
+	private AccumulatorConfig config = AccumulatorConfig.DEFAULT;
 	
 	/**
 	 * RegionServer 启动
@@ -56,7 +237,56 @@ public class Aggregator extends AggregateService implements CoprocessorService,
 	{
 		if (env instanceof RegionCoprocessorEnvironment)
 		{
-			this.env = (RegionCoprocessorEnvironment)env;
+			this.env         = (RegionCoprocessorEnvironment)env;
+			this.parallelism = Math.max(1, env.getConfiguration().getInt(AGGREGATE_PARALLELISM_KEY, AGGREGATE_PARALLELISM_VALUE));
+			this.chunk       = env.getConfiguration().getInt (AGGREGATE_CHUNK_KEY, AGGREGATE_CHUNK_VALUE);
+			this.lease       = env.getConfiguration().getLong(AGGREGATE_LEASE_KEY, AGGREGATE_LEASE_VALUE);
+			this.cache       = new ResultCache(env.getConfiguration().getInt (AGGREGATE_CACHE_SIZE_KEY , AGGREGATE_CACHE_SIZE_VALUE ),
+											   env.getConfiguration().getLong(AGGREGATE_CACHE_BYTES_KEY, AGGREGATE_CACHE_BYTES_VALUE));
+			this.budget      = env.getConfiguration().getLong(AGGREGATE_MEMORY_QUERY_KEY, AGGREGATE_MEMORY_QUERY_VALUE);
+			this.minimum     = env.getConfiguration().getLong(AGGREGATE_MEMORY_RESERVE_KEY, AGGREGATE_MEMORY_RESERVE_VALUE);
+			this.wait        = env.getConfiguration().getLong(AGGREGATE_MEMORY_WAIT_KEY, AGGREGATE_MEMORY_WAIT_VALUE);
+			this.mbean       = MBeans.register("HBase", "AggregateCache-" + this.env.getRegionInfo().getEncodedName(), cache);
+			this.config      = new AccumulatorConfig(env.getConfiguration());
+			// 内存池以及线程池由 RegionServer 级别的配置决定，与首个加载协处理器的区域（表级配置）无关
+			Configuration server = this.env.getRegionServerServices() != null ? this.env.getRegionServerServices().getConfiguration() : env.getConfiguration();
+			synchronized(Aggregator.class)
+			{
+				if (pool == null)
+				{
+					pool = new MemoryPool(server.getLong(AGGREGATE_MEMORY_POOL_KEY, (long)(Runtime.getRuntime().maxMemory() * AGGREGATE_MEMORY_POOL_RATIO)));
+				}
+				if (executor == null)
+				{
+					int threads = Math.max(1, server.getInt(AGGREGATE_THREADS_KEY, AGGREGATE_THREADS_VALUE));
+					executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+													  new ArrayBlockingQueue<Runnable>(Math.max(1, server.getInt(AGGREGATE_QUEUE_KEY, AGGREGATE_QUEUE_VALUE))),
+													  new ThreadFactoryBuilder().setDaemon(true).setNameFormat("aggregate-scanner-%d").build(),
+													  new ThreadPoolExecutor.CallerRunsPolicy());
+					((ThreadPoolExecutor)executor).allowCoreThreadTimeOut(true);
+				}
+				if (sweeper == null)
+				{
+					sweeper = new ScheduledThreadPoolExecutor(1, new ThreadFactoryBuilder().setDaemon(true).setNameFormat("aggregate-sweeper-%d").build());
+				}
+			}
+			long period = Math.max(1000, lease / 2);
+			this.sweep  = sweeper.scheduleWithFixedDelay(new Runnable()
+			{
+				@Override
+				public void run()
+				{
+					try
+					{
+						expire();
+					}
+					catch (Throwable e)
+					{
+						// 异常会终止周期任务，这里仅记录日志
+						log.error(e.getMessage(), e);
+					}
+				}
+			}, period, period, TimeUnit.MILLISECONDS);
 		}
 		else
 		{
@@ -70,92 +300,295 @@ public class Aggregator extends AggregateService implements CoprocessorService,
 	@Override
 	public void stop(CoprocessorEnvironment env) throws IOException
 	{
+		if (sweep != null)
+		{
+			sweep.cancel(false);
+			sweep = null;
+		}
+		// 区域关闭时释放全部游标持有的内存以及溢出文件
+		for (Cursor cursor : new ArrayList<Cursor>(cursors.values()))
+		{
+			discard(cursor);
+		}
+		if (cache != null)
+		{
+			cache.clear();
+		}
+		if (mbean != null)
+		{
+			MBeans.unregister(mbean);
+			mbean = null;
+		}
 	}
 
 	/**
-	 * 返回当前服务对象
+	 * 聚合服务（委托给当前对象）
+	 */
+	private final Service service = new AggregateService()
+	{
+		@Override
+		public void aggregate(RpcController controller, AggregateRequest request, RpcCallback<AggregateResponse> done)
+		{
+			Aggregator.this.aggregate(controller, request, done);
+		}
+
+		@Override
+		public void open(RpcController controller, AggregateRequest request, RpcCallback<CursorResponse> done)
+		{
+			Aggregator.this.open(controller, request, done);
+		}
+
+		@Override
+		public void next(RpcController controller, CursorRequest request, RpcCallback<CursorResponse> done)
+		{
+			Aggregator.this.next(controller, request, done);
+		}
+
+		@Override
+		public void close(RpcController controller, CursorRequest request, RpcCallback<CursorResponse> done)
+		{
+			Aggregator.this.close(controller, request, done);
+		}
+	};
+
+	/**
+	 * 返回聚合服务对象
 	 */
 	@Override
 	public Service getService()
 	{
-		return this;
+		return service;
 	}
 
 	/**
-	 * 聚合操作
-	 * @throws Throwable 
+	 * 清理聚合结果缓存（区域数据发生变化时调用；版本检查仍然保留，以免聚合过程中发生的变化被缓存）
+	 */
+	private void invalidate()
+	{
+		if (cache != null)
+		{
+			cache.clear();
+		}
+	}
+
+	/**
+	 * 内存存储刷新后清理缓存
 	 */
-	@SuppressWarnings("unchecked")
 	@Override
-	public void aggregate(RpcController controller, AggregateRequest request, RpcCallback<AggregateResponse> done)
+	public void postFlush(ObserverContext<RegionCoprocessorEnvironment> c) throws IOException
 	{
-		InternalScanner   scanner     = null;
-		AggregateResponse response    = null;
-		Accumulator       accumulator = null;
-		MemoryChecker     checker     = new MemoryChecker(0.1);
-		long              counter     = 0;
-		try
+		invalidate();
+	}
+
+	/**
+	 * 存储文件合并后清理缓存
+	 */
+	@Override
+	public void postCompact(ObserverContext<RegionCoprocessorEnvironment> c, Store store, StoreFile resultFile) throws IOException
+	{
+		invalidate();
+	}
+
+	/**
+	 * 区域拆分后清理缓存（子区域由新的协处理器实例重新缓存）
+	 */
+	@Override
+	public void postSplit(ObserverContext<RegionCoprocessorEnvironment> c, HRegion l, HRegion r) throws IOException
+	{
+		invalidate();
+	}
+
+	/**
+	 * 批量写入（'Put'、'Delete'）后清理缓存
+	 */
+	@Override
+	public void postBatchMutate(ObserverContext<RegionCoprocessorEnvironment> c, MiniBatchOperationInProgress<Mutation> miniBatchOp) throws IOException
+	{
+		invalidate();
+	}
+
+	/**
+	 * 追加写入后清理缓存
+	 */
+	@Override
+	public Result postAppend(ObserverContext<RegionCoprocessorEnvironment> c, Append append, Result result) throws IOException
+	{
+		invalidate();
+		return result;
+	}
+
+	/**
+	 * 计数器递增后清理缓存
+	 */
+	@Override
+	public Result postIncrement(ObserverContext<RegionCoprocessorEnvironment> c, Increment increment, Result result) throws IOException
+	{
+		invalidate();
+		return result;
+	}
+
+	/**
+	 * 批量导入存储文件后清理缓存
+	 */
+	@Override
+	public boolean postBulkLoadHFile(ObserverContext<RegionCoprocessorEnvironment> c, List<Pair<byte[], String>> familyPaths, boolean hasLoaded) throws IOException
+	{
+		invalidate();
+		return hasLoaded;
+	}
+
+	/**
+	 * 超时检查（超过聚合请求的截止时间时终止聚合操作）
+	 * @param deadline
+	 * @throws AggregateTimeoutException
+	 */
+	private void timeout(long deadline) throws AggregateTimeoutException
+	{
+		if (deadline > 0 && System.currentTimeMillis() >= deadline)
 		{
-			// 构造累积器
-			accumulator = Accumulator.build(request.getPipes());
-			// 操作计时
-			long now = System.currentTimeMillis();
-			log.info("aggregate - start ...... ");
-			// 遍历执行扫描操作
-			for (int i = 0; i < request.getScansCount(); ++i)
+			throw new AggregateTimeoutException(String.format("region[%s] : aggregate timeout!![deadline = %d]", env.getRegionInfo().getRegionNameAsString(), deadline));
+		}
+	}
+
+	/**
+	 * 从内存池预留指定大小的内存（只在打开扫描器之前调用，最多等待到配置的等待时间以及聚合请求的截止时间）
+	 * @param bytes
+	 * @param deadline
+	 * @return
+	 * @throws InterruptedException
+	 */
+	private boolean reserve(long bytes, long deadline) throws InterruptedException
+	{
+		long timeout = deadline > 0 ? Math.min(wait, deadline - System.currentTimeMillis()) : wait;
+		return pool.reserve(bytes, Math.max(0, timeout));
+	}
+
+	/**
+	 * 内存检查（超出内存限制、超出查询内存预算、内存池无法继续预留、超过截止时间或者线程被中断时终止聚合操作）
+	 * @param counter
+	 * @param query
+	 * @throws Exception
+	 */
+	private void check(long counter, Query query) throws Exception
+	{
+		if (counter % 1000 == 0)
+		{
+			timeout(query.deadline);
+			if (Thread.currentThread().isInterrupted())
 			{
-				// 内部扫描器对象
-				scanner = env.getRegion().getScanner(AggregatorUtils.scan(request.getScans(i)));
-				// 读取扫描结果并推送到累积器
-				List<Cell> results = new ArrayList<Cell>();
-				boolean    more    = true;
-				while(more)
+				throw new InterruptedException(String.format("region[%s] : aggregate interrupted!!", env.getRegionInfo().getRegionNameAsString()));
+			}
+			if (query.failure.get() != null)
+			{
+				throw new Exception(String.format("region[%s] : aggregate aborted by a failed scan task!!", env.getRegionInfo().getRegionNameAsString()));
+			}
+			long bytes = query.bytes();
+			if (bytes > query.budget)
+			{
+				throw new Exception(String.format("region[%s] : aggregate memory budget exceeded!![%d : %d]", env.getRegionInfo().getRegionNameAsString(), bytes, query.budget));
+			}
+			// 实际使用量超过已预留的内存时继续分段预留（多个扫描线程共享同一个聚合查询；扫描器已经打开，内存池不足时立即失败，不等待）
+			synchronized(query)
+			{
+				if (bytes > query.reserved && !query.released.get())
 				{
-					// 内存检查（增加检查计数）
-					if ((++counter % 1000 == 0) & checker.exceed())
+					long target = Math.min(query.budget, bytes + RESERVE_CHUNK);
+					if (!pool.tryReserve(target - query.reserved))
 					{
-						throw new Exception(String.format("region[%s] : not enough memory!![%d : %d]", env.getRegionInfo().getRegionNameAsString(),
-																									   Runtime.getRuntime().totalMemory(),
-																									   Runtime.getRuntime().maxMemory() - Runtime.getRuntime().totalMemory() + Runtime.getRuntime().freeMemory()));
+						throw new Exception(String.format("region[%s] : aggregate memory pool exhausted!![%d : %d]", env.getRegionInfo().getRegionNameAsString(), target - query.reserved, pool.available()));
 					}
+					query.reserved = target;
+				}
+			}
+			if (query.checker.exceed())
+			{
+				throw new Exception(String.format("region[%s] : not enough memory!![%d : %d]", env.getRegionInfo().getRegionNameAsString(),
+																							   Runtime.getRuntime().totalMemory(),
+																							   Runtime.getRuntime().maxMemory() - Runtime.getRuntime().totalMemory() + Runtime.getRuntime().freeMemory()));
+			}
+		}
+	}
+
+	/**
+	 * 返回区域内数据的行键范围（根据存储文件估算，不包含内存存储的数据）
+	 * @return [首行行键, 末行行键]，无存储文件时返回 null
+	 */
+	private byte[][] bounds()
+	{
+		byte[][] bounds = null;
+		for (Store store : env.getRegion().getStores().values())
+		{
+			for (StoreFile file : store.getStorefiles())
+			{
+				StoreFile.Reader reader = file.getReader();
+				if (reader != null)
+				{
+					bounds = AggregatorUtils.bounds(bounds, reader.getFirstKey(), reader.getLastRowKey());
+				}
+			}
+		}
+		return bounds;
+	}
+
+	/**
+	 * 扫描数据并推送到累积器
+	 * @param accumulator
+	 * @param scans
+	 * @param query
+	 * @throws Exception
+	 */
+	private void scan(Accumulator accumulator, List<Scan> scans, Query query) throws Exception
+	{
+		long counter   = 0;
+		long published = 0;
+		for (Scan scan : scans)
+		{
+			// 内部扫描器对象
+			InternalScanner scanner = env.getRegion().getScanner(scan);
+			try
+			{
+				// 读取扫描结果并按批次推送到累积器
+				List<Cell>                results = new ArrayList<Cell>();
+				List<Map<String, Object>> batch   = new ArrayList<Map<String, Object>>(BATCH_SIZE);
+				boolean                   more    = true;
+				while(more)
+				{
+					// 内存检查（增加检查计数）
+					check(++counter, query);
 					// 从扫描器读取一行记录
 					more = scanner.next(results);
-					// 将一行记录推送到累积器
+					// 将一行记录加入当前批次（单元格视图，仅在访问字段时解析数据）
 					if (!results.isEmpty())
 					{
-						Map<String, Object> map = new HashMap<String, Object>();
-						for (Cell cell : results)
-						{
-							// 获取所属列族名称
-							String family = Bytes.toString(cell.getFamilyArray(), cell.getFamilyOffset(), cell.getFamilyLength());
-							// 记录列族对应字段内容
-							Map<String, Object> qualifiers = (Map<String, Object>)map.get(family);
-							if (qualifiers == null)
-							{
-								qualifiers = new HashMap<String, Object>();
-								map.put(family, qualifiers);
-							}
-							qualifiers.put(Bytes.toString(cell.getQualifierArray(), cell.getQualifierOffset(), cell.getQualifierLength()),
-										   Arrays.copyOfRange(cell.getValueArray(), cell.getValueOffset()    , cell.getValueOffset() + cell.getValueLength()));
-						}
+						batch.add(new CellMap(results, names));
+						// 单元格视图持有当前单元格列表，因此每行记录使用新的列表
+						results = new ArrayList<Cell>();
+					}
+					// 批次已满或者扫描结束时推送到累积器
+					if (batch.size() >= BATCH_SIZE || (!more && !batch.isEmpty()))
+					{
 						try
 						{
-							accumulator.put(map);
+							accumulator.putBatch(batch);
 						}
-						catch(Exception e)
+						catch(AccumulatorBatchException e)
 						{
-							results.clear();
-							throw new Exception(e.getMessage() + " : input = [" + map.toString() + "]", e);
+							// 报告出错数据的行键
+							CellMap row = (CellMap)batch.get(e.index());
+							throw new Exception(e.getMessage() + String.format(" : row = [%s] %s", Bytes.toStringBinary(row.row()), row.toString()), e);
 						}
-						finally
+						catch(Exception e)
 						{
-							map.clear();
-							map = null;
+							throw new Exception(e.getMessage() + String.format(" : batch = [%d rows, first = %s]", batch.size(), Bytes.toStringBinary(((CellMap)batch.get(0)).row())), e);
 						}
+						batch = new ArrayList<Map<String, Object>>(BATCH_SIZE);
+						// 发布本线程累积器的估算大小（累积器只在本线程内访问）
+						published = query.publish(accumulator.bytes(), published);
 					}
-					// 清理缓存
-					results.clear();
 				}
+			}
+			finally
+			{
 				// 清理内部扫描器
 				try
 				{
@@ -166,33 +599,396 @@ public class Aggregator extends AggregateService implements CoprocessorService,
 					log.error(e.getMessage(), e);
 				}
 			}
-			
+		}
+	}
+
+	/**
+	 * 执行聚合操作（并行扫描时各线程执行拆分后的管道，部分结果在区域内按线程顺序合并为一个结果）
+	 * @param request
+	 * @param query
+	 * @return
+	 * @throws Throwable
+	 */
+	private List<AccumulatorCollection> collect(AggregateRequest request, final Query query) throws Throwable
+	{
+		List<Future<AccumulatorCollection>> futures = new ArrayList<Future<AccumulatorCollection>>();
+		try
+		{
+			// 区域内并行扫描线程数（不超过 RegionServer 配置的上限，管道无法拆分时不并行）
+			String[] parts   = request.getParallelism() > 1 && parallelism > 1 ? Accumulator.partition(request.getPipes()) : null;
+			int      threads = parts == null ? 1 : Math.max(1, Math.min(request.getParallelism(), parallelism));
+			String   pipes   = parts == null ? request.getPipes() : parts[0];
+
+			/**
+			 * 切分扫描范围（每个扫描线程负责全部扫描操作中对应的子范围）
+			 */
+			byte[][]           bounds = threads > 1 ? bounds() : null;
+			List<List<byte[]>> splits = new ArrayList<List<byte[]>>();
+			for (int i = 0; i < request.getScansCount(); ++i)
+			{
+				splits.add(AggregatorUtils.split(AggregatorUtils.scan(request.getScans(i)), bounds, threads));
+			}
+
+			/**
+			 * 构造扫描任务（累积器以及过滤器均带有状态，因此每个线程各自构造）
+			 */
+			List<Accumulator> accumulators = new ArrayList<Accumulator>();
+			List<List<Scan>>  tasks        = new ArrayList<List<Scan>>();
+			for (int i = 0; i < threads; ++i)
+			{
+				Accumulator accumulator = Accumulator.build(pipes, config, request.getSample());
+				Set<String> fields      = accumulator.fields();
+				List<Scan>  scans       = new ArrayList<Scan>();
+				for (int j = 0; j < request.getScansCount(); ++j)
+				{
+					List<byte[]> keys = splits.get(j);
+					if (i < keys.size() - 1)
+					{
+						Scan scan = AggregatorUtils.sample(AggregatorUtils.scan(request.getScans(j), fields, accumulator.filter(), env.getRegion().getTableDesc().getFamiliesKeys()), request.getSample());
+						if (keys.size() > 2)
+						{
+							scan.setStartRow(keys.get(i));
+							scan.setStopRow(keys.get(i + 1));
+						}
+						scans.add(scan);
+					}
+				}
+				if (i == 0 || !scans.isEmpty())
+				{
+					query.accumulators.add(accumulator);
+					accumulators.add(accumulator);
+					tasks.add(scans);
+				}
+			}
+
 			/**
-			 * 序列化聚合结果（按格式压缩数据．为了降低内存占用，不使用'ObjectOutputStream'对象）
+			 * 执行扫描任务（第一个任务在当前线程执行，其余任务提交到共享线程池；任一任务失败时其余任务在下一次内存检查时终止）
 			 */
-			AccumulatorCollection values = accumulator.get();
-			Output                bos    = ByteString.newOutput();
-			SnappyOutputStream    sos    = new SnappyOutputStream(bos);
-			ObjectOutputStream    oos    = new ObjectOutputStream(sos);
-			oos.writeInt(values.size());
-			for (Iterator<Map<String, Object>> iterator = values.iterator(); iterator.hasNext(); )
+			for (int i = 1; i < tasks.size(); ++i)
 			{
-				// 内存检查
-				if ((++counter % 1000 == 0) & checker.exceed())
+				final Accumulator accumulator = accumulators.get(i);
+				final List<Scan>  scans       = tasks.get(i);
+				futures.add(executor.submit(new Callable<AccumulatorCollection>()
 				{
-					oos.close();
-					throw new Exception(String.format("region[%s] : not enough memory!![%d : %d]", env.getRegionInfo().getRegionNameAsString(),
-																								   Runtime.getRuntime().totalMemory(),
-																								   Runtime.getRuntime().maxMemory() - Runtime.getRuntime().totalMemory() + Runtime.getRuntime().freeMemory()));
+					@Override
+					public AccumulatorCollection call() throws Exception
+					{
+						try
+						{
+							scan(accumulator, scans, query);
+							return accumulator.get();
+						}
+						catch (Exception e)
+						{
+							query.fail(e);
+							throw e;
+						}
+					}
+				}));
+			}
+			List<AccumulatorCollection> collections = new ArrayList<AccumulatorCollection>();
+			try
+			{
+				scan(accumulators.get(0), tasks.get(0), query);
+				collections.add(accumulators.get(0).get());
+			}
+			catch (Exception e)
+			{
+				query.fail(e);
+			}
+			for (int i = 0; i < futures.size() && query.failure.get() == null; ++i)
+			{
+				try
+				{
+					collections.add(futures.get(i).get());
+				}
+				catch (ExecutionException e)
+				{
+					query.fail(e.getCause());
+				}
+			}
+			// 抛出最先发生的异常（其余任务因此终止的异常不再报告）
+			if (query.failure.get() != null)
+			{
+				throw query.failure.get();
+			}
+
+			/**
+			 * 合并部分结果（按扫描线程顺序推送到区域汇总累积器，管道只含流式阶段时直接拼接）
+			 */
+			if (parts == null || parts[1] == null)
+			{
+				return collections;
+			}
+			Accumulator merger = Accumulator.build(parts[1], config, request.getSample());
+			query.accumulators.add(merger);
+			long counter   = 0;
+			long published = 0;
+			for (AccumulatorCollection collection : collections)
+			{
+				for (Map<String, Object> record : collection)
+				{
+					check(++counter, query);
+					merger.put(record);
+					if (counter % BATCH_SIZE == 0)
+					{
+						published = query.publish(merger.bytes(), published);
+					}
+				}
+			}
+			return Collections.singletonList(merger.get());
+		}
+		finally
+		{
+			// 终止尚未完成的扫描任务
+			for (Future<AccumulatorCollection> future : futures)
+			{
+				future.cancel(true);
+			}
+		}
+	}
+
+	/**
+	 * 序列化聚合结果（按格式压缩数据．为了降低内存占用，不使用'ObjectOutputStream'对象）
+	 * 管道只含流式阶段时依次输出每个扫描线程的结果
+	 * @param collections
+	 * @param query
+	 * @return
+	 * @throws Exception
+	 */
+	private ByteString serialize(List<AccumulatorCollection> collections, Query query) throws Exception
+	{
+		int  size    = 0;
+		long counter = 0;
+		for (AccumulatorCollection values : collections)
+		{
+			size = size + values.size();
+		}
+		Output             bos = ByteString.newOutput();
+		SnappyOutputStream sos = new SnappyOutputStream(bos);
+		ObjectOutputStream oos = new ObjectOutputStream(sos);
+		try
+		{
+			oos.writeInt(size);
+			for (AccumulatorCollection values : collections)
+			{
+				for (Iterator<Map<String, Object>> iterator = values.iterator(); iterator.hasNext(); )
+				{
+					// 内存检查
+					check(++counter, query);
+					// 压缩并序列化指定对象
+					oos.writeObject(iterator.next());
 				}
-				// 压缩并序列化指定对象
-				oos.writeObject(iterator.next());
 			}
 			oos.flush();
+		}
+		finally
+		{
 			oos.close();
+		}
+		return bos.toByteString();
+	}
+
+	/**
+	 * 序列化游标的下一个数据块（格式与'serialize'一致，数据块的未压缩大小不超过配置上限）
+	 * @param cursor
+	 * @return
+	 * @throws Exception
+	 */
+	private CursorResponse chunk(Cursor cursor) throws Exception
+	{
+		synchronized(cursor)
+		{
+			// 等待期间游标可能已被清理（聚合结果已经释放）
+			if (cursor.query.released.get())
+			{
+				throw new Exception(String.format("region[%s] : cursor[%d] not found or expired!!", env.getRegionInfo().getRegionNameAsString(), cursor.id));
+			}
+			// 先以未压缩格式序列化记录（数据块结束时才能确定记录数量）
+			Output             raw     = ByteString.newOutput();
+			ObjectOutputStream records = new ObjectOutputStream(raw);
+			int                size    = 0;
+			while (cursor.iterator.hasNext() && (size == 0 || raw.size() < chunk))
+			{
+				check(++size, cursor.query);
+				records.writeObject(cursor.iterator.next());
+			}
+			records.close();
+			// 压缩数据块
+			Output             bos = ByteString.newOutput();
+			SnappyOutputStream sos = new SnappyOutputStream(bos);
+			ObjectOutputStream oos = new ObjectOutputStream(sos);
+			oos.writeInt(size);
+			raw.toByteString().writeTo(oos);
+			oos.flush();
+			oos.close();
+			// 没有后续数据块时自动关闭游标
+			boolean more = cursor.iterator.hasNext();
+			if (!more)
+			{
+				discard(cursor);
+			}
+			cursor.access = System.currentTimeMillis();
+			return CursorResponse.newBuilder().setCursor(cursor.id).setData(bos.toByteString()).setMore(more).build();
+		}
+	}
+
+	/**
+	 * 确定聚合操作的内存预算并在打开扫描器之前预留内存（请求指定了预算时预留全部预算，否则预留配置的最小内存；内存池剩余内存不足时等待，仍然不足时拒绝聚合请求）
+	 * @param request
+	 * @return
+	 * @throws Exception
+	 */
+	private Query reserve(AggregateRequest request) throws Exception
+	{
+		long bytes = request.getMemory() > 0 ? Math.min(request.getMemory(), budget) : budget;
+		Query query = new Query(request.getDeadline(), bytes);
+		query.reserved = request.getMemory() > 0 ? bytes : Math.min(bytes, minimum);
+		if (!reserve(query.reserved, query.deadline))
+		{
+			throw new Exception(String.format("region[%s] : not enough aggregate memory!![%d : %d]", env.getRegionInfo().getRegionNameAsString(), query.reserved, pool.available()));
+		}
+		return query;
+	}
+
+	/**
+	 * 归还聚合操作预留的内存并关闭累积器（删除溢出文件，重复调用时仅执行一次）
+	 * @param query
+	 */
+	private void release(Query query)
+	{
+		if (query.released.compareAndSet(false, true))
+		{
+			synchronized(query)
+			{
+				pool.release(query.reserved);
+			}
+			for (Accumulator accumulator : query.accumulators)
+			{
+				try
+				{
+					accumulator.close();
+				}
+				catch (Exception e)
+				{
+					log.error(e.getMessage(), e);
+				}
+			}
+		}
+	}
+
+	/**
+	 * 关闭游标（释放游标持有的聚合结果、溢出文件以及预留的内存）
+	 * @param cursor
+	 */
+	private void discard(Cursor cursor)
+	{
+		synchronized(cursor)
+		{
+			cursors.remove(cursor.id);
+			release(cursor.query);
+		}
+	}
+
+	/**
+	 * 清理超时未访问的游标（释放游标持有的聚合结果以及溢出文件）
+	 */
+	private void expire()
+	{
+		long now = System.currentTimeMillis();
+		for (Iterator<Cursor> iterator = cursors.values().iterator(); iterator.hasNext(); )
+		{
+			Cursor cursor = iterator.next();
+			if (now - cursor.access >= lease || (cursor.query.deadline > 0 && now >= cursor.query.deadline))
+			{
+				log.warn(String.format("region[%s] : cursor[%d] expired!!", env.getRegionInfo().getRegionNameAsString(), cursor.id));
+				iterator.remove();
+				// 与正在读取数据块的线程互斥（关闭累积器会释放游标正在读取的堆外内存）
+				synchronized(cursor)
+				{
+					release(cursor.query);
+				}
+			}
+		}
+	}
+
+	/**
+	 * 返回区域数据版本（区域数据变化时由观察者方法清理缓存，版本用于排除聚合过程中发生的变化）
+	 * 1. 区域序列号 : 内存存储的每次写入（包括不写日志的写入）以及刷新时递增，写入后内存存储大小可能不变，因此不使用内存存储大小
+	 * 2. 存储文件集合 : 合并以及批量导入时变化
+	 * @return
+	 */
+	private String version()
+	{
+		List<String> files = new ArrayList<String>();
+		for (Store store : env.getRegion().getStores().values())
+		{
+			for (StoreFile file : store.getStorefiles())
+			{
+				files.add(file.getPath().getName());
+			}
+		}
+		Collections.sort(files);
+		return String.format("%d:%s", env.getRegion().getSequenceId().get(), files);
+	}
+
+	/**
+	 * 返回聚合请求对应的缓存关键字（截止时间不影响聚合结果）
+	 * @param request
+	 * @return
+	 */
+	private ByteString key(AggregateRequest request)
+	{
+		return request.toBuilder().clearDeadline().build().toByteString();
+	}
+
+	/**
+	 * 转换为返回给客户端的异常（超时异常原样返回，以便客户端区分）
+	 * @param e
+	 * @return
+	 */
+	private static IOException error(Throwable e)
+	{
+		return e instanceof AggregateTimeoutException ? (AggregateTimeoutException)e : new DoNotRetryIOException(e);
+	}
+
+	/**
+	 * 聚合操作
+	 * @throws Throwable 
+	 */
+	public void aggregate(RpcController controller, AggregateRequest request, RpcCallback<AggregateResponse> done)
+	{
+		AggregateResponse response = null;
+		try
+		{
+			// 操作计时
+			long now = System.currentTimeMillis();
+			log.info(String.format("aggregate - start[%d] ...... ", request.getParallelism()));
+			// 查找聚合结果缓存
+			ByteString key     = key(request);
+			String     version = version();
+			ByteString data    = cache.get(key, version);
+			if (data == null)
+			{
+				timeout(request.getDeadline());
+				Query query = reserve(request);
+				try
+				{
+					data = serialize(collect(request, query), query);
+				}
+				finally
+				{
+					release(query);
+				}
+				// 聚合过程中数据版本未发生变化时缓存聚合结果
+				if (version.equals(version()))
+				{
+					cache.put(key, version, data);
+				}
+			}
 			// 构造聚合结果
 			AggregateProtos.AggregateResponse.Builder builder = AggregateProtos.AggregateResponse.newBuilder();
-			response = builder.setData(bos.toByteString()).build();
+			response = builder.setData(data).build();
 			log.info(String.format("aggregate - over[%d] ...... ", System.currentTimeMillis() - now));
 		}
 		catch (Throwable e)
@@ -200,27 +996,243 @@ public class Aggregator extends AggregateService implements CoprocessorService,
 			// 记录异常信息
 			log.error(e.getMessage(), e);
 			// 记录异常信息
-			ResponseConverter.setControllerException(controller, new DoNotRetryIOException(e));
+			ResponseConverter.setControllerException(controller, error(e));
 		}
-		finally
+		done.run(response);
+	}
+
+	/**
+	 * 执行聚合操作并打开游标（返回第一个数据块）
+	 */
+	public void open(RpcController controller, AggregateRequest request, RpcCallback<CursorResponse> done)
+	{
+		CursorResponse response = null;
+		try
 		{
-			if (accumulator != null)
+			// 清理超时游标
+			expire();
+			// 操作计时
+			long now = System.currentTimeMillis();
+			log.info(String.format("aggregate - open[%d] ...... ", request.getParallelism()));
+			// 查找聚合结果缓存（缓存命中时直接返回完整结果，不登记游标）
+			ByteString key     = key(request);
+			String     version = version();
+			ByteString data    = cache.get(key, version);
+			if (data != null)
 			{
-				accumulator = null;
+				response = CursorResponse.newBuilder().setCursor(0).setData(data).setMore(false).build();
 			}
-			if (scanner != null)
+			else
 			{
+				// 执行聚合操作并登记游标
+				timeout(request.getDeadline());
+				Query  query  = reserve(request);
+				Cursor cursor = null;
 				try
 				{
-					scanner.close();
+					cursor = new Cursor(sequence.incrementAndGet(), Iterables.concat(collect(request, query)).iterator(), query);
+					cursors.put(cursor.id, cursor);
+					response = chunk(cursor);
 				}
-				catch(Exception e)
+				catch (Throwable e)
 				{
-					log.error(e.getMessage(), e);
+					// 打开失败时关闭游标并归还预留的内存
+					if (cursor != null)
+					{
+						cursors.remove(cursor.id);
+					}
+					release(query);
+					throw e;
+				}
+				// 仅缓存一个数据块即可容纳的聚合结果（格式与'aggregate'的聚合结果一致）
+				if (!response.getMore() && version.equals(version()))
+				{
+					cache.put(key, version, response.getData());
 				}
+				log.info(String.format("aggregate - cursor[%d] opened[%d] ...... ", cursor.id, System.currentTimeMillis() - now));
+			}
+		}
+		catch (Throwable e)
+		{
+			// 记录异常信息
+			log.error(e.getMessage(), e);
+			// 记录异常信息
+			ResponseConverter.setControllerException(controller, error(e));
+		}
+		done.run(response);
+	}
+
+	/**
+	 * 返回游标的下一个数据块
+	 */
+	public void next(RpcController controller, CursorRequest request, RpcCallback<CursorResponse> done)
+	{
+		CursorResponse response = null;
+		try
+		{
+			// 游标超过截止时间时返回超时异常
+			Cursor cursor = cursors.get(request.getCursor());
+			if (cursor != null && cursor.query.deadline > 0 && System.currentTimeMillis() >= cursor.query.deadline)
+			{
+				discard(cursor);
+				timeout(cursor.query.deadline);
+			}
+			// 清理超时游标
+			expire();
+			cursor = cursors.get(request.getCursor());
+			if (cursor == null)
+			{
+				throw new Exception(String.format("region[%s] : cursor[%d] not found or expired!!", env.getRegionInfo().getRegionNameAsString(), request.getCursor()));
 			}
+			response = chunk(cursor);
+		}
+		catch (Throwable e)
+		{
+			// 记录异常信息
+			log.error(e.getMessage(), e);
+			// 记录异常信息
+			ResponseConverter.setControllerException(controller, error(e));
 		}
 		done.run(response);
 	}
 
+	/**
+	 * 关闭游标
+	 */
+	public void close(RpcController controller, CursorRequest request, RpcCallback<CursorResponse> done)
+	{
+		Cursor cursor = cursors.get(request.getCursor());
+		if (cursor != null)
+		{
+			discard(cursor);
+		}
+		done.run(CursorResponse.newBuilder().setCursor(request.getCursor()).setMore(false).build());
+	}
+
+	/**
+	 * 聚合结果游标
+	 */
+	private static class Cursor
+	{
+		/**
+		 * 游标编号
+		 */
+		private final long id;
+
+		/**
+		 * 聚合结果迭代器
+		 */
+		private final Iterator<Map<String, Object>> iterator;
+
+		/**
+		 * 聚合查询上下文（截止时间以及预留的内存）
+		 */
+		private final Query query;
+
+		/**
+		 * 最后访问时间
+		 */
+		private long access = System.currentTimeMillis();
+
+		/**
+		 * 构造方法
+		 * @param id
+		 * @param iterator
+		 * @param query
+		 */
+		public Cursor(long id, Iterator<Map<String, Object>> iterator, Query query)
+		{
+			this.id       = id;
+			this.iterator = iterator;
+			this.query    = query;
+		}
+	}
+
+	/**
+	 * 聚合查询上下文（同一个聚合请求的全部扫描线程共享）
+	 */
+	private static class Query
+	{
+		/**
+		 * 内存检查器
+		 */
+		private final MemoryChecker checker = new MemoryChecker(0.1);
+
+		/**
+		 * 截止时间（0 表示不限制）
+		 */
+		private final long deadline;
+
+		/**
+		 * 内存预算（使用量上限）
+		 */
+		private final long budget;
+
+		/**
+		 * 已从内存池预留的内存（不超过内存预算）
+		 */
+		private long reserved = 0;
+
+		/**
+		 * 预留的内存是否已经归还（同时关闭累积器）
+		 */
+		private final AtomicBoolean released = new AtomicBoolean(false);
+
+		/**
+		 * 聚合查询使用的累积器集合（每个扫描线程一个，以及区域汇总累积器）
+		 */
+		private final List<Accumulator> accumulators = new CopyOnWriteArrayList<Accumulator>();
+
+		/**
+		 * 各线程发布的累积器估算大小之和（累积器由所属线程修改，其它线程不直接读取）
+		 */
+		private final AtomicLong usage = new AtomicLong(0);
+
+		/**
+		 * 最先发生的扫描任务异常
+		 */
+		private final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+
+		/**
+		 * 构造方法
+		 * @param deadline
+		 * @param budget
+		 */
+		public Query(long deadline, long budget)
+		{
+			this.deadline = deadline;
+			this.budget   = budget;
+		}
+
+		/**
+		 * 返回聚合查询持有数据的估算大小
+		 * @return
+		 */
+		public long bytes()
+		{
+			return usage.get();
+		}
+
+		/**
+		 * 发布当前线程累积器的估算大小
+		 * @param bytes 当前大小
+		 * @param published 上次发布的大小
+		 * @return
+		 */
+		public long publish(long bytes, long published)
+		{
+			usage.addAndGet(bytes - published);
+			return bytes;
+		}
+
+		/**
+		 * 记录扫描任务异常（只保留最先发生的异常）
+		 * @param e
+		 */
+		public void fail(Throwable e)
+		{
+			failure.compareAndSet(null, e);
+		}
+	}
+
 }
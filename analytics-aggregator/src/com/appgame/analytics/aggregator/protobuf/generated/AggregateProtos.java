@@ -5141,6 +5141,42 @@ public final class AggregateProtos {
      */
     com.google.protobuf.ByteString
         getPipesBytes();
+
+    /**
+     * <code>optional uint32 parallelism = 3 [default = 1];</code>
+     */
+    boolean hasParallelism();
+    /**
+     * <code>optional uint32 parallelism = 3 [default = 1];</code>
+     */
+    int getParallelism();
+
+    /**
+     * <code>optional uint64 deadline = 4 [default = 0];</code>
+     */
+    boolean hasDeadline();
+    /**
+     * <code>optional uint64 deadline = 4 [default = 0];</code>
+     */
+    long getDeadline();
+
+    /**
+     * <code>optional uint64 memory = 5 [default = 0];</code>
+     */
+    boolean hasMemory();
+    /**
+     * <code>optional uint64 memory = 5 [default = 0];</code>
+     */
+    long getMemory();
+
+    /**
+     * <code>optional double sample = 6 [default = 1];</code>
+     */
+    boolean hasSample();
+    /**
+     * <code>optional double sample = 6 [default = 1];</code>
+     */
+    double getSample();
   }
   /**
    * Protobuf type {@code AggregateRequest}
@@ -5150,6 +5186,10 @@ public final class AggregateProtos {
    * 被传递到 AggregateService 的聚合请求（包含两个部分）
    * 1. 扫描器描述
    * 2. 聚合器描述
+   * 3. 区域内并行扫描线程数（受 RegionServer 配置上限约束）
+   * 4. 聚合操作的截止时间（绝对时间，毫秒；0 表示不限制）
+   * 5. 聚合操作的内存预算（字节；0 表示使用 RegionServer 默认预算）
+   * 6. 抽样率（按行键哈希抽样，(0, 1]；1 表示不抽样）
    * </pre>
    */
   public static final class AggregateRequest extends
@@ -5215,6 +5255,26 @@ public final class AggregateProtos {
               pipes_ = bs;
               break;
             }
+            case 24: {
+              bitField0_ |= 0x00000002;
+              parallelism_ = input.readUInt32();
+              break;
+            }
+            case 32: {
+              bitField0_ |= 0x00000004;
+              deadline_ = input.readUInt64();
+              break;
+            }
+            case 40: {
+              bitField0_ |= 0x00000008;
+              memory_ = input.readUInt64();
+              break;
+            }
+            case 49: {
+              bitField0_ |= 0x00000010;
+              sample_ = input.readDouble();
+              break;
+            }
           }
         }
       } catch (com.google.protobuf.InvalidProtocolBufferException e) {
@@ -5335,9 +5395,73 @@ public final class AggregateProtos {
       }
     }
 
+    public static final int PARALLELISM_FIELD_NUMBER = 3;
+    private int parallelism_;
+    /**
+     * <code>optional uint32 parallelism = 3 [default = 1];</code>
+     */
+    public boolean hasParallelism() {
+      return ((bitField0_ & 0x00000002) == 0x00000002);
+    }
+    /**
+     * <code>optional uint32 parallelism = 3 [default = 1];</code>
+     */
+    public int getParallelism() {
+      return parallelism_;
+    }
+
+    public static final int DEADLINE_FIELD_NUMBER = 4;
+    private long deadline_;
+    /**
+     * <code>optional uint64 deadline = 4 [default = 0];</code>
+     */
+    public boolean hasDeadline() {
+      return ((bitField0_ & 0x00000004) == 0x00000004);
+    }
+    /**
+     * <code>optional uint64 deadline = 4 [default = 0];</code>
+     */
+    public long getDeadline() {
+      return deadline_;
+    }
+
+    public static final int MEMORY_FIELD_NUMBER = 5;
+    private long memory_;
+    /**
+     * <code>optional uint64 memory = 5 [default = 0];</code>
+     */
+    public boolean hasMemory() {
+      return ((bitField0_ & 0x00000008) == 0x00000008);
+    }
+    /**
+     * <code>optional uint64 memory = 5 [default = 0];</code>
+     */
+    public long getMemory() {
+      return memory_;
+    }
+
+    public static final int SAMPLE_FIELD_NUMBER = 6;
+    private double sample_;
+    /**
+     * <code>optional double sample = 6 [default = 1];</code>
+     */
+    public boolean hasSample() {
+      return ((bitField0_ & 0x00000010) == 0x00000010);
+    }
+    /**
+     * <code>optional double sample = 6 [default = 1];</code>
+     */
+    public double getSample() {
+      return sample_;
+    }
+
     private void initFields() {
       scans_ = java.util.Collections.emptyList();
       pipes_ = "";
+      parallelism_ = 1;
+      deadline_ = 0L;
+      memory_ = 0L;
+      sample_ = 1D;
     }
     private byte memoizedIsInitialized = -1;
     public final boolean isInitialized() {
@@ -5364,6 +5488,18 @@ public final class AggregateProtos {
       if (((bitField0_ & 0x00000001) == 0x00000001)) {
         output.writeBytes(2, getPipesBytes());
       }
+      if (((bitField0_ & 0x00000002) == 0x00000002)) {
+        output.writeUInt32(3, parallelism_);
+      }
+      if (((bitField0_ & 0x00000004) == 0x00000004)) {
+        output.writeUInt64(4, deadline_);
+      }
+      if (((bitField0_ & 0x00000008) == 0x00000008)) {
+        output.writeUInt64(5, memory_);
+      }
+      if (((bitField0_ & 0x00000010) == 0x00000010)) {
+        output.writeDouble(6, sample_);
+      }
       getUnknownFields().writeTo(output);
     }
 
@@ -5381,6 +5517,22 @@ public final class AggregateProtos {
         size += com.google.protobuf.CodedOutputStream
           .computeBytesSize(2, getPipesBytes());
       }
+      if (((bitField0_ & 0x00000002) == 0x00000002)) {
+        size += com.google.protobuf.CodedOutputStream
+          .computeUInt32Size(3, parallelism_);
+      }
+      if (((bitField0_ & 0x00000004) == 0x00000004)) {
+        size += com.google.protobuf.CodedOutputStream
+          .computeUInt64Size(4, deadline_);
+      }
+      if (((bitField0_ & 0x00000008) == 0x00000008)) {
+        size += com.google.protobuf.CodedOutputStream
+          .computeUInt64Size(5, memory_);
+      }
+      if (((bitField0_ & 0x00000010) == 0x00000010)) {
+        size += com.google.protobuf.CodedOutputStream
+          .computeDoubleSize(6, sample_);
+      }
       size += getUnknownFields().getSerializedSize();
       memoizedSerializedSize = size;
       return size;
@@ -5411,6 +5563,28 @@ public final class AggregateProtos {
         result = result && getPipes()
             .equals(other.getPipes());
       }
+      result = result && (hasParallelism() == other.hasParallelism());
+      if (hasParallelism()) {
+        result = result && (getParallelism()
+            == other.getParallelism());
+      }
+      result = result && (hasDeadline() == other.hasDeadline());
+      if (hasDeadline()) {
+        result = result && (getDeadline()
+            == other.getDeadline());
+      }
+      result = result && (hasMemory() == other.hasMemory());
+      if (hasMemory()) {
+        result = result && (getMemory()
+            == other.getMemory());
+      }
+      result = result && (hasSample() == other.hasSample());
+      if (hasSample()) {
+        result = result && (
+            java.lang.Double.doubleToLongBits(getSample())
+            == java.lang.Double.doubleToLongBits(
+                other.getSample()));
+      }
       result = result &&
           getUnknownFields().equals(other.getUnknownFields());
       return result;
@@ -5431,6 +5605,25 @@ public final class AggregateProtos {
         hash = (37 * hash) + PIPES_FIELD_NUMBER;
         hash = (53 * hash) + getPipes().hashCode();
       }
+      if (hasParallelism()) {
+        hash = (37 * hash) + PARALLELISM_FIELD_NUMBER;
+        hash = (53 * hash) + getParallelism();
+      }
+      if (hasDeadline()) {
+        hash = (37 * hash) + DEADLINE_FIELD_NUMBER;
+        hash = (53 * hash) + com.google.protobuf.Internal.hashLong(
+            getDeadline());
+      }
+      if (hasMemory()) {
+        hash = (37 * hash) + MEMORY_FIELD_NUMBER;
+        hash = (53 * hash) + com.google.protobuf.Internal.hashLong(
+            getMemory());
+      }
+      if (hasSample()) {
+        hash = (37 * hash) + SAMPLE_FIELD_NUMBER;
+        hash = (53 * hash) + com.google.protobuf.Internal.hashLong(
+            java.lang.Double.doubleToLongBits(getSample()));
+      }
       hash = (29 * hash) + getUnknownFields().hashCode();
       memoizedHashCode = hash;
       return hash;
@@ -5510,6 +5703,10 @@ public final class AggregateProtos {
      * 被传递到 AggregateService 的聚合请求（包含两个部分）
      * 1. 扫描器描述
      * 2. 聚合器描述
+     * 3. 区域内并行扫描线程数（受 RegionServer 配置上限约束）
+     * 4. 聚合操作的截止时间（绝对时间，毫秒；0 表示不限制）
+     * 5. 聚合操作的内存预算（字节；0 表示使用 RegionServer 默认预算）
+     * 6. 抽样率（按行键哈希抽样，(0, 1]；1 表示不抽样）
      * </pre>
      */
     public static final class Builder extends
@@ -5557,6 +5754,14 @@ public final class AggregateProtos {
         }
         pipes_ = "";
         bitField0_ = (bitField0_ & ~0x00000002);
+        parallelism_ = 1;
+        bitField0_ = (bitField0_ & ~0x00000004);
+        deadline_ = 0L;
+        bitField0_ = (bitField0_ & ~0x00000008);
+        memory_ = 0L;
+        bitField0_ = (bitField0_ & ~0x00000010);
+        sample_ = 1D;
+        bitField0_ = (bitField0_ & ~0x00000020);
         return this;
       }
 
@@ -5598,6 +5803,22 @@ public final class AggregateProtos {
           to_bitField0_ |= 0x00000001;
         }
         result.pipes_ = pipes_;
+        if (((from_bitField0_ & 0x00000004) == 0x00000004)) {
+          to_bitField0_ |= 0x00000002;
+        }
+        result.parallelism_ = parallelism_;
+        if (((from_bitField0_ & 0x00000008) == 0x00000008)) {
+          to_bitField0_ |= 0x00000004;
+        }
+        result.deadline_ = deadline_;
+        if (((from_bitField0_ & 0x00000010) == 0x00000010)) {
+          to_bitField0_ |= 0x00000008;
+        }
+        result.memory_ = memory_;
+        if (((from_bitField0_ & 0x00000020) == 0x00000020)) {
+          to_bitField0_ |= 0x00000010;
+        }
+        result.sample_ = sample_;
         result.bitField0_ = to_bitField0_;
         onBuilt();
         return result;
@@ -5645,6 +5866,18 @@ public final class AggregateProtos {
           pipes_ = other.pipes_;
           onChanged();
         }
+        if (other.hasParallelism()) {
+          setParallelism(other.getParallelism());
+        }
+        if (other.hasDeadline()) {
+          setDeadline(other.getDeadline());
+        }
+        if (other.hasMemory()) {
+          setMemory(other.getMemory());
+        }
+        if (other.hasSample()) {
+          setSample(other.getSample());
+        }
         this.mergeUnknownFields(other.getUnknownFields());
         return this;
       }
@@ -5994,6 +6227,134 @@ public final class AggregateProtos {
         return this;
       }
 
+      private int parallelism_ = 1;
+      /**
+       * <code>optional uint32 parallelism = 3 [default = 1];</code>
+       */
+      public boolean hasParallelism() {
+        return ((bitField0_ & 0x00000004) == 0x00000004);
+      }
+      /**
+       * <code>optional uint32 parallelism = 3 [default = 1];</code>
+       */
+      public int getParallelism() {
+        return parallelism_;
+      }
+      /**
+       * <code>optional uint32 parallelism = 3 [default = 1];</code>
+       */
+      public Builder setParallelism(int value) {
+        bitField0_ |= 0x00000004;
+        parallelism_ = value;
+        onChanged();
+        return this;
+      }
+      /**
+       * <code>optional uint32 parallelism = 3 [default = 1];</code>
+       */
+      public Builder clearParallelism() {
+        bitField0_ = (bitField0_ & ~0x00000004);
+        parallelism_ = 1;
+        onChanged();
+        return this;
+      }
+
+      private long deadline_ ;
+      /**
+       * <code>optional uint64 deadline = 4 [default = 0];</code>
+       */
+      public boolean hasDeadline() {
+        return ((bitField0_ & 0x00000008) == 0x00000008);
+      }
+      /**
+       * <code>optional uint64 deadline = 4 [default = 0];</code>
+       */
+      public long getDeadline() {
+        return deadline_;
+      }
+      /**
+       * <code>optional uint64 deadline = 4 [default = 0];</code>
+       */
+      public Builder setDeadline(long value) {
+        bitField0_ |= 0x00000008;
+        deadline_ = value;
+        onChanged();
+        return this;
+      }
+      /**
+       * <code>optional uint64 deadline = 4 [default = 0];</code>
+       */
+      public Builder clearDeadline() {
+        bitField0_ = (bitField0_ & ~0x00000008);
+        deadline_ = 0L;
+        onChanged();
+        return this;
+      }
+
+      private long memory_ ;
+      /**
+       * <code>optional uint64 memory = 5 [default = 0];</code>
+       */
+      public boolean hasMemory() {
+        return ((bitField0_ & 0x00000010) == 0x00000010);
+      }
+      /**
+       * <code>optional uint64 memory = 5 [default = 0];</code>
+       */
+      public long getMemory() {
+        return memory_;
+      }
+      /**
+       * <code>optional uint64 memory = 5 [default = 0];</code>
+       */
+      public Builder setMemory(long value) {
+        bitField0_ |= 0x00000010;
+        memory_ = value;
+        onChanged();
+        return this;
+      }
+      /**
+       * <code>optional uint64 memory = 5 [default = 0];</code>
+       */
+      public Builder clearMemory() {
+        bitField0_ = (bitField0_ & ~0x00000010);
+        memory_ = 0L;
+        onChanged();
+        return this;
+      }
+
+      private double sample_ = 1D;
+      /**
+       * <code>optional double sample = 6 [default = 1];</code>
+       */
+      public boolean hasSample() {
+        return ((bitField0_ & 0x00000020) == 0x00000020);
+      }
+      /**
+       * <code>optional double sample = 6 [default = 1];</code>
+       */
+      public double getSample() {
+        return sample_;
+      }
+      /**
+       * <code>optional double sample = 6 [default = 1];</code>
+       */
+      public Builder setSample(double value) {
+        bitField0_ |= 0x00000020;
+        sample_ = value;
+        onChanged();
+        return this;
+      }
+      /**
+       * <code>optional double sample = 6 [default = 1];</code>
+       */
+      public Builder clearSample() {
+        bitField0_ = (bitField0_ & ~0x00000020);
+        sample_ = 1D;
+        onChanged();
+        return this;
+      }
+
       // @@protoc_insertion_point(builder_scope:AggregateRequest)
     }
 
@@ -6453,67 +6814,1209 @@ public final class AggregateProtos {
     // @@protoc_insertion_point(class_scope:AggregateResponse)
   }
 
+  public interface CursorRequestOrBuilder extends
+      // @@protoc_insertion_point(interface_extends:CursorRequest)
+      com.google.protobuf.MessageOrBuilder {
+
+    /**
+     * <code>required uint64 cursor = 1;</code>
+     */
+    boolean hasCursor();
+    /**
+     * <code>required uint64 cursor = 1;</code>
+     */
+    long getCursor();
+  }
   /**
-   * Protobuf service {@code AggregateService}
+   * Protobuf type {@code CursorRequest}
    *
    * <pre>
    **
-   * 定义聚合服务（定义聚合请求接口）
+   * 游标请求（获取下一个数据块或者关闭游标）
    * </pre>
    */
-  public static abstract class AggregateService
-      implements com.google.protobuf.Service {
-    protected AggregateService() {}
-
-    public interface Interface {
-      /**
-       * <code>rpc aggregate(.AggregateRequest) returns (.AggregateResponse);</code>
-       */
-      public abstract void aggregate(
-          com.google.protobuf.RpcController controller,
-          com.appgame.analytics.aggregator.protobuf.generated.AggregateProtos.AggregateRequest request,
-          com.google.protobuf.RpcCallback<com.appgame.analytics.aggregator.protobuf.generated.AggregateProtos.AggregateResponse> done);
-
+  public static final class CursorRequest extends
+      com.google.protobuf.GeneratedMessage implements
+      // @@protoc_insertion_point(message_implements:CursorRequest)
+      CursorRequestOrBuilder {
+    // Use CursorRequest.newBuilder() to construct.
+    private CursorRequest(com.google.protobuf.GeneratedMessage.Builder<?> builder) {
+      super(builder);
+      this.unknownFields = builder.getUnknownFields();
     }
+    private CursorRequest(boolean noInit) { this.unknownFields = com.google.protobuf.UnknownFieldSet.getDefaultInstance(); }
 
-    public static com.google.protobuf.Service newReflectiveService(
-        final Interface impl) {
-      return new AggregateService() {
-        @java.lang.Override
-        public  void aggregate(
-            com.google.protobuf.RpcController controller,
-            com.appgame.analytics.aggregator.protobuf.generated.AggregateProtos.AggregateRequest request,
-            com.google.protobuf.RpcCallback<com.appgame.analytics.aggregator.protobuf.generated.AggregateProtos.AggregateResponse> done) {
-          impl.aggregate(controller, request, done);
-        }
-
-      };
+    private static final CursorRequest defaultInstance;
+    public static CursorRequest getDefaultInstance() {
+      return defaultInstance;
     }
 
-    public static com.google.protobuf.BlockingService
-        newReflectiveBlockingService(final BlockingInterface impl) {
-      return new com.google.protobuf.BlockingService() {
-        public final com.google.protobuf.Descriptors.ServiceDescriptor
-            getDescriptorForType() {
-          return getDescriptor();
-        }
+    public CursorRequest getDefaultInstanceForType() {
+      return defaultInstance;
+    }
 
-        public final com.google.protobuf.Message callBlockingMethod(
-            com.google.protobuf.Descriptors.MethodDescriptor method,
-            com.google.protobuf.RpcController controller,
-            com.google.protobuf.Message request)
-            throws com.google.protobuf.ServiceException {
-          if (method.getService() != getDescriptor()) {
-            throw new java.lang.IllegalArgumentException(
-              "Service.callBlockingMethod() given method descriptor for " +
-              "wrong service type.");
-          }
-          switch(method.getIndex()) {
-            case 0:
-              return impl.aggregate(controller, (com.appgame.analytics.aggregator.protobuf.generated.AggregateProtos.AggregateRequest)request);
-            default:
-              throw new java.lang.AssertionError("Can't get here.");
-          }
+    private final com.google.protobuf.UnknownFieldSet unknownFields;
+    @java.lang.Override
+    public final com.google.protobuf.UnknownFieldSet
+        getUnknownFields() {
+      return this.unknownFields;
+    }
+    @SuppressWarnings("unused")
+	private CursorRequest(
+        com.google.protobuf.CodedInputStream input,
+        com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+        throws com.google.protobuf.InvalidProtocolBufferException {
+      initFields();
+      int mutable_bitField0_ = 0;
+      com.google.protobuf.UnknownFieldSet.Builder unknownFields =
+          com.google.protobuf.UnknownFieldSet.newBuilder();
+      try {
+        boolean done = false;
+        while (!done) {
+          int tag = input.readTag();
+          switch (tag) {
+            case 0:
+              done = true;
+              break;
+            default: {
+              if (!parseUnknownField(input, unknownFields,
+                                     extensionRegistry, tag)) {
+                done = true;
+              }
+              break;
+            }
+            case 8: {
+              bitField0_ |= 0x00000001;
+              cursor_ = input.readUInt64();
+              break;
+            }
+          }
+        }
+      } catch (com.google.protobuf.InvalidProtocolBufferException e) {
+        throw e.setUnfinishedMessage(this);
+      } catch (java.io.IOException e) {
+        throw new com.google.protobuf.InvalidProtocolBufferException(
+            e.getMessage()).setUnfinishedMessage(this);
+      } finally {
+        this.unknownFields = unknownFields.build();
+        makeExtensionsImmutable();
+      }
+    }
+    public static final com.google.protobuf.Descriptors.Descriptor
+        getDescriptor() {
+      return com.appgame.analytics.aggregator.protobuf.generated.AggregateProtos.internal_static_CursorRequest_descriptor;
+    }
+
+    protected com.google.protobuf.GeneratedMessage.FieldAccessorTable
+        internalGetFieldAccessorTable() {
+      return com.appgame.analytics.aggregator.protobuf.generated.AggregateProtos.internal_static_CursorRequest_fieldAccessorTable
+          .ensureFieldAccessorsInitialized(
+              com.appgame.analytics.aggregator.protobuf.generated.AggregateProtos.CursorRequest.class, com.appgame.analytics.aggregator.protobuf.generated.AggregateProtos.CursorRequest.Builder.class);
+    }
+
+    public static com.google.protobuf.Parser<CursorRequest> PARSER =
+        new com.google.protobuf.AbstractParser<CursorRequest>() {
+      public CursorRequest parsePartialFrom(
+          com.google.protobuf.CodedInputStream input,
+          com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+          throws com.google.protobuf.InvalidProtocolBufferException {
+        return new CursorRequest(input, extensionRegistry);
+      }
+    };
+
+    @java.lang.Override
+    public com.google.protobuf.Parser<CursorRequest> getParserForType() {
+      return PARSER;
+    }
+
+    private int bitField0_;
+    public static final int CURSOR_FIELD_NUMBER = 1;
+    private long cursor_;
+    /**
+     * <code>required uint64 cursor = 1;</code>
+     */
+    public boolean hasCursor() {
+      return ((bitField0_ & 0x00000001) == 0x00000001);
+    }
+    /**
+     * <code>required uint64 cursor = 1;</code>
+     */
+    public long getCursor() {
+      return cursor_;
+    }
+
+    private void initFields() {
+      cursor_ = 0L;
+    }
+    private byte memoizedIsInitialized = -1;
+    public final boolean isInitialized() {
+      byte isInitialized = memoizedIsInitialized;
+      if (isInitialized == 1) return true;
+      if (isInitialized == 0) return false;
+
+      if (!hasCursor()) {
+        memoizedIsInitialized = 0;
+        return false;
+      }
+      memoizedIsInitialized = 1;
+      return true;
+    }
+
+    public void writeTo(com.google.protobuf.CodedOutputStream output)
+                        throws java.io.IOException {
+      getSerializedSize();
+      if (((bitField0_ & 0x00000001) == 0x00000001)) {
+        output.writeUInt64(1, cursor_);
+      }
+      getUnknownFields().writeTo(output);
+    }
+
+    private int memoizedSerializedSize = -1;
+    public int getSerializedSize() {
+      int size = memoizedSerializedSize;
+      if (size != -1) return size;
+
+      size = 0;
+      if (((bitField0_ & 0x00000001) == 0x00000001)) {
+        size += com.google.protobuf.CodedOutputStream
+          .computeUInt64Size(1, cursor_);
+      }
+      size += getUnknownFields().getSerializedSize();
+      memoizedSerializedSize = size;
+      return size;
+    }
+
+    private static final long serialVersionUID = 0L;
+    @java.lang.Override
+    protected java.lang.Object writeReplace()
+        throws java.io.ObjectStreamException {
+      return super.writeReplace();
+    }
+
+    @java.lang.Override
+    public boolean equals(final java.lang.Object obj) {
+      if (obj == this) {
+       return true;
+      }
+      if (!(obj instanceof com.appgame.analytics.aggregator.protobuf.generated.AggregateProtos.CursorRequest)) {
+        return super.equals(obj);
+      }
+      com.appgame.analytics.aggregator.protobuf.generated.AggregateProtos.CursorRequest other = (com.appgame.analytics.aggregator.protobuf.generated.AggregateProtos.CursorRequest) obj;
+
+      boolean result = true;
+      result = result && (hasCursor() == other.hasCursor());
+      if (hasCursor()) {
+        result = result && (getCursor()
+            == other.getCursor());
+      }
+      result = result &&
+          getUnknownFields().equals(other.getUnknownFields());
+      return result;
+    }
+
+    @java.lang.Override
+    public int hashCode() {
+      if (memoizedHashCode != 0) {
+        return memoizedHashCode;
+      }
+      int hash = 41;
+      hash = (19 * hash) + getDescriptorForType().hashCode();
+      if (hasCursor()) {
+        hash = (37 * hash) + CURSOR_FIELD_NUMBER;
+        hash = (53 * hash) + com.google.protobuf.Internal.hashLong(
+            getCursor());
+      }
+      hash = (29 * hash) + getUnknownFields().hashCode();
+      memoizedHashCode = hash;
+      return hash;
+    }
+
+    public static com.appgame.analytics.aggregator.protobuf.generated.AggregateProtos.CursorRequest parseFrom(
+        com.google.protobuf.ByteString data)
+        throws com.google.protobuf.InvalidProtocolBufferException {
+      return PARSER.parseFrom(data);
+    }
+    public static com.appgame.analytics.aggregator.protobuf.generated.AggregateProtos.CursorRequest parseFrom(
+        com.google.protobuf.ByteString data,
+        com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+        throws com.google.protobuf.InvalidProtocolBufferException {
+      return PARSER.parseFrom(data, extensionRegistry);
+    }
+    public static com.appgame.analytics.aggregator.protobuf.generated.AggregateProtos.CursorRequest parseFrom(byte[] data)
+        throws com.google.protobuf.InvalidProtocolBufferException {
+      return PARSER.parseFrom(data);
+    }
+    public static com.appgame.analytics.aggregator.protobuf.generated.AggregateProtos.CursorRequest parseFrom(
+        byte[] data,
+        com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+        throws com.google.protobuf.InvalidProtocolBufferException {
+      return PARSER.parseFrom(data, extensionRegistry);
+    }
+    public static com.appgame.analytics.aggregator.protobuf.generated.AggregateProtos.CursorRequest parseFrom(java.io.InputStream input)
+        throws java.io.IOException {
+      return PARSER.parseFrom(input);
+    }
+    public static com.appgame.analytics.aggregator.protobuf.generated.AggregateProtos.CursorRequest parseFrom(
+        java.io.InputStream input,
+        com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+        throws java.io.IOException {
+      return PARSER.parseFrom(input, extensionRegistry);
+    }
+    public static com.appgame.analytics.aggregator.protobuf.generated.AggregateProtos.CursorRequest parseDelimitedFrom(java.io.InputStream input)
+        throws java.io.IOException {
+      return PARSER.parseDelimitedFrom(input);
+    }
+    public static com.appgame.analytics.aggregator.protobuf.generated.AggregateProtos.CursorRequest parseDelimitedFrom(
+        java.io.InputStream input,
+        com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+        throws java.io.IOException {
+      return PARSER.parseDelimitedFrom(input, extensionRegistry);
+    }
+    public static com.appgame.analytics.aggregator.protobuf.generated.AggregateProtos.CursorRequest parseFrom(
+        com.google.protobuf.CodedInputStream input)
+        throws java.io.IOException {
+      return PARSER.parseFrom(input);
+    }
+    public static com.appgame.analytics.aggregator.protobuf.generated.AggregateProtos.CursorRequest parseFrom(
+        com.google.protobuf.CodedInputStream input,
+        com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+        throws java.io.IOException {
+      return PARSER.parseFrom(input, extensionRegistry);
+    }
+
+    public static Builder newBuilder() { return Builder.create(); }
+    public Builder newBuilderForType() { return newBuilder(); }
+    public static Builder newBuilder(com.appgame.analytics.aggregator.protobuf.generated.AggregateProtos.CursorRequest prototype) {
+      return newBuilder().mergeFrom(prototype);
+    }
+    public Builder toBuilder() { return newBuilder(this); }
+
+    @java.lang.Override
+    protected Builder newBuilderForType(
+        com.google.protobuf.GeneratedMessage.BuilderParent parent) {
+      Builder builder = new Builder(parent);
+      return builder;
+    }
+    /**
+     * Protobuf type {@code CursorRequest}
+     *
+     * <pre>
+     **
+     * 游标请求（获取下一个数据块或者关闭游标）
+     * </pre>
+     */
+    public static final class Builder extends
+        com.google.protobuf.GeneratedMessage.Builder<Builder> implements
+        // @@protoc_insertion_point(builder_implements:CursorRequest)
+        com.appgame.analytics.aggregator.protobuf.generated.AggregateProtos.CursorRequestOrBuilder {
+      public static final com.google.protobuf.Descriptors.Descriptor
+          getDescriptor() {
+        return com.appgame.analytics.aggregator.protobuf.generated.AggregateProtos.internal_static_CursorRequest_descriptor;
+      }
+
+      protected com.google.protobuf.GeneratedMessage.FieldAccessorTable
+          internalGetFieldAccessorTable() {
+        return com.appgame.analytics.aggregator.protobuf.generated.AggregateProtos.internal_static_CursorRequest_fieldAccessorTable
+            .ensureFieldAccessorsInitialized(
+                com.appgame.analytics.aggregator.protobuf.generated.AggregateProtos.CursorRequest.class, com.appgame.analytics.aggregator.protobuf.generated.AggregateProtos.CursorRequest.Builder.class);
+      }
+
+      // Construct using com.appgame.analytics.aggregator.protobuf.generated.AggregateProtos.CursorRequest.newBuilder()
+      private Builder() {
+        maybeForceBuilderInitialization();
+      }
+
+      private Builder(
+          com.google.protobuf.GeneratedMessage.BuilderParent parent) {
+        super(parent);
+        maybeForceBuilderInitialization();
+      }
+      private void maybeForceBuilderInitialization() {
+        if (com.google.protobuf.GeneratedMessage.alwaysUseFieldBuilders) {
+        }
+      }
+      private static Builder create() {
+        return new Builder();
+      }
+
+      public Builder clear() {
+        super.clear();
+        cursor_ = 0L;
+        bitField0_ = (bitField0_ & ~0x00000001);
+        return this;
+      }
+
+      public Builder clone() {
+        return create().mergeFrom(buildPartial());
+      }
+
+      public com.google.protobuf.Descriptors.Descriptor
+          getDescriptorForType() {
+        return com.appgame.analytics.aggregator.protobuf.generated.AggregateProtos.internal_static_CursorRequest_descriptor;
+      }
+
+      public com.appgame.analytics.aggregator.protobuf.generated.AggregateProtos.CursorRequest getDefaultInstanceForType() {
+        return com.appgame.analytics.aggregator.protobuf.generated.AggregateProtos.CursorRequest.getDefaultInstance();
+      }
+
+      public com.appgame.analytics.aggregator.protobuf.generated.AggregateProtos.CursorRequest build() {
+        com.appgame.analytics.aggregator.protobuf.generated.AggregateProtos.CursorRequest result = buildPartial();
+        if (!result.isInitialized()) {
+          throw newUninitializedMessageException(result);
+        }
+        return result;
+      }
+
+      public com.appgame.analytics.aggregator.protobuf.generated.AggregateProtos.CursorRequest buildPartial() {
+        com.appgame.analytics.aggregator.protobuf.generated.AggregateProtos.CursorRequest result = new com.appgame.analytics.aggregator.protobuf.generated.AggregateProtos.CursorRequest(this);
+        int from_bitField0_ = bitField0_;
+        int to_bitField0_ = 0;
+        if (((from_bitField0_ & 0x00000001) == 0x00000001)) {
+          to_bitField0_ |= 0x00000001;
+        }
+        result.cursor_ = cursor_;
+        result.bitField0_ = to_bitField0_;
+        onBuilt();
+        return result;
+      }
+
+      public Builder mergeFrom(com.google.protobuf.Message other) {
+        if (other instanceof com.appgame.analytics.aggregator.protobuf.generated.AggregateProtos.CursorRequest) {
+          return mergeFrom((com.appgame.analytics.aggregator.protobuf.generated.AggregateProtos.CursorRequest)other);
+        } else {
+          super.mergeFrom(other);
+          return this;
+        }
+      }
+
+      public Builder mergeFrom(com.appgame.analytics.aggregator.protobuf.generated.AggregateProtos.CursorRequest other) {
+        if (other == com.appgame.analytics.aggregator.protobuf.generated.AggregateProtos.CursorRequest.getDefaultInstance()) return this;
+        if (other.hasCursor()) {
+          setCursor(other.getCursor());
+        }
+        this.mergeUnknownFields(other.getUnknownFields());
+        return this;
+      }
+
+      public final boolean isInitialized() {
+        if (!hasCursor()) {
+          
+          return false;
+        }
+        return true;
+      }
+
+      public Builder mergeFrom(
+          com.google.protobuf.CodedInputStream input,
+          com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+          throws java.io.IOException {
+        com.appgame.analytics.aggregator.protobuf.generated.AggregateProtos.CursorRequest parsedMessage = null;
+        try {
+          parsedMessage = PARSER.parsePartialFrom(input, extensionRegistry);
+        } catch (com.google.protobuf.InvalidProtocolBufferException e) {
+          parsedMessage = (com.appgame.analytics.aggregator.protobuf.generated.AggregateProtos.CursorRequest) e.getUnfinishedMessage();
+          throw e;
+        } finally {
+          if (parsedMessage != null) {
+            mergeFrom(parsedMessage);
+          }
+        }
+        return this;
+      }
+      private int bitField0_;
+
+      private long cursor_ ;
+      /**
+       * <code>required uint64 cursor = 1;</code>
+       */
+      public boolean hasCursor() {
+        return ((bitField0_ & 0x00000001) == 0x00000001);
+      }
+      /**
+       * <code>required uint64 cursor = 1;</code>
+       */
+      public long getCursor() {
+        return cursor_;
+      }
+      /**
+       * <code>required uint64 cursor = 1;</code>
+       */
+      public Builder setCursor(long value) {
+        bitField0_ |= 0x00000001;
+        cursor_ = value;
+        onChanged();
+        return this;
+      }
+      /**
+       * <code>required uint64 cursor = 1;</code>
+       */
+      public Builder clearCursor() {
+        bitField0_ = (bitField0_ & ~0x00000001);
+        cursor_ = 0L;
+        onChanged();
+        return this;
+      }
+
+      // @@protoc_insertion_point(builder_scope:CursorRequest)
+    }
+
+    static {
+      defaultInstance = new CursorRequest(true);
+      defaultInstance.initFields();
+    }
+
+    // @@protoc_insertion_point(class_scope:CursorRequest)
+  }
+
+  public interface CursorResponseOrBuilder extends
+      // @@protoc_insertion_point(interface_extends:CursorResponse)
+      com.google.protobuf.MessageOrBuilder {
+
+    /**
+     * <code>optional uint64 cursor = 1;</code>
+     */
+    boolean hasCursor();
+    /**
+     * <code>optional uint64 cursor = 1;</code>
+     */
+    long getCursor();
+
+    /**
+     * <code>optional bytes data = 2;</code>
+     */
+    boolean hasData();
+    /**
+     * <code>optional bytes data = 2;</code>
+     */
+    com.google.protobuf.ByteString getData();
+
+    /**
+     * <code>optional bool more = 3 [default = false];</code>
+     */
+    boolean hasMore();
+    /**
+     * <code>optional bool more = 3 [default = false];</code>
+     */
+    boolean getMore();
+  }
+  /**
+   * Protobuf type {@code CursorResponse}
+   *
+   * <pre>
+   **
+   * 游标应答（包含三个部分）
+   * 1. 游标编号
+   * 2. 数据块（格式与聚合请求应答数据一致）
+   * 3. 是否还有后续数据块（没有后续数据块时游标自动关闭）
+   * </pre>
+   */
+  public static final class CursorResponse extends
+      com.google.protobuf.GeneratedMessage implements
+      // @@protoc_insertion_point(message_implements:CursorResponse)
+      CursorResponseOrBuilder {
+    // Use CursorResponse.newBuilder() to construct.
+    private CursorResponse(com.google.protobuf.GeneratedMessage.Builder<?> builder) {
+      super(builder);
+      this.unknownFields = builder.getUnknownFields();
+    }
+    private CursorResponse(boolean noInit) { this.unknownFields = com.google.protobuf.UnknownFieldSet.getDefaultInstance(); }
+
+    private static final CursorResponse defaultInstance;
+    public static CursorResponse getDefaultInstance() {
+      return defaultInstance;
+    }
+
+    public CursorResponse getDefaultInstanceForType() {
+      return defaultInstance;
+    }
+
+    private final com.google.protobuf.UnknownFieldSet unknownFields;
+    @java.lang.Override
+    public final com.google.protobuf.UnknownFieldSet
+        getUnknownFields() {
+      return this.unknownFields;
+    }
+    @SuppressWarnings("unused")
+	private CursorResponse(
+        com.google.protobuf.CodedInputStream input,
+        com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+        throws com.google.protobuf.InvalidProtocolBufferException {
+      initFields();
+      int mutable_bitField0_ = 0;
+      com.google.protobuf.UnknownFieldSet.Builder unknownFields =
+          com.google.protobuf.UnknownFieldSet.newBuilder();
+      try {
+        boolean done = false;
+        while (!done) {
+          int tag = input.readTag();
+          switch (tag) {
+            case 0:
+              done = true;
+              break;
+            default: {
+              if (!parseUnknownField(input, unknownFields,
+                                     extensionRegistry, tag)) {
+                done = true;
+              }
+              break;
+            }
+            case 8: {
+              bitField0_ |= 0x00000001;
+              cursor_ = input.readUInt64();
+              break;
+            }
+            case 18: {
+              bitField0_ |= 0x00000002;
+              data_ = input.readBytes();
+              break;
+            }
+            case 24: {
+              bitField0_ |= 0x00000004;
+              more_ = input.readBool();
+              break;
+            }
+          }
+        }
+      } catch (com.google.protobuf.InvalidProtocolBufferException e) {
+        throw e.setUnfinishedMessage(this);
+      } catch (java.io.IOException e) {
+        throw new com.google.protobuf.InvalidProtocolBufferException(
+            e.getMessage()).setUnfinishedMessage(this);
+      } finally {
+        this.unknownFields = unknownFields.build();
+        makeExtensionsImmutable();
+      }
+    }
+    public static final com.google.protobuf.Descriptors.Descriptor
+        getDescriptor() {
+      return com.appgame.analytics.aggregator.protobuf.generated.AggregateProtos.internal_static_CursorResponse_descriptor;
+    }
+
+    protected com.google.protobuf.GeneratedMessage.FieldAccessorTable
+        internalGetFieldAccessorTable() {
+      return com.appgame.analytics.aggregator.protobuf.generated.AggregateProtos.internal_static_CursorResponse_fieldAccessorTable
+          .ensureFieldAccessorsInitialized(
+              com.appgame.analytics.aggregator.protobuf.generated.AggregateProtos.CursorResponse.class, com.appgame.analytics.aggregator.protobuf.generated.AggregateProtos.CursorResponse.Builder.class);
+    }
+
+    public static com.google.protobuf.Parser<CursorResponse> PARSER =
+        new com.google.protobuf.AbstractParser<CursorResponse>() {
+      public CursorResponse parsePartialFrom(
+          com.google.protobuf.CodedInputStream input,
+          com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+          throws com.google.protobuf.InvalidProtocolBufferException {
+        return new CursorResponse(input, extensionRegistry);
+      }
+    };
+
+    @java.lang.Override
+    public com.google.protobuf.Parser<CursorResponse> getParserForType() {
+      return PARSER;
+    }
+
+    private int bitField0_;
+    public static final int CURSOR_FIELD_NUMBER = 1;
+    private long cursor_;
+    /**
+     * <code>optional uint64 cursor = 1;</code>
+     */
+    public boolean hasCursor() {
+      return ((bitField0_ & 0x00000001) == 0x00000001);
+    }
+    /**
+     * <code>optional uint64 cursor = 1;</code>
+     */
+    public long getCursor() {
+      return cursor_;
+    }
+
+    public static final int DATA_FIELD_NUMBER = 2;
+    private com.google.protobuf.ByteString data_;
+    /**
+     * <code>optional bytes data = 2;</code>
+     */
+    public boolean hasData() {
+      return ((bitField0_ & 0x00000002) == 0x00000002);
+    }
+    /**
+     * <code>optional bytes data = 2;</code>
+     */
+    public com.google.protobuf.ByteString getData() {
+      return data_;
+    }
+
+    public static final int MORE_FIELD_NUMBER = 3;
+    private boolean more_;
+    /**
+     * <code>optional bool more = 3 [default = false];</code>
+     */
+    public boolean hasMore() {
+      return ((bitField0_ & 0x00000004) == 0x00000004);
+    }
+    /**
+     * <code>optional bool more = 3 [default = false];</code>
+     */
+    public boolean getMore() {
+      return more_;
+    }
+
+    private void initFields() {
+      cursor_ = 0L;
+      data_ = com.google.protobuf.ByteString.EMPTY;
+      more_ = false;
+    }
+    private byte memoizedIsInitialized = -1;
+    public final boolean isInitialized() {
+      byte isInitialized = memoizedIsInitialized;
+      if (isInitialized == 1) return true;
+      if (isInitialized == 0) return false;
+
+      memoizedIsInitialized = 1;
+      return true;
+    }
+
+    public void writeTo(com.google.protobuf.CodedOutputStream output)
+                        throws java.io.IOException {
+      getSerializedSize();
+      if (((bitField0_ & 0x00000001) == 0x00000001)) {
+        output.writeUInt64(1, cursor_);
+      }
+      if (((bitField0_ & 0x00000002) == 0x00000002)) {
+        output.writeBytes(2, data_);
+      }
+      if (((bitField0_ & 0x00000004) == 0x00000004)) {
+        output.writeBool(3, more_);
+      }
+      getUnknownFields().writeTo(output);
+    }
+
+    private int memoizedSerializedSize = -1;
+    public int getSerializedSize() {
+      int size = memoizedSerializedSize;
+      if (size != -1) return size;
+
+      size = 0;
+      if (((bitField0_ & 0x00000001) == 0x00000001)) {
+        size += com.google.protobuf.CodedOutputStream
+          .computeUInt64Size(1, cursor_);
+      }
+      if (((bitField0_ & 0x00000002) == 0x00000002)) {
+        size += com.google.protobuf.CodedOutputStream
+          .computeBytesSize(2, data_);
+      }
+      if (((bitField0_ & 0x00000004) == 0x00000004)) {
+        size += com.google.protobuf.CodedOutputStream
+          .computeBoolSize(3, more_);
+      }
+      size += getUnknownFields().getSerializedSize();
+      memoizedSerializedSize = size;
+      return size;
+    }
+
+    private static final long serialVersionUID = 0L;
+    @java.lang.Override
+    protected java.lang.Object writeReplace()
+        throws java.io.ObjectStreamException {
+      return super.writeReplace();
+    }
+
+    @java.lang.Override
+    public boolean equals(final java.lang.Object obj) {
+      if (obj == this) {
+       return true;
+      }
+      if (!(obj instanceof com.appgame.analytics.aggregator.protobuf.generated.AggregateProtos.CursorResponse)) {
+        return super.equals(obj);
+      }
+      com.appgame.analytics.aggregator.protobuf.generated.AggregateProtos.CursorResponse other = (com.appgame.analytics.aggregator.protobuf.generated.AggregateProtos.CursorResponse) obj;
+
+      boolean result = true;
+      result = result && (hasCursor() == other.hasCursor());
+      if (hasCursor()) {
+        result = result && (getCursor()
+            == other.getCursor());
+      }
+      result = result && (hasData() == other.hasData());
+      if (hasData()) {
+        result = result && getData()
+            .equals(other.getData());
+      }
+      result = result && (hasMore() == other.hasMore());
+      if (hasMore()) {
+        result = result && (getMore()
+            == other.getMore());
+      }
+      result = result &&
+          getUnknownFields().equals(other.getUnknownFields());
+      return result;
+    }
+
+    @java.lang.Override
+    public int hashCode() {
+      if (memoizedHashCode != 0) {
+        return memoizedHashCode;
+      }
+      int hash = 41;
+      hash = (19 * hash) + getDescriptorForType().hashCode();
+      if (hasCursor()) {
+        hash = (37 * hash) + CURSOR_FIELD_NUMBER;
+        hash = (53 * hash) + com.google.protobuf.Internal.hashLong(
+            getCursor());
+      }
+      if (hasData()) {
+        hash = (37 * hash) + DATA_FIELD_NUMBER;
+        hash = (53 * hash) + getData().hashCode();
+      }
+      if (hasMore()) {
+        hash = (37 * hash) + MORE_FIELD_NUMBER;
+        hash = (53 * hash) + com.google.protobuf.Internal.hashBoolean(
+            getMore());
+      }
+      hash = (29 * hash) + getUnknownFields().hashCode();
+      memoizedHashCode = hash;
+      return hash;
+    }
+
+    public static com.appgame.analytics.aggregator.protobuf.generated.AggregateProtos.CursorResponse parseFrom(
+        com.google.protobuf.ByteString data)
+        throws com.google.protobuf.InvalidProtocolBufferException {
+      return PARSER.parseFrom(data);
+    }
+    public static com.appgame.analytics.aggregator.protobuf.generated.AggregateProtos.CursorResponse parseFrom(
+        com.google.protobuf.ByteString data,
+        com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+        throws com.google.protobuf.InvalidProtocolBufferException {
+      return PARSER.parseFrom(data, extensionRegistry);
+    }
+    public static com.appgame.analytics.aggregator.protobuf.generated.AggregateProtos.CursorResponse parseFrom(byte[] data)
+        throws com.google.protobuf.InvalidProtocolBufferException {
+      return PARSER.parseFrom(data);
+    }
+    public static com.appgame.analytics.aggregator.protobuf.generated.AggregateProtos.CursorResponse parseFrom(
+        byte[] data,
+        com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+        throws com.google.protobuf.InvalidProtocolBufferException {
+      return PARSER.parseFrom(data, extensionRegistry);
+    }
+    public static com.appgame.analytics.aggregator.protobuf.generated.AggregateProtos.CursorResponse parseFrom(java.io.InputStream input)
+        throws java.io.IOException {
+      return PARSER.parseFrom(input);
+    }
+    public static com.appgame.analytics.aggregator.protobuf.generated.AggregateProtos.CursorResponse parseFrom(
+        java.io.InputStream input,
+        com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+        throws java.io.IOException {
+      return PARSER.parseFrom(input, extensionRegistry);
+    }
+    public static com.appgame.analytics.aggregator.protobuf.generated.AggregateProtos.CursorResponse parseDelimitedFrom(java.io.InputStream input)
+        throws java.io.IOException {
+      return PARSER.parseDelimitedFrom(input);
+    }
+    public static com.appgame.analytics.aggregator.protobuf.generated.AggregateProtos.CursorResponse parseDelimitedFrom(
+        java.io.InputStream input,
+        com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+        throws java.io.IOException {
+      return PARSER.parseDelimitedFrom(input, extensionRegistry);
+    }
+    public static com.appgame.analytics.aggregator.protobuf.generated.AggregateProtos.CursorResponse parseFrom(
+        com.google.protobuf.CodedInputStream input)
+        throws java.io.IOException {
+      return PARSER.parseFrom(input);
+    }
+    public static com.appgame.analytics.aggregator.protobuf.generated.AggregateProtos.CursorResponse parseFrom(
+        com.google.protobuf.CodedInputStream input,
+        com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+        throws java.io.IOException {
+      return PARSER.parseFrom(input, extensionRegistry);
+    }
+
+    public static Builder newBuilder() { return Builder.create(); }
+    public Builder newBuilderForType() { return newBuilder(); }
+    public static Builder newBuilder(com.appgame.analytics.aggregator.protobuf.generated.AggregateProtos.CursorResponse prototype) {
+      return newBuilder().mergeFrom(prototype);
+    }
+    public Builder toBuilder() { return newBuilder(this); }
+
+    @java.lang.Override
+    protected Builder newBuilderForType(
+        com.google.protobuf.GeneratedMessage.BuilderParent parent) {
+      Builder builder = new Builder(parent);
+      return builder;
+    }
+    /**
+     * Protobuf type {@code CursorResponse}
+     *
+     * <pre>
+     **
+     * 游标应答（包含三个部分）
+     * 1. 游标编号
+     * 2. 数据块（格式与聚合请求应答数据一致）
+     * 3. 是否还有后续数据块（没有后续数据块时游标自动关闭）
+     * </pre>
+     */
+    public static final class Builder extends
+        com.google.protobuf.GeneratedMessage.Builder<Builder> implements
+        // @@protoc_insertion_point(builder_implements:CursorResponse)
+        com.appgame.analytics.aggregator.protobuf.generated.AggregateProtos.CursorResponseOrBuilder {
+      public static final com.google.protobuf.Descriptors.Descriptor
+          getDescriptor() {
+        return com.appgame.analytics.aggregator.protobuf.generated.AggregateProtos.internal_static_CursorResponse_descriptor;
+      }
+
+      protected com.google.protobuf.GeneratedMessage.FieldAccessorTable
+          internalGetFieldAccessorTable() {
+        return com.appgame.analytics.aggregator.protobuf.generated.AggregateProtos.internal_static_CursorResponse_fieldAccessorTable
+            .ensureFieldAccessorsInitialized(
+                com.appgame.analytics.aggregator.protobuf.generated.AggregateProtos.CursorResponse.class, com.appgame.analytics.aggregator.protobuf.generated.AggregateProtos.CursorResponse.Builder.class);
+      }
+
+      // Construct using com.appgame.analytics.aggregator.protobuf.generated.AggregateProtos.CursorResponse.newBuilder()
+      private Builder() {
+        maybeForceBuilderInitialization();
+      }
+
+      private Builder(
+          com.google.protobuf.GeneratedMessage.BuilderParent parent) {
+        super(parent);
+        maybeForceBuilderInitialization();
+      }
+      private void maybeForceBuilderInitialization() {
+        if (com.google.protobuf.GeneratedMessage.alwaysUseFieldBuilders) {
+        }
+      }
+      private static Builder create() {
+        return new Builder();
+      }
+
+      public Builder clear() {
+        super.clear();
+        cursor_ = 0L;
+        bitField0_ = (bitField0_ & ~0x00000001);
+        data_ = com.google.protobuf.ByteString.EMPTY;
+        bitField0_ = (bitField0_ & ~0x00000002);
+        more_ = false;
+        bitField0_ = (bitField0_ & ~0x00000004);
+        return this;
+      }
+
+      public Builder clone() {
+        return create().mergeFrom(buildPartial());
+      }
+
+      public com.google.protobuf.Descriptors.Descriptor
+          getDescriptorForType() {
+        return com.appgame.analytics.aggregator.protobuf.generated.AggregateProtos.internal_static_CursorResponse_descriptor;
+      }
+
+      public com.appgame.analytics.aggregator.protobuf.generated.AggregateProtos.CursorResponse getDefaultInstanceForType() {
+        return com.appgame.analytics.aggregator.protobuf.generated.AggregateProtos.CursorResponse.getDefaultInstance();
+      }
+
+      public com.appgame.analytics.aggregator.protobuf.generated.AggregateProtos.CursorResponse build() {
+        com.appgame.analytics.aggregator.protobuf.generated.AggregateProtos.CursorResponse result = buildPartial();
+        if (!result.isInitialized()) {
+          throw newUninitializedMessageException(result);
+        }
+        return result;
+      }
+
+      public com.appgame.analytics.aggregator.protobuf.generated.AggregateProtos.CursorResponse buildPartial() {
+        com.appgame.analytics.aggregator.protobuf.generated.AggregateProtos.CursorResponse result = new com.appgame.analytics.aggregator.protobuf.generated.AggregateProtos.CursorResponse(this);
+        int from_bitField0_ = bitField0_;
+        int to_bitField0_ = 0;
+        if (((from_bitField0_ & 0x00000001) == 0x00000001)) {
+          to_bitField0_ |= 0x00000001;
+        }
+        result.cursor_ = cursor_;
+        if (((from_bitField0_ & 0x00000002) == 0x00000002)) {
+          to_bitField0_ |= 0x00000002;
+        }
+        result.data_ = data_;
+        if (((from_bitField0_ & 0x00000004) == 0x00000004)) {
+          to_bitField0_ |= 0x00000004;
+        }
+        result.more_ = more_;
+        result.bitField0_ = to_bitField0_;
+        onBuilt();
+        return result;
+      }
+
+      public Builder mergeFrom(com.google.protobuf.Message other) {
+        if (other instanceof com.appgame.analytics.aggregator.protobuf.generated.AggregateProtos.CursorResponse) {
+          return mergeFrom((com.appgame.analytics.aggregator.protobuf.generated.AggregateProtos.CursorResponse)other);
+        } else {
+          super.mergeFrom(other);
+          return this;
+        }
+      }
+
+      public Builder mergeFrom(com.appgame.analytics.aggregator.protobuf.generated.AggregateProtos.CursorResponse other) {
+        if (other == com.appgame.analytics.aggregator.protobuf.generated.AggregateProtos.CursorResponse.getDefaultInstance()) return this;
+        if (other.hasCursor()) {
+          setCursor(other.getCursor());
+        }
+        if (other.hasData()) {
+          setData(other.getData());
+        }
+        if (other.hasMore()) {
+          setMore(other.getMore());
+        }
+        this.mergeUnknownFields(other.getUnknownFields());
+        return this;
+      }
+
+      public final boolean isInitialized() {
+        return true;
+      }
+
+      public Builder mergeFrom(
+          com.google.protobuf.CodedInputStream input,
+          com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+          throws java.io.IOException {
+        com.appgame.analytics.aggregator.protobuf.generated.AggregateProtos.CursorResponse parsedMessage = null;
+        try {
+          parsedMessage = PARSER.parsePartialFrom(input, extensionRegistry);
+        } catch (com.google.protobuf.InvalidProtocolBufferException e) {
+          parsedMessage = (com.appgame.analytics.aggregator.protobuf.generated.AggregateProtos.CursorResponse) e.getUnfinishedMessage();
+          throw e;
+        } finally {
+          if (parsedMessage != null) {
+            mergeFrom(parsedMessage);
+          }
+        }
+        return this;
+      }
+      private int bitField0_;
+
+      private long cursor_ ;
+      /**
+       * <code>optional uint64 cursor = 1;</code>
+       */
+      public boolean hasCursor() {
+        return ((bitField0_ & 0x00000001) == 0x00000001);
+      }
+      /**
+       * <code>optional uint64 cursor = 1;</code>
+       */
+      public long getCursor() {
+        return cursor_;
+      }
+      /**
+       * <code>optional uint64 cursor = 1;</code>
+       */
+      public Builder setCursor(long value) {
+        bitField0_ |= 0x00000001;
+        cursor_ = value;
+        onChanged();
+        return this;
+      }
+      /**
+       * <code>optional uint64 cursor = 1;</code>
+       */
+      public Builder clearCursor() {
+        bitField0_ = (bitField0_ & ~0x00000001);
+        cursor_ = 0L;
+        onChanged();
+        return this;
+      }
+
+      private com.google.protobuf.ByteString data_ = com.google.protobuf.ByteString.EMPTY;
+      /**
+       * <code>optional bytes data = 2;</code>
+       */
+      public boolean hasData() {
+        return ((bitField0_ & 0x00000002) == 0x00000002);
+      }
+      /**
+       * <code>optional bytes data = 2;</code>
+       */
+      public com.google.protobuf.ByteString getData() {
+        return data_;
+      }
+      /**
+       * <code>optional bytes data = 2;</code>
+       */
+      public Builder setData(com.google.protobuf.ByteString value) {
+        if (value == null) {
+    throw new NullPointerException();
+  }
+  bitField0_ |= 0x00000002;
+        data_ = value;
+        onChanged();
+        return this;
+      }
+      /**
+       * <code>optional bytes data = 2;</code>
+       */
+      public Builder clearData() {
+        bitField0_ = (bitField0_ & ~0x00000002);
+        data_ = getDefaultInstance().getData();
+        onChanged();
+        return this;
+      }
+
+      private boolean more_ ;
+      /**
+       * <code>optional bool more = 3 [default = false];</code>
+       */
+      public boolean hasMore() {
+        return ((bitField0_ & 0x00000004) == 0x00000004);
+      }
+      /**
+       * <code>optional bool more = 3 [default = false];</code>
+       */
+      public boolean getMore() {
+        return more_;
+      }
+      /**
+       * <code>optional bool more = 3 [default = false];</code>
+       */
+      public Builder setMore(boolean value) {
+        bitField0_ |= 0x00000004;
+        more_ = value;
+        onChanged();
+        return this;
+      }
+      /**
+       * <code>optional bool more = 3 [default = false];</code>
+       */
+      public Builder clearMore() {
+        bitField0_ = (bitField0_ & ~0x00000004);
+        more_ = false;
+        onChanged();
+        return this;
+      }
+
+      // @@protoc_insertion_point(builder_scope:CursorResponse)
+    }
+
+    static {
+      defaultInstance = new CursorResponse(true);
+      defaultInstance.initFields();
+    }
+
+    // @@protoc_insertion_point(class_scope:CursorResponse)
+  }
+
+  /**
+   * Protobuf service {@code AggregateService}
+   *
+   * <pre>
+   **
+   * 定义聚合服务（定义聚合请求接口）
+   * 1. aggregate : 一次性返回全部聚合结果
+   * 2. open      : 执行聚合操作并打开游标（返回第一个数据块）
+   * 3. next      : 返回游标的下一个数据块
+   * 4. close     : 关闭游标
+   * </pre>
+   */
+  public static abstract class AggregateService
+      implements com.google.protobuf.Service {
+    protected AggregateService() {}
+
+    public interface Interface {
+      /**
+       * <code>rpc aggregate(.AggregateRequest) returns (.AggregateResponse);</code>
+       */
+      public abstract void aggregate(
+          com.google.protobuf.RpcController controller,
+          com.appgame.analytics.aggregator.protobuf.generated.AggregateProtos.AggregateRequest request,
+          com.google.protobuf.RpcCallback<com.appgame.analytics.aggregator.protobuf.generated.AggregateProtos.AggregateResponse> done);
+
+      /**
+       * <code>rpc open(.AggregateRequest) returns (.CursorResponse);</code>
+       */
+      public abstract void open(
+          com.google.protobuf.RpcController controller,
+          com.appgame.analytics.aggregator.protobuf.generated.AggregateProtos.AggregateRequest request,
+          com.google.protobuf.RpcCallback<com.appgame.analytics.aggregator.protobuf.generated.AggregateProtos.CursorResponse> done);
+
+      /**
+       * <code>rpc next(.CursorRequest) returns (.CursorResponse);</code>
+       */
+      public abstract void next(
+          com.google.protobuf.RpcController controller,
+          com.appgame.analytics.aggregator.protobuf.generated.AggregateProtos.CursorRequest request,
+          com.google.protobuf.RpcCallback<com.appgame.analytics.aggregator.protobuf.generated.AggregateProtos.CursorResponse> done);
+
+      /**
+       * <code>rpc close(.CursorRequest) returns (.CursorResponse);</code>
+       */
+      public abstract void close(
+          com.google.protobuf.RpcController controller,
+          com.appgame.analytics.aggregator.protobuf.generated.AggregateProtos.CursorRequest request,
+          com.google.protobuf.RpcCallback<com.appgame.analytics.aggregator.protobuf.generated.AggregateProtos.CursorResponse> done);
+
+    }
+
+    public static com.google.protobuf.Service newReflectiveService(
+        final Interface impl) {
+      return new AggregateService() {
+        @java.lang.Override
+        public  void aggregate(
+            com.google.protobuf.RpcController controller,
+            com.appgame.analytics.aggregator.protobuf.generated.AggregateProtos.AggregateRequest request,
+            com.google.protobuf.RpcCallback<com.appgame.analytics.aggregator.protobuf.generated.AggregateProtos.AggregateResponse> done) {
+          impl.aggregate(controller, request, done);
+        }
+
+        @java.lang.Override
+        public  void open(
+            com.google.protobuf.RpcController controller,
+            com.appgame.analytics.aggregator.protobuf.generated.AggregateProtos.AggregateRequest request,
+            com.google.protobuf.RpcCallback<com.appgame.analytics.aggregator.protobuf.generated.AggregateProtos.CursorResponse> done) {
+          impl.open(controller, request, done);
+        }
+
+        @java.lang.Override
+        public  void next(
+            com.google.protobuf.RpcController controller,
+            com.appgame.analytics.aggregator.protobuf.generated.AggregateProtos.CursorRequest request,
+            com.google.protobuf.RpcCallback<com.appgame.analytics.aggregator.protobuf.generated.AggregateProtos.CursorResponse> done) {
+          impl.next(controller, request, done);
+        }
+
+        @java.lang.Override
+        public  void close(
+            com.google.protobuf.RpcController controller,
+            com.appgame.analytics.aggregator.protobuf.generated.AggregateProtos.CursorRequest request,
+            com.google.protobuf.RpcCallback<com.appgame.analytics.aggregator.protobuf.generated.AggregateProtos.CursorResponse> done) {
+          impl.close(controller, request, done);
+        }
+
+      };
+    }
+
+    public static com.google.protobuf.BlockingService
+        newReflectiveBlockingService(final BlockingInterface impl) {
+      return new com.google.protobuf.BlockingService() {
+        public final com.google.protobuf.Descriptors.ServiceDescriptor
+            getDescriptorForType() {
+          return getDescriptor();
+        }
+
+        public final com.google.protobuf.Message callBlockingMethod(
+            com.google.protobuf.Descriptors.MethodDescriptor method,
+            com.google.protobuf.RpcController controller,
+            com.google.protobuf.Message request)
+            throws com.google.protobuf.ServiceException {
+          if (method.getService() != getDescriptor()) {
+            throw new java.lang.IllegalArgumentException(
+              "Service.callBlockingMethod() given method descriptor for " +
+              "wrong service type.");
+          }
+          switch(method.getIndex()) {
+            case 0:
+              return impl.aggregate(controller, (com.appgame.analytics.aggregator.protobuf.generated.AggregateProtos.AggregateRequest)request);
+            case 1:
+              return impl.open(controller, (com.appgame.analytics.aggregator.protobuf.generated.AggregateProtos.AggregateRequest)request);
+            case 2:
+              return impl.next(controller, (com.appgame.analytics.aggregator.protobuf.generated.AggregateProtos.CursorRequest)request);
+            case 3:
+              return impl.close(controller, (com.appgame.analytics.aggregator.protobuf.generated.AggregateProtos.CursorRequest)request);
+            default:
+              throw new java.lang.AssertionError("Can't get here.");
+          }
         }
 
         public final com.google.protobuf.Message
@@ -6527,6 +8030,12 @@ public final class AggregateProtos {
           switch(method.getIndex()) {
             case 0:
               return com.appgame.analytics.aggregator.protobuf.generated.AggregateProtos.AggregateRequest.getDefaultInstance();
+            case 1:
+              return com.appgame.analytics.aggregator.protobuf.generated.AggregateProtos.AggregateRequest.getDefaultInstance();
+            case 2:
+              return com.appgame.analytics.aggregator.protobuf.generated.AggregateProtos.CursorRequest.getDefaultInstance();
+            case 3:
+              return com.appgame.analytics.aggregator.protobuf.generated.AggregateProtos.CursorRequest.getDefaultInstance();
             default:
               throw new java.lang.AssertionError("Can't get here.");
           }
@@ -6543,6 +8052,12 @@ public final class AggregateProtos {
           switch(method.getIndex()) {
             case 0:
               return com.appgame.analytics.aggregator.protobuf.generated.AggregateProtos.AggregateResponse.getDefaultInstance();
+            case 1:
+              return com.appgame.analytics.aggregator.protobuf.generated.AggregateProtos.CursorResponse.getDefaultInstance();
+            case 2:
+              return com.appgame.analytics.aggregator.protobuf.generated.AggregateProtos.CursorResponse.getDefaultInstance();
+            case 3:
+              return com.appgame.analytics.aggregator.protobuf.generated.AggregateProtos.CursorResponse.getDefaultInstance();
             default:
               throw new java.lang.AssertionError("Can't get here.");
           }
@@ -6559,6 +8074,30 @@ public final class AggregateProtos {
         com.appgame.analytics.aggregator.protobuf.generated.AggregateProtos.AggregateRequest request,
         com.google.protobuf.RpcCallback<com.appgame.analytics.aggregator.protobuf.generated.AggregateProtos.AggregateResponse> done);
 
+    /**
+     * <code>rpc open(.AggregateRequest) returns (.CursorResponse);</code>
+     */
+    public abstract void open(
+        com.google.protobuf.RpcController controller,
+        com.appgame.analytics.aggregator.protobuf.generated.AggregateProtos.AggregateRequest request,
+        com.google.protobuf.RpcCallback<com.appgame.analytics.aggregator.protobuf.generated.AggregateProtos.CursorResponse> done);
+
+    /**
+     * <code>rpc next(.CursorRequest) returns (.CursorResponse);</code>
+     */
+    public abstract void next(
+        com.google.protobuf.RpcController controller,
+        com.appgame.analytics.aggregator.protobuf.generated.AggregateProtos.CursorRequest request,
+        com.google.protobuf.RpcCallback<com.appgame.analytics.aggregator.protobuf.generated.AggregateProtos.CursorResponse> done);
+
+    /**
+     * <code>rpc close(.CursorRequest) returns (.CursorResponse);</code>
+     */
+    public abstract void close(
+        com.google.protobuf.RpcController controller,
+        com.appgame.analytics.aggregator.protobuf.generated.AggregateProtos.CursorRequest request,
+        com.google.protobuf.RpcCallback<com.appgame.analytics.aggregator.protobuf.generated.AggregateProtos.CursorResponse> done);
+
     public static final
         com.google.protobuf.Descriptors.ServiceDescriptor
         getDescriptor() {
@@ -6586,6 +8125,21 @@ public final class AggregateProtos {
             com.google.protobuf.RpcUtil.<com.appgame.analytics.aggregator.protobuf.generated.AggregateProtos.AggregateResponse>specializeCallback(
               done));
           return;
+        case 1:
+          this.open(controller, (com.appgame.analytics.aggregator.protobuf.generated.AggregateProtos.AggregateRequest)request,
+            com.google.protobuf.RpcUtil.<com.appgame.analytics.aggregator.protobuf.generated.AggregateProtos.CursorResponse>specializeCallback(
+              done));
+          return;
+        case 2:
+          this.next(controller, (com.appgame.analytics.aggregator.protobuf.generated.AggregateProtos.CursorRequest)request,
+            com.google.protobuf.RpcUtil.<com.appgame.analytics.aggregator.protobuf.generated.AggregateProtos.CursorResponse>specializeCallback(
+              done));
+          return;
+        case 3:
+          this.close(controller, (com.appgame.analytics.aggregator.protobuf.generated.AggregateProtos.CursorRequest)request,
+            com.google.protobuf.RpcUtil.<com.appgame.analytics.aggregator.protobuf.generated.AggregateProtos.CursorResponse>specializeCallback(
+              done));
+          return;
         default:
           throw new java.lang.AssertionError("Can't get here.");
       }
@@ -6602,6 +8156,12 @@ public final class AggregateProtos {
       switch(method.getIndex()) {
         case 0:
           return com.appgame.analytics.aggregator.protobuf.generated.AggregateProtos.AggregateRequest.getDefaultInstance();
+        case 1:
+          return com.appgame.analytics.aggregator.protobuf.generated.AggregateProtos.AggregateRequest.getDefaultInstance();
+        case 2:
+          return com.appgame.analytics.aggregator.protobuf.generated.AggregateProtos.CursorRequest.getDefaultInstance();
+        case 3:
+          return com.appgame.analytics.aggregator.protobuf.generated.AggregateProtos.CursorRequest.getDefaultInstance();
         default:
           throw new java.lang.AssertionError("Can't get here.");
       }
@@ -6618,6 +8178,12 @@ public final class AggregateProtos {
       switch(method.getIndex()) {
         case 0:
           return com.appgame.analytics.aggregator.protobuf.generated.AggregateProtos.AggregateResponse.getDefaultInstance();
+        case 1:
+          return com.appgame.analytics.aggregator.protobuf.generated.AggregateProtos.CursorResponse.getDefaultInstance();
+        case 2:
+          return com.appgame.analytics.aggregator.protobuf.generated.AggregateProtos.CursorResponse.getDefaultInstance();
+        case 3:
+          return com.appgame.analytics.aggregator.protobuf.generated.AggregateProtos.CursorResponse.getDefaultInstance();
         default:
           throw new java.lang.AssertionError("Can't get here.");
       }
@@ -6653,6 +8219,51 @@ public final class AggregateProtos {
             com.appgame.analytics.aggregator.protobuf.generated.AggregateProtos.AggregateResponse.class,
             com.appgame.analytics.aggregator.protobuf.generated.AggregateProtos.AggregateResponse.getDefaultInstance()));
       }
+
+      public  void open(
+          com.google.protobuf.RpcController controller,
+          com.appgame.analytics.aggregator.protobuf.generated.AggregateProtos.AggregateRequest request,
+          com.google.protobuf.RpcCallback<com.appgame.analytics.aggregator.protobuf.generated.AggregateProtos.CursorResponse> done) {
+        channel.callMethod(
+          getDescriptor().getMethods().get(1),
+          controller,
+          request,
+          com.appgame.analytics.aggregator.protobuf.generated.AggregateProtos.CursorResponse.getDefaultInstance(),
+          com.google.protobuf.RpcUtil.generalizeCallback(
+            done,
+            com.appgame.analytics.aggregator.protobuf.generated.AggregateProtos.CursorResponse.class,
+            com.appgame.analytics.aggregator.protobuf.generated.AggregateProtos.CursorResponse.getDefaultInstance()));
+      }
+
+      public  void next(
+          com.google.protobuf.RpcController controller,
+          com.appgame.analytics.aggregator.protobuf.generated.AggregateProtos.CursorRequest request,
+          com.google.protobuf.RpcCallback<com.appgame.analytics.aggregator.protobuf.generated.AggregateProtos.CursorResponse> done) {
+        channel.callMethod(
+          getDescriptor().getMethods().get(2),
+          controller,
+          request,
+          com.appgame.analytics.aggregator.protobuf.generated.AggregateProtos.CursorResponse.getDefaultInstance(),
+          com.google.protobuf.RpcUtil.generalizeCallback(
+            done,
+            com.appgame.analytics.aggregator.protobuf.generated.AggregateProtos.CursorResponse.class,
+            com.appgame.analytics.aggregator.protobuf.generated.AggregateProtos.CursorResponse.getDefaultInstance()));
+      }
+
+      public  void close(
+          com.google.protobuf.RpcController controller,
+          com.appgame.analytics.aggregator.protobuf.generated.AggregateProtos.CursorRequest request,
+          com.google.protobuf.RpcCallback<com.appgame.analytics.aggregator.protobuf.generated.AggregateProtos.CursorResponse> done) {
+        channel.callMethod(
+          getDescriptor().getMethods().get(3),
+          controller,
+          request,
+          com.appgame.analytics.aggregator.protobuf.generated.AggregateProtos.CursorResponse.getDefaultInstance(),
+          com.google.protobuf.RpcUtil.generalizeCallback(
+            done,
+            com.appgame.analytics.aggregator.protobuf.generated.AggregateProtos.CursorResponse.class,
+            com.appgame.analytics.aggregator.protobuf.generated.AggregateProtos.CursorResponse.getDefaultInstance()));
+      }
     }
 
     public static BlockingInterface newBlockingStub(
@@ -6665,6 +8276,21 @@ public final class AggregateProtos {
           com.google.protobuf.RpcController controller,
           com.appgame.analytics.aggregator.protobuf.generated.AggregateProtos.AggregateRequest request)
           throws com.google.protobuf.ServiceException;
+
+      public com.appgame.analytics.aggregator.protobuf.generated.AggregateProtos.CursorResponse open(
+          com.google.protobuf.RpcController controller,
+          com.appgame.analytics.aggregator.protobuf.generated.AggregateProtos.AggregateRequest request)
+          throws com.google.protobuf.ServiceException;
+
+      public com.appgame.analytics.aggregator.protobuf.generated.AggregateProtos.CursorResponse next(
+          com.google.protobuf.RpcController controller,
+          com.appgame.analytics.aggregator.protobuf.generated.AggregateProtos.CursorRequest request)
+          throws com.google.protobuf.ServiceException;
+
+      public com.appgame.analytics.aggregator.protobuf.generated.AggregateProtos.CursorResponse close(
+          com.google.protobuf.RpcController controller,
+          com.appgame.analytics.aggregator.protobuf.generated.AggregateProtos.CursorRequest request)
+          throws com.google.protobuf.ServiceException;
     }
 
     private static final class BlockingStub implements BlockingInterface {
@@ -6685,6 +8311,42 @@ public final class AggregateProtos {
           com.appgame.analytics.aggregator.protobuf.generated.AggregateProtos.AggregateResponse.getDefaultInstance());
       }
 
+
+      public com.appgame.analytics.aggregator.protobuf.generated.AggregateProtos.CursorResponse open(
+          com.google.protobuf.RpcController controller,
+          com.appgame.analytics.aggregator.protobuf.generated.AggregateProtos.AggregateRequest request)
+          throws com.google.protobuf.ServiceException {
+        return (com.appgame.analytics.aggregator.protobuf.generated.AggregateProtos.CursorResponse) channel.callBlockingMethod(
+          getDescriptor().getMethods().get(1),
+          controller,
+          request,
+          com.appgame.analytics.aggregator.protobuf.generated.AggregateProtos.CursorResponse.getDefaultInstance());
+      }
+
+
+      public com.appgame.analytics.aggregator.protobuf.generated.AggregateProtos.CursorResponse next(
+          com.google.protobuf.RpcController controller,
+          com.appgame.analytics.aggregator.protobuf.generated.AggregateProtos.CursorRequest request)
+          throws com.google.protobuf.ServiceException {
+        return (com.appgame.analytics.aggregator.protobuf.generated.AggregateProtos.CursorResponse) channel.callBlockingMethod(
+          getDescriptor().getMethods().get(2),
+          controller,
+          request,
+          com.appgame.analytics.aggregator.protobuf.generated.AggregateProtos.CursorResponse.getDefaultInstance());
+      }
+
+
+      public com.appgame.analytics.aggregator.protobuf.generated.AggregateProtos.CursorResponse close(
+          com.google.protobuf.RpcController controller,
+          com.appgame.analytics.aggregator.protobuf.generated.AggregateProtos.CursorRequest request)
+          throws com.google.protobuf.ServiceException {
+        return (com.appgame.analytics.aggregator.protobuf.generated.AggregateProtos.CursorResponse) channel.callBlockingMethod(
+          getDescriptor().getMethods().get(3),
+          controller,
+          request,
+          com.appgame.analytics.aggregator.protobuf.generated.AggregateProtos.CursorResponse.getDefaultInstance());
+      }
+
     }
 
     // @@protoc_insertion_point(class_scope:AggregateService)
@@ -6725,6 +8387,16 @@ public final class AggregateProtos {
   private static
     com.google.protobuf.GeneratedMessage.FieldAccessorTable
       internal_static_AggregateResponse_fieldAccessorTable;
+  private static final com.google.protobuf.Descriptors.Descriptor
+    internal_static_CursorRequest_descriptor;
+  private static
+    com.google.protobuf.GeneratedMessage.FieldAccessorTable
+      internal_static_CursorRequest_fieldAccessorTable;
+  private static final com.google.protobuf.Descriptors.Descriptor
+    internal_static_CursorResponse_descriptor;
+  private static
+    com.google.protobuf.GeneratedMessage.FieldAccessorTable
+      internal_static_CursorResponse_fieldAccessorTable;
 
   public static com.google.protobuf.Descriptors.FileDescriptor
       getDescriptor() {
@@ -6749,14 +8421,22 @@ public final class AggregateProtos {
       "ffset\030\014 \001(\r\022&\n\036load_column_families_on_d" +
       "emand\030\r \001(\010\022\r\n\005small\030\016 \001(\010\022\027\n\010reversed\030\017" +
       " \001(\010:\005false\022)\n\013consistency\030\020 \001(\0162\014.Consi" +
-      "stency:\006STRONG\022\017\n\007caching\030\021 \001(\r\"7\n\020Aggre" +
-      "gateRequest\022\024\n\005scans\030\001 \003(\0132\005.Scan\022\r\n\005pip" +
-      "es\030\002 \001(\t\"!\n\021AggregateResponse\022\014\n\004data\030\001 " +
-      "\001(\014*\'\n\013Consistency\022\n\n\006STRONG\020\000\022\014\n\010TIMELI" +
-      "NE\020\0012F\n\020AggregateService\0222\n\taggregate\022\021.",
-      "AggregateRequest\032\022.AggregateResponseBN\n3" +
-      "com.appgame.analytics.aggregator.protobu" +
-      "f.generatedB\017AggregateProtosH\001\210\001\001\240\001\001"
+      "stency:\006STRONG\022\017\n\007caching\030\021 \001(\r\"\212\001\n\020Aggr" +
+      "egateRequest\022\024\n\005scans\030\001 \003(\0132\005.Scan\022\r\n\005pi" +
+      "pes\030\002 \001(\t\022\026\n\013parallelism\030\003 \001(\r:\0011\022\023\n\010dea" +
+      "dline\030\004 \001(\004:\0010\022\021\n\006memory\030\005 \001(\004:\0010\022\021\n\006sam" +
+      "ple\030\006 \001(\001:\0011\"!\n\021AggregateResponse\022\014\n\004dat",
+      "a\030\001 \001(\014\"\037\n\rCursorRequest\022\016\n\006cursor\030\001 \002(\004" +
+      "\"C\n\016CursorResponse\022\016\n\006cursor\030\001 \001(\004\022\014\n\004da" +
+      "ta\030\002 \001(\014\022\023\n\004more\030\003 \001(\010:\005false*\'\n\013Consist" +
+      "ency\022\n\n\006STRONG\020\000\022\014\n\010TIMELINE\020\0012\305\001\n\020Aggre" +
+      "gateService\0222\n\taggregate\022\021.AggregateRequ" +
+      "est\032\022.AggregateResponse\022*\n\004open\022\021.Aggreg" +
+      "ateRequest\032\017.CursorResponse\022\'\n\004next\022\016.Cu" +
+      "rsorRequest\032\017.CursorResponse\022(\n\005close\022\016." +
+      "CursorRequest\032\017.CursorResponseBN\n3com.ap" +
+      "pgame.analytics.aggregator.protobuf.gene",
+      "ratedB\017AggregateProtosH\001\210\001\001\240\001\001"
     };
     com.google.protobuf.Descriptors.FileDescriptor.InternalDescriptorAssigner assigner =
         new com.google.protobuf.Descriptors.FileDescriptor.    InternalDescriptorAssigner() {
@@ -6805,13 +8485,25 @@ public final class AggregateProtos {
     internal_static_AggregateRequest_fieldAccessorTable = new
       com.google.protobuf.GeneratedMessage.FieldAccessorTable(
         internal_static_AggregateRequest_descriptor,
-        new java.lang.String[] { "Scans", "Pipes", });
+        new java.lang.String[] { "Scans", "Pipes", "Parallelism", "Deadline", "Memory", "Sample", });
     internal_static_AggregateResponse_descriptor =
       getDescriptor().getMessageTypes().get(6);
     internal_static_AggregateResponse_fieldAccessorTable = new
       com.google.protobuf.GeneratedMessage.FieldAccessorTable(
         internal_static_AggregateResponse_descriptor,
         new java.lang.String[] { "Data", });
+    internal_static_CursorRequest_descriptor =
+      getDescriptor().getMessageTypes().get(7);
+    internal_static_CursorRequest_fieldAccessorTable = new
+      com.google.protobuf.GeneratedMessage.FieldAccessorTable(
+        internal_static_CursorRequest_descriptor,
+        new java.lang.String[] { "Cursor", });
+    internal_static_CursorResponse_descriptor =
+      getDescriptor().getMessageTypes().get(8);
+    internal_static_CursorResponse_fieldAccessorTable = new
+      com.google.protobuf.GeneratedMessage.FieldAccessorTable(
+        internal_static_CursorResponse_descriptor,
+        new java.lang.String[] { "Cursor", "Data", "More", });
   }
 
   // @@protoc_insertion_point(outer_class_scope)
@@ -32,6 +32,11 @@ public final class MessageProtos {
   }
   /**
    * Protobuf type {@code Object}
+   *
+   * <pre>
+   **
+   * 数据对象（类型编号同时被'ObjectOutputStream'和'ObjectInputStream'用作序列化数据的类型标签）
+   * </pre>
    */
   public static final class Object extends
       com.google.protobuf.GeneratedMessage implements
@@ -171,6 +176,46 @@ public final class MessageProtos {
        * <code>LIST = 6;</code>
        */
       LIST(6, 6),
+      /**
+       * <code>NULL = 7;</code>
+       */
+      NULL(7, 7),
+      /**
+       * <code>LONG = 8;</code>
+       */
+      LONG(8, 8),
+      /**
+       * <code>BYTES = 9;</code>
+       */
+      BYTES(9, 9),
+      /**
+       * <code>SET = 10;</code>
+       */
+      SET(10, 10),
+      /**
+       * <code>MOMENTS = 11;</code>
+       */
+      MOMENTS(11, 11),
+      /**
+       * <code>HYPERLOGLOG = 12;</code>
+       */
+      HYPERLOGLOG(12, 12),
+      /**
+       * <code>QUANTILES = 13;</code>
+       */
+      QUANTILES(13, 13),
+      /**
+       * <code>HEAVYHITTERS = 14;</code>
+       */
+      HEAVYHITTERS(14, 14),
+      /**
+       * <code>BITMAP = 15;</code>
+       */
+      BITMAP(15, 15),
+      /**
+       * <code>ESTIMATE = 16;</code>
+       */
+      ESTIMATE(16, 16),
       ;
 
       /**
@@ -201,6 +246,46 @@ public final class MessageProtos {
        * <code>LIST = 6;</code>
        */
       public static final int LIST_VALUE = 6;
+      /**
+       * <code>NULL = 7;</code>
+       */
+      public static final int NULL_VALUE = 7;
+      /**
+       * <code>LONG = 8;</code>
+       */
+      public static final int LONG_VALUE = 8;
+      /**
+       * <code>BYTES = 9;</code>
+       */
+      public static final int BYTES_VALUE = 9;
+      /**
+       * <code>SET = 10;</code>
+       */
+      public static final int SET_VALUE = 10;
+      /**
+       * <code>MOMENTS = 11;</code>
+       */
+      public static final int MOMENTS_VALUE = 11;
+      /**
+       * <code>HYPERLOGLOG = 12;</code>
+       */
+      public static final int HYPERLOGLOG_VALUE = 12;
+      /**
+       * <code>QUANTILES = 13;</code>
+       */
+      public static final int QUANTILES_VALUE = 13;
+      /**
+       * <code>HEAVYHITTERS = 14;</code>
+       */
+      public static final int HEAVYHITTERS_VALUE = 14;
+      /**
+       * <code>BITMAP = 15;</code>
+       */
+      public static final int BITMAP_VALUE = 15;
+      /**
+       * <code>ESTIMATE = 16;</code>
+       */
+      public static final int ESTIMATE_VALUE = 16;
 
 
       public final int getNumber() { return value; }
@@ -214,6 +299,16 @@ public final class MessageProtos {
           case 4: return OBJECT;
           case 5: return MAP;
           case 6: return LIST;
+          case 7: return NULL;
+          case 8: return LONG;
+          case 9: return BYTES;
+          case 10: return SET;
+          case 11: return MOMENTS;
+          case 12: return HYPERLOGLOG;
+          case 13: return QUANTILES;
+          case 14: return HEAVYHITTERS;
+          case 15: return BITMAP;
+          case 16: return ESTIMATE;
           default: return null;
         }
       }
@@ -471,6 +566,11 @@ public final class MessageProtos {
     }
     /**
      * Protobuf type {@code Object}
+     *
+     * <pre>
+     **
+     * 数据对象（类型编号同时被'ObjectOutputStream'和'ObjectInputStream'用作序列化数据的类型标签）
+     * </pre>
      */
     public static final class Builder extends
         com.google.protobuf.GeneratedMessage.Builder<Builder> implements
@@ -2937,16 +3037,19 @@ public final class MessageProtos {
       descriptor;
   static {
     java.lang.String[] descriptorData = {
-      "\n\rmessage.proto\"\230\001\n\006Object\022 \n\004type\030\001 \002(\016" +
-      "2\022.Object.ObjectType\022\r\n\005value\030\002 \002(\014\"]\n\nO" +
-      "bjectType\022\013\n\007BOOLEAN\020\000\022\013\n\007INTEGER\020\001\022\n\n\006D" +
-      "OUBLE\020\002\022\n\n\006STRING\020\003\022\n\n\006OBJECT\020\004\022\007\n\003MAP\020\005" +
-      "\022\010\n\004LIST\020\006\"\036\n\004List\022\026\n\005value\030\001 \003(\0132\007.Obje" +
-      "ct\"5\n\005Entry\022\024\n\003key\030\001 \002(\0132\007.Object\022\026\n\005val" +
-      "ue\030\002 \002(\0132\007.Object\"\034\n\003Map\022\025\n\005value\030\001 \003(\0132" +
-      "\006.EntryBI\n0com.appgame.analytics.aggregator" +
-      ".protobuf.generatedB\rMessageProtosH\001\210\001\001\240" +
-      "\001\001"
+      "\n\rmessage.proto\"\232\002\n\006Object\022 \n\004type\030\001 \002(\016" +
+      "2\022.Object.ObjectType\022\r\n\005value\030\002 \002(\014\"\336\001\n\n" +
+      "ObjectType\022\013\n\007BOOLEAN\020\000\022\013\n\007INTEGER\020\001\022\n\n\006" +
+      "DOUBLE\020\002\022\n\n\006STRING\020\003\022\n\n\006OBJECT\020\004\022\007\n\003MAP\020" +
+      "\005\022\010\n\004LIST\020\006\022\010\n\004NULL\020\007\022\010\n\004LONG\020\010\022\t\n\005BYTES" +
+      "\020\t\022\007\n\003SET\020\n\022\013\n\007MOMENTS\020\013\022\017\n\013HYPERLOGLOG\020" +
+      "\014\022\r\n\tQUANTILES\020\r\022\020\n\014HEAVYHITTERS\020\016\022\n\n\006BI" +
+      "TMAP\020\017\022\014\n\010ESTIMATE\020\020\"\036\n\004List\022\026\n\005value\030\001 " +
+      "\003(\0132\007.Object\"5\n\005Entry\022\024\n\003key\030\001 \002(\0132\007.Obj" +
+      "ect\022\026\n\005value\030\002 \002(\0132\007.Object\"\034\n\003Map\022\025\n\005va",
+      "lue\030\001 \003(\0132\006.EntryBL\n3com.appgame.analyti" +
+      "cs.aggregator.protobuf.generatedB\rMessag" +
+      "eProtosH\001\210\001\001\240\001\001"
     };
     com.google.protobuf.Descriptors.FileDescriptor.InternalDescriptorAssigner assigner =
         new com.google.protobuf.Descriptors.FileDescriptor.    InternalDescriptorAssigner() {
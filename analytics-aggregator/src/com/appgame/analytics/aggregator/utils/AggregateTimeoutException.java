@@ -0,0 +1,20 @@
+package com.appgame.analytics.aggregator.utils;
+
+import org.apache.hadoop.hbase.DoNotRetryIOException;
+
+/**
+ * 聚合操作超时异常（超过聚合请求指定的截止时间，ＣＳ两端共用以便客户端区分超时与其他错误）
+ */
+public class AggregateTimeoutException extends DoNotRetryIOException
+{
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * 构造方法（远程异常还原时使用）
+	 * @param message
+	 */
+	public AggregateTimeoutException(String message)
+	{
+		super(message);
+	}
+}
@@ -6,18 +6,27 @@ import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.NavigableSet;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
 
 import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.CellUtil;
 import org.apache.hadoop.hbase.DoNotRetryIOException;
 import org.apache.hadoop.hbase.HBaseConfiguration;
 import org.apache.hadoop.hbase.HConstants;
+import org.apache.hadoop.hbase.KeyValue;
 import org.apache.hadoop.hbase.client.Consistency;
 import org.apache.hadoop.hbase.client.Scan;
 import org.apache.hadoop.hbase.filter.Filter;
+import org.apache.hadoop.hbase.filter.FilterList;
 import org.apache.hadoop.hbase.io.TimeRange;
 import org.apache.hadoop.hbase.util.ByteStringer;
+import org.apache.hadoop.hbase.util.Bytes;
 import org.apache.hadoop.hbase.util.DynamicClassLoader;
 import com.appgame.analytics.aggregator.protobuf.generated.AggregateProtos;
 import com.appgame.analytics.aggregator.protobuf.generated.AggregateProtos.Column;
@@ -299,6 +308,197 @@ public class AggregatorUtils
 		return scan;
 	}
 	
+	/**
+	 * protos.scan >> client.scan（附加累积器转换得到的过滤器， 并按累积器引用的字段裁剪返回的列）
+	 * @param proto
+	 * @param fields
+	 * @param filter
+	 * @param families 表内的列族
+	 * @return
+	 * @throws Exception
+	 */
+	public static Scan scan(AggregateProtos.Scan proto, Set<String> fields, Filter filter, Set<byte[]> families) throws Exception
+	{
+		Scan    scan   = scan(proto);
+		boolean client = scan.hasFilter();
+		push(scan, filter);
+		// 客户端过滤器可能依赖未被引用的列，此时不裁剪
+		return client ? scan : prune(scan, fields, families);
+	}
+	
+	/**
+	 * 将累积器转换得到的过滤器附加到扫描器（与原过滤器同时成立）
+	 * 1. 过滤器仅检查字段最新版本，因此扫描多个版本时不附加
+	 * 2. 过滤器需要整行判断，因此分批返回一行数据时不附加
+	 * @param scan
+	 * @param filter
+	 * @return
+	 */
+	public static Scan push(Scan scan, Filter filter)
+	{
+		if (filter == null || scan.getMaxVersions() != 1 || scan.getBatch() > 0)
+		{
+			return scan;
+		}
+		if (scan.hasFilter())
+		{
+			scan.setFilter(new FilterList(FilterList.Operator.MUST_PASS_ALL, scan.getFilter(), filter));
+		}
+		else
+		{
+			scan.setFilter(filter);
+		}
+		return scan;
+	}
+	
+	/**
+	 * 为扫描器附加行键哈希抽样过滤器（抽样过滤器先于原过滤器判断，与扫描版本数以及分批设置无关）
+	 * @param scan
+	 * @param rate 抽样率（0, 1]，1 表示不抽样
+	 * @return
+	 */
+	public static Scan sample(Scan scan, double rate)
+	{
+		if (rate >= 1.0)
+		{
+			return scan;
+		}
+		Filter filter = new SampleFilter(rate);
+		if (scan.hasFilter())
+		{
+			scan.setFilter(new FilterList(FilterList.Operator.MUST_PASS_ALL, filter, scan.getFilter()));
+		}
+		else
+		{
+			scan.setFilter(filter);
+		}
+		return scan;
+	}
+	
+	/**
+	 * 按存储文件的行键范围扩展区域数据的行键范围
+	 * @param bounds 当前范围 [首行行键, 末行行键]，null 表示尚未包含任何存储文件
+	 * @param first  存储文件的首个键（完整的单元格键）
+	 * @param last   存储文件的末行行键
+	 * @return 扩展后的范围（存储文件为空时返回当前范围）
+	 */
+	public static byte[][] bounds(byte[][] bounds, byte[] first, byte[] last)
+	{
+		if (first == null || last == null)
+		{
+			return bounds;
+		}
+		byte[] head = CellUtil.cloneRow(new KeyValue.KeyOnlyKeyValue(first, 0, first.length));
+		if (bounds == null)
+		{
+			return new byte[][] { head, last };
+		}
+		return new byte[][] { Bytes.compareTo(head, bounds[0]) < 0 ? head : bounds[0], Bytes.compareTo(last, bounds[1]) > 0 ? last : bounds[1] };
+	}
+	
+	/**
+	 * 将扫描范围切分为若干个连续的子范围（反向扫描以及小范围扫描不切分）
+	 * @param scan
+	 * @param bounds      区域数据的行键范围，null 表示无法估算（不切分）
+	 * @param parallelism
+	 * @return 子范围的边界集合 [start, key1, ..., stop]
+	 */
+	public static List<byte[]> split(Scan scan, byte[][] bounds, int parallelism)
+	{
+		List<byte[]> keys = new ArrayList<byte[]>();
+		keys.add(scan.getStartRow());
+		if (bounds != null && parallelism > 1 && !scan.isReversed() && !scan.isSmall())
+		{
+			// 扫描范围与区域数据范围的交集
+			byte[] lower = Bytes.compareTo(scan.getStartRow(), bounds[0]) > 0 ? scan.getStartRow() : bounds[0];
+			byte[] upper = scan.getStopRow().length > 0 && Bytes.compareTo(scan.getStopRow(), bounds[1]) < 0 ? scan.getStopRow() : bounds[1];
+			if (Bytes.compareTo(lower, upper) < 0)
+			{
+				byte[][] splits = null;
+				try
+				{
+					splits = Bytes.split(lower, upper, parallelism - 1);
+				}
+				catch (IllegalArgumentException e)
+				{
+					// 两个行键只相差末尾的零字节时（补齐长度后相等）无法切分
+				}
+				for (int i = 1; splits != null && i < splits.length - 1; ++i)
+				{
+					// 忽略重复以及超出扫描范围的切分点
+					if (Bytes.compareTo(splits[i], keys.get(keys.size() - 1)) > 0 && (scan.getStopRow().length == 0 || Bytes.compareTo(splits[i], scan.getStopRow()) < 0))
+					{
+						keys.add(splits[i]);
+					}
+				}
+			}
+		}
+		keys.add(scan.getStopRow());
+		return keys;
+	}
+	
+	/**
+	 * 按累积器引用的字段路径（<family>.<qualifier>...）裁剪扫描返回的列
+	 * 1. 字段集合为空（需要完整数据或者不引用任何字段）时不裁剪
+	 * 2. 不修改扫描器的列族设置（缩小列族范围会丢弃不包含引用列的行），而是在过滤器列表最后附加列裁剪过滤器
+	 * 3. 只保留表内存在并且在原扫描器列范围内的列
+	 * @param scan
+	 * @param fields
+	 * @param families 表内的列族
+	 * @return
+	 */
+	public static Scan prune(Scan scan, Set<String> fields, Set<byte[]> families)
+	{
+		if (fields == null || fields.isEmpty())
+		{
+			return scan;
+		}
+		
+		/**
+		 * 累积器引用的列（列名称集合为 null 表示引用整个列族）
+		 */
+		Set<byte[]> tables = new TreeSet<byte[]>(Bytes.BYTES_COMPARATOR);
+		tables.addAll(families);
+		Map<byte[], NavigableSet<byte[]>> columns = new TreeMap<byte[], NavigableSet<byte[]>>(Bytes.BYTES_COMPARATOR);
+		for (String field : fields)
+		{
+			String[] keys   = field.split("\\.");
+			byte[]   family = Bytes.toBytes(keys[0]);
+			if (!tables.contains(family) || (scan.hasFamilies() && !scan.getFamilyMap().containsKey(family)))
+			{
+				continue;
+			}
+			if (keys.length == 1)
+			{
+				columns.put(family, null);
+			}
+			else if (!columns.containsKey(family) || columns.get(family) != null)
+			{
+				NavigableSet<byte[]> qualifiers = columns.get(family);
+				if (qualifiers == null)
+				{
+					qualifiers = new TreeSet<byte[]>(Bytes.BYTES_COMPARATOR);
+					columns.put(family, qualifiers);
+				}
+				qualifiers.add(Bytes.toBytes(keys[1]));
+			}
+		}
+		
+		/**
+		 * 列裁剪过滤器放在最后，其它过滤器仍然可以看到全部的列
+		 */
+		Filter filter = new PruneFilter(columns);
+		if (scan.hasFilter())
+		{
+			scan.setFilter(new FilterList(FilterList.Operator.MUST_PASS_ALL, scan.getFilter(), filter));
+		}
+		else
+		{
+			scan.setFilter(filter);
+		}
+		return scan;
+	}
+	
 	/**
 	 * client.scan >> protos.scan
 	 * @param scan
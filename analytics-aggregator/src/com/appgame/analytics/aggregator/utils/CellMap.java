@@ -0,0 +1,219 @@
+package com.appgame.analytics.aggregator.utils;
+
+import java.io.Serializable;
+import java.util.AbstractMap;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.CellUtil;
+import org.apache.hadoop.hbase.util.Bytes;
+
+/**
+ * 单元格视图（将扫描器返回的一行单元格包装为只读字典，仅在被访问时解析名称以及复制数值）
+ * 1. 行视图   : <列族名称, 列族视图>
+ * 2. 列族视图 : <字段名称, 字段内容(byte[])>
+ */
+public class CellMap extends AbstractMap<String, Object> implements Serializable
+{
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * 底层单元格集合（扫描器按列族、字段、版本顺序返回）
+	 */
+	private final List<Cell> cells;
+
+	/**
+	 * 视图对应的单元格范围[from, to)
+	 */
+	private final int from;
+	private final int to;
+
+	/**
+	 * 是否为列族视图
+	 */
+	private final boolean family;
+
+	/**
+	 * 名称缓存（列族以及字段名称的规范实例， 由同一个区域内的全部视图共享）
+	 */
+	private final NameCache names;
+
+	/**
+	 * 完整的字典内容（仅在遍历视图时构造）
+	 */
+	private transient Map<String, Object> content = null;
+
+	/**
+	 * 构造方法（行视图）
+	 * @param cells
+	 * @param names
+	 */
+	public CellMap(List<Cell> cells, NameCache names)
+	{
+		this(cells, 0, cells.size(), false, names);
+	}
+
+	/**
+	 * 构造方法（指定单元格范围）
+	 */
+	private CellMap(List<Cell> cells, int from, int to, boolean family, NameCache names)
+	{
+		this.cells  = cells;
+		this.from   = from;
+		this.to     = to;
+		this.family = family;
+		this.names  = names;
+	}
+
+	/**
+	 * 查找列族视图（同一列族的单元格在扫描结果内是连续的）
+	 */
+	private Object family(byte[] name)
+	{
+		for (int index = from; index < to; )
+		{
+			Cell cell = cells.get(index);
+			int  next = index + 1;
+			while (next < to && Bytes.equals(cell.getFamilyArray(), cell.getFamilyOffset(), cell.getFamilyLength(),
+											 cells.get(next).getFamilyArray(), cells.get(next).getFamilyOffset(), cells.get(next).getFamilyLength()))
+			{
+				next = next + 1;
+			}
+			if (Bytes.equals(name, 0, name.length, cell.getFamilyArray(), cell.getFamilyOffset(), cell.getFamilyLength()))
+			{
+				return new CellMap(cells, index, next, true, names);
+			}
+			index = next;
+		}
+		return null;
+	}
+
+	/**
+	 * 查找字段内容（同一列族内的单元格按字段名称排序， 多版本时与原逻辑一致取最后一个单元格）
+	 */
+	private Object qualifier(byte[] name)
+	{
+		int low  = from;
+		int high = to - 1;
+		while (low <= high)
+		{
+			int  middle = (low + high) >>> 1;
+			Cell cell   = cells.get(middle);
+			int  ret    = Bytes.compareTo(cell.getQualifierArray(), cell.getQualifierOffset(), cell.getQualifierLength(), name, 0, name.length);
+			if (ret < 0)
+			{
+				low = middle + 1;
+			}
+			else if (ret > 0)
+			{
+				high = middle - 1;
+			}
+			else
+			{
+				while (middle + 1 < to && Bytes.equals(cells.get(middle + 1).getQualifierArray(), cells.get(middle + 1).getQualifierOffset(), cells.get(middle + 1).getQualifierLength(), name, 0, name.length))
+				{
+					middle = middle + 1;
+				}
+				cell = cells.get(middle);
+				return Arrays.copyOfRange(cell.getValueArray(), cell.getValueOffset(), cell.getValueOffset() + cell.getValueLength());
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * 返回视图对应的行键（视图为空时返回 null）
+	 * @return
+	 */
+	public byte[] row()
+	{
+		return from < to ? CellUtil.cloneRow(cells.get(from)) : null;
+	}
+
+	/**
+	 * 按名称获取视图内容
+	 */
+	@Override
+	public Object get(Object key)
+	{
+		if (key instanceof String)
+		{
+			byte[] name = names.bytes((String)key);
+			return family ? qualifier(name) : family(name);
+		}
+		else
+		{
+			return null;
+		}
+	}
+
+	/**
+	 * 判断视图是否包含指定名称
+	 */
+	@Override
+	public boolean containsKey(Object key)
+	{
+		return get(key) != null;
+	}
+
+	/**
+	 * 构造完整的字典内容（遍历视图时才解析全部名称，名称使用缓存内的规范实例）
+	 */
+	private Map<String, Object> materialize()
+	{
+		if (content == null)
+		{
+			Map<String, Object> map = new HashMap<String, Object>();
+			for (int index = from; index < to; ++index)
+			{
+				Cell cell = cells.get(index);
+				if (family)
+				{
+					map.put(names.name(cell.getQualifierArray(), cell.getQualifierOffset(), cell.getQualifierLength()),
+						Arrays.copyOfRange(cell.getValueArray(), cell.getValueOffset(), cell.getValueOffset() + cell.getValueLength()));
+				}
+				else
+				{
+					String name = names.name(cell.getFamilyArray(), cell.getFamilyOffset(), cell.getFamilyLength());
+					if (!map.containsKey(name))
+					{
+						map.put(name, family(names.bytes(name)));
+					}
+				}
+			}
+			content = Collections.unmodifiableMap(map);
+		}
+		return content;
+	}
+
+	/**
+	 * 视图内容集合
+	 */
+	@Override
+	public Set<Map.Entry<String, Object>> entrySet()
+	{
+		return materialize().entrySet();
+	}
+
+	/**
+	 * 只读视图
+	 */
+	@Override
+	public Object put(String key, Object value)
+	{
+		throw new UnsupportedOperationException("cell map is read-only");
+	}
+
+	/**
+	 * 序列化时替换为普通字典
+	 */
+	private Object writeReplace()
+	{
+		return new HashMap<String, Object>(materialize());
+	}
+}
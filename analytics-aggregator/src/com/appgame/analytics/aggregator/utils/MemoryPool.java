@@ -0,0 +1,92 @@
+package com.appgame.analytics.aggregator.utils;
+
+/**
+ * 聚合内存池（同一个 RegionServer 上并发执行的聚合操作共享，聚合操作开始前预留初始内存，扫描过程中按实际使用量追加预留，结束后归还）
+ */
+public class MemoryPool
+{
+	/**
+	 * 内存池容量（字节）
+	 */
+	private final long capacity;
+
+	/**
+	 * 已预留的内存（字节）
+	 */
+	private long used = 0;
+
+	/**
+	 * 构造方法（指定内存池容量）
+	 * @param capacity
+	 */
+	public MemoryPool(long capacity)
+	{
+		this.capacity = capacity;
+	}
+
+	/**
+	 * 预留指定大小的内存（剩余内存不足时等待其它聚合操作归还，超过等待时间仍然不足时返回 false）
+	 * @param bytes
+	 * @param timeout 等待时间（毫秒）
+	 * @return
+	 * @throws InterruptedException
+	 */
+	public synchronized boolean reserve(long bytes, long timeout) throws InterruptedException
+	{
+		long deadline = System.currentTimeMillis() + timeout;
+		while (used + bytes > capacity)
+		{
+			long remain = deadline - System.currentTimeMillis();
+			if (bytes > capacity || remain <= 0)
+			{
+				return false;
+			}
+			wait(remain);
+		}
+		used = used + bytes;
+		return true;
+	}
+
+	/**
+	 * 立即预留指定大小的内存（不等待，剩余内存不足时返回 false；扫描过程中追加预留时使用，以免持有扫描器等待）
+	 * @param bytes
+	 * @return
+	 */
+	public synchronized boolean tryReserve(long bytes)
+	{
+		if (used + bytes > capacity)
+		{
+			return false;
+		}
+		used = used + bytes;
+		return true;
+	}
+
+	/**
+	 * 归还预留的内存（唤醒等待预留内存的聚合操作）
+	 * @param bytes
+	 */
+	public synchronized void release(long bytes)
+	{
+		used = Math.max(0, used - bytes);
+		notifyAll();
+	}
+
+	/**
+	 * 返回剩余可预留的内存
+	 * @return
+	 */
+	public synchronized long available()
+	{
+		return capacity - used;
+	}
+
+	/**
+	 * 返回内存池容量
+	 * @return
+	 */
+	public long capacity()
+	{
+		return capacity;
+	}
+}
@@ -0,0 +1,146 @@
+package com.appgame.analytics.aggregator.utils;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.hadoop.hbase.util.Bytes;
+
+/**
+ * 名称缓存（列族以及字段名称的规范实例，同一个区域的全部扫描过程共享）
+ * 1. 字节片段 >> 字串 : 直接按单元格底层数组、偏移以及长度查找，命中时不分配对象
+ * 2. 字串 >> 字节数组 : 累积器按名称访问单元格视图时使用
+ * 表中的名称数量有上限，超出上限的名称不再缓存（每次查找都重新构造）
+ */
+public class NameCache
+{
+	/**
+	 * 缓存名称数量上限
+	 */
+	private static final int MAX_NAMES = 4096;
+
+	/**
+	 * 哈希表节点（节点创建后不再修改，因此可以无锁读取）
+	 */
+	private static class Entry
+	{
+		private final byte[] bytes;
+		private final String name;
+		private final int    hash;
+		private final Entry  next;
+
+		public Entry(byte[] bytes, String name, int hash, Entry next)
+		{
+			this.bytes = bytes;
+			this.name  = name;
+			this.hash  = hash;
+			this.next  = next;
+		}
+	}
+
+	/**
+	 * 哈希表（长度为２的幂，写入时加锁，读取时无锁）
+	 */
+	private volatile Entry[] table = new Entry[64];
+
+	/**
+	 * 哈希表内的名称数量
+	 */
+	private int count = 0;
+
+	/**
+	 * 名称编码表（字串 >> 字节数组）
+	 */
+	private final Map<String, byte[]> encodes = new ConcurrentHashMap<String, byte[]>();
+
+	/**
+	 * 在哈希表内查找字节片段对应的名称
+	 */
+	private static String search(Entry[] table, byte[] array, int offset, int length, int hash)
+	{
+		for (Entry entry = table[hash & (table.length - 1)]; entry != null; entry = entry.next)
+		{
+			if (entry.hash == hash && Bytes.equals(entry.bytes, 0, entry.bytes.length, array, offset, length))
+			{
+				return entry.name;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * 返回字节片段对应的规范名称
+	 * @param array
+	 * @param offset
+	 * @param length
+	 * @return
+	 */
+	public String name(byte[] array, int offset, int length)
+	{
+		int    hash = Bytes.hashCode(array, offset, length);
+		String name = search(table, array, offset, length, hash);
+		return name != null ? name : intern(array, offset, length, hash);
+	}
+
+	/**
+	 * 登记新的名称（重新检查后写入哈希表，必要时扩容）
+	 */
+	private synchronized String intern(byte[] array, int offset, int length, int hash)
+	{
+		Entry[] current = table;
+		String  name    = search(current, array, offset, length, hash);
+		if (name != null)
+		{
+			return name;
+		}
+		byte[] bytes = Arrays.copyOfRange(array, offset, offset + length);
+		name = Bytes.toString(bytes);
+		if (count >= MAX_NAMES)
+		{
+			return name;
+		}
+		// 装载率超过 3/4 时扩容（重新构造全部节点，已发布的旧表保持不变）
+		if ((count + 1) * 4 > current.length * 3)
+		{
+			Entry[] resized = new Entry[current.length * 2];
+			for (Entry head : current)
+			{
+				for (Entry entry = head; entry != null; entry = entry.next)
+				{
+					int index = entry.hash & (resized.length - 1);
+					resized[index] = new Entry(entry.bytes, entry.name, entry.hash, resized[index]);
+				}
+			}
+			current = resized;
+		}
+		else
+		{
+			current = current.clone();
+		}
+		int index = hash & (current.length - 1);
+		current[index] = new Entry(bytes, name, hash, current[index]);
+		count = count + 1;
+		encodes.put(name, bytes);
+		table = current;
+		return name;
+	}
+
+	/**
+	 * 返回名称对应的字节数组
+	 * @param name
+	 * @return
+	 */
+	public byte[] bytes(String name)
+	{
+		byte[] bytes = encodes.get(name);
+		if (bytes == null)
+		{
+			bytes = Bytes.toBytes(name);
+			if (encodes.size() < MAX_NAMES)
+			{
+				encodes.put(name, bytes);
+			}
+		}
+		return bytes;
+	}
+}
@@ -1,10 +1,25 @@
 package com.appgame.analytics.aggregator.utils;
 
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import org.apache.hadoop.hbase.util.Bytes;
 
+import com.appgame.analytics.aggregator.accumulator.utils.Estimate;
+import com.appgame.analytics.aggregator.accumulator.utils.HeavyHitters;
+import com.appgame.analytics.aggregator.accumulator.utils.HyperLogLog;
+import com.appgame.analytics.aggregator.accumulator.utils.LongSet;
+import com.appgame.analytics.aggregator.accumulator.utils.Moments;
+import com.appgame.analytics.aggregator.accumulator.utils.Quantiles;
+import com.appgame.analytics.aggregator.protobuf.generated.MessageProtos.Object.ObjectType;
+
 /**
  * 输输入字节流（'Output'和'Input'共同规范了聚合器ＣＳ两端数据序列化格式）
  */
@@ -37,12 +52,28 @@ public class ObjectInputStream extends InputStream
 		return stream.read();
 	}
 	
+	/**
+	 * 从字节流对象读取指定长度的数据（底层字节流可能分多次返回数据）
+	 */
+	private void readFully(byte[] buf, int len) throws IOException
+	{
+		for (int off = 0; off < len; )
+		{
+			int ret = stream.read(buf, off, len - off);
+			if (ret < 0)
+			{
+				throw new EOFException(String.format("unexpected end of stream!![%d : %d]", off, len));
+			}
+			off = off + ret;
+		}
+	}
+	
 	/**
 	 * 从字节流对象读取一个整形数值
 	 */
 	public int readInt() throws IOException
 	{
-		stream.read(buffer, 0, Bytes.SIZEOF_INT);
+		readFully(buffer, Bytes.SIZEOF_INT);
 		return Bytes.toInt(buffer);
 	}
 	
@@ -51,7 +82,7 @@ public class ObjectInputStream extends InputStream
 	 */
 	public long readLong() throws IOException
 	{
-		stream.read(buffer, 0, Bytes.SIZEOF_LONG);
+		readFully(buffer, Bytes.SIZEOF_LONG);
 		return Bytes.toLong(buffer);
 	}
 	
@@ -60,20 +91,209 @@ public class ObjectInputStream extends InputStream
 	 */
 	public short readShort() throws IOException
 	{
-		stream.read(buffer, 0, Bytes.SIZEOF_SHORT);
+		readFully(buffer, Bytes.SIZEOF_SHORT);
 		return Bytes.toShort(buffer);
 	}
 	
 	/**
-	 * 从字节流对象读取一个对象
+	 * 从字节流对象读取一个字节（到达流末尾时抛出异常）
+	 */
+	private int readByte() throws IOException
+	{
+		int b = stream.read();
+		if (b < 0)
+		{
+			throw new EOFException("unexpected end of stream!!");
+		}
+		return b;
+	}
+	
+	/**
+	 * 从字节流对象读取一个无符号变长整数
+	 */
+	private long readVarLong() throws IOException
+	{
+		long v = 0;
+		for (int shift = 0; shift < 64; shift += 7)
+		{
+			int b = readByte();
+			v |= (long)(b & 0x7F) << shift;
+			if ((b & 0x80) == 0)
+			{
+				return v;
+			}
+		}
+		throw new IOException("malformed variable length integer!!");
+	}
+	
+	/**
+	 * 从字节流对象读取一个有符号变长整数（ZigZag 编码）
+	 */
+	private long readVarSignedLong() throws IOException
+	{
+		long v = readVarLong();
+		return (v >>> 1) ^ -(v & 1);
+	}
+	
+	/**
+	 * 从字节流对象读取一个字节数组（长度 + 内容）
+	 */
+	private byte[] readBytes() throws IOException
+	{
+		byte[] buf = new byte[(int)readVarLong()];
+		readFully(buf, buf.length);
+		return buf;
+	}
+	
+	/**
+	 * 从字节流对象读取一个对象（格式与'ObjectOutputStream.writeObject'一致）
 	 * @throws Exception 
 	 */
 	public Object readObject() throws Exception
 	{
-		int    len = readInt();
-		byte[] buf = (len <= buffer.length) ? buffer : new byte[len];
-		stream.read(buf, 0, len);
-		return AggregatorUtils.b2o(buf);
+		int type = readByte();
+		switch (type)
+		{
+		case ObjectType.NULL_VALUE:
+			return null;
+		case ObjectType.BOOLEAN_VALUE:
+			return readByte() != 0;
+		case ObjectType.INTEGER_VALUE:
+			return (int)readVarSignedLong();
+		case ObjectType.LONG_VALUE:
+			return readVarSignedLong();
+		case ObjectType.DOUBLE_VALUE:
+			return Double.longBitsToDouble(readLong());
+		case ObjectType.STRING_VALUE:
+		{
+			int len = (int)readVarLong();
+			if (len <= buffer.length)
+			{
+				readFully(buffer, len);
+				return Bytes.toString(buffer, 0, len);
+			}
+			byte[] buf = new byte[len];
+			readFully(buf, len);
+			return Bytes.toString(buf);
+		}
+		case ObjectType.BYTES_VALUE:
+			return readBytes();
+		case ObjectType.MAP_VALUE:
+		{
+			int                 size = (int)readVarLong();
+			Map<Object, Object> map  = new HashMap<Object, Object>(Math.max(16, (int)(size / 0.75f) + 1));
+			for (int i = 0; i < size; ++i)
+			{
+				Object key = readObject();
+				map.put(key, readObject());
+			}
+			return map;
+		}
+		case ObjectType.LIST_VALUE:
+		{
+			int          size = (int)readVarLong();
+			List<Object> list = new ArrayList<Object>(size);
+			for (int i = 0; i < size; ++i)
+			{
+				list.add(readObject());
+			}
+			return list;
+		}
+		case ObjectType.SET_VALUE:
+		{
+			int         size = (int)readVarLong();
+			Set<Object> set  = new HashSet<Object>(Math.max(16, (int)(size / 0.75f) + 1));
+			for (int i = 0; i < size; ++i)
+			{
+				set.add(readObject());
+			}
+			return set;
+		}
+		case ObjectType.MOMENTS_VALUE:
+		{
+			int  kind  = readByte();
+			long count = readVarLong();
+			return new Moments(kind, count, Double.longBitsToDouble(readLong()), Double.longBitsToDouble(readLong()));
+		}
+		case ObjectType.ESTIMATE_VALUE:
+		{
+			int    kind  = readByte();
+			double rate  = Double.longBitsToDouble(readLong());
+			long   count = readVarLong();
+			return new Estimate(kind, rate, count, Double.longBitsToDouble(readLong()), Double.longBitsToDouble(readLong()));
+		}
+		case ObjectType.HYPERLOGLOG_VALUE:
+		{
+			int precision = readByte();
+			return new HyperLogLog(precision, readBytes());
+		}
+		case ObjectType.HEAVYHITTERS_VALUE:
+		{
+			HeavyHitters hitters = new HeavyHitters((int)readVarLong());
+			int size = (int)readVarLong();
+			for (int i = 0; i < size; ++i)
+			{
+				Object value = readObject();
+				long   count = readVarLong();
+				hitters.insert(value, count, readVarLong());
+			}
+			return hitters;
+		}
+		case ObjectType.BITMAP_VALUE:
+		{
+			LongSet set   = new LongSet();
+			int     count = (int)readVarLong();
+			for (int i = 0; i < count; ++i)
+			{
+				long key         = readVarSignedLong();
+				int  cardinality = (int)readVarLong();
+				if (cardinality <= 4096)
+				{
+					char[] array    = new char[cardinality];
+					int    previous = 0;
+					for (int j = 0; j < cardinality; ++j)
+					{
+						previous = previous + (int)readVarLong();
+						array[j] = (char)previous;
+					}
+					set.append(key, array, cardinality);
+				}
+				else
+				{
+					long[] words = new long[1024];
+					for (int j = 0; j < words.length; ++j)
+					{
+						words[j] = readLong();
+					}
+					set.append(key, words, cardinality);
+				}
+			}
+			return set;
+		}
+		case ObjectType.QUANTILES_VALUE:
+		{
+			int    k     = (int)readVarLong();
+			long   count = readVarLong();
+			double min   = Double.longBitsToDouble(readLong());
+			double max   = Double.longBitsToDouble(readLong());
+			int    size  = (int)readVarLong();
+			List<double[]> levels = new ArrayList<double[]>(size);
+			for (int i = 0; i < size; ++i)
+			{
+				double[] level = new double[(int)readVarLong()];
+				for (int j = 0; j < level.length; ++j)
+				{
+					level[j] = Double.longBitsToDouble(readLong());
+				}
+				levels.add(level);
+			}
+			return new Quantiles(k, count, min, max, levels);
+		}
+		case ObjectType.OBJECT_VALUE:
+			return AggregatorUtils.b2o(readBytes());
+		default:
+			throw new IOException(String.format("unknown object type!![%d]", type));
+		}
 	}
 
 	/**
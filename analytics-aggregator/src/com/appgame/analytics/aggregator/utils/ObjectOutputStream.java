@@ -2,9 +2,21 @@ package com.appgame.analytics.aggregator.utils;
 
 import java.io.IOException;
 import java.io.OutputStream;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import org.apache.hadoop.hbase.util.Bytes;
 
+import com.appgame.analytics.aggregator.accumulator.utils.Estimate;
+import com.appgame.analytics.aggregator.accumulator.utils.HeavyHitters;
+import com.appgame.analytics.aggregator.accumulator.utils.HyperLogLog;
+import com.appgame.analytics.aggregator.accumulator.utils.LongSet;
+import com.appgame.analytics.aggregator.accumulator.utils.Moments;
+import com.appgame.analytics.aggregator.accumulator.utils.Quantiles;
+import com.appgame.analytics.aggregator.protobuf.generated.MessageProtos.Object.ObjectType;
+
 /**
  * 输出字节流（'Output'和'Input'共同规范了聚合器ＣＳ两端数据序列化格式）
  */
@@ -32,6 +44,15 @@ public class ObjectOutputStream extends OutputStream
 		stream.write(b);
 	}
 	
+	/**
+	 * 将一段字节数据直接写入字节流对象（不逐字节写入）
+	 */
+	@Override
+	public void write(byte[] b, int off, int len) throws IOException
+	{
+		stream.write(b, off, len);
+	}
+	
 	/**
 	 * 将一个整形数值写入字节流对象
 	 */
@@ -57,14 +78,194 @@ public class ObjectOutputStream extends OutputStream
 	}
 	
 	/**
-	 * 将一个对象实例写入字节流对象
+	 * 将一个无符号变长整数写入字节流对象（每个字节保存７位数据，最高位表示是否有后续字节）
+	 */
+	private void writeVarLong(long v) throws IOException
+	{
+		while ((v & ~0x7FL) != 0)
+		{
+			stream.write((int)((v & 0x7F) | 0x80));
+			v >>>= 7;
+		}
+		stream.write((int)v);
+	}
+	
+	/**
+	 * 将一个有符号变长整数写入字节流对象（ZigZag 编码，绝对值较小的负数同样只占用较少字节）
+	 */
+	private void writeVarSignedLong(long v) throws IOException
+	{
+		writeVarLong((v << 1) ^ (v >> 63));
+	}
+	
+	/**
+	 * 将一个字节数组写入字节流对象（长度 + 内容）
+	 */
+	private void writeBytes(byte[] v) throws IOException
+	{
+		writeVarLong(v.length);
+		stream.write(v);
+	}
+	
+	/**
+	 * 将一个对象实例写入字节流对象（类型标签 + 数据，类型标签定义于'MessageProtos.Object.ObjectType'）
+	 * 1. 基本类型 : NULL, BOOLEAN, INTEGER, LONG, DOUBLE, STRING, BYTES
+	 * 2. 容器类型 : MAP, LIST, SET（元素数量 + 元素内容）, BITMAP（桶数量 + 各桶高位 + 元素数量 + 有序数组差值或者位图）
+	 * 3. 统计类型 : MOMENTS（统计类型 + 样本数量 + 均值 + 离差平方和）, HYPERLOGLOG（精度 + 寄存器）, QUANTILES（精度 + 数量 + 最小值 + 最大值 + 各层样本）,
+	 *              HEAVYHITTERS（输出的候选项数量 + 候选项数量 + 前 k 项候选项的数值、计数以及误差）, ESTIMATE（统计类型 + 抽样率 + 样本数量 + 估算值 + 方差）
+	 * 4. 其他类型 : OBJECT（Java 序列化）
 	 * @throws Exception 
 	 */
+	@SuppressWarnings("unchecked")
 	public void writeObject(Object v) throws Exception
 	{
-		byte[] b = AggregatorUtils.o2b(v);
-		stream.write(Bytes.toBytes(b.length));
-		stream.write(b);
+		if (v == null)
+		{
+			stream.write(ObjectType.NULL_VALUE);
+		}
+		else if (v instanceof Boolean)
+		{
+			stream.write(ObjectType.BOOLEAN_VALUE);
+			stream.write((Boolean)v ? 1 : 0);
+		}
+		else if (v instanceof Integer)
+		{
+			stream.write(ObjectType.INTEGER_VALUE);
+			writeVarSignedLong((Integer)v);
+		}
+		else if (v instanceof Long)
+		{
+			stream.write(ObjectType.LONG_VALUE);
+			writeVarSignedLong((Long)v);
+		}
+		else if (v instanceof Double)
+		{
+			stream.write(ObjectType.DOUBLE_VALUE);
+			stream.write(Bytes.toBytes((Double)v));
+		}
+		else if (v instanceof String)
+		{
+			stream.write(ObjectType.STRING_VALUE);
+			writeBytes(Bytes.toBytes((String)v));
+		}
+		else if (v instanceof byte[])
+		{
+			stream.write(ObjectType.BYTES_VALUE);
+			writeBytes((byte[])v);
+		}
+		else if (v instanceof Moments)
+		{
+			Moments moments = (Moments)v;
+			stream.write(ObjectType.MOMENTS_VALUE);
+			stream.write(moments.kind());
+			writeVarLong(moments.count());
+			stream.write(Bytes.toBytes(moments.mean()));
+			stream.write(Bytes.toBytes(moments.m2()));
+		}
+		else if (v instanceof Estimate)
+		{
+			Estimate estimate = (Estimate)v;
+			stream.write(ObjectType.ESTIMATE_VALUE);
+			stream.write(estimate.kind());
+			stream.write(Bytes.toBytes(estimate.rate()));
+			writeVarLong(estimate.count());
+			stream.write(Bytes.toBytes(estimate.total()));
+			stream.write(Bytes.toBytes(estimate.variance()));
+		}
+		else if (v instanceof HyperLogLog)
+		{
+			HyperLogLog hll = (HyperLogLog)v;
+			stream.write(ObjectType.HYPERLOGLOG_VALUE);
+			stream.write(hll.precision());
+			writeBytes(hll.registers());
+		}
+		else if (v instanceof HeavyHitters)
+		{
+			HeavyHitters hitters = (HeavyHitters)v;
+			stream.write(ObjectType.HEAVYHITTERS_VALUE);
+			writeVarLong(hitters.k());
+			writeVarLong(hitters.size());
+			for (Map<String, Object> candidate : hitters)
+			{
+				writeObject(candidate.get("value"));
+				writeVarLong((Long)candidate.get("count"));
+				writeVarLong((Long)candidate.get("error"));
+			}
+		}
+		else if (v instanceof Quantiles)
+		{
+			Quantiles quantiles = (Quantiles)v;
+			stream.write(ObjectType.QUANTILES_VALUE);
+			writeVarLong(quantiles.k());
+			writeVarLong(quantiles.count());
+			stream.write(Bytes.toBytes(quantiles.min()));
+			stream.write(Bytes.toBytes(quantiles.max()));
+			List<double[]> levels = quantiles.levels();
+			writeVarLong(levels.size());
+			for (double[] level : levels)
+			{
+				writeVarLong(level.length);
+				for (double d : level)
+				{
+					stream.write(Bytes.toBytes(d));
+				}
+			}
+		}
+		else if (v instanceof Map)
+		{
+			Map<Object, Object> map = (Map<Object, Object>)v;
+			stream.write(ObjectType.MAP_VALUE);
+			writeVarLong(map.size());
+			for (Map.Entry<Object, Object> entry : map.entrySet())
+			{
+				writeObject(entry.getKey());
+				writeObject(entry.getValue());
+			}
+		}
+		else if (v instanceof LongSet)
+		{
+			LongSet set = (LongSet)v;
+			stream.write(ObjectType.BITMAP_VALUE);
+			writeVarLong(set.containers());
+			for (int i = 0; i < set.containers(); ++i)
+			{
+				writeVarSignedLong(set.key(i));
+				writeVarLong(set.cardinality(i));
+				if (set.container(i) instanceof char[])
+				{
+					// 有序数组按差值写入
+					char[] array    = (char[])set.container(i);
+					int    previous = 0;
+					for (int j = 0; j < set.cardinality(i); ++j)
+					{
+						writeVarLong(array[j] - previous);
+						previous = array[j];
+					}
+				}
+				else
+				{
+					for (long word : (long[])set.container(i))
+					{
+						stream.write(Bytes.toBytes(word));
+					}
+				}
+			}
+		}
+		else if (v instanceof List || v instanceof Set)
+		{
+			Collection<Object> collection = (Collection<Object>)v;
+			stream.write(v instanceof List ? ObjectType.LIST_VALUE : ObjectType.SET_VALUE);
+			writeVarLong(collection.size());
+			for (Object value : collection)
+			{
+				writeObject(value);
+			}
+		}
+		else
+		{
+			stream.write(ObjectType.OBJECT_VALUE);
+			writeBytes(AggregatorUtils.o2b(v));
+		}
 	}
 	
 	/**
@@ -0,0 +1,118 @@
+package com.appgame.analytics.aggregator.utils;
+
+import java.util.Map;
+import java.util.NavigableSet;
+
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.HConstants;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.filter.FilterBase;
+import org.apache.hadoop.hbase.util.Bytes;
+
+/**
+ * 列裁剪过滤器（只返回累积器引用的列，其余列跳过）
+ * 1. 每行保留一个不含数值的伴随单元格，没有任何引用列的行仍然交给累积器（'$exists:false'、空值分组等依赖这些行）
+ * 2. 不改变扫描器的列族设置，因此不会引入表内不存在的列族
+ * 3. 过滤器只在服务端构造，不需要序列化；与其它过滤器组合时应放在最后，以免其它过滤器看不到被跳过的列
+ */
+public class PruneFilter extends FilterBase
+{
+	/**
+	 * 引用的列族以及各列族引用的列名称（列名称数组为 null 表示引用整个列族）
+	 */
+	private final byte[][]   families;
+	private final byte[][][] qualifiers;
+	
+	/**
+	 * 当前行是否已经返回过单元格
+	 */
+	private boolean alive = false;
+	
+	/**
+	 * 当前单元格是否为伴随单元格（只保留键）
+	 */
+	private boolean companion = false;
+	
+	/**
+	 * 构造方法
+	 * @param columns 引用的列（按列族排序）
+	 */
+	public PruneFilter(Map<byte[], NavigableSet<byte[]>> columns)
+	{
+		this.families   = new byte[columns.size()][];
+		this.qualifiers = new byte[columns.size()][][];
+		int index = 0;
+		for (Map.Entry<byte[], NavigableSet<byte[]>> column : columns.entrySet())
+		{
+			families  [index] = column.getKey();
+			qualifiers[index] = column.getValue() == null ? null : column.getValue().toArray(new byte[0][]);
+			index = index + 1;
+		}
+	}
+	
+	/**
+	 * 判断单元格是否为引用的列（引用的列数量很少，直接按偏移量比较，不复制名称）
+	 */
+	private boolean referenced(Cell cell)
+	{
+		for (int i = 0; i < families.length; i++)
+		{
+			if (Bytes.equals(families[i], 0, families[i].length, cell.getFamilyArray(), cell.getFamilyOffset(), cell.getFamilyLength()))
+			{
+				if (qualifiers[i] == null)
+				{
+					return true;
+				}
+				for (byte[] qualifier : qualifiers[i])
+				{
+					if (Bytes.equals(qualifier, 0, qualifier.length, cell.getQualifierArray(), cell.getQualifierOffset(), cell.getQualifierLength()))
+					{
+						return true;
+					}
+				}
+				return false;
+			}
+		}
+		return false;
+	}
+	
+	@Override
+	public ReturnCode filterKeyValue(Cell cell)
+	{
+		companion = false;
+		if (referenced(cell))
+		{
+			alive = true;
+			return ReturnCode.INCLUDE;
+		}
+		else if (!alive)
+		{
+			// 行内第一个未引用的单元格作为伴随单元格
+			alive     = true;
+			companion = true;
+			return ReturnCode.INCLUDE_AND_NEXT_COL;
+		}
+		return ReturnCode.NEXT_COL;
+	}
+	
+	@Override
+	public Cell transformCell(Cell cell)
+	{
+		if (!companion)
+		{
+			return cell;
+		}
+		return new KeyValue(cell.getRowArray(), cell.getRowOffset(), cell.getRowLength(),
+							cell.getFamilyArray(), cell.getFamilyOffset(), cell.getFamilyLength(),
+							cell.getQualifierArray(), cell.getQualifierOffset(), cell.getQualifierLength(),
+							cell.getTimestamp(), KeyValue.Type.codeToType(cell.getTypeByte()),
+							HConstants.EMPTY_BYTE_ARRAY, 0, 0);
+	}
+	
+	@Override
+	public void reset()
+	{
+		alive     = false;
+		companion = false;
+	}
+}
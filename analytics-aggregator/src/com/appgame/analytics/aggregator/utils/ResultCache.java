@@ -0,0 +1,159 @@
+package com.appgame.analytics.aggregator.utils;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.protobuf.ByteString;
+
+/**
+ * 聚合结果缓存（按最近最少使用策略淘汰，缓存项与数据版本绑定）
+ * 1. 关键字 : 聚合请求的序列化数据
+ * 2. 缓存项 : <数据版本, 序列化的聚合结果>
+ * 查找时数据版本不一致的缓存项视为失效并被清理，命中以及未命中次数通过 JMX 导出（'ResultCacheMBean'）
+ */
+public class ResultCache implements ResultCacheMBean
+{
+	/**
+	 * 缓存项
+	 */
+	private static class CacheEntry
+	{
+		private final String     version;
+		private final ByteString data;
+
+		public CacheEntry(String version, ByteString data)
+		{
+			this.version = version;
+			this.data    = data;
+		}
+	}
+
+	/**
+	 * 缓存项数量上限
+	 */
+	private final int capacity;
+
+	/**
+	 * 单个缓存项的数据大小上限（字节）
+	 */
+	private final long limit;
+
+	/**
+	 * 缓存容器（按访问顺序排列）
+	 */
+	private final Map<ByteString, CacheEntry> entries;
+
+	/**
+	 * 命中以及未命中次数
+	 */
+	private final AtomicLong hits   = new AtomicLong(0);
+	private final AtomicLong misses = new AtomicLong(0);
+
+	/**
+	 * 构造方法
+	 * @param capacity
+	 * @param limit
+	 */
+	@SuppressWarnings("serial")
+	public ResultCache(final int capacity, long limit)
+	{
+		this.capacity = capacity;
+		this.limit    = limit;
+		this.entries  = new LinkedHashMap<ByteString, CacheEntry>(16, 0.75f, true)
+		{
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<ByteString, CacheEntry> eldest)
+			{
+				return size() > capacity;
+			}
+		};
+	}
+
+	/**
+	 * 查找聚合结果（数据版本不一致时清理缓存项）
+	 * @param key
+	 * @param version
+	 * @return 未命中时返回 null
+	 */
+	public ByteString get(ByteString key, String version)
+	{
+		if (capacity <= 0)
+		{
+			return null;
+		}
+		synchronized(entries)
+		{
+			CacheEntry entry = entries.get(key);
+			if (entry != null && entry.version.equals(version))
+			{
+				hits.incrementAndGet();
+				return entry.data;
+			}
+			if (entry != null)
+			{
+				entries.remove(key);
+			}
+		}
+		misses.incrementAndGet();
+		return null;
+	}
+
+	/**
+	 * 缓存聚合结果（超出单项大小上限的结果不缓存）
+	 * @param key
+	 * @param version
+	 * @param data
+	 */
+	public void put(ByteString key, String version, ByteString data)
+	{
+		if (capacity > 0 && data.size() <= limit)
+		{
+			synchronized(entries)
+			{
+				entries.put(key, new CacheEntry(version, data));
+			}
+		}
+	}
+
+	/**
+	 * 清空缓存
+	 */
+	public void clear()
+	{
+		synchronized(entries)
+		{
+			entries.clear();
+		}
+	}
+
+	/**
+	 * 命中次数
+	 */
+	@Override
+	public long getHits()
+	{
+		return hits.get();
+	}
+
+	/**
+	 * 未命中次数
+	 */
+	@Override
+	public long getMisses()
+	{
+		return misses.get();
+	}
+
+	/**
+	 * 当前缓存项数量
+	 */
+	@Override
+	public int getSize()
+	{
+		synchronized(entries)
+		{
+			return entries.size();
+		}
+	}
+}
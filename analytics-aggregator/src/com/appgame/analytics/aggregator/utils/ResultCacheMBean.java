@@ -0,0 +1,25 @@
+package com.appgame.analytics.aggregator.utils;
+
+/**
+ * 聚合结果缓存的 JMX 指标（每个区域注册一个实例）
+ */
+public interface ResultCacheMBean
+{
+	/**
+	 * 命中次数
+	 * @return
+	 */
+	public long getHits();
+	
+	/**
+	 * 未命中次数
+	 * @return
+	 */
+	public long getMisses();
+	
+	/**
+	 * 当前缓存项数量
+	 * @return
+	 */
+	public int getSize();
+}
@@ -0,0 +1,52 @@
+package com.appgame.analytics.aggregator.utils;
+
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.filter.FilterBase;
+import org.apache.hadoop.hbase.util.MurmurHash3;
+
+/**
+ * 行键哈希抽样过滤器（在区域扫描内按行键哈希值保留指定比例的行）
+ * 1. 同一行的抽样结果固定，重复执行同一个查询得到相同的样本，分批返回一行数据时也不会拆散
+ * 2. 被抽样排除的行在读取行键后直接跳过，不再读取其余单元格
+ * 3. 过滤器只在服务端构造，不需要序列化
+ */
+public class SampleFilter extends FilterBase
+{
+	/**
+	 * 哈希值阈值（无符号 32 位哈希值小于阈值的行被保留）
+	 */
+	private final long threshold;
+	
+	/**
+	 * 当前行是否被排除
+	 */
+	private boolean filterOutRow = false;
+	
+	/**
+	 * 构造方法
+	 * @param rate 抽样率（0, 1]
+	 */
+	public SampleFilter(double rate)
+	{
+		this.threshold = (long)(rate * (1L << 32));
+	}
+	
+	@Override
+	public boolean filterRowKey(byte[] buffer, int offset, int length)
+	{
+		filterOutRow = (MurmurHash3.getInstance().hash(buffer, offset, length, 0) & 0xFFFFFFFFL) >= threshold;
+		return filterOutRow;
+	}
+	
+	@Override
+	public ReturnCode filterKeyValue(Cell cell)
+	{
+		return filterOutRow ? ReturnCode.NEXT_ROW : ReturnCode.INCLUDE;
+	}
+	
+	@Override
+	public void reset()
+	{
+		filterOutRow = false;
+	}
+}
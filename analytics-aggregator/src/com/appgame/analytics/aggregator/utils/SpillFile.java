@@ -0,0 +1,182 @@
+package com.appgame.analytics.aggregator.utils;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import org.xerial.snappy.SnappyInputStream;
+import org.xerial.snappy.SnappyOutputStream;
+
+/**
+ * 溢出文件（累积器数据超过内存阈值时写入本地磁盘，数据格式与'ObjectOutputStream'一致并经过压缩）
+ * 1. 写入 : 依次写入对象，写入完成后关闭
+ * 2. 读取 : 每个读取器从头依次读取全部对象
+ */
+public class SpillFile
+{
+	/**
+	 * 本地文件
+	 */
+	private final File file;
+
+	/**
+	 * 写入流（写入完成后为 null）
+	 */
+	private ObjectOutputStream output;
+
+	/**
+	 * 文件内的对象数量
+	 */
+	private long size = 0;
+
+	/**
+	 * 构造方法（在指定目录下创建临时文件）
+	 * @param directory
+	 * @throws IOException
+	 */
+	public SpillFile(String directory) throws IOException
+	{
+		File folder = new File(directory);
+		if (!folder.exists() && !folder.mkdirs() && !folder.exists())
+		{
+			throw new IOException(String.format("can not create spill directory[%s]", directory));
+		}
+		this.file = File.createTempFile("aggregate-", ".spill", folder);
+		this.output = new ObjectOutputStream(new SnappyOutputStream(new BufferedOutputStream(new FileOutputStream(file))));
+	}
+
+	/**
+	 * 写入一个对象
+	 * @param value
+	 * @throws Exception
+	 */
+	public void write(Object value) throws Exception
+	{
+		output.writeObject(value);
+		size = size + 1;
+	}
+
+	/**
+	 * 结束写入
+	 * @throws IOException
+	 */
+	public void close() throws IOException
+	{
+		if (output != null)
+		{
+			output.close();
+			output = null;
+		}
+	}
+
+	/**
+	 * 返回文件内的对象数量
+	 * @return
+	 */
+	public long size()
+	{
+		return size;
+	}
+
+	/**
+	 * 返回文件大小（字节）
+	 * @return
+	 */
+	public long length()
+	{
+		return file.length();
+	}
+
+	/**
+	 * 删除文件（由持有文件的累积器或者容器在关闭时调用）
+	 */
+	public void delete()
+	{
+		try
+		{
+			close();
+		}
+		catch (IOException e)
+		{
+		}
+		file.delete();
+	}
+
+	/**
+	 * 打开读取器（必须先结束写入）
+	 * @return
+	 * @throws IOException
+	 */
+	public Reader open() throws IOException
+	{
+		close();
+		return new Reader();
+	}
+
+	/**
+	 * 溢出文件读取器
+	 */
+	public class Reader implements Closeable
+	{
+		/**
+		 * 读取流
+		 */
+		private ObjectInputStream input;
+
+		/**
+		 * 剩余对象数量
+		 */
+		private long remain = size;
+
+		/**
+		 * 构造方法
+		 * @throws IOException
+		 */
+		private Reader() throws IOException
+		{
+			this.input = new ObjectInputStream(new SnappyInputStream(new BufferedInputStream(new FileInputStream(file))));
+		}
+
+		/**
+		 * 判断是否还有数据
+		 * @return
+		 */
+		public boolean hasNext()
+		{
+			return remain > 0;
+		}
+
+		/**
+		 * 读取下一个对象（读取全部对象后自动关闭）
+		 * @return
+		 * @throws Exception
+		 */
+		public Object next() throws Exception
+		{
+			Object value = input.readObject();
+			remain = remain - 1;
+			if (remain <= 0)
+			{
+				close();
+			}
+			return value;
+		}
+
+		/**
+		 * 关闭读取器
+		 */
+		@Override
+		public void close() throws IOException
+		{
+			if (input != null)
+			{
+				input.close();
+				input = null;
+			}
+		}
+	}
+}
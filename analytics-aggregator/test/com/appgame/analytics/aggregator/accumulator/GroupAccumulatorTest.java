@@ -0,0 +1,160 @@
+package com.appgame.analytics.aggregator.accumulator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.hadoop.conf.Configuration;
+import org.junit.Test;
+
+import com.appgame.analytics.aggregator.accumulator.utils.Estimate;
+import com.appgame.analytics.aggregator.accumulator.utils.HeavyHitters;
+import com.appgame.analytics.aggregator.accumulator.utils.Moments;
+import com.appgame.analytics.aggregator.utils.ObjectInputStream;
+import com.appgame.analytics.aggregator.utils.ObjectOutputStream;
+
+public class GroupAccumulatorTest
+{
+	private static Map<String, Object> row(String key, Object x)
+	{
+		Map<String, Object> row = new HashMap<String, Object>();
+		row.put("k", key);
+		row.put("x", x);
+		return row;
+	}
+	
+	private static Map<String, Object> first(Accumulator accumulator) throws Exception
+	{
+		return accumulator.get().iterator().next();
+	}
+	
+	@Test
+	public void estimateMergesExactSum() throws Exception
+	{
+		// 精确值在前、估算状态在后时，精确值作为方差为零的部分保留
+		Accumulator accumulator = Accumulator.build("[{$group:{_id:'$k', s:{$sum:'$x'}}}]");
+		accumulator.put(row("a", 3));
+		accumulator.put(row("a", new Estimate(Estimate.SUM, 0.5, 2, 8.0, 4.0)));
+		Object s = first(accumulator).get("s");
+		assertTrue(s instanceof Estimate);
+		assertEquals(11.0, ((Estimate)s).total(), 0.0);
+		assertEquals(4.0, ((Estimate)s).variance(), 0.0);
+	}
+	
+	@Test
+	public void sampledClientGroup() throws Exception
+	{
+		// 服务端没有'$group'时客户端分组按抽样率放大
+		Accumulator accumulator = Accumulator.build("[{$group:{_id:'$k', s:{$sum:'$x'}, c:{$count:'$x'}}}]", 0.25);
+		accumulator.put(row("a", 1));
+		accumulator.put(row("a", 2));
+		Map<String, Object> result = first(accumulator);
+		assertEquals(12.0, ((Estimate)result.get("s")).total(), 1e-9);
+		assertEquals(8.0, ((Estimate)result.get("c")).total(), 1e-9);
+	}
+	
+	@Test
+	public void batchErrorReportsInputRow() throws Exception
+	{
+		// 经过过滤以及截取后，出错位置仍然对应输入批次内的位置
+		Accumulator accumulator = Accumulator.build("[{$match:{k:'a'}}, {$skip:2}, {$project:{y:{$divide:['$x', 1]}}}, {$group:{_id:null, s:{$sum:'$y'}}}]");
+		List<Map<String, Object>> batch = new ArrayList<Map<String, Object>>();
+		for (int i = 0; i < 20; i++)
+		{
+			batch.add(row(i % 2 == 0 ? "a" : "b", i == 14 ? (Object)"bad" : (Object)(long)i));
+		}
+		try
+		{
+			accumulator.putBatch(batch);
+			fail();
+		}
+		catch (AccumulatorBatchException e)
+		{
+			assertEquals(14, e.index());
+		}
+	}
+	
+	@Test
+	public void topKSizedFromK() throws Exception
+	{
+		// 计数器数量为 k 乘以余量系数，输出以及序列化时只保留前 k 项
+		Accumulator accumulator = Accumulator.build("[{$group:{_id:null, t:{$topK:['$x', 5]}}}]");
+		for (int i = 0; i < 50; i++)
+		{
+			for (int j = 0; j < 50 - i; j++)
+			{
+				accumulator.put(row("a", "v" + ((i + j) % 50)));
+			}
+		}
+		HeavyHitters hitters = (HeavyHitters)first(accumulator).get("t");
+		assertEquals(5, hitters.k());
+		assertEquals(50, hitters.capacity());
+		assertEquals(5, hitters.size());
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		ObjectOutputStream    oos = new ObjectOutputStream(bos);
+		oos.writeObject(hitters);
+		oos.close();
+		ObjectInputStream ois  = new ObjectInputStream(new ByteArrayInputStream(bos.toByteArray()));
+		HeavyHitters      copy = (HeavyHitters)ois.readObject();
+		ois.close();
+		assertEquals(hitters, copy);
+		assertEquals(5, copy.capacity());
+		try
+		{
+			Accumulator.build("[{$group:{_id:null, t:{$topK:['$x', 0]}}}]");
+			fail();
+		}
+		catch (Exception e)
+		{
+			assertTrue(e.getMessage().contains("positive integer"));
+		}
+	}
+	
+	@Test
+	public void offheapMatchesHeap() throws Exception
+	{
+		// 堆外容器的定长字段原地更新，非数值的最值以及统计状态输入转为通用编码，结果与堆内容器一致
+		Configuration offheap = new Configuration(false);
+		offheap.setBoolean("hbase.aggregate.group.offheap", true);
+		String      sentence = "[{$group:{_id:'$k', s:{$sum:'$x'}, n:{$count:'$x'}, a:{$avg:'$x'}, v:{$var:'$x'}, lo:{$min:'$x'}, hi:{$max:'$x'}}}]";
+		Accumulator heap     = Accumulator.build(sentence);
+		Accumulator table    = Accumulator.build(sentence, new AccumulatorConfig(offheap), 1.0);
+		Moments     partial  = new Moments(Moments.AVG);
+		partial.update(100.0);
+		for (int i = 0; i < 2000; i++)
+		{
+			Object x = i == 700 ? "text" : i == 900 ? null : i % 10 == 3 ? (Object)(i * 0.5) : (Object)(long)i;
+			heap.put(row("k" + (i % 7), x));
+			table.put(row("k" + (i % 7), x));
+		}
+		heap.put(row("k1", partial));
+		table.put(row("k1", partial));
+		Map<Object, Map<String, Object>> expected = new HashMap<Object, Map<String, Object>>();
+		for (Map<String, Object> record : heap.get())
+		{
+			expected.put(record.get("_id"), record);
+		}
+		int count = 0;
+		for (Map<String, Object> record : table.get())
+		{
+			Map<String, Object> other = expected.get(record.get("_id"));
+			for (String field : Arrays.asList("s", "n", "a", "v"))
+			{
+				assertEquals(field, ((Number)other.get(field)).doubleValue(), ((Number)record.get(field)).doubleValue(), 1e-6);
+			}
+			assertEquals(other.get("lo"), record.get("lo"));
+			assertEquals(other.get("hi"), record.get("hi"));
+			count = count + 1;
+		}
+		assertEquals(7, count);
+		table.close();
+	}
+}
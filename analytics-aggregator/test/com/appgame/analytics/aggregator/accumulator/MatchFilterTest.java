@@ -0,0 +1,245 @@
+package com.appgame.analytics.aggregator.accumulator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.filter.BinaryComparator;
+import org.apache.hadoop.hbase.filter.Filter;
+import org.apache.hadoop.hbase.filter.Filter.ReturnCode;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.junit.Test;
+
+import com.appgame.analytics.aggregator.accumulator.utils.AccumulatorUtils;
+import com.appgame.analytics.aggregator.utils.CellMap;
+import com.appgame.analytics.aggregator.utils.NameCache;
+
+public class MatchFilterTest
+{
+	/**
+	 * 测试数据中'd.x'列的取值（null 表示该行缺少'd.x'列）
+	 */
+	private static final String[] VALUES = {null, "", "10", "5", "a", "b", "bb", "c", "é"};
+	
+	private static Cell cell(String row, String family, String qualifier, String value)
+	{
+		return new KeyValue(Bytes.toBytes(row), Bytes.toBytes(family), Bytes.toBytes(qualifier), 1L, Bytes.toBytes(value));
+	}
+	
+	/**
+	 * 构造测试行（单元格按列族、列名称排序，每行至少含有'e.z'列）
+	 */
+	private static List<List<Cell>> rows()
+	{
+		List<List<Cell>> rows = new ArrayList<List<Cell>>();
+		for (int i = 0; i < VALUES.length; i++)
+		{
+			for (String y : new String[]{null, "b"})
+			{
+				String     row   = "r" + rows.size();
+				List<Cell> cells = new ArrayList<Cell>();
+				if (VALUES[i] != null)
+				{
+					cells.add(cell(row, "d", "x", VALUES[i]));
+				}
+				if (y != null)
+				{
+					cells.add(cell(row, "d", "y", y));
+				}
+				cells.add(cell(row, "e", "z", "1"));
+				rows.add(cells);
+			}
+		}
+		return rows;
+	}
+	
+	/**
+	 * 按区域扫描器的方式对一行单元格执行过滤器，返回整行是否保留
+	 */
+	private static boolean apply(Filter filter, List<Cell> cells) throws Exception
+	{
+		List<Cell> result = new ArrayList<Cell>();
+		filter.reset();
+		Cell first = cells.get(0);
+		if (filter.filterRowKey(first.getRowArray(), first.getRowOffset(), first.getRowLength()))
+		{
+			return false;
+		}
+		for (Cell cell : cells)
+		{
+			ReturnCode code = filter.filterKeyValue(cell);
+			if (code == ReturnCode.INCLUDE || code == ReturnCode.INCLUDE_AND_NEXT_COL)
+			{
+				result.add(filter.transformCell(cell));
+			}
+			else if (code == ReturnCode.NEXT_ROW)
+			{
+				break;
+			}
+		}
+		if (filter.hasFilterRow())
+		{
+			filter.filterRowCells(result);
+			if (filter.filterRow())
+			{
+				return false;
+			}
+		}
+		return !result.isEmpty();
+	}
+	
+	/**
+	 * 判断累积器是否接受输入数据
+	 */
+	private static boolean accept(String match, Map<String, Object> input) throws Exception
+	{
+		Accumulator accumulator = Accumulator.build("[{$match:" + match + "}]");
+		accumulator.put(input);
+		return accumulator.get().iterator().hasNext();
+	}
+	
+	/**
+	 * 逐行比较 HBASE 过滤器与匹配条件的结果
+	 * @param match
+	 * @param exact 过滤器完整转换了条件（结果应当完全一致），否则过滤器通过的数据只需包含条件成立的数据
+	 * @return 条件成立的行数
+	 */
+	private static int check(String match, boolean exact) throws Exception
+	{
+		Filter    filter = Accumulator.build("[{$match:" + match + "}]").filter();
+		NameCache names  = new NameCache();
+		int       count  = 0;
+		assertNotNull(match, filter);
+		for (List<Cell> row : rows())
+		{
+			boolean accepted = accept(match, new CellMap(row, names));
+			boolean passed   = apply(filter, row);
+			if (exact)
+			{
+				assertEquals(match + " : " + row, accepted, passed);
+			}
+			else
+			{
+				assertTrue(match + " : " + row, passed || !accepted);
+			}
+			count += accepted ? 1 : 0;
+		}
+		return count;
+	}
+	
+	@Test
+	public void comparisons() throws Exception
+	{
+		// 缺少列时 '$ne'、'$lt'、'$lte' 成立，其余比较不成立
+		assertEquals(2,  check("{'d.x':'b'}", true));
+		assertEquals(16, check("{'d.x':{$ne:'b'}}", true));
+		assertEquals(6,  check("{'d.x':{$gt:'b'}}", true));
+		assertEquals(8,  check("{'d.x':{$gte:'b'}}", true));
+		assertEquals(10, check("{'d.x':{$lt:'b'}}", true));
+		assertEquals(12, check("{'d.x':{$lte:'b'}}", true));
+		// 多字节字符按 UTF-8 编码的无符号字节比较
+		assertEquals(2,  check("{'d.x':{$gt:'c'}}", true));
+		assertEquals(6,  check("{'d.x':{$lt:'5'}}", true));
+	}
+	
+	@Test
+	public void setsAndExists() throws Exception
+	{
+		assertEquals(4,  check("{'d.x':{$in:['a', '10']}}", true));
+		assertEquals(14, check("{'d.x':{$nin:['a', '10']}}", true));
+		// '$exists:true' 过滤缺少列的行，空字节数组的列仍然成立
+		assertEquals(16, check("{'d.x':{$exists:true}}", true));
+		assertEquals(8,  check("{'d.x':{$exists:true}, 'd.y':{$exists:true}}", true));
+		assertNull(Accumulator.build("[{$match:{'d.x':{$exists:false}}}]").filter());
+	}
+	
+	@Test
+	public void mixedTypes() throws Exception
+	{
+		// 含有非字串常量时不转换过滤器，字节数组按字串参与比较
+		assertNull(Accumulator.build("[{$match:{'d.x':{$in:['a', 5]}}}]").filter());
+		assertNull(Accumulator.build("[{$match:{'d.x':{$gt:5}}}]").filter());
+		NameCache names = new NameCache();
+		for (List<Cell> row : rows())
+		{
+			Map<String, Object> input = new CellMap(row, names);
+			boolean expected = accept("{'d.x':{$in:['a', 'b']}}", input);
+			assertEquals(row.toString(), expected, accept("{'d.x':{$in:['a', 5, 'b']}}", input));
+			assertEquals(row.toString(), expected, accept("{'d.x':{$in:[5, 6, 'a', 'b']}}", input));
+			assertEquals(row.toString(), expected, accept("{'d.x':{$in:['b', 5, 6.5, 'a', true]}}", input));
+			assertFalse(row.toString(), accept("{'d.x':{$in:[5, 6, 7]}}", input));
+		}
+	}
+	
+	@Test
+	public void operators() throws Exception
+	{
+		// '$or' 全部分支可以转换时结果一致
+		assertEquals(10, check("{$or:{'d.x':'a', 'd.y':'b'}}", true));
+		// '$or' 含有不能转换的分支时不转换
+		assertNull(Accumulator.build("[{$match:{$or:{'d.x':'a', 'd.y':{$gt:5}}}}]").filter());
+		assertNull(Accumulator.build("[{$match:{$or:{'d.x':'a', 'count':'b'}}}]").filter());
+		// '$and' 只转换支持的条件，过滤器通过的数据是条件成立数据的超集
+		assertEquals(1,  check("{'d.x':'a', 'd.y':{$nin:['b', 5]}}", false));
+		assertEquals(1,  check("{$and:{'d.x':'a', 'd.y':{$exists:false}}}", false));
+		// 否定逻辑不转换
+		assertNull(Accumulator.build("[{$match:{$nor:{'d.x':'a'}}}]").filter());
+		// 后续的匹配阶段同时转换
+		assertEquals(1,  check("{'d.x':{$gte:'a'}}}, {$match:{'d.x':{$lt:'b'}, 'd.y':'b'}", true));
+	}
+	
+	@Test
+	public void nestedPaths() throws Exception
+	{
+		// 含有'.'的字段名称不存在时按 <family>.<qualifier>... 路径查找
+		Map<String, Object> inner = new HashMap<String, Object>();
+		Map<String, Object> outer = new HashMap<String, Object>();
+		inner.put("c", "v");
+		outer.put("b", inner);
+		Map<String, Object> input = new HashMap<String, Object>();
+		input.put("a", outer);
+		assertTrue(accept("{'a.b.c':'v'}", input));
+		assertFalse(accept("{'a.b.c':'w'}", input));
+		assertFalse(accept("{'a.b.c.d':'v'}", input));
+		assertTrue(accept("{'a.x':{$exists:false}}", input));
+		// 同名字段优先于路径查找
+		input.put("a.b.c", "w");
+		assertTrue(accept("{'a.b.c':'w'}", input));
+		// 超过两级的路径不转换为过滤器
+		assertNull(Accumulator.build("[{$match:{'a.b.c':'v'}}]").filter());
+	}
+	
+	@Test
+	public void compareBytes() throws Exception
+	{
+		// 字节数组按内容与字节数组或字串比较，顺序与 BinaryComparator 一致
+		for (String v1 : VALUES)
+		{
+			for (String v2 : VALUES)
+			{
+				if (v1 != null && v2 != null)
+				{
+					byte[] b1       = Bytes.toBytes(v1);
+					byte[] b2       = Bytes.toBytes(v2);
+					int    expected = Integer.signum(-new BinaryComparator(b2).compareTo(b1));
+					assertEquals(v1 + " : " + v2, expected, Integer.signum(AccumulatorUtils.compare(b1, b2)));
+					assertEquals(v1 + " : " + v2, expected, Integer.signum(AccumulatorUtils.compare(b1, v2)));
+					assertEquals(v1 + " : " + v2, expected, Integer.signum(AccumulatorUtils.compare(v1, b2)));
+				}
+			}
+		}
+		// 与其它类型比较时字节数组按字串排序
+		assertEquals(Integer.signum(AccumulatorUtils.compare("a", 5)), Integer.signum(AccumulatorUtils.compare(Bytes.toBytes("a"), 5)));
+		assertEquals(Integer.signum(AccumulatorUtils.compare(5, "a")), Integer.signum(AccumulatorUtils.compare(5, Bytes.toBytes("a"))));
+		assertTrue(AccumulatorUtils.compare(null, new byte[0]) < 0);
+	}
+}
@@ -0,0 +1,173 @@
+package com.appgame.analytics.aggregator.accumulator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.appgame.analytics.aggregator.accumulator.utils.Estimate;
+
+public class PartitionTest
+{
+	private static List<Map<String, Object>> rows()
+	{
+		List<Map<String, Object>> rows = new ArrayList<Map<String, Object>>();
+		for (int i = 0; i < 100; i++)
+		{
+			Map<String, Object> row = new HashMap<String, Object>();
+			row.put("k", "k" + (i % 4));
+			row.put("m", (long)(i % 3));
+			row.put("x", (long)i);
+			rows.add(row);
+		}
+		return rows;
+	}
+	
+	private static List<Map<String, Object>> list(Accumulator accumulator) throws Exception
+	{
+		List<Map<String, Object>> result = new ArrayList<Map<String, Object>>();
+		for (Map<String, Object> record : accumulator.get())
+		{
+			result.add(record);
+		}
+		return result;
+	}
+	
+	/**
+	 * 单线程执行完整管道
+	 */
+	private static List<Map<String, Object>> whole(String pipes, double sample) throws Exception
+	{
+		Accumulator accumulator = Accumulator.build(pipes, sample);
+		for (Map<String, Object> row : rows())
+		{
+			accumulator.put(row);
+		}
+		return list(accumulator);
+	}
+	
+	/**
+	 * 按连续子范围分给多个线程执行拆分后的管道，再按线程顺序合并部分结果（与区域内并行扫描一致）
+	 */
+	private static List<Map<String, Object>> merged(String pipes, double sample, int threads) throws Exception
+	{
+		String[] parts = Accumulator.partition(pipes);
+		List<Map<String, Object>> rows     = rows();
+		List<Map<String, Object>> partials = new ArrayList<Map<String, Object>>();
+		for (int i = 0; i < threads; i++)
+		{
+			Accumulator accumulator = Accumulator.build(parts[0], sample);
+			for (Map<String, Object> row : rows.subList(i * rows.size() / threads, (i + 1) * rows.size() / threads))
+			{
+				accumulator.put(row);
+			}
+			partials.addAll(list(accumulator));
+		}
+		if (parts[1] == null)
+		{
+			return partials;
+		}
+		Accumulator merger = Accumulator.build(parts[1], sample);
+		for (Map<String, Object> partial : partials)
+		{
+			merger.put(partial);
+		}
+		return list(merger);
+	}
+	
+	private static Object normalize(Object value)
+	{
+		if (value instanceof Estimate)
+		{
+			return ((Estimate)value).total();
+		}
+		if (value instanceof Number)
+		{
+			return Math.round(((Number)value).doubleValue() * 1e6) / 1e6;
+		}
+		if (value instanceof Collection)
+		{
+			return new HashSet<Object>((Collection<?>)value);
+		}
+		return value;
+	}
+	
+	private static void check(String pipes, double sample, boolean ordered) throws Exception
+	{
+		List<Map<String, Object>> expected = whole(pipes, sample);
+		List<Map<String, Object>> actual   = merged(pipes, sample, 3);
+		if (!ordered)
+		{
+			Comparator<Map<String, Object>> comparator = new Comparator<Map<String, Object>>()
+			{
+				@Override
+				public int compare(Map<String, Object> m1, Map<String, Object> m2)
+				{
+					return String.valueOf(m1.get("_id")).compareTo(String.valueOf(m2.get("_id")));
+				}
+			};
+			Collections.sort(expected, comparator);
+			Collections.sort(actual, comparator);
+		}
+		assertEquals(pipes, expected.size(), actual.size());
+		for (int i = 0; i < expected.size(); i++)
+		{
+			assertEquals(pipes, expected.get(i).keySet(), actual.get(i).keySet());
+			for (String key : expected.get(i).keySet())
+			{
+				assertEquals(pipes + " : " + key, normalize(expected.get(i).get(key)), normalize(actual.get(i).get(key)));
+			}
+		}
+	}
+	
+	@Test
+	public void groupOperatorsMergePartials() throws Exception
+	{
+		check("[{$match:{x:{$gt:2}}}, {$group:{_id:'$k', s:{$sum:'$x'}, c:{$count:'$x'}, a:{$avg:'$x'}, lo:{$min:'$x'}, hi:{$max:'$x'}, f:{$first:'$x'}, l:{$last:'$x'}, set:{$addToSet:'$m'}}}]", 1.0, false);
+		check("[{$group:{_id:null, s:{$sum:'$x'}, v:{$var:'$x'}}}]", 1.0, false);
+		check("[{$group:{_id:'$m', t:{$topK:['$k', 2]}}}]", 1.0, false);
+	}
+	
+	@Test
+	public void compoundKeysAndLaterStages() throws Exception
+	{
+		check("[{$group:{_id:{k:'$k', m:'$m'}, s:{$sum:'$x'}}}, {$group:{_id:'$_id.k', n:{$count:'$s'}, t:{$sum:'$s'}}}]", 1.0, false);
+		check("[{$group:{_id:'$k', s:{$sum:'$x'}}}, {$sort:{s:-1}}, {$limit:2}]", 1.0, true);
+	}
+	
+	@Test
+	public void sampledGroup() throws Exception
+	{
+		// 扫描线程的估算状态由汇总管道的同名算子合并
+		check("[{$group:{_id:'$k', s:{$sum:'$x'}, c:{$count:'$x'}}}]", 0.25, false);
+	}
+	
+	@Test
+	public void sortAndLimit() throws Exception
+	{
+		check("[{$match:{m:0}}, {$sort:{x:-1}}, {$limit:5}]", 1.0, true);
+		check("[{$sort:{x:1}}, {$skip:3}, {$limit:4}]", 1.0, true);
+		check("[{$limit:7}, {$group:{_id:null, s:{$sum:'$x'}}}]", 1.0, false);
+	}
+	
+	@Test
+	public void streamingAndUnsplittable() throws Exception
+	{
+		// 只含流式阶段时直接拼接
+		String[] parts = Accumulator.partition("[{$match:{m:1}}, {$project:{y:'$x'}}]");
+		assertNull(parts[1]);
+		check("[{$match:{m:1}}, {$project:{y:'$x'}}]", 1.0, true);
+		// '$skip'以及含有'.'的分组字段不能拆分
+		assertNull(Accumulator.partition("[{$skip:3}, {$group:{_id:null, s:{$sum:'$x'}}}]"));
+		assertNull(Accumulator.partition("[{$group:{_id:{'a.b':'$k'}, s:{$sum:'$x'}}}]"));
+	}
+}
@@ -0,0 +1,216 @@
+package com.appgame.analytics.aggregator.accumulator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.appgame.analytics.aggregator.accumulator.collection.AccumulatorCollection;
+
+public class SpillTest
+{
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+	
+	/**
+	 * 溢出阈值（每个测试可以调整，构造累积器时生效）
+	 */
+	private long threshold = 16 * 1024;
+	
+	private void configure(long threshold)
+	{
+		this.threshold = threshold;
+	}
+	
+	private Accumulator build(String sentence) throws Exception
+	{
+		Configuration config = new Configuration(false);
+		config.setLong("hbase.aggregate.spill.threshold.bytes", threshold);
+		config.set("hbase.aggregate.spill.directory", folder.getRoot().getAbsolutePath());
+		return Accumulator.build(sentence, new AccumulatorConfig(config), 1.0);
+	}
+	
+	private static Map<String, Object> row(long k, long x)
+	{
+		Map<String, Object> row = new HashMap<String, Object>();
+		row.put("k", k);
+		row.put("x", x);
+		return row;
+	}
+	
+	private int files()
+	{
+		return folder.getRoot().list().length;
+	}
+	
+	/**
+	 * 读取全部结果（返回记录数量）
+	 */
+	private static int drain(AccumulatorCollection values)
+	{
+		int count = 0;
+		for (Iterator<Map<String, Object>> iterator = values.iterator(); iterator.hasNext(); iterator.next())
+		{
+			count = count + 1;
+		}
+		return count;
+	}
+	
+	@Test
+	public void groupSpillFilesDeletedOnClose() throws Exception
+	{
+		Accumulator accumulator = build("[{$group:{_id:'$k', s:{$sum:'$x'}}}]");
+		for (long i = 0; i < 20000; i++)
+		{
+			accumulator.put(row(i % 5000, i));
+		}
+		assertTrue(files() > 1);
+		assertEquals(5000, drain(accumulator.get()));
+		// 合并后只保留合并结果
+		assertEquals(1, files());
+		accumulator.close();
+		assertEquals(0, files());
+	}
+	
+	@Test
+	public void configIsPerAccumulator() throws Exception
+	{
+		// 不溢出的累积器与溢出的累积器同时存在，配置互不影响
+		configure(0);
+		Accumulator memory = build("[{$group:{_id:'$k', s:{$sum:'$x'}}}]");
+		configure(16 * 1024);
+		Accumulator spill  = build("[{$group:{_id:'$k', s:{$sum:'$x'}}}]");
+		for (long i = 0; i < 20000; i++)
+		{
+			memory.put(row(i % 5000, i));
+		}
+		assertEquals(0, files());
+		for (long i = 0; i < 20000; i++)
+		{
+			spill.put(row(i % 5000, i));
+		}
+		assertTrue(files() > 1);
+		assertEquals(5000, drain(memory.get()));
+		assertEquals(5000, drain(spill.get()));
+		memory.close();
+		spill.close();
+		assertEquals(0, files());
+	}
+	
+	@Test
+	public void sortSpillFilesDeletedOnClose() throws Exception
+	{
+		Accumulator accumulator = build("[{$sort:{x:-1}}]");
+		for (long i = 0; i < 5000; i++)
+		{
+			accumulator.put(row(i, i));
+		}
+		assertTrue(files() > 1);
+		assertEquals(5000, drain(accumulator.get()));
+		accumulator.close();
+		assertEquals(0, files());
+	}
+	
+	@Test
+	public void closeBeforeGet() throws Exception
+	{
+		Accumulator accumulator = build("[{$group:{_id:'$k', s:{$sum:'$x'}}}, {$sort:{s:1}}]");
+		for (long i = 0; i < 20000; i++)
+		{
+			accumulator.put(row(i, i));
+		}
+		assertTrue(files() > 0);
+		accumulator.close();
+		assertEquals(0, files());
+	}
+	
+	@Test
+	public void groupMergesInPasses() throws Exception
+	{
+		// 每条输入溢出一次，溢出文件数量超过归并路数
+		configure(1);
+		Accumulator accumulator = build("[{$group:{_id:'$k', s:{$sum:'$x'}}}]");
+		for (long i = 0; i < 300; i++)
+		{
+			accumulator.put(row(i % 7, i));
+		}
+		assertEquals(300, files());
+		Map<Object, Object> sums = new HashMap<Object, Object>();
+		for (Map<String, Object> record : accumulator.get())
+		{
+			sums.put(record.get("_id"), record.get("s"));
+		}
+		assertEquals(7, sums.size());
+		for (long k = 0; k < 7; k++)
+		{
+			double expected = 0;
+			for (long i = k; i < 300; i = i + 7)
+			{
+				expected = expected + i;
+			}
+			assertEquals(expected, ((Number)sums.get(k)).doubleValue(), 0.0);
+		}
+		assertEquals(1, files());
+		accumulator.close();
+		assertEquals(0, files());
+	}
+	
+	@Test
+	public void sortMergesInPasses() throws Exception
+	{
+		configure(1);
+		Accumulator accumulator = build("[{$sort:{x:1}}]");
+		for (long i = 0; i < 300; i++)
+		{
+			accumulator.put(row(i, (i * 37) % 300));
+		}
+		AccumulatorCollection values = accumulator.get();
+		assertTrue(files() <= 64);
+		long previous = -1;
+		int  count    = 0;
+		for (Map<String, Object> record : values)
+		{
+			long x = ((Number)record.get("x")).longValue();
+			assertTrue(x > previous);
+			previous = x;
+			count    = count + 1;
+		}
+		assertEquals(300, count);
+		// 放弃迭代后关闭，读取器以及溢出文件一并释放
+		values.iterator().next();
+		accumulator.close();
+		assertEquals(0, files());
+	}
+	
+	@Test
+	public void dictionaryKeysAcrossSpills() throws Exception
+	{
+		// '$b2s'分组条件的字典在每次溢出后清空，合并结果仍按字符串分组
+		Accumulator accumulator = build("[{$group:{_id:{k:{$b2s:'$k'}}, c:{$sum:1}}}]");
+		for (long i = 0; i < 20000; i++)
+		{
+			Map<String, Object> row = new HashMap<String, Object>();
+			row.put("k", Bytes.toBytes("key-" + (i % 3000)));
+			accumulator.put(row);
+		}
+		assertTrue(files() > 1);
+		Map<Object, Object> counts = new HashMap<Object, Object>();
+		for (Map<String, Object> record : accumulator.get())
+		{
+			counts.put(((Map<?, ?>)record.get("_id")).get("k"), record.get("c"));
+		}
+		assertEquals(3000, counts.size());
+		assertEquals(7.0, ((Number)counts.get("key-0")).doubleValue(), 0.0);
+		assertEquals(6.0, ((Number)counts.get("key-2999")).doubleValue(), 0.0);
+		accumulator.close();
+	}
+}
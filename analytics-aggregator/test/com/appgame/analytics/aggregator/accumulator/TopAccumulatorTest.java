@@ -0,0 +1,107 @@
+package com.appgame.analytics.aggregator.accumulator;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.codehaus.jettison.json.JSONObject;
+import org.junit.Test;
+
+public class TopAccumulatorTest
+{
+	/**
+	 * 排序字段大量重复（并含有空值）的输入，'i'为输入序号（排序容器按第一条数据确定字段，因此每条数据的字段相同）
+	 */
+	private static List<Map<String, Object>> rows()
+	{
+		Random                    random = new Random(11);
+		List<Map<String, Object>> rows   = new ArrayList<Map<String, Object>>();
+		for (int i = 0; i < 500; i++)
+		{
+			Map<String, Object> row = new HashMap<String, Object>();
+			row.put("i", (long)i);
+			row.put("a", i % 17 != 0 ? (Long)(long)random.nextInt(5) : null);
+			row.put("b", "b" + random.nextInt(3));
+			rows.add(row);
+		}
+		return rows;
+	}
+	
+	private static List<Map<String, Object>> run(Accumulator accumulator) throws Exception
+	{
+		for (Map<String, Object> row : rows())
+		{
+			accumulator.put(row);
+		}
+		List<Map<String, Object>> result = new ArrayList<Map<String, Object>>();
+		for (Map<String, Object> record : accumulator.get())
+		{
+			result.add(new HashMap<String, Object>(record));
+		}
+		return result;
+	}
+	
+	/**
+	 * 不融合的'$sort'、'$skip'、'$limit'累积器序列
+	 */
+	private static Accumulator unfused(String sort, long skip, long limit, String tail) throws Exception
+	{
+		Accumulator accumulator = new LimitAccumulator(tail != null ? Accumulator.build(tail) : null, limit);
+		if (skip > 0)
+		{
+			accumulator = new SkipAccumulator(accumulator, skip);
+		}
+		return new SortAccumulator(accumulator, new JSONObject(sort), AccumulatorConfig.DEFAULT);
+	}
+	
+	/**
+	 * 比较融合后的前 K 项累积器与逐个执行的累积器序列的结果（包括相等排序字段的先后顺序）
+	 */
+	private static void check(String sort, long skip, long limit, String tail) throws Exception
+	{
+		String pipes = "[{$sort:" + sort + "}, " + (skip > 0 ? "{$skip:" + skip + "}, " : "") + "{$limit:" + limit + "}" + (tail != null ? ", " + tail.substring(1, tail.length() - 1) : "") + "]";
+		List<Map<String, Object>> expected = run(unfused(sort, skip, limit, tail));
+		List<Map<String, Object>> actual   = run(Accumulator.build(pipes));
+		assertEquals(pipes, expected, actual);
+	}
+	
+	@Test
+	public void ties() throws Exception
+	{
+		// 排序字段相等的数据保持排序累积器的先后顺序
+		check("{a:1}", 0, 10, null);
+		check("{a:-1}", 0, 37, null);
+		check("{b:1, a:-1}", 0, 100, null);
+		check("{b:-1}", 0, 499, null);
+		check("{a:1}", 0, 1000, null);
+	}
+	
+	@Test
+	public void zeroLimit() throws Exception
+	{
+		check("{a:1}", 0, 0, null);
+		check("{a:1}", 5, 0, null);
+		check("{a:1}", 0, 0, "[{$group:{_id:null, n:{$sum:1}}}]");
+	}
+	
+	@Test
+	public void skip() throws Exception
+	{
+		check("{a:1}", 3, 10, null);
+		check("{b:1, a:1}", 120, 50, null);
+		check("{a:-1}", 490, 50, null);
+		check("{a:-1}", 600, 5, null);
+	}
+	
+	@Test
+	public void downstream() throws Exception
+	{
+		// 作为中间累积器以及最终累积器的结果一致
+		check("{a:-1}", 2, 20, "[{$project:{i:1, a:1}}]");
+		check("{a:-1}", 0, 40, "[{$group:{_id:'$b', n:{$sum:1}, f:{$first:'$i'}, l:{$last:'$i'}}}, {$sort:{_id:1}}]");
+	}
+}
@@ -0,0 +1,135 @@
+package com.appgame.analytics.aggregator.accumulator.collection;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.appgame.analytics.aggregator.accumulator.utils.Moments;
+
+public class AccumulatorTableTest
+{
+	private static Map<String, Object> map(String field, Object value)
+	{
+		Map<String, Object> map = new HashMap<String, Object>();
+		map.put(field, value);
+		return map;
+	}
+	
+	private static String text(int length)
+	{
+		char[] chars = new char[length];
+		Arrays.fill(chars, 'x');
+		return new String(chars);
+	}
+	
+	@Test
+	public void compactsReplacedRecords() throws Exception
+	{
+		// 分组内容的编码长度每次都变化，旧记录不断失效
+		AccumulatorTable table = new AccumulatorTable(Collections.singletonList("k"), Collections.singletonList("v"));
+		for (int round = 1; round <= 200; round++)
+		{
+			for (int k = 0; k < 1000; k++)
+			{
+				table.put(map("k", (long)k), map("v", text(round % 50 + 1)));
+			}
+		}
+		assertEquals(1000, table.size());
+		// 无效数据超过有效数据时整理，占用不超过有效数据的两倍加一个内存页以及槽位数组
+		assertTrue(table.bytes() < 2 * 1000 * 80 + 1024 * 1024 + 4096 * 12);
+		for (int k = 0; k < 1000; k++)
+		{
+			assertEquals(text(200 % 50 + 1), table.get(map("k", (long)k)).get("v"));
+		}
+		int count = 0;
+		for (Map<String, Object> record : table)
+		{
+			assertEquals(text(200 % 50 + 1), record.get("v"));
+			count = count + 1;
+		}
+		assertEquals(1000, count);
+		table.close();
+	}
+	
+	@Test
+	public void closeReleasesPages() throws Exception
+	{
+		AccumulatorTable table = new AccumulatorTable(Collections.singletonList("k"), Collections.singletonList("v"));
+		for (int k = 0; k < 10000; k++)
+		{
+			table.put(map("k", (long)k), map("v", (double)k));
+		}
+		table.close();
+		assertEquals(0, table.size());
+		assertEquals(0, table.bytes());
+		assertFalse(table.iterator().hasNext());
+	}
+	
+	@Test
+	public void fixedLayoutUpdatesInPlace() throws Exception
+	{
+		Map<String, Integer> layout = new HashMap<String, Integer>();
+		layout.put("s" , AccumulatorTable.SUM);
+		layout.put("n" , AccumulatorTable.MOMENTS + Moments.COUNT);
+		layout.put("a" , AccumulatorTable.MOMENTS + Moments.AVG);
+		layout.put("lo", AccumulatorTable.MIN);
+		layout.put("hi", AccumulatorTable.MAX);
+		AccumulatorTable table = new AccumulatorTable(Collections.singletonList("k"), Arrays.asList("s", "n", "a", "lo", "hi"), layout);
+		assertTrue(table.fixed());
+		long bytes = 0;
+		for (int round = 0; round < 1000; round++)
+		{
+			for (int k = 0; k < 100; k++)
+			{
+				Object[] inputs = new Object[table.vfields().size()];
+				for (int index = 0; index < inputs.length; index++)
+				{
+					inputs[index] = table.vfields().get(index).equals("hi") ? (Object)(double)round : (Object)(long)round;
+				}
+				assertTrue(table.update(map("k", (long)k), inputs));
+			}
+			if (round == 0)
+			{
+				bytes = table.bytes();
+			}
+		}
+		// 重复更新不追加记录，占用保持不变
+		assertEquals(bytes, table.bytes());
+		assertEquals(100, table.size());
+		for (Map<String, Object> record : table)
+		{
+			assertEquals(999.0 * 1000 / 2, (Double)record.get("s"), 0.0);
+			assertEquals(1000L, ((Moments)record.get("n")).longValue());
+			assertEquals(999.0 / 2, ((Moments)record.get("a")).doubleValue(), 1e-9);
+			assertEquals(0L, record.get("lo"));
+			assertEquals(999.0, record.get("hi"));
+		}
+		table.close();
+	}
+	
+	@Test
+	public void fixedLayoutFallsBackPerRecord() throws Exception
+	{
+		Map<String, Integer> layout = new HashMap<String, Integer>();
+		layout.put("hi", AccumulatorTable.MAX);
+		AccumulatorTable table = new AccumulatorTable(Collections.singletonList("k"), Collections.singletonList("hi"), layout);
+		assertTrue(table.update(map("k", 1L), new Object[] {5L}));
+		assertTrue(table.update(map("k", 2L), new Object[] {5L}));
+		// 非数值无法按定长格式表示，由调用方读取、计算后按通用编码写回
+		assertFalse(table.update(map("k", 1L), new Object[] {"x"}));
+		assertEquals(5L, table.get(map("k", 1L)).get("hi"));
+		table.put(map("k", 1L), map("hi", "x"));
+		assertFalse(table.update(map("k", 1L), new Object[] {7L}));
+		assertTrue(table.update(map("k", 2L), new Object[] {7L}));
+		assertEquals("x", table.get(map("k", 1L)).get("hi"));
+		assertEquals(7L, table.get(map("k", 2L)).get("hi"));
+		table.close();
+	}
+}
@@ -0,0 +1,26 @@
+package com.appgame.analytics.aggregator.accumulator.expression;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.HashSet;
+
+import org.codehaus.jettison.json.JSONObject;
+import org.junit.Test;
+
+public class ExpressionTest
+{
+	@Test
+	public void fieldsOfNestedOperators() throws Exception
+	{
+		Expression expression = Expression.build(new JSONObject("{$select:[{$gt:['$d.a', 1]}, {$concat:[{$b2s:'$d.b'}, 'x']}, {$divide:['$d.c', {$add:['$d.a', 2]}]}]}"));
+		assertEquals(new HashSet<String>(Arrays.asList("d.a", "d.b", "d.c")), expression.fields());
+	}
+	
+	@Test
+	public void fieldsOfMapping() throws Exception
+	{
+		Expression expression = Expression.build(new JSONObject("{k:'$d.k', v:{$substring:['$d.v', 0, 3]}, c:1}"));
+		assertEquals(new HashSet<String>(Arrays.asList("d.k", "d.v")), expression.fields());
+	}
+}
@@ -0,0 +1,108 @@
+package com.appgame.analytics.aggregator.accumulator.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import org.junit.Test;
+
+public class LongSetTest
+{
+	/**
+	 * 随机元素（混合稀疏以及稠密的高位）
+	 */
+	private static TreeSet<Long> values(Random random, int n)
+	{
+		TreeSet<Long> values = new TreeSet<Long>();
+		for (int i = 0; i < n; i++)
+		{
+			values.add(random.nextBoolean() ? random.nextLong() : (long)random.nextInt(1 << 20));
+		}
+		return values;
+	}
+	
+	private static LongSet set(Iterable<Long> values)
+	{
+		LongSet set = new LongSet();
+		for (Long v : values)
+		{
+			set.add(v.longValue());
+		}
+		return set;
+	}
+	
+	private static List<Object> list(Iterable<?> values)
+	{
+		List<Object> list = new ArrayList<Object>();
+		for (Object v : values)
+		{
+			list.add(v);
+		}
+		return list;
+	}
+	
+	@Test
+	public void unorderedInsert()
+	{
+		Random        random   = new Random(1);
+		TreeSet<Long> expected = values(random, 50000);
+		List<Long>    shuffled = new ArrayList<Long>(expected);
+		Collections.shuffle(shuffled, random);
+		LongSet set = set(shuffled);
+		assertEquals(expected.size(), set.size());
+		assertFalse(set.add(shuffled.get(0).longValue()));
+		for (Long v : shuffled)
+		{
+			assertTrue(set.contains(v));
+		}
+		// 遍历按数值升序
+		assertEquals(list(expected), list(set));
+		// 排序后继续插入
+		set.add(-1L);
+		expected.add(-1L);
+		assertEquals(list(expected), list(set));
+	}
+	
+	@Test
+	public void andOr()
+	{
+		Random        random = new Random(2);
+		TreeSet<Long> v1     = values(random, 20000);
+		TreeSet<Long> v2     = values(random, 20000);
+		v2.addAll(new ArrayList<Long>(v1).subList(0, 5000));
+		TreeSet<Long> union = new TreeSet<Long>(v1);
+		union.addAll(v2);
+		TreeSet<Long> intersection = new TreeSet<Long>(v1);
+		intersection.retainAll(v2);
+		List<Long> r1 = new ArrayList<Long>(v1);
+		List<Long> r2 = new ArrayList<Long>(v2);
+		Collections.shuffle(r1, random);
+		Collections.shuffle(r2, random);
+		assertEquals(list(union), list(set(r1).or(set(r2))));
+		assertEquals(list(intersection), list(set(r1).and(set(r2))));
+	}
+	
+	@Test
+	public void sparseInsertIsLinear()
+	{
+		// 每个元素落在不同的桶，插入以及大小估算不能随桶数量线性增长
+		Random  random = new Random(3);
+		LongSet set    = new LongSet();
+		long    start  = System.currentTimeMillis();
+		long    bytes  = 0;
+		for (int i = 0; i < 400000; i++)
+		{
+			set.add(random.nextLong());
+			bytes = bytes + set.bytes();
+		}
+		assertTrue(bytes > 0);
+		assertEquals(400000, set.size());
+		assertTrue(System.currentTimeMillis() - start < 5000);
+	}
+}
@@ -0,0 +1,148 @@
+package com.appgame.analytics.aggregator.accumulator.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.appgame.analytics.aggregator.utils.ObjectInputStream;
+import com.appgame.analytics.aggregator.utils.ObjectOutputStream;
+
+public class QuantilesTest
+{
+	/**
+	 * 经过序列化以及反序列化的对象
+	 */
+	private static Object roundtrip(Object v) throws Exception
+	{
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		ObjectOutputStream    oos = new ObjectOutputStream(bos);
+		oos.writeObject(v);
+		oos.close();
+		return new ObjectInputStream(new ByteArrayInputStream(bos.toByteArray())).readObject();
+	}
+	
+	/**
+	 * 估算值在真实数据中的秩（不超过估算值的比例）
+	 */
+	private static double rank(double[] values, double v)
+	{
+		double[] sorted = values.clone();
+		Arrays.sort(sorted);
+		int index = Arrays.binarySearch(sorted, v);
+		while (index >= 0 && index + 1 < sorted.length && sorted[index + 1] == v)
+		{
+			index = index + 1;
+		}
+		return (index >= 0 ? index + 1 : -index - 1) / (double)sorted.length;
+	}
+	
+	private static Quantiles sketch(double[] values, int from, int to)
+	{
+		Quantiles quantiles = new Quantiles(Quantiles.DEFAULT_K);
+		for (int i = from; i < to; i++)
+		{
+			quantiles.add(values[i]);
+		}
+		return quantiles;
+	}
+	
+	@Test
+	public void mergeIntoEmptySketch()
+	{
+		Random random = new Random(1);
+		for (int n : new int[]{5000, 20000, 60000})
+		{
+			double[] values = new double[n];
+			for (int i = 0; i < n; i++)
+			{
+				values[i] = random.nextDouble();
+			}
+			Quantiles merged = new Quantiles(Quantiles.DEFAULT_K);
+			merged.merge(sketch(values, 0, n));
+			assertEquals(n, merged.count());
+			assertEquals(0.5, rank(values, merged.quantile(0.5)), 0.02);
+		}
+	}
+	
+	@Test
+	public void mergeDeepIntoShallowSketch()
+	{
+		Random random = new Random(2);
+		double[] values = new double[65000];
+		for (int i = 0; i < values.length; i++)
+		{
+			values[i] = random.nextGaussian();
+		}
+		Quantiles shallow = sketch(values, 0, 1000);
+		shallow.merge(sketch(values, 1000, values.length));
+		assertEquals(values.length, shallow.count());
+		for (double q : new double[]{0.1, 0.5, 0.9, 0.99})
+		{
+			assertEquals(q, rank(values, shallow.quantile(q)), 0.02);
+		}
+	}
+	
+	@Test
+	public void mergeManyRegions() throws Exception
+	{
+		Random random = new Random(3);
+		double[] values = new double[200000];
+		Quantiles merged = new Quantiles(Quantiles.DEFAULT_K);
+		for (int region = 0; region < 20; region++)
+		{
+			int from = region * 10000;
+			for (int i = from; i < from + 10000; i++)
+			{
+				values[i] = random.nextDouble() * 1000;
+			}
+			merged.update(roundtrip(sketch(values, from, from + 10000)));
+		}
+		assertEquals(values.length, merged.count());
+		assertEquals(0.5, rank(values, merged.quantile(0.5)), 0.02);
+		assertTrue(merged.retained() < 4 * Quantiles.DEFAULT_K);
+	}
+	
+	@Test
+	public void codecRoundtrip() throws Exception
+	{
+		Random random = new Random(4);
+		double[] values = new double[30000];
+		for (int i = 0; i < values.length; i++)
+		{
+			values[i] = random.nextInt(100000);
+		}
+		Quantiles quantiles = sketch(values, 0, values.length);
+		Quantiles copy      = (Quantiles)roundtrip(quantiles);
+		assertEquals(quantiles.k(), copy.k());
+		assertEquals(quantiles.count(), copy.count());
+		assertEquals(quantiles.min(), copy.min(), 0.0);
+		assertEquals(quantiles.max(), copy.max(), 0.0);
+		assertEquals(quantiles.retained(), copy.retained());
+		for (double q : new double[]{0.0, 0.25, 0.5, 0.75, 1.0})
+		{
+			assertEquals(quantiles.quantile(q), copy.quantile(q), 0.0);
+		}
+		// 反序列化后的状态可以继续输入以及合并
+		copy.add(-1);
+		copy.merge(quantiles);
+		assertEquals(2 * values.length + 1, copy.count());
+		assertEquals(-1, copy.min(), 0.0);
+	}
+	
+	@Test
+	public void emptySketch() throws Exception
+	{
+		Quantiles quantiles = new Quantiles(Quantiles.DEFAULT_K);
+		assertTrue(Double.isNaN(quantiles.quantile(0.5)));
+		Quantiles copy = (Quantiles)roundtrip(quantiles);
+		assertEquals(0, copy.count());
+		copy.merge(sketch(new double[]{1, 2, 3}, 0, 3));
+		assertEquals(2, copy.quantile(0.5), 0.0);
+	}
+}
@@ -0,0 +1,150 @@
+package com.appgame.analytics.aggregator.utils;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.junit.Test;
+
+public class CellMapTest
+{
+	private static Cell cell(String family, String qualifier, long ts, String value)
+	{
+		return new KeyValue(Bytes.toBytes("r1"), Bytes.toBytes(family), Bytes.toBytes(qualifier), ts, Bytes.toBytes(value));
+	}
+	
+	/**
+	 * 构造扫描器顺序的一行单元格（列族、字段名称排序）
+	 */
+	private static List<Cell> row()
+	{
+		List<Cell> cells = new ArrayList<Cell>();
+		cells.add(cell("a", "x", 1L, "a.x"));
+		for (int i = 0; i < 20; i++)
+		{
+			cells.add(cell("d", String.format("q%02d", i), 1L, "d." + i));
+		}
+		cells.add(cell("e", "", 1L, "e."));
+		cells.add(cell("e", "y", 1L, "e.y"));
+		cells.add(cell("f", "z", 1L, "f.z"));
+		return cells;
+	}
+	
+	private static String value(Map<String, Object> map, String family, String qualifier)
+	{
+		@SuppressWarnings("unchecked")
+		Map<String, Object> view  = (Map<String, Object>)map.get(family);
+		byte[]              bytes = view == null ? null : (byte[])view.get(qualifier);
+		return bytes == null ? null : Bytes.toString(bytes);
+	}
+	
+	@Test
+	public void lookups() throws Exception
+	{
+		CellMap map = new CellMap(row(), new NameCache());
+		// 首、中、末列族以及列族内二分查找的各个位置
+		assertEquals("a.x", value(map, "a", "x"));
+		assertEquals("f.z", value(map, "f", "z"));
+		for (int i = 0; i < 20; i++)
+		{
+			assertEquals("d." + i, value(map, "d", String.format("q%02d", i)));
+		}
+		assertEquals("e.", value(map, "e", ""));
+		assertEquals("e.y", value(map, "e", "y"));
+		// 不存在的列族、字段以及非字串名称
+		assertNull(map.get("b"));
+		assertNull(map.get("g"));
+		assertNull(map.get(1));
+		assertNull(value(map, "d", "q"));
+		assertNull(value(map, "d", "q20"));
+		assertNull(value(map, "a", "y"));
+		assertNull(value(map, "e", "x"));
+		assertTrue(map.containsKey("e"));
+		assertFalse(map.containsKey("b"));
+		assertArrayEquals(Bytes.toBytes("r1"), map.row());
+	}
+	
+	@Test
+	public void valuesAreCopies() throws Exception
+	{
+		CellMap map   = new CellMap(row(), new NameCache());
+		byte[]  value = (byte[])((Map<?, ?>)map.get("a")).get("x");
+		value[0] = 'z';
+		assertEquals("a.x", value(map, "a", "x"));
+	}
+	
+	@Test
+	public void versions() throws Exception
+	{
+		// 多版本时取同一字段的最后一个单元格（与逐个写入字典的原逻辑一致）
+		List<Cell> cells = Arrays.asList(cell("d", "a", 1L, "a"), cell("d", "x", 3L, "x3"), cell("d", "x", 2L, "x2"), cell("d", "x", 1L, "x1"), cell("d", "y", 1L, "y"));
+		CellMap    map   = new CellMap(cells, new NameCache());
+		assertEquals("x1", value(map, "d", "x"));
+		assertEquals("a", value(map, "d", "a"));
+		assertEquals("y", value(map, "d", "y"));
+		assertEquals(3, ((Map<?, ?>)map.get("d")).size());
+		// 遍历视图时同样取最后一个单元格
+		Map<Object, Object> copy = new HashMap<Object, Object>((Map<?, ?>)map.get("d"));
+		assertEquals("x1", Bytes.toString((byte[])copy.get("x")));
+	}
+	
+	@Test
+	public void materialize() throws Exception
+	{
+		CellMap map = new CellMap(row(), new NameCache());
+		assertEquals(new HashSet<String>(Arrays.asList("a", "d", "e", "f")), map.keySet());
+		assertEquals(4, map.size());
+		Map<?, ?> family = (Map<?, ?>)map.get("d");
+		assertEquals(20, family.size());
+		for (Map.Entry<?, ?> entry : family.entrySet())
+		{
+			assertEquals(value(map, "d", (String)entry.getKey()), Bytes.toString((byte[])entry.getValue()));
+		}
+	}
+	
+	@Test
+	public void emptyRow() throws Exception
+	{
+		CellMap map = new CellMap(Collections.<Cell>emptyList(), new NameCache());
+		assertNull(map.row());
+		assertNull(map.get("d"));
+		assertTrue(map.isEmpty());
+	}
+	
+	@Test(expected = UnsupportedOperationException.class)
+	public void readOnly() throws Exception
+	{
+		new CellMap(row(), new NameCache()).put("d", new HashMap<String, Object>());
+	}
+	
+	@Test
+	public void serializesAsPlainMap() throws Exception
+	{
+		ByteArrayOutputStream      bos = new ByteArrayOutputStream();
+		java.io.ObjectOutputStream oos = new java.io.ObjectOutputStream(bos);
+		oos.writeObject(new CellMap(row(), new NameCache()));
+		oos.close();
+		java.io.ObjectInputStream ois = new java.io.ObjectInputStream(new ByteArrayInputStream(bos.toByteArray()));
+		@SuppressWarnings("unchecked")
+		Map<String, Object> copy = (Map<String, Object>)ois.readObject();
+		ois.close();
+		assertEquals(HashMap.class, copy.getClass());
+		assertEquals(HashMap.class, copy.get("d").getClass());
+		assertEquals("d.7", value(copy, "d", "q07"));
+	}
+}
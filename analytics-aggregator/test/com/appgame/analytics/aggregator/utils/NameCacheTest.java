@@ -0,0 +1,112 @@
+package com.appgame.analytics.aggregator.utils;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.junit.Test;
+
+public class NameCacheTest
+{
+	@Test
+	public void canonicalNames() throws Exception
+	{
+		NameCache names = new NameCache();
+		byte[]    array = Bytes.toBytes("__family__qualifier__");
+		String    name  = names.name(array, 2, 6);
+		assertEquals("family", name);
+		// 不同数组内的相同字节片段返回同一实例
+		assertSame(name, names.name(Bytes.toBytes("family"), 0, 6));
+		assertEquals("qualifier", names.name(array, 10, 9));
+		assertEquals("", names.name(array, 0, 0));
+		assertArrayEquals(Bytes.toBytes("family"), names.bytes("family"));
+		assertSame(names.bytes("family"), names.bytes(new String("family")));
+		assertArrayEquals(Bytes.toBytes("unknown"), names.bytes("unknown"));
+	}
+	
+	@Test
+	public void sharedAcrossViews() throws Exception
+	{
+		// 同一区域内的不同行视图遍历时使用相同的名称实例
+		NameCache  names = new NameCache();
+		List<Cell> row1  = Arrays.<Cell>asList(new KeyValue(Bytes.toBytes("r1"), Bytes.toBytes("d"), Bytes.toBytes("x"), 1L, Bytes.toBytes("1")));
+		List<Cell> row2  = Arrays.<Cell>asList(new KeyValue(Bytes.toBytes("r2"), Bytes.toBytes("d"), Bytes.toBytes("x"), 1L, Bytes.toBytes("2")));
+		String     f1    = new CellMap(row1, names).keySet().iterator().next();
+		String     f2    = new CellMap(row2, names).keySet().iterator().next();
+		assertSame(f1, f2);
+		String     q1    = ((CellMap)new CellMap(row1, names).get("d")).keySet().iterator().next();
+		String     q2    = ((CellMap)new CellMap(row2, names).get("d")).keySet().iterator().next();
+		assertSame(q1, q2);
+	}
+	
+	@Test
+	public void overflow() throws Exception
+	{
+		// 超出缓存上限的名称仍然正确返回（不再缓存）
+		NameCache names = new NameCache();
+		for (int i = 0; i < 10000; i++)
+		{
+			byte[] bytes = Bytes.toBytes("q" + i);
+			assertEquals("q" + i, names.name(bytes, 0, bytes.length));
+			assertArrayEquals(bytes, names.bytes("q" + i));
+		}
+		byte[] bytes = Bytes.toBytes("q7");
+		assertSame(names.name(bytes, 0, bytes.length), names.name(Bytes.toBytes("q7"), 0, bytes.length));
+		bytes = Bytes.toBytes("q9999");
+		assertEquals("q9999", names.name(bytes, 0, bytes.length));
+	}
+	
+	@Test
+	public void concurrentLookups() throws Exception
+	{
+		// 多个扫描线程同时登记名称（扩容期间无锁读取）
+		final NameCache names    = new NameCache();
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try
+		{
+			List<Future<String[]>> futures = new ArrayList<Future<String[]>>();
+			for (int t = 0; t < 4; t++)
+			{
+				futures.add(executor.submit(new Callable<String[]>()
+				{
+					@Override
+					public String[] call() throws Exception
+					{
+						String[] result = new String[1000];
+						for (int i = 0; i < result.length; i++)
+						{
+							byte[] bytes = Bytes.toBytes("c" + i);
+							result[i] = names.name(bytes, 0, bytes.length);
+						}
+						return result;
+					}
+				}));
+			}
+			String[] first = futures.get(0).get();
+			for (Future<String[]> future : futures)
+			{
+				String[] result = future.get();
+				for (int i = 0; i < result.length; i++)
+				{
+					assertEquals("c" + i, result[i]);
+					assertSame(first[i], result[i]);
+				}
+			}
+		}
+		finally
+		{
+			executor.shutdown();
+		}
+	}
+}
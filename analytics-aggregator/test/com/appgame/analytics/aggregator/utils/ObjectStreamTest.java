@@ -0,0 +1,191 @@
+package com.appgame.analytics.aggregator.utils;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.appgame.analytics.aggregator.accumulator.utils.Estimate;
+import com.appgame.analytics.aggregator.accumulator.utils.HeavyHitters;
+import com.appgame.analytics.aggregator.accumulator.utils.HyperLogLog;
+import com.appgame.analytics.aggregator.accumulator.utils.LongSet;
+import com.appgame.analytics.aggregator.accumulator.utils.Moments;
+import com.google.protobuf.ByteString;
+
+public class ObjectStreamTest
+{
+	/**
+	 * 编码后再解码
+	 */
+	private static Object codec(Object v) throws Exception
+	{
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		ObjectOutputStream    oos = new ObjectOutputStream(bos);
+		oos.writeObject(v);
+		oos.close();
+		ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(bos.toByteArray()));
+		try
+		{
+			return ois.readObject();
+		}
+		finally
+		{
+			ois.close();
+		}
+	}
+
+	@Test
+	public void moments() throws Exception
+	{
+		Moments whole = new Moments(Moments.VAR);
+		Moments part1 = new Moments(Moments.VAR);
+		Moments part2 = new Moments(Moments.VAR);
+		for (int i = 0; i < 1000; i++)
+		{
+			whole.update((double)i);
+			(i % 3 == 0 ? part1 : part2).update((double)i);
+		}
+		Moments copy = (Moments)codec(part1);
+		assertEquals(part1.kind(), copy.kind());
+		assertEquals(part1.count(), copy.count());
+		assertEquals(part1.mean(), copy.mean(), 0.0);
+		assertEquals(part1.m2(), copy.m2(), 0.0);
+		// 解码后的部分状态合并结果与整体一致
+		copy.merge((Moments)codec(part2));
+		assertEquals(whole.count(), copy.count());
+		assertEquals(whole.mean(), copy.mean(), 1e-9);
+		assertEquals(whole.m2(), copy.m2(), 1e-3);
+	}
+
+	@Test
+	public void hyperLogLog() throws Exception
+	{
+		HyperLogLog whole = new HyperLogLog(12);
+		HyperLogLog part1 = new HyperLogLog(12);
+		HyperLogLog part2 = new HyperLogLog(12);
+		for (long i = 0; i < 50000; i++)
+		{
+			whole.update(i);
+			(i % 2 == 0 ? part1 : part2).update(i);
+		}
+		HyperLogLog copy = (HyperLogLog)codec(part1);
+		assertEquals(part1.precision(), copy.precision());
+		assertArrayEquals(part1.registers(), copy.registers());
+		// 寄存器逐位取最大值，合并结果与整体完全一致
+		copy.merge((HyperLogLog)codec(part2));
+		assertArrayEquals(whole.registers(), copy.registers());
+		assertEquals(whole.estimate(), copy.estimate());
+	}
+
+	@Test
+	public void heavyHitters() throws Exception
+	{
+		HeavyHitters whole = new HeavyHitters(100);
+		HeavyHitters part1 = new HeavyHitters(100);
+		HeavyHitters part2 = new HeavyHitters(100);
+		for (long i = 0; i < 5000; i++)
+		{
+			String value = "v" + (i % 50);
+			whole.update(value);
+			(i < 2000 ? part1 : part2).update(value);
+		}
+		HeavyHitters copy = (HeavyHitters)codec(part1);
+		assertEquals(part1.capacity(), copy.capacity());
+		assertEquals(part1, copy);
+		// 候选项数量不超过计数器数量时合并结果为精确计数
+		copy.merge((HeavyHitters)codec(part2));
+		assertEquals(whole, copy);
+	}
+
+	@Test
+	public void longSet() throws Exception
+	{
+		// 稀疏高位（有序数组）以及稠密低位（位图）混合
+		Random  random = new Random(7);
+		LongSet set1   = new LongSet();
+		LongSet set2   = new LongSet();
+		for (int i = 0; i < 20000; i++)
+		{
+			set1.add(random.nextInt(30000));
+			set2.add(random.nextLong());
+		}
+		LongSet copy1 = (LongSet)codec(set1);
+		LongSet copy2 = (LongSet)codec(set2);
+		assertEquals(set1, copy1);
+		assertEquals(set2, copy2);
+		assertEquals(set1.or(set2), copy1.or(copy2));
+		assertEquals(set1.and(set2), copy1.and(copy2));
+	}
+
+	@Test
+	public void estimate() throws Exception
+	{
+		Estimate part1 = new Estimate(Estimate.SUM, 0.25);
+		Estimate part2 = new Estimate(Estimate.SUM, 0.25);
+		for (int i = 0; i < 100; i++)
+		{
+			(i % 2 == 0 ? part1 : part2).update((double)i);
+		}
+		Estimate copy = (Estimate)codec(part1);
+		assertEquals(part1.kind(), copy.kind());
+		assertEquals(part1.rate(), copy.rate(), 0.0);
+		assertEquals(part1.count(), copy.count());
+		assertEquals(part1.total(), copy.total(), 0.0);
+		assertEquals(part1.variance(), copy.variance(), 0.0);
+		copy.merge((Estimate)codec(part2));
+		assertEquals(100, copy.count());
+		assertEquals(4 * 4950.0, copy.total(), 1e-9);
+		assertEquals(part1.variance() + part2.variance(), copy.variance(), 1e-9);
+	}
+
+	@Test
+	public void nestedStates() throws Exception
+	{
+		// 统计状态作为分组内容嵌套在字典内
+		Map<String, Object> group = new HashMap<String, Object>();
+		Moments moments = new Moments(Moments.AVG);
+		moments.update(3.0);
+		LongSet set = new LongSet();
+		set.add(42L);
+		group.put("avg", moments);
+		group.put("set", set);
+		group.put("est", new Estimate(Estimate.COUNT, 0.5, 2, 4.0, 4.0));
+		@SuppressWarnings("unchecked")
+		Map<String, Object> copy = (Map<String, Object>)codec(group);
+		assertEquals(3.0, ((Moments)copy.get("avg")).doubleValue(), 0.0);
+		assertEquals(set, copy.get("set"));
+		assertEquals(4.0, ((Estimate)copy.get("est")).total(), 0.0);
+	}
+
+	@Test
+	public void bulkWrite() throws Exception
+	{
+		// 数据块整体写入底层字节流，不逐字节写入
+		final int[] singles = {0};
+		ByteArrayOutputStream bos = new ByteArrayOutputStream()
+		{
+			@Override
+			public synchronized void write(int b)
+			{
+				singles[0]++;
+				super.write(b);
+			}
+		};
+		ObjectOutputStream oos  = new ObjectOutputStream(bos);
+		byte[]             data = new byte[4096];
+		new Random(3).nextBytes(data);
+		ByteString.copyFrom(data).writeTo(oos);
+		oos.write(data, 100, 200);
+		oos.close();
+		assertEquals(0, singles[0]);
+		assertEquals(4096 + 200, bos.size());
+		assertArrayEquals(Arrays.copyOfRange(data, 100, 300), Arrays.copyOfRange(bos.toByteArray(), 4096, 4296));
+	}
+}
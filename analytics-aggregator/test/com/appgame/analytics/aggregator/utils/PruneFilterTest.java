@@ -0,0 +1,138 @@
+package com.appgame.analytics.aggregator.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.CellUtil;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.filter.Filter;
+import org.apache.hadoop.hbase.filter.Filter.ReturnCode;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.junit.Test;
+
+import com.appgame.analytics.aggregator.accumulator.Accumulator;
+
+public class PruneFilterTest
+{
+	private static final Set<byte[]> FAMILIES = new TreeSet<byte[]>(Bytes.BYTES_COMPARATOR);
+	static
+	{
+		FAMILIES.add(Bytes.toBytes("d"));
+		FAMILIES.add(Bytes.toBytes("e"));
+	}
+	
+	private static Cell cell(String row, String family, String qualifier, String value)
+	{
+		return new KeyValue(Bytes.toBytes(row), Bytes.toBytes(family), Bytes.toBytes(qualifier), 1L, Bytes.toBytes(value));
+	}
+	
+	/**
+	 * 按区域扫描器的方式对一行单元格执行过滤器（单元格按列族、列名称排序，每列一个版本）
+	 */
+	private static List<Cell> apply(Filter filter, List<Cell> cells) throws Exception
+	{
+		List<Cell> result = new ArrayList<Cell>();
+		filter.reset();
+		Cell first = cells.get(0);
+		if (filter.filterRowKey(first.getRowArray(), first.getRowOffset(), first.getRowLength()))
+		{
+			return result;
+		}
+		for (Cell cell : cells)
+		{
+			ReturnCode code = filter.filterKeyValue(cell);
+			if (code == ReturnCode.INCLUDE || code == ReturnCode.INCLUDE_AND_NEXT_COL)
+			{
+				result.add(filter.transformCell(cell));
+			}
+			else if (code == ReturnCode.NEXT_ROW)
+			{
+				break;
+			}
+		}
+		if (filter.hasFilterRow())
+		{
+			filter.filterRowCells(result);
+			if (filter.filterRow())
+			{
+				result.clear();
+			}
+		}
+		return result;
+	}
+	
+	private static Set<String> columns(List<Cell> cells)
+	{
+		Set<String> columns = new HashSet<String>();
+		for (Cell cell : cells)
+		{
+			columns.add(Bytes.toString(CellUtil.cloneFamily(cell)) + "." + Bytes.toString(CellUtil.cloneQualifier(cell)));
+		}
+		return columns;
+	}
+	
+	@Test
+	public void keepsRowsWithoutReferencedColumns() throws Exception
+	{
+		Scan scan = AggregatorUtils.prune(new Scan(), new HashSet<String>(Arrays.asList("d.x")), FAMILIES);
+		assertFalse(scan.hasFamilies());
+		List<Cell> with    = apply(scan.getFilter(), Arrays.asList(cell("r1", "d", "a", "1"), cell("r1", "d", "x", "2"), cell("r1", "e", "b", "3")));
+		List<Cell> without = apply(scan.getFilter(), Arrays.asList(cell("r2", "d", "a", "1"), cell("r2", "e", "b", "3")));
+		assertEquals(new HashSet<String>(Arrays.asList("d.a", "d.x")), columns(with));
+		// 没有引用列的行保留一个不含数值的伴随单元格
+		assertEquals(Collections.singleton("d.a"), columns(without));
+		assertEquals(0, without.get(0).getValueLength());
+		assertEquals("2", Bytes.toString(CellUtil.cloneValue(with.get(1))));
+	}
+	
+	@Test
+	public void ignoresUnknownFamilies() throws Exception
+	{
+		// 不存在的列族以及顶层字段不会加入扫描器
+		Scan scan = AggregatorUtils.prune(new Scan(), new HashSet<String>(Arrays.asList("typo.x", "count", "e")), FAMILIES);
+		assertFalse(scan.hasFamilies());
+		List<Cell> cells = apply(scan.getFilter(), Arrays.asList(cell("r1", "d", "a", "1"), cell("r1", "e", "b", "2"), cell("r1", "e", "c", "3")));
+		assertEquals(new HashSet<String>(Arrays.asList("d.a", "e.b", "e.c")), columns(cells));
+		assertTrue(cells.get(0).getValueLength() == 0);
+	}
+	
+	@Test
+	public void missingFieldsReachPipeline() throws Exception
+	{
+		// '$exists:false'统计缺少字段的行，裁剪后的结果与不裁剪一致
+		String      pipes   = "[{$match:{'d.x':{$exists:false}}}, {$group:{_id:null, n:{$sum:1}}}]";
+		Accumulator pruned  = Accumulator.build(pipes);
+		Accumulator full    = Accumulator.build(pipes);
+		Scan        scan    = AggregatorUtils.prune(AggregatorUtils.push(new Scan(), pruned.filter()), pruned.fields(), FAMILIES);
+		NameCache   names   = new NameCache();
+		List<List<Cell>> rows = new ArrayList<List<Cell>>();
+		rows.add(Arrays.asList(cell("r1", "d", "x", "1")));
+		rows.add(Arrays.asList(cell("r2", "d", "y", "1")));
+		rows.add(Arrays.asList(cell("r3", "e", "z", "1")));
+		rows.add(Arrays.asList(cell("r4", "d", "a", "1"), cell("r4", "d", "x", "1")));
+		for (List<Cell> row : rows)
+		{
+			List<Cell> cells = scan.hasFilter() ? apply(scan.getFilter(), row) : row;
+			if (!cells.isEmpty())
+			{
+				pruned.put(new CellMap(cells, names));
+			}
+			full.put(new CellMap(row, names));
+		}
+		Map<String, Object> expected = full.get().iterator().next();
+		assertEquals(2.0, ((Number)expected.get("n")).doubleValue(), 0.0);
+		assertEquals(expected, pruned.get().iterator().next());
+	}
+}
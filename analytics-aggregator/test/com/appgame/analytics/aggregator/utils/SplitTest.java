@@ -0,0 +1,135 @@
+package com.appgame.analytics.aggregator.utils;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.apache.hadoop.hbase.HConstants;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.junit.Test;
+
+public class SplitTest
+{
+	/**
+	 * 存储文件的首个键（完整的单元格键）
+	 */
+	private static byte[] key(String row)
+	{
+		return new KeyValue(Bytes.toBytes(row), Bytes.toBytes("d"), Bytes.toBytes("x"), 1L, Bytes.toBytes("v")).getKey();
+	}
+	
+	private static byte[][] bounds(String first, String last)
+	{
+		return AggregatorUtils.bounds(null, key(first), Bytes.toBytes(last));
+	}
+	
+	/**
+	 * 检查子范围首尾与扫描范围一致，切分点严格递增并且位于扫描范围以及区域数据范围内
+	 */
+	private static void check(Scan scan, byte[][] bounds, List<byte[]> keys)
+	{
+		assertArrayEquals(scan.getStartRow(), keys.get(0));
+		assertArrayEquals(scan.getStopRow(), keys.get(keys.size() - 1));
+		for (int i = 1; i < keys.size() - 1; i++)
+		{
+			assertTrue(Bytes.compareTo(keys.get(i), keys.get(i - 1)) > 0);
+			assertTrue(Bytes.compareTo(keys.get(i), bounds[0]) > 0);
+			assertTrue(Bytes.compareTo(keys.get(i), bounds[1]) < 0);
+			assertTrue(scan.getStopRow().length == 0 || Bytes.compareTo(keys.get(i), scan.getStopRow()) < 0);
+		}
+	}
+	
+	@Test
+	public void storeFileBounds() throws Exception
+	{
+		// 无存储文件（空区域或者数据只在内存存储内）时无法估算
+		assertNull(AggregatorUtils.bounds(null, null, null));
+		assertNull(AggregatorUtils.bounds(null, key("a"), null));
+		// 单个存储文件：首个键取行键
+		byte[][] bounds = bounds("b", "m");
+		assertEquals("b", Bytes.toString(bounds[0]));
+		assertEquals("m", Bytes.toString(bounds[1]));
+		// 多个存储文件取并集，空存储文件不影响结果
+		assertSame(bounds, AggregatorUtils.bounds(bounds, null, null));
+		bounds = AggregatorUtils.bounds(bounds, key("d"), Bytes.toBytes("k"));
+		assertEquals("b", Bytes.toString(bounds[0]));
+		assertEquals("m", Bytes.toString(bounds[1]));
+		bounds = AggregatorUtils.bounds(bounds, key("a"), Bytes.toBytes("z"));
+		assertEquals("a", Bytes.toString(bounds[0]));
+		assertEquals("z", Bytes.toString(bounds[1]));
+		bounds = AggregatorUtils.bounds(bounds(""  , "c"), key("x"), Bytes.toBytes("y"));
+		assertEquals("", Bytes.toString(bounds[0]));
+		assertEquals("y", Bytes.toString(bounds[1]));
+	}
+	
+	@Test
+	public void unsplittable() throws Exception
+	{
+		Scan scan = new Scan(Bytes.toBytes("b"), Bytes.toBytes("y"));
+		// 无法估算区域数据范围、单线程、反向以及小范围扫描时不切分
+		assertEquals(2, AggregatorUtils.split(scan, null, 4).size());
+		assertEquals(2, AggregatorUtils.split(scan, bounds("a", "z"), 1).size());
+		Scan reversed = new Scan(Bytes.toBytes("y"), Bytes.toBytes("b"));
+		reversed.setReversed(true);
+		List<byte[]> keys = AggregatorUtils.split(reversed, bounds("a", "z"), 4);
+		assertEquals(2, keys.size());
+		assertEquals("y", Bytes.toString(keys.get(0)));
+		Scan small = new Scan(Bytes.toBytes("b"), Bytes.toBytes("y"));
+		small.setSmall(true);
+		assertEquals(2, AggregatorUtils.split(small, bounds("a", "z"), 4).size());
+	}
+	
+	@Test
+	public void disjointRanges() throws Exception
+	{
+		// 扫描范围与区域数据范围不相交或者只有一行时不切分
+		assertEquals(2, AggregatorUtils.split(new Scan(Bytes.toBytes("n"), Bytes.toBytes("z")), bounds("a", "m"), 4).size());
+		assertEquals(2, AggregatorUtils.split(new Scan(Bytes.toBytes("a"), Bytes.toBytes("c")), bounds("m", "z"), 4).size());
+		assertEquals(2, AggregatorUtils.split(new Scan(Bytes.toBytes("a"), Bytes.toBytes("m")), bounds("m", "z"), 4).size());
+		assertEquals(2, AggregatorUtils.split(new Scan(), bounds("k", "k"), 4).size());
+	}
+	
+	@Test
+	public void splitsWithinRanges() throws Exception
+	{
+		// 全表扫描：按区域数据范围切分，首尾保持为空行键
+		byte[][]     bounds = bounds("a", "z");
+		Scan         scan   = new Scan();
+		List<byte[]> keys   = AggregatorUtils.split(scan, bounds, 4);
+		assertEquals(5, keys.size());
+		assertArrayEquals(HConstants.EMPTY_START_ROW, keys.get(0));
+		assertArrayEquals(HConstants.EMPTY_END_ROW, keys.get(4));
+		check(scan, bounds, keys);
+		// 扫描范围在区域数据范围内：按扫描范围切分
+		scan = new Scan(Bytes.toBytes("c"), Bytes.toBytes("g"));
+		keys = AggregatorUtils.split(scan, bounds, 3);
+		assertEquals(4, keys.size());
+		check(scan, bounds, keys);
+		// 扫描范围超出区域数据范围：按交集切分
+		scan = new Scan(Bytes.toBytes("0"), Bytes.toBytes("zz"));
+		keys = AggregatorUtils.split(scan, bounds("c", "g"), 8);
+		check(scan, bounds("c", "g"), keys);
+		assertTrue(keys.size() > 2);
+	}
+	
+	@Test
+	public void narrowRanges() throws Exception
+	{
+		// 范围很窄时切分点可能重复，重复的切分点被忽略
+		byte[]       lower  = Bytes.toBytes("k");
+		byte[]       upper  = Bytes.add(lower, new byte[] { 0 });
+		byte[][]     bounds = AggregatorUtils.bounds(null, new KeyValue(lower, Bytes.toBytes("d"), Bytes.toBytes("x")).getKey(), upper);
+		Scan         scan   = new Scan();
+		List<byte[]> keys   = AggregatorUtils.split(scan, bounds, 16);
+		check(scan, bounds, keys);
+		scan = new Scan(Bytes.toBytes("a"), Bytes.toBytes("a\u0001"));
+		keys = AggregatorUtils.split(scan, bounds("a", "b"), 64);
+		check(scan, bounds("a", "b"), keys);
+	}
+}